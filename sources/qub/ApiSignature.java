@@ -0,0 +1,218 @@
+package qub;
+
+public class ApiSignature
+{
+    private static final int accessPrivate = 0x0002;
+    private static final int accessStatic = 0x0008;
+    private static final int accessFinal = 0x0010;
+
+    ApiSignature()
+    {
+    }
+
+    public static String getHash(byte[] classFileContents)
+    {
+        PreCondition.assertNotNull(classFileContents, "classFileContents");
+
+        final String result = ContentHash.sha256(getSignature(classFileContents).getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        PostCondition.assertNotNullAndNotEmpty(result, "result");
+
+        return result;
+    }
+
+    public static boolean declaresConstants(byte[] classFileContents)
+    {
+        PreCondition.assertNotNull(classFileContents, "classFileContents");
+
+        boolean result = false;
+        for (final String line : getSignature(classFileContents).split("\n"))
+        {
+            if (line.startsWith("field ") && line.contains(" value "))
+            {
+                result = true;
+                break;
+            }
+        }
+        return result;
+    }
+
+    // Everything about a class that code compiled against it can depend on: its declaration and
+    // its non-private members, including constant values that javac inlines into callers.
+    public static String getSignature(byte[] classFileContents)
+    {
+        PreCondition.assertNotNull(classFileContents, "classFileContents");
+
+        final StringBuilder result = new StringBuilder();
+        try
+        {
+            final java.io.DataInputStream input = new java.io.DataInputStream(new java.io.ByteArrayInputStream(classFileContents));
+            if (input.readInt() != 0xCAFEBABE)
+            {
+                throw new java.io.IOException("Not a class file.");
+            }
+            input.readUnsignedShort();
+            input.readUnsignedShort();
+
+            final int constantPoolCount = input.readUnsignedShort();
+            final String[] constants = new String[constantPoolCount];
+            final int[] classNameIndexes = new int[constantPoolCount];
+            final int[] stringIndexes = new int[constantPoolCount];
+            for (int index = 1; index < constantPoolCount; ++index)
+            {
+                final int tag = input.readUnsignedByte();
+                switch (tag)
+                {
+                    case 1:
+                        constants[index] = input.readUTF();
+                        break;
+
+                    case 3:
+                        constants[index] = "I" + input.readInt();
+                        break;
+
+                    case 4:
+                        constants[index] = "F" + Float.floatToIntBits(input.readFloat());
+                        break;
+
+                    case 5:
+                        constants[index] = "J" + input.readLong();
+                        ++index;
+                        break;
+
+                    case 6:
+                        constants[index] = "D" + Double.doubleToLongBits(input.readDouble());
+                        ++index;
+                        break;
+
+                    case 7:
+                        classNameIndexes[index] = input.readUnsignedShort();
+                        break;
+
+                    case 8:
+                        stringIndexes[index] = input.readUnsignedShort();
+                        break;
+
+                    case 16:
+                    case 19:
+                    case 20:
+                        input.readUnsignedShort();
+                        break;
+
+                    case 15:
+                        input.readUnsignedByte();
+                        input.readUnsignedShort();
+                        break;
+
+                    case 9:
+                    case 10:
+                    case 11:
+                    case 12:
+                    case 17:
+                    case 18:
+                        input.readInt();
+                        break;
+
+                    default:
+                        throw new java.io.IOException("Unrecognized constant pool tag: " + tag);
+                }
+            }
+            for (int index = 1; index < constantPoolCount; ++index)
+            {
+                if (classNameIndexes[index] != 0)
+                {
+                    constants[index] = constants[classNameIndexes[index]];
+                }
+                else if (stringIndexes[index] != 0)
+                {
+                    constants[index] = "S" + constants[stringIndexes[index]];
+                }
+            }
+
+            final int classAccessFlags = input.readUnsignedShort();
+            result.append("class ").append(classAccessFlags)
+                .append(' ').append(constants[input.readUnsignedShort()]);
+            final int superClassIndex = input.readUnsignedShort();
+            result.append(" extends ").append(superClassIndex == 0 ? "" : constants[superClassIndex]);
+            final int interfaceCount = input.readUnsignedShort();
+            final java.util.TreeSet<String> interfaces = new java.util.TreeSet<>();
+            for (int i = 0; i < interfaceCount; ++i)
+            {
+                interfaces.add(constants[input.readUnsignedShort()]);
+            }
+            result.append(" implements ").append(String.join(",", interfaces)).append('\n');
+
+            final java.util.TreeSet<String> members = new java.util.TreeSet<>();
+            for (final String memberKind : new String[] { "field", "method" })
+            {
+                final int memberCount = input.readUnsignedShort();
+                for (int i = 0; i < memberCount; ++i)
+                {
+                    final int accessFlags = input.readUnsignedShort();
+                    final String name = constants[input.readUnsignedShort()];
+                    final String descriptor = constants[input.readUnsignedShort()];
+                    final StringBuilder member = new StringBuilder()
+                        .append(memberKind).append(' ').append(accessFlags).append(' ').append(name).append(' ').append(descriptor);
+                    final boolean isConstant = memberKind.equals("field") && (accessFlags & (accessStatic | accessFinal)) == (accessStatic | accessFinal);
+                    final int attributeCount = input.readUnsignedShort();
+                    for (int j = 0; j < attributeCount; ++j)
+                    {
+                        final String attributeName = constants[input.readUnsignedShort()];
+                        final int attributeLength = input.readInt();
+                        if (attributeName.equals("Signature"))
+                        {
+                            member.append(" signature ").append(constants[input.readUnsignedShort()]);
+                        }
+                        else if (attributeName.equals("ConstantValue") && isConstant)
+                        {
+                            member.append(" value ").append(constants[input.readUnsignedShort()]);
+                        }
+                        else if (attributeName.equals("Exceptions"))
+                        {
+                            final int exceptionCount = input.readUnsignedShort();
+                            member.append(" throws");
+                            for (int k = 0; k < exceptionCount; ++k)
+                            {
+                                member.append(' ').append(constants[input.readUnsignedShort()]);
+                            }
+                        }
+                        else
+                        {
+                            input.skipBytes(attributeLength);
+                        }
+                    }
+                    if ((accessFlags & accessPrivate) == 0)
+                    {
+                        members.add(member.toString());
+                    }
+                }
+            }
+            for (final String member : members)
+            {
+                result.append(member).append('\n');
+            }
+
+            final int classAttributeCount = input.readUnsignedShort();
+            for (int i = 0; i < classAttributeCount; ++i)
+            {
+                final String attributeName = constants[input.readUnsignedShort()];
+                final int attributeLength = input.readInt();
+                if (attributeName.equals("Signature"))
+                {
+                    result.append("signature ").append(constants[input.readUnsignedShort()]).append('\n');
+                }
+                else
+                {
+                    input.skipBytes(attributeLength);
+                }
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            // Anything that can't be parsed is treated as its own API, so any change to it counts.
+            result.setLength(0);
+            result.append("unparsed ").append(ContentHash.sha256(classFileContents));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,140 @@
+package qub;
+
+public class ArtifactPublisher
+{
+    public static final long maximumTransferChunkSize = 8L * 1024 * 1024;
+
+    private final PublishMode mode;
+
+    public ArtifactPublisher(PublishMode mode)
+    {
+        PreCondition.assertNotNull(mode, "mode");
+
+        this.mode = mode;
+    }
+
+    public PublishMode getMode()
+    {
+        return mode;
+    }
+
+    public static Result<PublishMode> parseMode(String text)
+    {
+        Result<PublishMode> result;
+        // link is kept as another name for copy, since copy also hard links the installed jar to the
+        // stored one and a stored jar is never a link to the rebuilt outputs jar.
+        if (Strings.isNullOrEmpty(text) || text.equalsIgnoreCase("copy") || text.equalsIgnoreCase("link"))
+        {
+            result = Result.success(PublishMode.Copy);
+        }
+        else if (text.equalsIgnoreCase("move"))
+        {
+            result = Result.success(PublishMode.Move);
+        }
+        else
+        {
+            result = Result.error(new IllegalArgumentException("Unrecognized publish mode: " + Strings.escapeAndQuote(text) + ". Expected copy or move."));
+        }
+        return result;
+    }
+
+    public Result<PublishMode> publish(File source, File target)
+    {
+        PreCondition.assertNotNull(source, "source");
+        PreCondition.assertNotNull(target, "target");
+
+        return Result.create(() ->
+        {
+            PublishMode result = PublishMode.Copy;
+            if (!isLocal(source) || !isLocal(target))
+            {
+                source.copyTo(target).await();
+            }
+            else
+            {
+                final java.nio.file.Path sourcePath = toLocalPath(source);
+                final java.nio.file.Path targetPath = toLocalPath(target);
+                try
+                {
+                    java.nio.file.Files.createDirectories(targetPath.getParent());
+                    final boolean sameVolume = java.nio.file.Files.getFileStore(sourcePath)
+                        .equals(java.nio.file.Files.getFileStore(targetPath.getParent()));
+                    if (sameVolume && mode == PublishMode.HardLink && tryHardLink(sourcePath, targetPath))
+                    {
+                        result = PublishMode.HardLink;
+                    }
+                    else if (sameVolume && mode == PublishMode.Move && tryMove(sourcePath, targetPath))
+                    {
+                        result = PublishMode.Move;
+                    }
+                    else
+                    {
+                        transfer(sourcePath, targetPath);
+                    }
+                }
+                catch (java.io.IOException e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }
+            return result;
+        });
+    }
+
+    private static boolean isLocal(File file)
+    {
+        return CountingFileSystem.getInnerFileSystem(file.getFileSystem()) instanceof JavaFileSystem;
+    }
+
+    private static java.nio.file.Path toLocalPath(File file)
+    {
+        return java.nio.file.Paths.get(file.toString());
+    }
+
+    private static boolean tryHardLink(java.nio.file.Path sourcePath, java.nio.file.Path targetPath)
+    {
+        boolean result;
+        try
+        {
+            java.nio.file.Files.createLink(targetPath, sourcePath);
+            result = true;
+        }
+        catch (java.io.IOException | UnsupportedOperationException e)
+        {
+            result = false;
+        }
+        return result;
+    }
+
+    private static boolean tryMove(java.nio.file.Path sourcePath, java.nio.file.Path targetPath)
+    {
+        boolean result;
+        try
+        {
+            java.nio.file.Files.move(sourcePath, targetPath, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+            result = true;
+        }
+        catch (java.io.IOException | UnsupportedOperationException e)
+        {
+            result = false;
+        }
+        return result;
+    }
+
+    private static void transfer(java.nio.file.Path sourcePath, java.nio.file.Path targetPath) throws java.io.IOException
+    {
+        try (final java.nio.channels.FileChannel sourceChannel = java.nio.channels.FileChannel.open(sourcePath, java.nio.file.StandardOpenOption.READ);
+             final java.nio.channels.FileChannel targetChannel = java.nio.channels.FileChannel.open(targetPath,
+                 java.nio.file.StandardOpenOption.CREATE,
+                 java.nio.file.StandardOpenOption.TRUNCATE_EXISTING,
+                 java.nio.file.StandardOpenOption.WRITE))
+        {
+            final long size = sourceChannel.size();
+            long position = 0;
+            while (position < size)
+            {
+                position += sourceChannel.transferTo(position, Math.min(maximumTransferChunkSize, size - position), targetChannel);
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package qub;
+
+public class AtomicFiles
+{
+    public static final String stagingFolderInfix = ".staging-";
+    public static final String temporaryFileExtension = ".tmp";
+
+    AtomicFiles()
+    {
+    }
+
+    public static Folder getStagingFolder(Folder targetFolder)
+    {
+        PreCondition.assertNotNull(targetFolder, "targetFolder");
+
+        final Folder result = targetFolder.getParentFolder().await()
+            .getFolder("." + targetFolder.getName() + stagingFolderInfix + java.util.UUID.randomUUID()).await();
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public static boolean isStagingFolder(Folder folder)
+    {
+        PreCondition.assertNotNull(folder, "folder");
+
+        final String name = folder.getName();
+        return name.startsWith(".") && name.contains(stagingFolderInfix);
+    }
+
+    public static Result<Void> setContentsAsString(File file, String contents)
+    {
+        return setContentsAsString(file, contents, false);
+    }
+
+    // When ownerOnly is true, the file is only readable and writable by the current user from the
+    // moment it is created, so no other user ever sees its contents.
+    public static Result<Void> setContentsAsString(File file, String contents, boolean ownerOnly)
+    {
+        PreCondition.assertNotNull(file, "file");
+        PreCondition.assertNotNull(contents, "contents");
+
+        return Result.create(() ->
+        {
+            if (!isLocal(file.getFileSystem()))
+            {
+                file.setContentsAsString(contents).await();
+            }
+            else
+            {
+                writeLocal(file, contents.getBytes(java.nio.charset.StandardCharsets.UTF_8), ownerOnly);
+            }
+        });
+    }
+
+    // Readers of the file see either its old contents or all of the new contents, never a partly
+    // written file.
+    public static Result<Void> setContents(File file, byte[] contents)
+    {
+        PreCondition.assertNotNull(file, "file");
+        PreCondition.assertNotNull(contents, "contents");
+
+        return Result.create(() ->
+        {
+            if (!isLocal(file.getFileSystem()))
+            {
+                file.setContents(contents).await();
+            }
+            else
+            {
+                writeLocal(file, contents, false);
+            }
+        });
+    }
+
+    private static void writeLocal(File file, byte[] contents, boolean ownerOnly)
+    {
+        final java.nio.file.Path targetPath = java.nio.file.Paths.get(file.toString());
+        final java.nio.file.Path temporaryPath = targetPath.resolveSibling("." + targetPath.getFileName() + "." + java.util.UUID.randomUUID() + temporaryFileExtension);
+        try
+        {
+            java.nio.file.Files.createDirectories(targetPath.getParent());
+            if (ownerOnly)
+            {
+                createOwnerOnlyFile(temporaryPath);
+            }
+            java.nio.file.Files.write(temporaryPath, contents);
+            try
+            {
+                java.nio.file.Files.move(temporaryPath, targetPath,
+                    java.nio.file.StandardCopyOption.ATOMIC_MOVE,
+                    java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (java.nio.file.AtomicMoveNotSupportedException e)
+            {
+                java.nio.file.Files.move(temporaryPath, targetPath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            try
+            {
+                java.nio.file.Files.deleteIfExists(temporaryPath);
+            }
+            catch (java.io.IOException ignored)
+            {
+            }
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void createOwnerOnlyFile(java.nio.file.Path path) throws java.io.IOException
+    {
+        try
+        {
+            java.nio.file.Files.createFile(path, java.nio.file.attribute.PosixFilePermissions.asFileAttribute(
+                java.nio.file.attribute.PosixFilePermissions.fromString("rw-------")));
+        }
+        catch (UnsupportedOperationException e)
+        {
+            // File systems without POSIX permissions (such as NTFS) only get an ACL entry for the owner.
+            java.nio.file.Files.createFile(path);
+            final java.nio.file.attribute.AclFileAttributeView aclView = java.nio.file.Files.getFileAttributeView(path, java.nio.file.attribute.AclFileAttributeView.class);
+            if (aclView != null)
+            {
+                final java.nio.file.attribute.AclEntry ownerEntry = java.nio.file.attribute.AclEntry.newBuilder()
+                    .setType(java.nio.file.attribute.AclEntryType.ALLOW)
+                    .setPrincipal(aclView.getOwner())
+                    .setPermissions(
+                        java.nio.file.attribute.AclEntryPermission.READ_DATA,
+                        java.nio.file.attribute.AclEntryPermission.WRITE_DATA,
+                        java.nio.file.attribute.AclEntryPermission.APPEND_DATA,
+                        java.nio.file.attribute.AclEntryPermission.READ_ATTRIBUTES,
+                        java.nio.file.attribute.AclEntryPermission.WRITE_ATTRIBUTES,
+                        java.nio.file.attribute.AclEntryPermission.READ_ACL,
+                        java.nio.file.attribute.AclEntryPermission.DELETE)
+                    .build();
+                aclView.setAcl(java.util.Collections.singletonList(ownerEntry));
+            }
+        }
+    }
+
+    public static Result<Void> moveFolder(Folder sourceFolder, Folder targetFolder)
+    {
+        PreCondition.assertNotNull(sourceFolder, "sourceFolder");
+        PreCondition.assertNotNull(targetFolder, "targetFolder");
+
+        return Result.create(() ->
+        {
+            if (targetFolder.exists().await())
+            {
+                throw new IllegalStateException("The folder " + targetFolder.toString() + " already exists.");
+            }
+
+            if (!isLocal(sourceFolder.getFileSystem()) || !isLocal(targetFolder.getFileSystem()))
+            {
+                for (final File sourceFile : sourceFolder.getFilesRecursively().await())
+                {
+                    sourceFile.copyTo(targetFolder.getFile(sourceFile.relativeTo(sourceFolder).toString()).await()).await();
+                }
+                sourceFolder.delete().await();
+            }
+            else
+            {
+                try
+                {
+                    java.nio.file.Files.move(
+                        java.nio.file.Paths.get(sourceFolder.toString()),
+                        java.nio.file.Paths.get(targetFolder.toString()),
+                        java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch (java.nio.file.FileAlreadyExistsException | java.nio.file.DirectoryNotEmptyException e)
+                {
+                    throw new IllegalStateException("The folder " + targetFolder.toString() + " already exists.");
+                }
+                catch (java.io.IOException e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+    }
+
+    public static Result<Void> replaceFolder(Folder sourceFolder, Folder targetFolder)
+    {
+        PreCondition.assertNotNull(sourceFolder, "sourceFolder");
+        PreCondition.assertNotNull(targetFolder, "targetFolder");
+
+        return Result.create(() ->
+        {
+            final Folder previousFolder = targetFolder.exists().await() ? getStagingFolder(targetFolder) : null;
+            if (previousFolder != null)
+            {
+                moveFolder(targetFolder, previousFolder).await();
+            }
+
+            try
+            {
+                moveFolder(sourceFolder, targetFolder).await();
+            }
+            catch (RuntimeException e)
+            {
+                if (previousFolder != null)
+                {
+                    moveFolder(previousFolder, targetFolder).await();
+                }
+                throw e;
+            }
+
+            if (previousFolder != null)
+            {
+                deleteFolder(previousFolder).await();
+            }
+        });
+    }
+
+    public static Result<Void> deleteFolder(Folder folder)
+    {
+        PreCondition.assertNotNull(folder, "folder");
+
+        return Result.create(() ->
+        {
+            if (folder.exists().await())
+            {
+                if (!isLocal(folder.getFileSystem()))
+                {
+                    folder.delete().await();
+                }
+                else
+                {
+                    try (final java.util.stream.Stream<java.nio.file.Path> paths = java.nio.file.Files.walk(java.nio.file.Paths.get(folder.toString())))
+                    {
+                        final java.util.List<java.nio.file.Path> pathsToDelete = paths
+                            .sorted(java.util.Comparator.reverseOrder())
+                            .collect(java.util.stream.Collectors.toList());
+                        for (final java.nio.file.Path path : pathsToDelete)
+                        {
+                            java.nio.file.Files.deleteIfExists(path);
+                        }
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+        });
+    }
+
+    private static boolean isLocal(FileSystem fileSystem)
+    {
+        return CountingFileSystem.getInnerFileSystem(fileSystem) instanceof JavaFileSystem;
+    }
+}
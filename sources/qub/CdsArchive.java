@@ -0,0 +1,88 @@
+package qub;
+
+public class CdsArchive
+{
+    public static final String archiveFileExtension = ".jsa";
+    public static final String fingerprintFileExtension = ".jsa.classpath";
+
+    CdsArchive()
+    {
+    }
+
+    public static File getArchiveFile(Folder versionFolder, String shortcutName)
+    {
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+        PreCondition.assertNotNullAndNotEmpty(shortcutName, "shortcutName");
+
+        return versionFolder.getFile(shortcutName + archiveFileExtension).await();
+    }
+
+    public static File getFingerprintFile(File archiveFile)
+    {
+        PreCondition.assertNotNull(archiveFile, "archiveFile");
+
+        return archiveFile.getParentFolder().await()
+            .getFile(archiveFile.getNameWithoutFileExtension() + fingerprintFileExtension).await();
+    }
+
+    public static Result<String> getFingerprint(Iterable<File> classpathFiles)
+    {
+        PreCondition.assertNotNull(classpathFiles, "classpathFiles");
+
+        return Result.create(() ->
+        {
+            final StringBuilder builder = new StringBuilder();
+            for (final File classpathFile : classpathFiles)
+            {
+                builder.append(ContentHash.sha256(classpathFile).await()).append(' ').append(classpathFile.toString()).append('\n');
+            }
+            return builder.toString();
+        });
+    }
+
+    public static Result<Boolean> isUpToDate(File archiveFile, Iterable<File> classpathFiles)
+    {
+        PreCondition.assertNotNull(archiveFile, "archiveFile");
+        PreCondition.assertNotNull(classpathFiles, "classpathFiles");
+
+        return Result.create(() ->
+        {
+            final File fingerprintFile = getFingerprintFile(archiveFile);
+            return archiveFile.exists().await() &&
+                fingerprintFile.exists().await() &&
+                fingerprintFile.getContentsAsString().await().equals(getFingerprint(classpathFiles).await());
+        });
+    }
+
+    public static Result<Void> create(File archiveFile, File launcherJarFile, Iterable<File> classpathFiles, Iterable<String> jvmOptions, Iterable<String> trainingArguments)
+    {
+        PreCondition.assertNotNull(archiveFile, "archiveFile");
+        PreCondition.assertNotNull(launcherJarFile, "launcherJarFile");
+        PreCondition.assertNotNull(classpathFiles, "classpathFiles");
+        PreCondition.assertNotNull(jvmOptions, "jvmOptions");
+        PreCondition.assertNotNull(trainingArguments, "trainingArguments");
+
+        return Result.create(() ->
+        {
+            if (!(CountingFileSystem.getInnerFileSystem(archiveFile.getFileSystem()) instanceof JavaFileSystem))
+            {
+                throw new UnsupportedOperationException("Class data sharing archives can only be created on a local file system.");
+            }
+
+            final List<String> arguments = List.create();
+            arguments.addAll(jvmOptions);
+            arguments.add("-XX:ArchiveClassesAtExit=" + archiveFile.toString());
+            arguments.add("-jar");
+            arguments.add(launcherJarFile.toString());
+            arguments.addAll(trainingArguments);
+            final JavaProcess trainingRun = JavaProcess.run(arguments, JavaProcess.defaultTimeoutSeconds).await();
+
+            if (!archiveFile.exists().await())
+            {
+                throw new RuntimeException("The training run didn't create " + archiveFile.toString() + ". This requires a JDK that supports -XX:ArchiveClassesAtExit (13 or later). Training run output: " + trainingRun.getOutput().trim());
+            }
+
+            getFingerprintFile(archiveFile).setContentsAsString(getFingerprint(classpathFiles).await()).await();
+        });
+    }
+}
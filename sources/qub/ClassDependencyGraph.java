@@ -0,0 +1,459 @@
+package qub;
+
+public class ClassDependencyGraph
+{
+    public static final String fileExtension = ".classgraph";
+
+    private final java.util.TreeMap<String,String> classHashes;
+    private final java.util.TreeSet<String> testClassNames;
+    private final java.util.TreeMap<String,java.util.TreeSet<String>> classDependencies;
+    private final java.util.TreeMap<String,String> inputHashes;
+
+    private ClassDependencyGraph()
+    {
+        this.classHashes = new java.util.TreeMap<>();
+        this.testClassNames = new java.util.TreeSet<>();
+        this.classDependencies = new java.util.TreeMap<>();
+        this.inputHashes = new java.util.TreeMap<>();
+    }
+
+    public static ClassDependencyGraph create()
+    {
+        return new ClassDependencyGraph();
+    }
+
+    public static Result<ClassDependencyGraph> create(Folder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        return Result.create(() ->
+        {
+            final ClassDependencyGraph result = new ClassDependencyGraph();
+            final Folder outputsFolder = projectFolder.getFolder("outputs").await();
+            final Folder testsFolder = projectFolder.getFolder("tests").await();
+            final java.util.TreeMap<String,byte[]> classFileContents = new java.util.TreeMap<>();
+            if (outputsFolder.exists().await())
+            {
+                for (final File classFile : outputsFolder.getFilesRecursively().await())
+                {
+                    final String relativePath = classFile.relativeTo(outputsFolder).toString();
+                    if (relativePath.endsWith(".class"))
+                    {
+                        String classPath = relativePath.substring(0, relativePath.length() - ".class".length());
+                        boolean isTest = false;
+                        if (classPath.startsWith("tests/"))
+                        {
+                            classPath = classPath.substring("tests/".length());
+                            isTest = true;
+                        }
+                        else if (classPath.startsWith("sources/"))
+                        {
+                            classPath = classPath.substring("sources/".length());
+                        }
+                        else
+                        {
+                            final int nestedClassIndex = classPath.indexOf('$');
+                            final String topLevelClassPath = nestedClassIndex == -1 ? classPath : classPath.substring(0, nestedClassIndex);
+                            isTest = testsFolder.getFile(topLevelClassPath + ".java").await().exists().await();
+                        }
+
+                        final String className = classPath.replace('/', '.');
+                        final byte[] contents = classFile.getContents().await();
+                        classFileContents.put(className, contents);
+                        result.classHashes.put(className, ContentHash.sha256(contents));
+                        if (isTest)
+                        {
+                            result.testClassNames.add(className);
+                        }
+                    }
+                }
+            }
+
+            for (final java.util.Map.Entry<String,byte[]> entry : classFileContents.entrySet())
+            {
+                final java.util.TreeSet<String> dependencies = new java.util.TreeSet<>();
+                for (final String referencedClassName : getReferencedClassNames(entry.getValue()))
+                {
+                    if (!referencedClassName.equals(entry.getKey()) && result.classHashes.containsKey(referencedClassName))
+                    {
+                        dependencies.add(referencedClassName);
+                    }
+                }
+                result.classDependencies.put(entry.getKey(), dependencies);
+            }
+
+            return result;
+        });
+    }
+
+    public static Result<ClassDependencyGraph> parse(File graphFile)
+    {
+        PreCondition.assertNotNull(graphFile, "graphFile");
+
+        return graphFile.getContentsAsString()
+            .then((String contents) ->
+            {
+                final ClassDependencyGraph result = new ClassDependencyGraph();
+                for (final String line : Strings.getLines(contents))
+                {
+                    if (!Strings.isNullOrEmpty(line))
+                    {
+                        final String[] parts = line.split("\t", -1);
+                        if (parts.length == 3 && parts[0].equals("input"))
+                        {
+                            result.setInputHash(parts[1], parts[2]);
+                        }
+                        else if (parts.length == 4)
+                        {
+                            result.addClass(parts[0], parts[1], parts[2].equals("test"), parts[3].isEmpty() ? Iterable.create() : Iterable.create(parts[3].split(",")));
+                        }
+                        else
+                        {
+                            throw new IllegalArgumentException("Expected 4 tab-separated values in class graph line " + Strings.escapeAndQuote(line) + ".");
+                        }
+                    }
+                }
+                return result;
+            });
+    }
+
+    public static File getGraphFile(File projectJarFile)
+    {
+        PreCondition.assertNotNull(projectJarFile, "projectJarFile");
+
+        final File result = projectJarFile.getParentFolder().await()
+            .getFile(projectJarFile.getNameWithoutFileExtension() + fileExtension).await();
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public static Iterable<String> getReferencedClassNames(byte[] classFileContents)
+    {
+        PreCondition.assertNotNull(classFileContents, "classFileContents");
+
+        final java.util.TreeSet<String> referencedClassNames = new java.util.TreeSet<>();
+        try
+        {
+            final java.io.DataInputStream input = new java.io.DataInputStream(new java.io.ByteArrayInputStream(classFileContents));
+            if (input.readInt() == 0xCAFEBABE)
+            {
+                input.readUnsignedShort();
+                input.readUnsignedShort();
+                final int constantPoolCount = input.readUnsignedShort();
+                final String[] utf8Constants = new String[constantPoolCount];
+                final java.util.List<java.lang.Integer> classNameIndexes = new java.util.ArrayList<>();
+                for (int index = 1; index < constantPoolCount; ++index)
+                {
+                    final int tag = input.readUnsignedByte();
+                    switch (tag)
+                    {
+                        case 1:
+                            utf8Constants[index] = input.readUTF();
+                            break;
+
+                        case 7:
+                            classNameIndexes.add(input.readUnsignedShort());
+                            break;
+
+                        case 8:
+                        case 16:
+                        case 19:
+                        case 20:
+                            input.readUnsignedShort();
+                            break;
+
+                        case 15:
+                            input.readUnsignedByte();
+                            input.readUnsignedShort();
+                            break;
+
+                        case 3:
+                        case 4:
+                        case 9:
+                        case 10:
+                        case 11:
+                        case 12:
+                        case 17:
+                        case 18:
+                            input.readInt();
+                            break;
+
+                        case 5:
+                        case 6:
+                            input.readLong();
+                            // Long and double constants take up two constant pool entries.
+                            ++index;
+                            break;
+
+                        default:
+                            throw new java.io.IOException("Unrecognized constant pool tag: " + tag);
+                    }
+                }
+
+                for (final int classNameIndex : classNameIndexes)
+                {
+                    final String className = utf8Constants[classNameIndex];
+                    if (className != null && !className.startsWith("["))
+                    {
+                        referencedClassNames.add(className.replace('/', '.'));
+                    }
+                }
+
+                // Types that only appear in field and method descriptors don't get their own class constants.
+                final java.util.regex.Matcher descriptorMatcher = java.util.regex.Pattern.compile("L([^;<>]+)[;<]").matcher("");
+                for (final String utf8Constant : utf8Constants)
+                {
+                    if (utf8Constant != null && utf8Constant.indexOf('L') != -1)
+                    {
+                        descriptorMatcher.reset(utf8Constant);
+                        while (descriptorMatcher.find())
+                        {
+                            referencedClassNames.add(descriptorMatcher.group(1).replace('/', '.'));
+                        }
+                    }
+                }
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            // Files that aren't valid class files don't contribute any dependencies.
+        }
+
+        final Iterable<String> result = Iterable.create(referencedClassNames.toArray(new String[0]));
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public void addClass(String className, String hash, boolean isTest, Iterable<String> dependencies)
+    {
+        PreCondition.assertNotNullAndNotEmpty(className, "className");
+        PreCondition.assertNotNullAndNotEmpty(hash, "hash");
+        PreCondition.assertNotNull(dependencies, "dependencies");
+
+        classHashes.put(className, hash);
+        if (isTest)
+        {
+            testClassNames.add(className);
+        }
+        else
+        {
+            testClassNames.remove(className);
+        }
+        final java.util.TreeSet<String> classDependencySet = new java.util.TreeSet<>();
+        for (final String dependency : dependencies)
+        {
+            classDependencySet.add(dependency);
+        }
+        classDependencies.put(className, classDependencySet);
+    }
+
+    public void setInputHash(String inputName, String hash)
+    {
+        PreCondition.assertNotNullAndNotEmpty(inputName, "inputName");
+        PreCondition.assertNotNullAndNotEmpty(hash, "hash");
+
+        inputHashes.put(inputName, hash);
+    }
+
+    public String getInputHash(String inputName)
+    {
+        PreCondition.assertNotNullAndNotEmpty(inputName, "inputName");
+
+        return inputHashes.get(inputName);
+    }
+
+    // Inputs are the files outside of the compiled classes that the tests depend on, such as the
+    // project.json file and the dependency jars. Input files that don't exist aren't recorded.
+    public Result<Void> addInputFiles(Iterable<File> inputFiles)
+    {
+        PreCondition.assertNotNull(inputFiles, "inputFiles");
+
+        return Result.create(() ->
+        {
+            for (final File inputFile : inputFiles)
+            {
+                if (inputFile.exists().await())
+                {
+                    setInputHash(inputFile.toString(), ContentHash.sha256(inputFile).await());
+                }
+            }
+        });
+    }
+
+    public Iterable<String> getChangedInputNames(ClassDependencyGraph previous)
+    {
+        PreCondition.assertNotNull(previous, "previous");
+
+        final java.util.TreeSet<String> changedInputNames = new java.util.TreeSet<>();
+        for (final java.util.Map.Entry<String,String> entry : inputHashes.entrySet())
+        {
+            if (!entry.getValue().equals(previous.inputHashes.get(entry.getKey())))
+            {
+                changedInputNames.add(entry.getKey());
+            }
+        }
+        for (final String previousInputName : previous.inputHashes.keySet())
+        {
+            if (!inputHashes.containsKey(previousInputName))
+            {
+                changedInputNames.add(previousInputName);
+            }
+        }
+        return Iterable.create(changedInputNames.toArray(new String[0]));
+    }
+
+    public Iterable<String> getClassNames()
+    {
+        return Iterable.create(classHashes.keySet().toArray(new String[0]));
+    }
+
+    public Iterable<String> getTestClassNames()
+    {
+        return Iterable.create(testClassNames.toArray(new String[0]));
+    }
+
+    public boolean isTestClass(String className)
+    {
+        PreCondition.assertNotNullAndNotEmpty(className, "className");
+
+        return testClassNames.contains(className);
+    }
+
+    public String getHash(String className)
+    {
+        PreCondition.assertNotNullAndNotEmpty(className, "className");
+
+        return classHashes.get(className);
+    }
+
+    public Iterable<String> getDependencies(String className)
+    {
+        PreCondition.assertNotNullAndNotEmpty(className, "className");
+
+        final java.util.TreeSet<String> dependencies = classDependencies.get(className);
+        return dependencies == null ? Iterable.create() : Iterable.create(dependencies.toArray(new String[0]));
+    }
+
+    public Iterable<String> getReachableClassNames(String className)
+    {
+        PreCondition.assertNotNullAndNotEmpty(className, "className");
+
+        final java.util.TreeSet<String> reachable = new java.util.TreeSet<>();
+        final java.util.ArrayDeque<String> toVisit = new java.util.ArrayDeque<>();
+        toVisit.add(className);
+        while (!toVisit.isEmpty())
+        {
+            final String current = toVisit.remove();
+            if (reachable.add(current))
+            {
+                final java.util.TreeSet<String> dependencies = classDependencies.get(current);
+                if (dependencies != null)
+                {
+                    toVisit.addAll(dependencies);
+                }
+            }
+        }
+        return Iterable.create(reachable.toArray(new String[0]));
+    }
+
+    public Iterable<String> getChangedClassNames(ClassDependencyGraph previous)
+    {
+        PreCondition.assertNotNull(previous, "previous");
+
+        final java.util.TreeSet<String> changedClassNames = new java.util.TreeSet<>();
+        for (final java.util.Map.Entry<String,String> entry : classHashes.entrySet())
+        {
+            if (!entry.getValue().equals(previous.classHashes.get(entry.getKey())))
+            {
+                changedClassNames.add(entry.getKey());
+            }
+        }
+        for (final String previousClassName : previous.classHashes.keySet())
+        {
+            if (!classHashes.containsKey(previousClassName))
+            {
+                changedClassNames.add(previousClassName);
+            }
+        }
+        return Iterable.create(changedClassNames.toArray(new String[0]));
+    }
+
+    public Iterable<String> getImpactedTestClassNames(ClassDependencyGraph previous)
+    {
+        PreCondition.assertNotNull(previous, "previous");
+
+        final java.util.HashSet<String> changedClassNames = new java.util.HashSet<>();
+        for (final String changedClassName : getChangedClassNames(previous))
+        {
+            changedClassNames.add(changedClassName);
+        }
+
+        final List<String> result = List.create();
+        for (final String testClassName : testClassNames)
+        {
+            // The previous graph is checked too, so a test that reached a class that has since been removed still runs.
+            boolean impacted = false;
+            for (final String reachableClassName : getReachableClassNames(testClassName))
+            {
+                if (changedClassNames.contains(reachableClassName))
+                {
+                    impacted = true;
+                    break;
+                }
+            }
+            if (!impacted)
+            {
+                for (final String reachableClassName : previous.getReachableClassNames(testClassName))
+                {
+                    if (changedClassNames.contains(reachableClassName))
+                    {
+                        impacted = true;
+                        break;
+                    }
+                }
+            }
+            if (impacted)
+            {
+                result.add(testClassName);
+            }
+        }
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public Result<Void> save(File graphFile)
+    {
+        PreCondition.assertNotNull(graphFile, "graphFile");
+
+        return graphFile.setContentsAsString(toString());
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        for (final java.util.Map.Entry<String,String> entry : inputHashes.entrySet())
+        {
+            builder.append("input")
+                .append('\t').append(entry.getKey())
+                .append('\t').append(entry.getValue())
+                .append('\n');
+        }
+        for (final java.util.Map.Entry<String,String> entry : classHashes.entrySet())
+        {
+            final String className = entry.getKey();
+            builder.append(className)
+                .append('\t').append(entry.getValue())
+                .append('\t').append(testClassNames.contains(className) ? "test" : "source")
+                .append('\t').append(String.join(",", classDependencies.get(className)))
+                .append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,320 @@
+package qub;
+
+public class CompilationState
+{
+    public static final String fileExtension = ".compilation";
+
+    private final java.util.TreeMap<String,String> sourceHashes;
+    private final java.util.TreeMap<String,java.util.TreeMap<String,String>> sourceClassApiHashes;
+    private final java.util.TreeMap<String,String> inputHashes;
+
+    private CompilationState()
+    {
+        this.sourceHashes = new java.util.TreeMap<>();
+        this.sourceClassApiHashes = new java.util.TreeMap<>();
+        this.inputHashes = new java.util.TreeMap<>();
+    }
+
+    public static CompilationState create()
+    {
+        return new CompilationState();
+    }
+
+    public static Result<CompilationState> create(Folder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        return Result.create(() ->
+        {
+            final CompilationState result = new CompilationState();
+            for (final String sourceFolderName : new String[] { "sources", "tests" })
+            {
+                final Folder sourceFolder = projectFolder.getFolder(sourceFolderName).await();
+                if (sourceFolder.exists().await())
+                {
+                    for (final File sourceFile : sourceFolder.getFilesRecursively().await())
+                    {
+                        final String sourcePath = sourceFile.relativeTo(projectFolder).toString();
+                        if (sourcePath.endsWith(".java"))
+                        {
+                            final java.util.TreeMap<String,String> classApiHashes = new java.util.TreeMap<>();
+                            for (final File classFile : getClassFiles(projectFolder, sourcePath))
+                            {
+                                classApiHashes.put(getClassName(projectFolder, classFile), ApiSignature.getHash(classFile.getContents().await()));
+                            }
+                            result.setSource(sourcePath, ContentHash.sha256(sourceFile).await(), classApiHashes);
+                        }
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    public static Result<CompilationState> parse(File stateFile)
+    {
+        PreCondition.assertNotNull(stateFile, "stateFile");
+
+        return stateFile.getContentsAsString()
+            .then((String contents) -> parse(contents));
+    }
+
+    public static CompilationState parse(String contents)
+    {
+        PreCondition.assertNotNull(contents, "contents");
+
+        final CompilationState result = new CompilationState();
+        for (final String line : Strings.getLines(contents))
+        {
+            if (!Strings.isNullOrEmpty(line))
+            {
+                final String[] parts = line.split("\t", -1);
+                if (parts.length != 3)
+                {
+                    throw new IllegalArgumentException("Expected 3 tab-separated values in compilation state line " + Strings.escapeAndQuote(line) + ".");
+                }
+                if (parts[0].equals("input"))
+                {
+                    result.setInputHash(parts[1], parts[2]);
+                }
+                else
+                {
+                    final java.util.TreeMap<String,String> classApiHashes = new java.util.TreeMap<>();
+                    if (!parts[2].isEmpty())
+                    {
+                        for (final String classApiHash : parts[2].split(","))
+                        {
+                            final int separatorIndex = classApiHash.lastIndexOf('=');
+                            classApiHashes.put(classApiHash.substring(0, separatorIndex), classApiHash.substring(separatorIndex + 1));
+                        }
+                    }
+                    result.setSource(parts[0], parts[1], classApiHashes);
+                }
+            }
+        }
+        return result;
+    }
+
+    public static File getStateFile(File projectJarFile)
+    {
+        PreCondition.assertNotNull(projectJarFile, "projectJarFile");
+
+        final File result = projectJarFile.getParentFolder().await()
+            .getFile(projectJarFile.getNameWithoutFileExtension() + fileExtension).await();
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public static Folder getClassFolder(Folder projectFolder, String sourcePath)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertNotNullAndNotEmpty(sourcePath, "sourcePath");
+
+        // Use the separate sources and tests output folders when the build creates them.
+        final Folder outputsFolder = projectFolder.getFolder("outputs").await();
+        final Folder result = outputsFolder.getFolder(sourcePath.startsWith("tests/") ? "tests" : "sources").await();
+        return result.exists().await() ? result : outputsFolder;
+    }
+
+    public static Iterable<File> getClassFiles(Folder projectFolder, String sourcePath)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertNotNullAndNotEmpty(sourcePath, "sourcePath");
+
+        final List<File> result = List.create();
+        final String classPath = getClassPath(sourcePath);
+        final Folder classFolder = getClassFolder(projectFolder, sourcePath);
+        final int lastSlashIndex = classPath.lastIndexOf('/');
+        final Folder packageFolder = lastSlashIndex == -1 ? classFolder : classFolder.getFolder(classPath.substring(0, lastSlashIndex)).await();
+        final String className = classPath.substring(lastSlashIndex + 1);
+        if (packageFolder.exists().await())
+        {
+            for (final File file : packageFolder.getFiles().await())
+            {
+                final String fileName = file.getName();
+                if (fileName.equals(className + ".class") || (fileName.startsWith(className + "$") && fileName.endsWith(".class")))
+                {
+                    result.add(file);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String getClassPath(String sourcePath)
+    {
+        final int firstSlashIndex = sourcePath.indexOf('/');
+        return sourcePath.substring(firstSlashIndex + 1, sourcePath.length() - ".java".length());
+    }
+
+    private static String getClassName(Folder projectFolder, File classFile)
+    {
+        final String relativePath = classFile.relativeTo(projectFolder.getFolder("outputs").await()).toString();
+        String classPath = relativePath.substring(0, relativePath.length() - ".class".length());
+        if (classPath.startsWith("sources/") || classPath.startsWith("tests/"))
+        {
+            classPath = classPath.substring(classPath.indexOf('/') + 1);
+        }
+        return classPath.replace('/', '.');
+    }
+
+    public void setSource(String sourcePath, String sourceHash, java.util.Map<String,String> classApiHashes)
+    {
+        PreCondition.assertNotNullAndNotEmpty(sourcePath, "sourcePath");
+        PreCondition.assertNotNullAndNotEmpty(sourceHash, "sourceHash");
+        PreCondition.assertNotNull(classApiHashes, "classApiHashes");
+
+        sourceHashes.put(sourcePath, sourceHash);
+        sourceClassApiHashes.put(sourcePath, new java.util.TreeMap<>(classApiHashes));
+    }
+
+    public void removeSource(String sourcePath)
+    {
+        PreCondition.assertNotNullAndNotEmpty(sourcePath, "sourcePath");
+
+        sourceHashes.remove(sourcePath);
+        sourceClassApiHashes.remove(sourcePath);
+    }
+
+    public Iterable<String> getSourcePaths()
+    {
+        return Iterable.create(sourceHashes.keySet().toArray(new String[0]));
+    }
+
+    public String getSourceHash(String sourcePath)
+    {
+        PreCondition.assertNotNullAndNotEmpty(sourcePath, "sourcePath");
+
+        return sourceHashes.get(sourcePath);
+    }
+
+    public Iterable<String> getClassNames(String sourcePath)
+    {
+        PreCondition.assertNotNullAndNotEmpty(sourcePath, "sourcePath");
+
+        final java.util.TreeMap<String,String> classApiHashes = sourceClassApiHashes.get(sourcePath);
+        return classApiHashes == null ? Iterable.create() : Iterable.create(classApiHashes.keySet().toArray(new String[0]));
+    }
+
+    public String getApiHash(String className)
+    {
+        PreCondition.assertNotNullAndNotEmpty(className, "className");
+
+        String result = null;
+        for (final java.util.TreeMap<String,String> classApiHashes : sourceClassApiHashes.values())
+        {
+            result = classApiHashes.get(className);
+            if (result != null)
+            {
+                break;
+            }
+        }
+        return result;
+    }
+
+    public String getSourcePath(String className)
+    {
+        PreCondition.assertNotNullAndNotEmpty(className, "className");
+
+        String result = null;
+        for (final java.util.Map.Entry<String,java.util.TreeMap<String,String>> entry : sourceClassApiHashes.entrySet())
+        {
+            if (entry.getValue().containsKey(className))
+            {
+                result = entry.getKey();
+                break;
+            }
+        }
+        return result;
+    }
+
+    public void setInputHash(String inputName, String hash)
+    {
+        PreCondition.assertNotNullAndNotEmpty(inputName, "inputName");
+        PreCondition.assertNotNullAndNotEmpty(hash, "hash");
+
+        inputHashes.put(inputName, hash);
+    }
+
+    public String getInputHash(String inputName)
+    {
+        PreCondition.assertNotNullAndNotEmpty(inputName, "inputName");
+
+        return inputHashes.get(inputName);
+    }
+
+    // Inputs are the files outside of the sources that every class is compiled against, such as the
+    // project.json file and the dependency jars. Input files that don't exist aren't recorded.
+    public Result<Void> addInputFiles(Iterable<File> inputFiles)
+    {
+        PreCondition.assertNotNull(inputFiles, "inputFiles");
+
+        return Result.create(() ->
+        {
+            for (final File inputFile : inputFiles)
+            {
+                if (inputFile.exists().await())
+                {
+                    setInputHash(inputFile.toString(), ContentHash.sha256(inputFile).await());
+                }
+            }
+        });
+    }
+
+    public Iterable<String> getChangedInputNames(CompilationState previous)
+    {
+        PreCondition.assertNotNull(previous, "previous");
+
+        final java.util.TreeSet<String> changedInputNames = new java.util.TreeSet<>();
+        for (final java.util.Map.Entry<String,String> entry : inputHashes.entrySet())
+        {
+            if (!entry.getValue().equals(previous.inputHashes.get(entry.getKey())))
+            {
+                changedInputNames.add(entry.getKey());
+            }
+        }
+        for (final String previousInputName : previous.inputHashes.keySet())
+        {
+            if (!inputHashes.containsKey(previousInputName))
+            {
+                changedInputNames.add(previousInputName);
+            }
+        }
+        return Iterable.create(changedInputNames.toArray(new String[0]));
+    }
+
+    public Result<Void> save(File stateFile)
+    {
+        PreCondition.assertNotNull(stateFile, "stateFile");
+
+        return stateFile.setContentsAsString(toString());
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        for (final java.util.Map.Entry<String,String> entry : inputHashes.entrySet())
+        {
+            builder.append("input")
+                .append('\t').append(entry.getKey())
+                .append('\t').append(entry.getValue())
+                .append('\n');
+        }
+        for (final java.util.Map.Entry<String,String> entry : sourceHashes.entrySet())
+        {
+            final java.util.List<String> classApiHashes = new java.util.ArrayList<>();
+            for (final java.util.Map.Entry<String,String> classApiHash : sourceClassApiHashes.get(entry.getKey()).entrySet())
+            {
+                classApiHashes.add(classApiHash.getKey() + "=" + classApiHash.getValue());
+            }
+            builder.append(entry.getKey())
+                .append('\t').append(entry.getValue())
+                .append('\t').append(String.join(",", classApiHashes))
+                .append('\n');
+        }
+        return builder.toString();
+    }
+}
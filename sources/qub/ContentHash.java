@@ -0,0 +1,100 @@
+package qub;
+
+public class ContentHash
+{
+    private static final char[] hexCharacters = "0123456789abcdef".toCharArray();
+
+    ContentHash()
+    {
+    }
+
+    public static java.security.MessageDigest createDigest()
+    {
+        try
+        {
+            return java.security.MessageDigest.getInstance("SHA-256");
+        }
+        catch (java.security.NoSuchAlgorithmException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static String sha256(byte[] bytes)
+    {
+        PreCondition.assertNotNull(bytes, "bytes");
+
+        final String result = toHexString(createDigest().digest(bytes));
+
+        PostCondition.assertNotNullAndNotEmpty(result, "result");
+
+        return result;
+    }
+
+    // Files on disk are hashed as they're read, so that hashing a large jar doesn't load all of it
+    // into memory.
+    public static Result<String> sha256(File file)
+    {
+        PreCondition.assertNotNull(file, "file");
+
+        return Result.create(() ->
+        {
+            String result;
+            if (CountingFileSystem.getInnerFileSystem(file.getFileSystem()) instanceof JavaFileSystem)
+            {
+                try (final java.io.InputStream fileStream = java.nio.file.Files.newInputStream(java.nio.file.Paths.get(file.toString())))
+                {
+                    result = sha256(fileStream);
+                }
+                catch (java.io.IOException e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }
+            else
+            {
+                result = sha256(file.getContents().await());
+            }
+            return result;
+        });
+    }
+
+    public static String sha256(java.io.InputStream stream)
+    {
+        PreCondition.assertNotNull(stream, "stream");
+
+        final java.security.MessageDigest digest = createDigest();
+        final byte[] buffer = new byte[JarStore.streamBufferSize];
+        try
+        {
+            int bytesRead;
+            while ((bytesRead = stream.read(buffer)) != -1)
+            {
+                digest.update(buffer, 0, bytesRead);
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        final String result = toHexString(digest.digest());
+
+        PostCondition.assertNotNullAndNotEmpty(result, "result");
+
+        return result;
+    }
+
+    public static String toHexString(byte[] digest)
+    {
+        PreCondition.assertNotNull(digest, "digest");
+
+        final char[] characters = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; ++i)
+        {
+            final int value = digest[i] & 0xFF;
+            characters[i * 2] = hexCharacters[value >>> 4];
+            characters[i * 2 + 1] = hexCharacters[value & 0x0F];
+        }
+        return new String(characters);
+    }
+}
@@ -0,0 +1,239 @@
+package qub;
+
+// Wraps another FileSystem and counts every call made through it. Folders, files, and the results
+// that contain them are rebound to the wrapper, so the calls made through them are counted too.
+// Calls that the wrapped file system makes on itself aren't counted.
+public class CountingFileSystem
+{
+    public static final String getFolderOperation = "getFolder";
+    public static final String getFileOperation = "getFile";
+    public static final String existsOperation = "exists";
+    public static final String readOperation = "read";
+    public static final String copyToOperation = "copyTo";
+    public static final String setContentsOperation = "setContents";
+    public static final String setContentsAsStringOperation = "setContentsAsString";
+
+    private final FileSystem innerFileSystem;
+    private final FileSystem fileSystem;
+    private final java.util.concurrent.ConcurrentHashMap<String,java.util.concurrent.atomic.AtomicLong> operationCounts;
+    private final java.util.concurrent.atomic.AtomicLong bytesWritten;
+
+    public CountingFileSystem(FileSystem innerFileSystem)
+    {
+        PreCondition.assertNotNull(innerFileSystem, "innerFileSystem");
+
+        this.innerFileSystem = innerFileSystem;
+        this.operationCounts = new java.util.concurrent.ConcurrentHashMap<>();
+        this.bytesWritten = new java.util.concurrent.atomic.AtomicLong();
+        this.fileSystem = (FileSystem)java.lang.reflect.Proxy.newProxyInstance(
+            FileSystem.class.getClassLoader(),
+            new Class<?>[] { FileSystem.class },
+            new Handler(this));
+    }
+
+    // Get the file system that isn't counted behind the provided file system. The on-disk fast
+    // paths use this to recognize a JavaFileSystem that is being counted.
+    public static FileSystem getInnerFileSystem(FileSystem fileSystem)
+    {
+        PreCondition.assertNotNull(fileSystem, "fileSystem");
+
+        FileSystem result = fileSystem;
+        while (java.lang.reflect.Proxy.isProxyClass(result.getClass()) &&
+            java.lang.reflect.Proxy.getInvocationHandler(result) instanceof Handler)
+        {
+            result = ((Handler)java.lang.reflect.Proxy.getInvocationHandler(result)).countingFileSystem.innerFileSystem;
+        }
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public FileSystem getFileSystem()
+    {
+        return fileSystem;
+    }
+
+    public FileSystem getInnerFileSystem()
+    {
+        return innerFileSystem;
+    }
+
+    // Rebind the provided folder to this file system without counting an operation.
+    public Folder wrap(Folder folder)
+    {
+        PreCondition.assertNotNull(folder, "folder");
+
+        return new Folder(fileSystem, folder.getPath());
+    }
+
+    public long getOperationCount(String operation)
+    {
+        PreCondition.assertNotNullAndNotEmpty(operation, "operation");
+
+        final java.util.concurrent.atomic.AtomicLong result = operationCounts.get(operation);
+        return result == null ? 0 : result.get();
+    }
+
+    public long getOperationCount()
+    {
+        long result = 0;
+        for (final java.util.concurrent.atomic.AtomicLong operationCount : operationCounts.values())
+        {
+            result += operationCount.get();
+        }
+        return result;
+    }
+
+    public long getBytesWritten()
+    {
+        return bytesWritten.get();
+    }
+
+    public void reset()
+    {
+        operationCounts.clear();
+        bytesWritten.set(0);
+    }
+
+    @Override
+    public String toString()
+    {
+        final java.util.TreeMap<String,Long> sortedCounts = new java.util.TreeMap<>();
+        for (final java.util.Map.Entry<String,java.util.concurrent.atomic.AtomicLong> entry : operationCounts.entrySet())
+        {
+            sortedCounts.put(entry.getKey(), entry.getValue().get());
+        }
+        return sortedCounts.toString() + " bytesWritten=" + getBytesWritten();
+    }
+
+    private static String getOperation(String methodName)
+    {
+        switch (methodName)
+        {
+            case "fileExists":
+            case "folderExists":
+                return existsOperation;
+
+            case "copyFileTo":
+                return copyToOperation;
+
+            case "setFileContents":
+                return setContentsOperation;
+
+            case "setFileContentsAsString":
+                return setContentsAsStringOperation;
+
+            default:
+                // getFileContents, getFileContentsAsString, and the content stream getters all read a file.
+                return methodName.startsWith("getFileContent") ? readOperation : methodName;
+        }
+    }
+
+    private long getByteCount(String operation, Object[] arguments)
+    {
+        long result = 0;
+        if (arguments != null && arguments.length == 2)
+        {
+            if (operation.equals(setContentsOperation) && arguments[1] instanceof byte[])
+            {
+                result = ((byte[])arguments[1]).length;
+            }
+            else if (operation.equals(setContentsAsStringOperation) && arguments[1] instanceof String)
+            {
+                result = ((String)arguments[1]).getBytes(java.nio.charset.StandardCharsets.UTF_8).length;
+            }
+            else if (operation.equals(copyToOperation) && (arguments[0] instanceof Path || arguments[0] instanceof File))
+            {
+                final Path sourceFilePath = arguments[0] instanceof File ? ((File)arguments[0]).getPath() : (Path)arguments[0];
+                final FileSystem uncountedFileSystem = getInnerFileSystem(innerFileSystem);
+                if (uncountedFileSystem instanceof JavaFileSystem)
+                {
+                    try
+                    {
+                        result = java.nio.file.Files.size(java.nio.file.Paths.get(sourceFilePath.toString()));
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        // The copy itself reports the missing or unreadable source file.
+                    }
+                }
+                else
+                {
+                    final byte[] contents = uncountedFileSystem.getFileContents(sourceFilePath).catchError().await();
+                    result = contents == null ? 0 : contents.length;
+                }
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object wrapValue(Object value)
+    {
+        Object result = value;
+        if (value instanceof Result)
+        {
+            result = ((Result<Object>)value).then(this::wrapValue);
+        }
+        else if (value instanceof Folder)
+        {
+            result = new Folder(fileSystem, ((Folder)value).getPath());
+        }
+        else if (value instanceof File)
+        {
+            result = new File(fileSystem, ((File)value).getPath());
+        }
+        else if (value instanceof Iterable)
+        {
+            final List<Object> values = List.create();
+            for (final Object element : (Iterable<Object>)value)
+            {
+                values.add(wrapValue(element));
+            }
+            result = values;
+        }
+        return result;
+    }
+
+    private static class Handler implements java.lang.reflect.InvocationHandler
+    {
+        private final CountingFileSystem countingFileSystem;
+
+        Handler(CountingFileSystem countingFileSystem)
+        {
+            this.countingFileSystem = countingFileSystem;
+        }
+
+        @Override
+        public Object invoke(Object proxy, java.lang.reflect.Method method, Object[] arguments) throws Throwable
+        {
+            if (method.getDeclaringClass() == Object.class)
+            {
+                switch (method.getName())
+                {
+                    case "equals":
+                        return proxy == arguments[0];
+
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+
+                    default:
+                        return "Counting(" + countingFileSystem.innerFileSystem.toString() + ")";
+                }
+            }
+
+            final String operation = getOperation(method.getName());
+            countingFileSystem.operationCounts.computeIfAbsent(operation, (String key) -> new java.util.concurrent.atomic.AtomicLong()).incrementAndGet();
+            countingFileSystem.bytesWritten.addAndGet(countingFileSystem.getByteCount(operation, arguments));
+            try
+            {
+                return countingFileSystem.wrapValue(method.invoke(countingFileSystem.innerFileSystem, arguments));
+            }
+            catch (java.lang.reflect.InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package qub;
+
+public class DependencyClosure
+{
+    public static final String fileName = "dependencies.closure";
+
+    private final List<PackageSignature> dependencies;
+    private final List<String> conflicts;
+
+    DependencyClosure(List<PackageSignature> dependencies, List<String> conflicts)
+    {
+        PreCondition.assertNotNull(dependencies, "dependencies");
+        PreCondition.assertNotNull(conflicts, "conflicts");
+
+        this.dependencies = dependencies;
+        this.conflicts = conflicts;
+    }
+
+    public static File getClosureFile(Folder versionFolder)
+    {
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+
+        return versionFolder.getFile(fileName).await();
+    }
+
+    public static Result<Iterable<PackageSignature>> parse(File closureFile)
+    {
+        PreCondition.assertNotNull(closureFile, "closureFile");
+
+        return closureFile.getContentsAsString()
+            .then((String contents) ->
+            {
+                final List<PackageSignature> result = List.create();
+                for (final String line : Strings.getLines(contents))
+                {
+                    if (!Strings.isNullOrEmpty(line))
+                    {
+                        result.add(PackageSignature.parse(line).await());
+                    }
+                }
+                return result;
+            });
+    }
+
+    public Iterable<PackageSignature> getDependencies()
+    {
+        return dependencies;
+    }
+
+    public Iterable<String> getConflicts()
+    {
+        return conflicts;
+    }
+
+    public Result<Void> save(File closureFile)
+    {
+        PreCondition.assertNotNull(closureFile, "closureFile");
+
+        return closureFile.setContentsAsString(toString());
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        for (final PackageSignature dependency : dependencies)
+        {
+            builder.append(dependency.toString()).append('\n');
+        }
+        return builder.toString();
+    }
+}
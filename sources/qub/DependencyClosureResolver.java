@@ -0,0 +1,132 @@
+package qub;
+
+public class DependencyClosureResolver
+{
+    private final Folder qubFolder;
+    private final java.util.concurrent.ConcurrentHashMap<PackageSignature,java.util.Map.Entry<String,Iterable<PackageSignature>>> closures;
+
+    public DependencyClosureResolver(Folder qubFolder)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+
+        this.qubFolder = qubFolder;
+        this.closures = new java.util.concurrent.ConcurrentHashMap<>();
+    }
+
+    public Folder getQubFolder()
+    {
+        return qubFolder;
+    }
+
+    public Result<Iterable<PackageSignature>> getClosure(PackageSignature signature)
+    {
+        PreCondition.assertNotNull(signature, "signature");
+
+        return getClosure(signature, new java.util.HashSet<>());
+    }
+
+    public Result<DependencyClosure> resolve(Iterable<PackageSignature> directDependencies)
+    {
+        PreCondition.assertNotNull(directDependencies, "directDependencies");
+
+        return resolve(directDependencies, new java.util.HashSet<>());
+    }
+
+    private Result<Iterable<PackageSignature>> getClosure(PackageSignature signature, java.util.Set<PackageSignature> resolving)
+    {
+        return Result.create(() ->
+        {
+            // A package that is installed again with -replace gets a new project.json file and closure
+            // file, so a cached closure is only used while both files are unchanged.
+            final Folder versionFolder = signature.getVersionFolder(qubFolder);
+            final File closureFile = DependencyClosure.getClosureFile(versionFolder);
+            final File projectJsonFile = versionFolder.getFile("project.json").await();
+            final String projectJsonHash = projectJsonFile.exists().await() ? ContentHash.sha256(projectJsonFile).await() : "";
+            final String closureHash = closureFile.exists().await() ? ContentHash.sha256(closureFile).await() : "";
+            final String cacheKey = projectJsonHash + "/" + closureHash;
+            final java.util.Map.Entry<String,Iterable<PackageSignature>> cachedEntry = closures.get(signature);
+
+            Iterable<PackageSignature> result;
+            if (cachedEntry != null && cachedEntry.getKey().equals(cacheKey))
+            {
+                result = cachedEntry.getValue();
+            }
+            // Guard against dependency cycles while this package's closure is resolved. The guard is
+            // local to this resolve so that other threads sharing this resolver never see a partial closure.
+            else if (!resolving.add(signature))
+            {
+                result = Iterable.create();
+            }
+            else
+            {
+                if (!closureHash.isEmpty())
+                {
+                    result = DependencyClosure.parse(closureFile).await();
+                    closures.put(signature, new java.util.AbstractMap.SimpleImmutableEntry<>(cacheKey, result));
+                }
+                else if (!projectJsonHash.isEmpty())
+                {
+                    final ProjectJSONJava projectJsonJava = ProjectJSON.parse(projectJsonFile).await().getJava();
+                    result = projectJsonJava == null
+                        ? Iterable.create()
+                        : resolve(projectJsonJava.getDependencies().map(PackageSignature::create), resolving).await().getDependencies();
+                    closures.put(signature, new java.util.AbstractMap.SimpleImmutableEntry<>(cacheKey, result));
+                }
+                else
+                {
+                    // Packages that aren't installed aren't cached, since they may be installed later.
+                    closures.remove(signature);
+                    result = Iterable.create();
+                }
+                resolving.remove(signature);
+            }
+            return result;
+        });
+    }
+
+    private Result<DependencyClosure> resolve(Iterable<PackageSignature> directDependencies, java.util.Set<PackageSignature> resolving)
+    {
+        return Result.create(() ->
+        {
+            final java.util.LinkedHashMap<String,PackageSignature> chosen = new java.util.LinkedHashMap<>();
+            final java.util.LinkedHashSet<String> conflicts = new java.util.LinkedHashSet<>();
+
+            for (final PackageSignature directDependency : directDependencies)
+            {
+                add(chosen, conflicts, directDependency, null);
+            }
+            for (final PackageSignature directDependency : directDependencies)
+            {
+                for (final PackageSignature transitiveDependency : getClosure(directDependency, resolving).await())
+                {
+                    add(chosen, conflicts, transitiveDependency, directDependency);
+                }
+            }
+
+            final List<PackageSignature> dependencies = List.create();
+            for (final PackageSignature dependency : chosen.values())
+            {
+                dependencies.add(dependency);
+            }
+            final List<String> conflictMessages = List.create();
+            for (final String conflict : conflicts)
+            {
+                conflictMessages.add(conflict);
+            }
+            return new DependencyClosure(dependencies, conflictMessages);
+        });
+    }
+
+    private static void add(java.util.LinkedHashMap<String,PackageSignature> chosen, java.util.LinkedHashSet<String> conflicts, PackageSignature dependency, PackageSignature requiredBy)
+    {
+        final PackageSignature existing = chosen.get(dependency.getProjectKey());
+        if (existing == null)
+        {
+            chosen.put(dependency.getProjectKey(), dependency);
+        }
+        else if (!existing.getVersion().equals(dependency.getVersion()))
+        {
+            conflicts.add(dependency.toString() + " is required by " + (requiredBy == null ? "this project" : requiredBy.toString()) + ", but " + existing.toString() + " will be used.");
+        }
+    }
+}
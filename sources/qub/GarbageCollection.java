@@ -0,0 +1,78 @@
+package qub;
+
+public class GarbageCollection
+{
+    private final List<PackageSignature> reachable;
+    private final List<PackageSignature> unreachable;
+    private final List<File> unusedJarFiles;
+    private final List<String> errors;
+    private long reclaimableBytes;
+
+    public GarbageCollection()
+    {
+        this.reachable = List.create();
+        this.unreachable = List.create();
+        this.unusedJarFiles = List.create();
+        this.errors = List.create();
+    }
+
+    public Iterable<PackageSignature> getReachable()
+    {
+        return reachable;
+    }
+
+    public void addReachable(PackageSignature signature)
+    {
+        PreCondition.assertNotNull(signature, "signature");
+
+        reachable.add(signature);
+    }
+
+    public Iterable<PackageSignature> getUnreachable()
+    {
+        return unreachable;
+    }
+
+    public void addUnreachable(PackageSignature signature)
+    {
+        PreCondition.assertNotNull(signature, "signature");
+
+        unreachable.add(signature);
+    }
+
+    public Iterable<File> getUnusedJarFiles()
+    {
+        return unusedJarFiles;
+    }
+
+    public void addUnusedJarFile(File jarFile)
+    {
+        PreCondition.assertNotNull(jarFile, "jarFile");
+
+        unusedJarFiles.add(jarFile);
+    }
+
+    public Iterable<String> getErrors()
+    {
+        return errors;
+    }
+
+    public void addError(String error)
+    {
+        PreCondition.assertNotNullAndNotEmpty(error, "error");
+
+        errors.add(error);
+    }
+
+    public long getReclaimableBytes()
+    {
+        return reclaimableBytes;
+    }
+
+    public void addReclaimableBytes(long bytes)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(bytes, 0L, "bytes");
+
+        reclaimableBytes += bytes;
+    }
+}
@@ -0,0 +1,342 @@
+package qub;
+
+public class GarbageCollector
+{
+    GarbageCollector()
+    {
+    }
+
+    // The package that each shortcut in the Qub folder runs, keyed by shortcut name. A shortcut whose
+    // package can't be determined maps to null.
+    public static Result<java.util.Map<String,PackageSignature>> getShortcutPackages(Folder qubFolder)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+
+        return Result.create(() ->
+        {
+            final java.util.Map<String,PackageSignature> result = new java.util.TreeMap<>();
+            if (qubFolder.exists().await())
+            {
+                for (final File file : qubFolder.getFiles().await())
+                {
+                    if (file.getName().endsWith(PackageShortcut.fileExtension))
+                    {
+                        result.put(file.getNameWithoutFileExtension(), getShortcutPackage(file.getContentsAsString().await()));
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    // Shortcuts either run a launcher jar ("java -jar %~dp0a/b/1/B.launcher.jar") or, when they were
+    // written by older versions, the project jar and its dependencies ("java -cp %~dp0a/b/1/b.jar;...").
+    public static PackageSignature getShortcutPackage(String shortcutContents)
+    {
+        PreCondition.assertNotNull(shortcutContents, "shortcutContents");
+
+        PackageSignature result = null;
+        final String[] tokens = shortcutContents.trim().split("\\s+");
+        for (int i = 0; result == null && i < tokens.length - 1; ++i)
+        {
+            final String token = tokens[i];
+            if (token.equals("-jar"))
+            {
+                result = getInstalledJarPackage(tokens[i + 1]);
+            }
+            else if (token.equals("-cp") || token.equals("-classpath"))
+            {
+                result = getInstalledJarPackage(tokens[i + 1].split(";")[0]);
+            }
+        }
+        return result;
+    }
+
+    private static PackageSignature getInstalledJarPackage(String path)
+    {
+        PackageSignature result = null;
+        final String qubFolderPrefix = "%~dp0";
+        if (path.startsWith(qubFolderPrefix))
+        {
+            final String[] segments = path.substring(qubFolderPrefix.length()).replace('\\', '/').split("/");
+            if (segments.length == 4 && segments[3].endsWith(".jar") &&
+                !segments[0].isEmpty() && !segments[1].isEmpty() && !segments[2].isEmpty())
+            {
+                result = new PackageSignature(segments[0], segments[1], segments[2]);
+            }
+        }
+        return result;
+    }
+
+    // A package is reachable if a shortcut runs it, if it's one of the newest keepCount versions of
+    // its project, or if a reachable package depends on it. When a shortcut's package can't be
+    // determined, every version of a project with that shortcut name is reachable.
+    public static Result<GarbageCollection> collect(DependencyClosureResolver resolver, int keepCount, boolean dryRun)
+    {
+        PreCondition.assertNotNull(resolver, "resolver");
+        PreCondition.assertGreaterThanOrEqualTo(keepCount, 0, "keepCount");
+
+        return Result.create(() ->
+        {
+            final GarbageCollection result = new GarbageCollection();
+            final Folder qubFolder = resolver.getQubFolder();
+            final Iterable<PackageSignature> installed = InstalledPackages.getAll(qubFolder).await();
+
+            final java.util.ArrayDeque<PackageSignature> roots = new java.util.ArrayDeque<>();
+            final java.util.HashSet<PackageSignature> installedSet = new java.util.HashSet<>();
+            final java.util.TreeMap<String,java.util.List<PackageSignature>> projectVersions = new java.util.TreeMap<>();
+            for (final PackageSignature signature : installed)
+            {
+                installedSet.add(signature);
+                projectVersions.computeIfAbsent(signature.getProjectKey(), (String projectKey) -> new java.util.ArrayList<>()).add(signature);
+            }
+            final java.util.HashSet<String> unparsedShortcutNames = new java.util.HashSet<>();
+            for (final java.util.Map.Entry<String,PackageSignature> shortcutPackage : getShortcutPackages(qubFolder).await().entrySet())
+            {
+                final PackageSignature signature = shortcutPackage.getValue();
+                if (signature == null)
+                {
+                    unparsedShortcutNames.add(shortcutPackage.getKey());
+                }
+                else if (installedSet.contains(signature))
+                {
+                    roots.add(signature);
+                }
+            }
+            if (!unparsedShortcutNames.isEmpty())
+            {
+                for (final PackageSignature signature : installed)
+                {
+                    final String shortcutName = getShortcutName(qubFolder, signature);
+                    if (shortcutName == null || unparsedShortcutNames.contains(shortcutName))
+                    {
+                        roots.add(signature);
+                    }
+                }
+            }
+            for (final java.util.List<PackageSignature> versions : projectVersions.values())
+            {
+                versions.sort((PackageSignature lhs, PackageSignature rhs) -> InstalledPackages.compareVersions(rhs.getVersion(), lhs.getVersion()));
+                for (int i = 0; i < keepCount && i < versions.size(); ++i)
+                {
+                    roots.add(versions.get(i));
+                }
+            }
+
+            final java.util.HashSet<PackageSignature> reachable = new java.util.HashSet<>();
+            while (!roots.isEmpty())
+            {
+                final PackageSignature signature = roots.removeFirst();
+                if (reachable.add(signature))
+                {
+                    for (final PackageSignature dependency : resolver.getClosure(signature).await())
+                    {
+                        roots.add(dependency);
+                    }
+                }
+            }
+
+            final PackageIndex packageIndex = PackageIndex.load(qubFolder).await();
+            for (final PackageSignature signature : installed)
+            {
+                if (reachable.contains(signature))
+                {
+                    result.addReachable(signature);
+                }
+                else
+                {
+                    result.addUnreachable(signature);
+                }
+            }
+
+            // Stored jars are shared by every version with the same jar contents, so a stored jar is only
+            // unused when every index entry that refers to it belongs to an unreachable package. A stored
+            // jar that no index entry refers to was left behind by an install that didn't finish.
+            final JarStore jarStore = new JarStore(qubFolder);
+            final java.util.HashSet<String> usedJarHashes = new java.util.HashSet<>();
+            final java.util.TreeSet<String> unusedJarHashes = new java.util.TreeSet<>();
+            for (final PackageIndexEntry entry : packageIndex.getEntries())
+            {
+                final PackageSignature signature = new PackageSignature(entry.getPublisher(), entry.getProject(), entry.getVersion());
+                if (installedSet.contains(signature) && !reachable.contains(signature))
+                {
+                    unusedJarHashes.add(entry.getJarHash());
+                }
+                else
+                {
+                    usedJarHashes.add(entry.getJarHash());
+                }
+            }
+            final Folder storeFolder = jarStore.getStoreFolder();
+            if (storeFolder.exists().await())
+            {
+                for (final File storedJarFile : storeFolder.getFilesRecursively().await())
+                {
+                    final String storedJarHash = storedJarFile.getNameWithoutFileExtension();
+                    if (storedJarFile.getName().endsWith(".jar") && !usedJarHashes.contains(storedJarHash) &&
+                        storedJarFile.equals(jarStore.getJarFile(storedJarHash)))
+                    {
+                        unusedJarHashes.add(storedJarHash);
+                    }
+                }
+            }
+            unusedJarHashes.removeAll(usedJarHashes);
+
+            for (final PackageSignature signature : result.getUnreachable())
+            {
+                // A jar that is linked to the jar store is counted with its stored jar.
+                final PackageIndexEntry entry = packageIndex.get(signature.getPublisher(), signature.getProject(), signature.getVersion());
+                final File storedJarFile = entry == null ? null : jarStore.getJarFile(entry.getJarHash());
+                final File jarFile = signature.getJarFile(qubFolder);
+                for (final File file : signature.getVersionFolder(qubFolder).getFilesRecursively().await())
+                {
+                    if (storedJarFile == null || !file.equals(jarFile) || !storedJarFile.exists().await())
+                    {
+                        result.addReclaimableBytes(JarStore.getSize(file));
+                    }
+                }
+            }
+            for (final String unusedJarHash : unusedJarHashes)
+            {
+                final File storedJarFile = jarStore.getJarFile(unusedJarHash);
+                if (storedJarFile.exists().await())
+                {
+                    result.addUnusedJarFile(storedJarFile);
+                    result.addReclaimableBytes(JarStore.getSize(storedJarFile));
+                }
+            }
+
+            if (!dryRun)
+            {
+                remove(qubFolder, packageIndex, result);
+            }
+            return result;
+        });
+    }
+
+    // Returns the package's shortcut name, "" if it doesn't have a shortcut, or null if its project.json
+    // file can't be read.
+    private static String getShortcutName(Folder qubFolder, PackageSignature signature)
+    {
+        final File projectJsonFile = signature.getVersionFolder(qubFolder).getFile("project.json").await();
+        return ProjectJSON.parse(projectJsonFile)
+            .then((ProjectJSON projectJson) ->
+            {
+                final String shortcutName = PackageShortcut.getShortcutName(projectJson);
+                return shortcutName == null ? "" : shortcutName;
+            })
+            .catchError()
+            .await();
+    }
+
+    private static void remove(Folder qubFolder, PackageIndex packageIndex, GarbageCollection collection)
+    {
+        final List<PackageSignature> removed = List.create();
+        final java.util.HashSet<String> keptJarHashes = new java.util.HashSet<>();
+        for (final PackageSignature signature : collection.getUnreachable())
+        {
+            final Folder versionFolder = signature.getVersionFolder(qubFolder);
+            try (final PackageLock lock = PackageLock.acquire(PackageLock.getLockFile(versionFolder)).await())
+            {
+                // Moving the version folder aside first means that nothing ever sees a partly deleted package.
+                final Folder stagingFolder = AtomicFiles.getStagingFolder(versionFolder);
+                AtomicFiles.moveFolder(versionFolder, stagingFolder).await();
+                removed.add(signature);
+                AtomicFiles.deleteFolder(stagingFolder).await();
+            }
+            catch (Throwable e)
+            {
+                collection.addError("Couldn't remove " + signature.toString() + ": " + e.getMessage());
+                if (!removed.contains(signature))
+                {
+                    final PackageIndexEntry entry = packageIndex.get(signature.getPublisher(), signature.getProject(), signature.getVersion());
+                    if (entry != null)
+                    {
+                        keptJarHashes.add(entry.getJarHash());
+                    }
+                }
+            }
+        }
+
+        // Installs that finished after this collection started may have added index entries for these
+        // jars, so the jars are checked against the index again while the index is locked. The index no
+        // longer refers to the jars that are deleted, so the next install that needs one stores it again.
+        // Jars of packages that couldn't be removed are kept for them.
+        final Iterable<File> unusedJarFiles = collection.getUnusedJarFiles();
+        if (removed.any() || unusedJarFiles.any())
+        {
+            PackageIndex.update(qubFolder, (PackageIndex updatedIndex) ->
+            {
+                for (final PackageSignature signature : removed)
+                {
+                    updatedIndex.remove(signature.getPublisher(), signature.getProject(), signature.getVersion());
+                }
+                for (final PackageIndexEntry entry : updatedIndex.getEntries())
+                {
+                    keptJarHashes.add(entry.getJarHash());
+                }
+                for (final File unusedJarFile : unusedJarFiles)
+                {
+                    if (!keptJarHashes.contains(unusedJarFile.getNameWithoutFileExtension()))
+                    {
+                        unusedJarFile.delete()
+                            .catchError((Throwable e) -> collection.addError("Couldn't remove " + unusedJarFile.toString() + ": " + e.getMessage()))
+                            .await();
+                    }
+                }
+            }).await();
+        }
+
+        for (final PackageSignature signature : removed)
+        {
+            final Folder projectFolder = signature.getVersionFolder(qubFolder).getParentFolder().await();
+            deleteIfEmpty(projectFolder);
+            deleteIfEmpty(projectFolder.getParentFolder().await());
+        }
+    }
+
+    // Lock files outlive the version folders that they lock, so the lock files of versions that are gone
+    // are deleted first and don't keep the folder from being empty.
+    private static void deleteIfEmpty(Folder folder)
+    {
+        if (folder.exists().await())
+        {
+            boolean empty = !folder.getFolders().await().any();
+            for (final File file : folder.getFiles().await())
+            {
+                if (!deleteIfOrphanedLockFile(folder, file))
+                {
+                    empty = false;
+                }
+            }
+            if (empty)
+            {
+                folder.delete().catchError().await();
+            }
+        }
+    }
+
+    private static boolean deleteIfOrphanedLockFile(Folder folder, File file)
+    {
+        boolean result = false;
+        if (file.getName().endsWith(PackageLock.fileExtension))
+        {
+            final String lockedName = file.getNameWithoutFileExtension();
+            // Holding the lock means that no install or relink is using the version while its lock file
+            // is deleted.
+            try (final PackageLock lock = PackageLock.acquire(file).await())
+            {
+                if (!folder.getFolder(lockedName).await().exists().await() && !folder.getFile(lockedName).await().exists().await())
+                {
+                    file.delete().await();
+                    result = true;
+                }
+            }
+            catch (Throwable e)
+            {
+                // A lock file that can't be deleted right now is removed by the next collection.
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,362 @@
+package qub;
+
+public class IncrementalCompiler
+{
+    public boolean isSupported(Folder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        return CountingFileSystem.getInnerFileSystem(projectFolder.getFileSystem()) instanceof JavaFileSystem &&
+            javax.tools.ToolProvider.getSystemJavaCompiler() != null;
+    }
+
+    public static Iterable<String> getChangedSourcePaths(Folder projectFolder, CompilationState previous)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertNotNull(previous, "previous");
+
+        final List<String> result = List.create();
+        for (final String sourcePath : getSourcePaths(projectFolder))
+        {
+            final String sourceHash = ContentHash.sha256(projectFolder.getFile(sourcePath).await()).await();
+            if (!sourceHash.equals(previous.getSourceHash(sourcePath)))
+            {
+                result.add(sourcePath);
+            }
+        }
+        return result;
+    }
+
+    public static Iterable<String> getDeletedSourcePaths(Folder projectFolder, CompilationState previous)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertNotNull(previous, "previous");
+
+        final List<String> result = List.create();
+        for (final String sourcePath : previous.getSourcePaths())
+        {
+            if (!projectFolder.getFile(sourcePath).await().exists().await())
+            {
+                result.add(sourcePath);
+            }
+        }
+        return result;
+    }
+
+    public static Iterable<String> getDependentSourcePaths(ClassDependencyGraph classGraph, CompilationState state, Iterable<String> apiChangedClassNames)
+    {
+        PreCondition.assertNotNull(classGraph, "classGraph");
+        PreCondition.assertNotNull(state, "state");
+        PreCondition.assertNotNull(apiChangedClassNames, "apiChangedClassNames");
+
+        final java.util.HashSet<String> apiChanged = new java.util.HashSet<>();
+        for (final String className : apiChangedClassNames)
+        {
+            apiChanged.add(className);
+        }
+
+        final java.util.TreeSet<String> result = new java.util.TreeSet<>();
+        for (final String className : classGraph.getClassNames())
+        {
+            for (final String dependency : classGraph.getDependencies(className))
+            {
+                if (apiChanged.contains(dependency))
+                {
+                    final String sourcePath = state.getSourcePath(className);
+                    if (sourcePath != null)
+                    {
+                        result.add(sourcePath);
+                    }
+                    break;
+                }
+            }
+        }
+        return Iterable.create(result.toArray(new String[0]));
+    }
+
+    public Result<CompilationState> compile(Console console, Folder projectFolder, File projectJarFile, Iterable<File> dependencyJarFiles, CompilationState previous)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertNotNull(projectJarFile, "projectJarFile");
+        PreCondition.assertNotNull(dependencyJarFiles, "dependencyJarFiles");
+        PreCondition.assertNotNull(previous, "previous");
+
+        return Result.create(() ->
+        {
+            // The graph has to be read before any class files change, because it's what says who depends on what.
+            final ClassDependencyGraph classGraph = ClassDependencyGraph.create(projectFolder).await();
+            final CompilationState result = CompilationState.parse(previous.toString());
+
+            final java.util.TreeMap<String,byte[]> updatedJarEntries = new java.util.TreeMap<>();
+            final java.util.TreeSet<String> removedJarEntries = new java.util.TreeSet<>();
+            final java.util.TreeSet<String> apiChangedClassNames = new java.util.TreeSet<>();
+            boolean constantsChanged = false;
+
+            for (final String deletedSourcePath : getDeletedSourcePaths(projectFolder, previous))
+            {
+                for (final File classFile : CompilationState.getClassFiles(projectFolder, deletedSourcePath))
+                {
+                    if (deletedSourcePath.startsWith("sources/"))
+                    {
+                        removedJarEntries.add(getJarEntryName(projectFolder, deletedSourcePath, classFile));
+                    }
+                    classFile.delete().await();
+                }
+                for (final String className : previous.getClassNames(deletedSourcePath))
+                {
+                    apiChangedClassNames.add(className);
+                }
+                result.removeSource(deletedSourcePath);
+            }
+
+            final Iterable<String> changedSourcePaths = getChangedSourcePaths(projectFolder, previous);
+            final java.util.TreeSet<String> compiledSourcePaths = new java.util.TreeSet<>();
+            java.util.TreeSet<String> sourcePathsToCompile = new java.util.TreeSet<>();
+            for (final String changedSourcePath : changedSourcePaths)
+            {
+                sourcePathsToCompile.add(changedSourcePath);
+            }
+            if (sourcePathsToCompile.isEmpty() && removedJarEntries.isEmpty())
+            {
+                console.writeLine("No source files changed since the last passing build.").await();
+            }
+            else
+            {
+                console.writeLine("Compiling " + sourcePathsToCompile.size() + " changed source files...").await();
+            }
+
+            while (!sourcePathsToCompile.isEmpty())
+            {
+                // Sources are compiled before tests, because tests compile against them.
+                for (final String classFolderKind : new String[] { "sources/", "tests/" })
+                {
+                    final java.util.List<String> batch = new java.util.ArrayList<>();
+                    for (final String sourcePath : sourcePathsToCompile)
+                    {
+                        if (sourcePath.startsWith(classFolderKind))
+                        {
+                            batch.add(sourcePath);
+                        }
+                    }
+                    if (!batch.isEmpty())
+                    {
+                        for (final String sourcePath : batch)
+                        {
+                            for (final File classFile : CompilationState.getClassFiles(projectFolder, sourcePath))
+                            {
+                                if (sourcePath.startsWith("sources/"))
+                                {
+                                    removedJarEntries.add(getJarEntryName(projectFolder, sourcePath, classFile));
+                                }
+                                classFile.delete().await();
+                            }
+                        }
+
+                        if (!runJavac(console, projectFolder, CompilationState.getClassFolder(projectFolder, batch.get(0)), dependencyJarFiles, batch))
+                        {
+                            return null;
+                        }
+
+                        for (final String sourcePath : batch)
+                        {
+                            final java.util.TreeMap<String,String> classApiHashes = new java.util.TreeMap<>();
+                            for (final File classFile : CompilationState.getClassFiles(projectFolder, sourcePath))
+                            {
+                                final byte[] classFileContents = classFile.getContents().await();
+                                final String className = getClassName(projectFolder, sourcePath, classFile);
+                                final String apiHash = ApiSignature.getHash(classFileContents);
+                                classApiHashes.put(className, apiHash);
+                                // javac copies constant values into the classes that use them without referencing the
+                                // declaring class, so a changed constant can't be traced through the class graph.
+                                if (!apiHash.equals(previous.getApiHash(className)) && ApiSignature.declaresConstants(classFileContents))
+                                {
+                                    constantsChanged = true;
+                                }
+                                if (sourcePath.startsWith("sources/"))
+                                {
+                                    final String jarEntryName = getJarEntryName(projectFolder, sourcePath, classFile);
+                                    removedJarEntries.remove(jarEntryName);
+                                    updatedJarEntries.put(jarEntryName, classFileContents);
+                                }
+                            }
+
+                            final java.util.TreeSet<String> classNames = new java.util.TreeSet<>(classApiHashes.keySet());
+                            for (final String previousClassName : previous.getClassNames(sourcePath))
+                            {
+                                classNames.add(previousClassName);
+                            }
+                            for (final String className : classNames)
+                            {
+                                final String apiHash = classApiHashes.get(className);
+                                if (apiHash == null || !apiHash.equals(previous.getApiHash(className)))
+                                {
+                                    apiChangedClassNames.add(className);
+                                }
+                            }
+
+                            result.setSource(sourcePath, ContentHash.sha256(projectFolder.getFile(sourcePath).await()).await(), classApiHashes);
+                            compiledSourcePaths.add(sourcePath);
+                        }
+                    }
+                }
+
+                final java.util.TreeSet<String> dependentSourcePaths = new java.util.TreeSet<>();
+                final Iterable<String> candidateSourcePaths = constantsChanged
+                    ? getSourcePaths(projectFolder)
+                    : getDependentSourcePaths(classGraph, previous, Iterable.create(apiChangedClassNames.toArray(new String[0])));
+                for (final String dependentSourcePath : candidateSourcePaths)
+                {
+                    if (!compiledSourcePaths.contains(dependentSourcePath) && projectFolder.getFile(dependentSourcePath).await().exists().await())
+                    {
+                        dependentSourcePaths.add(dependentSourcePath);
+                    }
+                }
+                if (!dependentSourcePaths.isEmpty())
+                {
+                    console.writeLine("Recompiling " + dependentSourcePaths.size() + " source files that depend on changed APIs...").await();
+                }
+                sourcePathsToCompile = dependentSourcePaths;
+            }
+
+            if (!updatedJarEntries.isEmpty() || !removedJarEntries.isEmpty())
+            {
+                console.writeLine("Patching " + updatedJarEntries.size() + " updated and " + removedJarEntries.size() + " removed entries in " + projectJarFile.getName() + "...").await();
+                JarPatcher.patch(projectJarFile, updatedJarEntries, Iterable.create(removedJarEntries.toArray(new String[0]))).await();
+            }
+
+            return result;
+        });
+    }
+
+    private static boolean runJavac(Console console, Folder projectFolder, Folder classFolder, Iterable<File> dependencyJarFiles, java.util.List<String> sourcePaths)
+    {
+        final java.util.List<String> classpath = new java.util.ArrayList<>();
+        final Folder outputsFolder = projectFolder.getFolder("outputs").await();
+        classpath.add(outputsFolder.getFolder("sources").await().toString());
+        classpath.add(outputsFolder.getFolder("tests").await().toString());
+        classpath.add(outputsFolder.toString());
+        // Only the project's declared dependency closure is visible, the same as in a full build.
+        for (final File dependencyJarFile : dependencyJarFiles)
+        {
+            classpath.add(dependencyJarFile.toString());
+        }
+
+        final java.util.List<String> arguments = new java.util.ArrayList<>();
+        arguments.add("-d");
+        arguments.add(classFolder.toString());
+        arguments.add("-classpath");
+        arguments.add(String.join(java.io.File.pathSeparator, classpath));
+        final String javaVersion = getJavaVersion(projectFolder, sourcePaths.get(0)).await();
+        if (!Strings.isNullOrEmpty(javaVersion))
+        {
+            for (final String versionArgument : getJavaVersionArguments(javaVersion, javax.lang.model.SourceVersion.latest().ordinal()))
+            {
+                arguments.add(versionArgument);
+            }
+        }
+        arguments.add("-implicit:none");
+        arguments.add("-encoding");
+        arguments.add("UTF-8");
+        for (final String sourcePath : sourcePaths)
+        {
+            arguments.add(projectFolder.getFile(sourcePath).await().toString());
+        }
+
+        final java.io.ByteArrayOutputStream compilerOutput = new java.io.ByteArrayOutputStream();
+        final int exitCode = javax.tools.ToolProvider.getSystemJavaCompiler().run(null, compilerOutput, compilerOutput, arguments.toArray(new String[0]));
+        final String compilerOutputText = new String(compilerOutput.toByteArray(), java.nio.charset.StandardCharsets.UTF_8).trim();
+        if (!compilerOutputText.isEmpty())
+        {
+            console.writeLine(compilerOutputText).await();
+        }
+        if (exitCode != 0)
+        {
+            console.incrementExitCode();
+        }
+        return exitCode == 0;
+    }
+
+    // The Java version that project.json declares for the source folder that contains sourcePath
+    // ("java.sources.version" or "java.tests.version"), or else for the whole project ("java.version").
+    public static Result<String> getJavaVersion(Folder projectFolder, String sourcePath)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertNotNullAndNotEmpty(sourcePath, "sourcePath");
+
+        return Result.create(() ->
+        {
+            String result = null;
+            final File projectJsonFile = projectFolder.getFile("project.json").await();
+            final JSONObject rootObject = JSON.parse(projectJsonFile.getContentsAsString().await()).getRootObject().await();
+            final JSONObject javaObject = rootObject.getObjectPropertyValue("java").catchError().await();
+            if (javaObject != null)
+            {
+                final String sourceFolderName = sourcePath.substring(0, sourcePath.indexOf('/'));
+                final JSONObject sourceFolderObject = javaObject.getObjectPropertyValue(sourceFolderName).catchError().await();
+                if (sourceFolderObject != null)
+                {
+                    result = sourceFolderObject.getStringPropertyValue("version").catchError().await();
+                }
+                if (Strings.isNullOrEmpty(result))
+                {
+                    result = javaObject.getStringPropertyValue("version").catchError().await();
+                }
+            }
+            return result;
+        });
+    }
+
+    // Compilers from Java 9 on check the API of the target release with --release. Older compilers
+    // only understand -source and -target.
+    public static Iterable<String> getJavaVersionArguments(String javaVersion, int compilerVersion)
+    {
+        PreCondition.assertNotNullAndNotEmpty(javaVersion, "javaVersion");
+
+        final Iterable<String> result;
+        if (compilerVersion >= 9)
+        {
+            result = Iterable.create("--release", javaVersion.startsWith("1.") ? javaVersion.substring("1.".length()) : javaVersion);
+        }
+        else
+        {
+            result = Iterable.create("-source", javaVersion, "-target", javaVersion);
+        }
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    private static Iterable<String> getSourcePaths(Folder projectFolder)
+    {
+        final List<String> result = List.create();
+        for (final String sourceFolderName : new String[] { "sources", "tests" })
+        {
+            final Folder sourceFolder = projectFolder.getFolder(sourceFolderName).await();
+            if (sourceFolder.exists().await())
+            {
+                for (final File sourceFile : sourceFolder.getFilesRecursively().await())
+                {
+                    final String sourcePath = sourceFile.relativeTo(projectFolder).toString();
+                    if (sourcePath.endsWith(".java"))
+                    {
+                        result.add(sourcePath);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String getJarEntryName(Folder projectFolder, String sourcePath, File classFile)
+    {
+        return classFile.relativeTo(CompilationState.getClassFolder(projectFolder, sourcePath)).toString();
+    }
+
+    private static String getClassName(Folder projectFolder, String sourcePath, File classFile)
+    {
+        final String jarEntryName = getJarEntryName(projectFolder, sourcePath, classFile);
+        return jarEntryName.substring(0, jarEntryName.length() - ".class".length()).replace('/', '.');
+    }
+}
@@ -3,7 +3,12 @@ package qub;
 public class Install
 {
     private QubTest qubTest;
+    private Function0<QubTest> qubTestCreator;
     private Boolean showTotalDuration;
+    private Function1<Folder,Result<ProjectWatcher>> projectWatcherCreator;
+    private InstallCache installCache;
+    private TestClassLauncher testClassLauncher;
+    private IncrementalCompiler incrementalCompiler;
 
     public void setQubTest(QubTest qubTest)
     {
@@ -23,6 +28,96 @@ public class Install
         return result;
     }
 
+    public void setQubTestCreator(Function0<QubTest> qubTestCreator)
+    {
+        this.qubTestCreator = qubTestCreator;
+    }
+
+    public Function0<QubTest> getQubTestCreator()
+    {
+        if (qubTestCreator == null)
+        {
+            qubTestCreator = QubTest::new;
+        }
+        final Function0<QubTest> result = qubTestCreator;
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public void setProjectWatcherCreator(Function1<Folder,Result<ProjectWatcher>> projectWatcherCreator)
+    {
+        this.projectWatcherCreator = projectWatcherCreator;
+    }
+
+    public Function1<Folder,Result<ProjectWatcher>> getProjectWatcherCreator()
+    {
+        if (projectWatcherCreator == null)
+        {
+            projectWatcherCreator = ProjectWatcher::create;
+        }
+        final Function1<Folder,Result<ProjectWatcher>> result = projectWatcherCreator;
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public void setInstallCache(InstallCache installCache)
+    {
+        this.installCache = installCache;
+    }
+
+    public InstallCache getInstallCache()
+    {
+        if (installCache == null)
+        {
+            installCache = new InstallCache();
+        }
+        final InstallCache result = installCache;
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public void setTestClassLauncher(TestClassLauncher testClassLauncher)
+    {
+        this.testClassLauncher = testClassLauncher;
+    }
+
+    public TestClassLauncher getTestClassLauncher()
+    {
+        if (testClassLauncher == null)
+        {
+            testClassLauncher = new TestClassLauncher();
+        }
+        final TestClassLauncher result = testClassLauncher;
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public void setIncrementalCompiler(IncrementalCompiler incrementalCompiler)
+    {
+        this.incrementalCompiler = incrementalCompiler;
+    }
+
+    public IncrementalCompiler getIncrementalCompiler()
+    {
+        if (incrementalCompiler == null)
+        {
+            incrementalCompiler = new IncrementalCompiler();
+        }
+        final IncrementalCompiler result = incrementalCompiler;
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
     public void setShowTotalDuration(boolean showTotalDuration)
     {
         this.showTotalDuration = showTotalDuration;
@@ -43,10 +138,66 @@ public class Install
 
         if (shouldShowUsage(console))
         {
-            console.writeLine("Usage: qub-install [[-folder=]<folder-path-to-install>] [-verbose]");
+            console.writeLine("Usage: qub-install [[-folder=]<folder-path-to-install>...] [-root=<folder>] [-parallelism=<count>] [-plan] [-publish=<copy|move>] [-cds] [-optimize[=<level>]] [-profile] [-fullBuild] [-fullTests] [-testShards[=<count>]] [-watch] [-server[=<port>]] [-list] [-export=<bundle-file> [-package=<publisher>/<project>:<version>...]] [-import=<bundle-file>] [-relink] [-gc [-keep=<count>] [-dryRun]] [-verbose]");
             console.writeLine("  Installs source code projects into the Qub folder.");
+            console.writeLine("  Packages go into QUB_HOME/<publisher>/<project>/<version>. Packages that older");
+            console.writeLine("  versions installed into QUB_HOME/<publisher>/<version> can't be found as");
+            console.writeLine("  dependencies, so install them again to move them and their shortcuts.");
             console.writeLine("  -folder: The folder to install from. This can be specified either with the");
-            console.writeLine("           -folder argument name or without it.");
+            console.writeLine("           -folder argument name or without it. More than one folder can be");
+            console.writeLine("           specified.");
+            console.writeLine("  -root: Install every project under this folder that has a project.json file.");
+            console.writeLine("  -parallelism: The maximum number of projects to install at the same time when");
+            console.writeLine("                installing more than one project. Defaults to the processor count.");
+            console.writeLine("  -plan: Show what would be built, copied, and written without doing it.");
+            console.writeLine("  -publish: How to publish the compiled jar into the Qub folder: copy (the");
+            console.writeLine("            default) or move. copy copies the jar into the jar store and hard");
+            console.writeLine("            links the installed jar to it, so rebuilding the project never");
+            console.writeLine("            changes an installed jar. move falls back to copy when the project");
+            console.writeLine("            and Qub folders aren't on the same volume. link is another name for");
+            console.writeLine("            copy.");
+            console.writeLine("  -cds: Run the main class once with -? to create a class data sharing archive");
+            console.writeLine("        in the version folder and use it from the shortcut. Requires JDK 13+.");
+            console.writeLine("  -optimize: Rewrite the installed jar for faster class loading. Entries are");
+            console.writeLine("             stored uncompressed (level 0, the default) or compressed at the given");
+            console.writeLine("             level (1-9), ordered by the main class's class-load order, and");
+            console.writeLine("             source files and Maven metadata are left out.");
+            console.writeLine("  -profile: Show how long each install phase took, how many bytes were copied, and");
+            console.writeLine("            how many file system operations were done. A JSON copy of these");
+            console.writeLine("            metrics is always written next to the project's jar file.");
+            console.writeLine("  -fullBuild: Compile every source file. By default only the source files that");
+            console.writeLine("             changed since the last passing run, and the ones that depend on their");
+            console.writeLine("             public API, are compiled and patched into the existing jar.");
+            console.writeLine("  -fullTests: Run every test class. By default only the test classes that reach");
+            console.writeLine("             a class that changed since the last passing run are run.");
+            console.writeLine("  -testShards: Split the test classes between this many forked JVMs, balanced by");
+            console.writeLine("               how long each test class took on previous runs. Defaults to the");
+            console.writeLine("               processor count when no count is given.");
+            console.writeLine("  -watch: Keep running after the install and reinstall the project whenever its");
+            console.writeLine("          sources, tests, or project.json file change.");
+            console.writeLine("  -server: Keep running and install projects for qub.InstallClient requests sent");
+            console.writeLine("           to this port on the loopback interface. Parsed project.json files and");
+            console.writeLine("           resolved dependencies are shared between requests. Defaults to any");
+            console.writeLine("           free port, which is written to QUB_HOME/install-server.port. The");
+            console.writeLine("           qub-install shortcut sends its request to the running server, or");
+            console.writeLine("           installs by itself when no server is running. A request uses the");
+            console.writeLine("           client's current folder, QUB_HOME, PATH, and JAVA_HOME. Every other");
+            console.writeLine("           environment variable comes from the server's own environment.");
+            console.writeLine("  -list: List the packages that are installed in the Qub folder.");
+            console.writeLine("  -export: Write installed packages and every package they depend on into this");
+            console.writeLine("           bundle file. Exports the packages named by -package arguments, or every");
+            console.writeLine("           indexed package when there are none.");
+            console.writeLine("  -import: Install the packages in this bundle file without building them.");
+            console.writeLine("           Packages that are already installed are skipped.");
+            console.writeLine("  -relink: Regenerate the launcher jar and shortcut of every installed package");
+            console.writeLine("           from the current launch settings, and only rewrite the ones that changed.");
+            console.writeLine("           A launcher jar's META-INF/INDEX.LIST tells the JVM which dependency jar");
+            console.writeLine("           has each package. JDK 18 and later ignore it and search the classpath.");
+            console.writeLine("  -gc: Remove the installed packages that no shortcut runs and no other kept");
+            console.writeLine("       package depends on, and the stored jars that only they used.");
+            console.writeLine("  -keep: The number of newest versions of each project that -gc always keeps.");
+            console.writeLine("         Defaults to 1.");
+            console.writeLine("  -dryRun: Make -gc report what it would remove without removing anything.");
             console.writeLine("  -verbose: Whether or not to show verbose logs.");
             console.setExitCode(-1);
         }
@@ -58,104 +209,66 @@ public class Install
             {
                 stopwatch.start();
             }
+            final InstallLogger logger = InstallLogger.create(console);
             try
             {
-                final QubTest qubTest = getQubTest();
-                qubTest.setShowTotalDuration(false);
-                qubTest.main(console);
-
-                if (console.getExitCode() == 0)
+                if (isList(console))
                 {
-                    console.writeLine("Installing...");
-
-                    final Folder folderToInstall = getFolderToInstall(console);
-                    final File projectJsonFile = folderToInstall.getFile("project.json").await();
-                    final ProjectJSON projectJson = ProjectJSON.parse(projectJsonFile).await();
-                    final String project = projectJson.getProject();
-                    if (Strings.isNullOrEmpty(project))
-                    {
-                        error(console, "A project property must be specified in the project.json file.");
-                    }
-                    else
+                    list(logger);
+                }
+                else if (console.getCommandLine().get("export") != null)
+                {
+                    exportPackages(logger);
+                }
+                else if (console.getCommandLine().get("import") != null)
+                {
+                    importPackages(logger);
+                }
+                else if (console.getCommandLine().get("relink") != null)
+                {
+                    relink(logger);
+                }
+                else if (console.getCommandLine().get("gc") != null)
+                {
+                    collectGarbage(logger);
+                }
+                else if (console.getCommandLine().get("server") != null)
+                {
+                    serve(logger);
+                }
+                else
+                {
+                    final Iterable<Folder> foldersToInstall = getFoldersToInstall(logger);
+                    if (foldersToInstall != null)
                     {
-                        final Folder outputFolder = folderToInstall.getFolder("outputs").await();
-                        final File projectJarFile = outputFolder.getFile(projectJson.getProject() + ".jar").await();
-
-                        if (!projectJarFile.exists().await())
+                        final boolean singleFolder = foldersToInstall.getCount() == 1 && console.getCommandLine().get("root") == null;
+                        if (isFlagSet(console, "watch") && !isPlan(console))
                         {
-                            error(console, "Couldn't find a compiled project jar file at " + projectJarFile.toString() + ".");
+                            if (!singleFolder)
+                            {
+                                logger.error("The -watch argument can only be used when installing a single project folder.");
+                            }
+                            else
+                            {
+                                watchFolder(logger, getQubTest(), foldersToInstall.first());
+                            }
                         }
-                        else
+                        else if (singleFolder)
                         {
-                            final String qubHome = console.getEnvironmentVariable("QUB_HOME");
-                            final Folder qubFolder = console.getFileSystem().getFolder(qubHome).await();
-
-                            final String publisher = projectJson.getPublisher();
-                            if (Strings.isNullOrEmpty(publisher))
+                            final Folder folderToInstall = foldersToInstall.first();
+                            if (!isPlan(console) && isInstalledAndUnchanged(console, folderToInstall))
                             {
-                                error(console, "A publisher property must be specified in the project.json file.");
+                                logger.info("Skipping because this version is already installed and nothing changed since the last successful build.");
                             }
                             else
                             {
-                                final Folder publisherFolder = qubFolder.getFolder(publisher).await();
-
-                                final String version = projectJson.getVersion();
-                                if (Strings.isNullOrEmpty(version))
-                                {
-                                    error(console, "A version property must be specified in the project.json file.");
-                                }
-                                else
-                                {
-                                    final Folder versionFolder = publisherFolder.getFolder(version).await();
-                                    if (versionFolder.exists().await())
-                                    {
-                                        error(console, "This package (" + publisher + "/" + project + ":" + version + ") can't be installed because a package with that signature already exists.");
-                                    }
-                                    else
-                                    {
-                                        final File installedProjectJsonFile = versionFolder.getFile("project.json").await();
-                                        verbose(console, "Copying " + projectJsonFile.toString() + " to " + installedProjectJsonFile.toString() + "...").await();
-                                        projectJsonFile.copyTo(installedProjectJsonFile).await();
-
-                                        final File installedProjectJarFile = versionFolder.getFile(projectJarFile.getName()).await();
-                                        verbose(console, "Copying " + projectJarFile.toString() + " to " + installedProjectJarFile.toString() + "...");
-                                        projectJarFile.copyTo(installedProjectJarFile).await();
-
-                                        final ProjectJSONJava projectJsonJava = projectJson.getJava();
-                                        if (projectJsonJava != null)
-                                        {
-                                            final String mainClass = projectJsonJava.getMainClass();
-                                            if (!Strings.isNullOrEmpty(mainClass))
-                                            {
-                                                String shortcutName = projectJsonJava.getShortcutName();
-                                                if (Strings.isNullOrEmpty(shortcutName))
-                                                {
-                                                    shortcutName = installedProjectJarFile.getNameWithoutFileExtension();
-                                                }
-
-                                                String classpath = "%~dp0" + installedProjectJarFile.relativeTo(qubFolder);
-                                                for (final Dependency dependency : projectJsonJava.getDependencies())
-                                                {
-                                                    final File dependencyFile = qubFolder
-                                                        .getFolder(dependency.getPublisher()).await()
-                                                        .getFolder(dependency.getProject()).await()
-                                                        .getFolder(dependency.getVersion()).await()
-                                                        .getFile(dependency.getProject()).await();
-                                                    classpath += ";%~dp0" + dependencyFile.toString();
-                                                }
-
-                                                final File shortcutFile = qubFolder.getFile(shortcutName + ".cmd").await();
-                                                final String shortcutFileContents =
-                                                    "@echo OFF\n" +
-                                                    "java -cp " + classpath + " " + mainClass + " %*\n";
-                                                verbose(console, "Writing " + shortcutFile.toString() + "...");
-                                                shortcutFile.setContentsAsString(shortcutFileContents).await();
-                                            }
-                                        }
-                                    }
-                                }
+                                installFolder(logger, getQubTest(), folderToInstall);
                             }
                         }
+                        else
+                        {
+                            installFolders(logger, foldersToInstall);
+                        }
                     }
                 }
             }
@@ -164,122 +277,1570 @@ public class Install
                 if (showTotalDuration)
                 {
                     final Duration compilationDuration = stopwatch.stop().toSeconds();
-                    console.writeLine("Done (" + compilationDuration.toString("0.0") + ")").await();
+                    logger.info("Done (" + compilationDuration.toString("0.0") + ")");
                 }
+                logger.close();
             }
         }
     }
 
-    private static boolean shouldShowUsage(Console console)
+    private void serve(InstallLogger logger)
     {
-        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(logger, "logger");
 
-        return console.getCommandLine().contains(
-            (CommandLineArgument argument) ->
+        final Console console = logger.getConsole();
+        final String qubHome = console.getEnvironmentVariable("QUB_HOME");
+        if (Strings.isNullOrEmpty(qubHome))
+        {
+            logger.error("A QUB_HOME environment variable must be specified.");
+        }
+        else
+        {
+            final Integer port = getServerPort(logger);
+            if (port != null)
             {
-                final String argumentString = argument.toString();
-                return argumentString.equals("/?") || argumentString.equals("-?");
-            });
+                final Folder qubFolder = console.getFileSystem().getFolder(qubHome).await();
+                final InstallCache installCache = getInstallCache();
+                final Function0<QubTest> qubTestCreator = getQubTestCreator();
+                final InstallServer server = InstallServer.start(console, qubFolder, port, (Console requestConsole) ->
+                    {
+                        final Install install = new Install();
+                        install.setInstallCache(installCache);
+                        install.setQubTestCreator(qubTestCreator);
+                        install.setQubTest(qubTestCreator.run());
+                        install.main(requestConsole);
+                    })
+                    .catchError((Throwable e) -> logger.error("Couldn't start the install server: " + e.getMessage()))
+                    .await();
+                if (server != null)
+                {
+                    final Thread shutdownHook = new Thread(server::close);
+                    Runtime.getRuntime().addShutdownHook(shutdownHook);
+                    try
+                    {
+                        logger.info("Listening for install requests on port " + server.getPort() + "...");
+                        logger.flush();
+                        server.run().await();
+                    }
+                    finally
+                    {
+                        server.close();
+                        Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                    }
+                }
+            }
+        }
     }
 
-    private static Path getFolderPathToInstall(Console console)
+    private static Integer getServerPort(InstallLogger logger)
     {
-        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(logger, "logger");
 
-        Path result = null;
-        final CommandLine commandLine = console.getCommandLine();
-        if (commandLine.any())
+        Integer result = 0;
+        final String serverArgumentValue = logger.getConsole().getCommandLine().get("server").getValue();
+        if (!Strings.isNullOrEmpty(serverArgumentValue))
         {
-            CommandLineArgument folderArgument = commandLine.get("folder");
-            if (folderArgument == null)
+            try
+            {
+                result = java.lang.Integer.parseInt(serverArgumentValue);
+            }
+            catch (NumberFormatException e)
             {
-                folderArgument = commandLine.getArguments()
-                    .first((CommandLineArgument argument) -> argument.getName() == null);
+                result = -1;
             }
-            if (folderArgument != null)
+            if (result < 0 || 65535 < result)
             {
-                result = Path.parse(folderArgument.getValue());
+                logger.error("The -server argument must be a port number between 0 and 65535, but was " + Strings.escapeAndQuote(serverArgumentValue) + ".");
+                result = null;
             }
         }
+        return result;
+    }
+
+    private void watchFolder(InstallLogger logger, QubTest qubTest, Folder folderToWatch)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+        PreCondition.assertNotNull(qubTest, "qubTest");
+        PreCondition.assertNotNull(folderToWatch, "folderToWatch");
 
-        if (result == null)
+        final Console console = logger.getConsole();
+        final ProjectWatcher projectWatcher = getProjectWatcherCreator().run(folderToWatch)
+            .catchError((Throwable e) -> logger.error("Couldn't watch " + folderToWatch.toString() + ": " + e.getMessage()))
+            .await();
+        if (projectWatcher != null)
         {
-            result = console.getCurrentFolderPath();
+            try
+            {
+                // Only a version that this watch session installed can be replaced. A version that was
+                // already installed some other way fails to install, just like it does without -watch.
+                final java.util.HashSet<PackageSignature> installedPackages = new java.util.HashSet<>();
+                if (isInstalledAndUnchanged(console, folderToWatch))
+                {
+                    logger.info("Skipping because this version is already installed and nothing changed since the last successful build.");
+                }
+                else
+                {
+                    watchInstallFolder(logger, qubTest, folderToWatch, installedPackages, false);
+                }
+
+                boolean watching = true;
+                while (watching)
+                {
+                    logger.info("Watching " + folderToWatch.toString() + " for changes...");
+                    logger.flush();
+                    final Iterable<String> changedFilePaths = projectWatcher.waitForChanges().await();
+                    watching = changedFilePaths != null;
+                    if (watching)
+                    {
+                        logger.info("Detected changes to " + String.join(", ", changedFilePaths) + ".");
+                        console.setExitCode(0);
+                        final boolean testsOnly = !changedFilePaths.any((String changedFilePath) -> !changedFilePath.startsWith("tests/"));
+                        watchInstallFolder(logger, qubTest, folderToWatch, installedPackages, testsOnly);
+                    }
+                }
+            }
+            finally
+            {
+                projectWatcher.close();
+            }
         }
+    }
 
-        if (!result.isRooted())
+    private void watchInstallFolder(InstallLogger logger, QubTest qubTest, Folder folderToInstall, java.util.Set<PackageSignature> installedPackages, boolean testsOnly)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+        PreCondition.assertNotNull(installedPackages, "installedPackages");
+
+        final PackageSignature signature = getPackageSignature(folderToInstall);
+        installFolder(logger, qubTest, folderToInstall, signature != null && installedPackages.contains(signature), testsOnly);
+        if (signature != null && !testsOnly && logger.getConsole().getExitCode() == 0)
         {
-            result = console.getCurrentFolderPath().resolve(result).await();
+            installedPackages.add(signature);
         }
+    }
 
-        PostCondition.assertNotNull(result, "result");
-        PostCondition.assertTrue(result.isRooted(), "result.isRooted()");
+    // Returns the package that the project folder's project.json file describes, or null if it can't be read.
+    private static PackageSignature getPackageSignature(Folder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
 
-        return result;
+        return ProjectJSON.parse(projectFolder.getFile("project.json").await())
+            .then((ProjectJSON projectJson) ->
+            {
+                return Strings.isNullOrEmpty(projectJson.getPublisher()) ||
+                    Strings.isNullOrEmpty(projectJson.getProject()) ||
+                    Strings.isNullOrEmpty(projectJson.getVersion())
+                    ? null
+                    : new PackageSignature(projectJson.getPublisher(), projectJson.getProject(), projectJson.getVersion());
+            })
+            .catchError()
+            .await();
+    }
+
+    private void installFolders(InstallLogger logger, Iterable<Folder> foldersToInstall)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+        PreCondition.assertNotNull(foldersToInstall, "foldersToInstall");
+
+        final Console console = logger.getConsole();
+        final Integer parallelism = getParallelism(logger);
+        if (parallelism != null)
+        {
+            final InstallGraph graph = InstallGraph.create(foldersToInstall)
+                .catchError((Throwable e) -> logger.error(e.getMessage()))
+                .await();
+            if (graph != null)
+            {
+                logger.info("Installing " + graph.getProjectCount() + " projects with a parallelism of " + parallelism + "...");
+
+                final Function0<QubTest> qubTestCreator = getQubTestCreator();
+                final java.util.concurrent.ConcurrentHashMap<String,String> projectOutputs = new java.util.concurrent.ConcurrentHashMap<>();
+                new InstallScheduler(parallelism).run(graph,
+                    (Folder projectFolder) ->
+                    {
+                        final InMemoryCharacterStream projectOutput = new InMemoryCharacterStream();
+                        try (final Console projectConsole = createProjectConsole(console, projectFolder, projectOutput);
+                             final InstallLogger projectLogger = InstallLogger.create(projectConsole))
+                        {
+                            try
+                            {
+                                if (isInstalledAndUnchanged(projectConsole, projectFolder))
+                                {
+                                    projectLogger.info("Skipping because this version is already installed and nothing changed since the last successful build.");
+                                }
+                                else
+                                {
+                                    installFolder(projectLogger, qubTestCreator.run(), projectFolder);
+                                }
+                            }
+                            catch (Throwable e)
+                            {
+                                // The scheduler only learns that the install failed, so the reason is written to the project's output here.
+                                projectLogger.error("Couldn't install " + projectFolder.toString() + ": " + e.getMessage());
+                            }
+                            return projectConsole.getExitCode() == 0;
+                        }
+                        finally
+                        {
+                            projectOutputs.put(projectFolder.toString(), projectOutput.getText().await());
+                        }
+                    },
+                    (Folder projectFolder, Boolean installed) ->
+                    {
+                        final String projectOutput = projectOutputs.remove(projectFolder.toString());
+                        if (projectOutput == null)
+                        {
+                            logger.error("Skipped " + projectFolder.toString() + " because one of its dependencies wasn't installed.");
+                        }
+                        else
+                        {
+                            for (final String line : Strings.getLines(projectOutput))
+                            {
+                                logger.info("[" + projectFolder.getName() + "] " + line);
+                            }
+                            if (!installed)
+                            {
+                                console.incrementExitCode();
+                            }
+                        }
+                    })
+                    .await();
+            }
+        }
     }
 
-    private static Folder getFolderToInstall(Console console)
+    private static Console createProjectConsole(Console console, Folder projectFolder, CharacterWriteStream output)
     {
         PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertNotNull(output, "output");
+
+        final List<String> arguments = List.create();
+        for (final CommandLineArgument argument : console.getCommandLine().getArguments())
+        {
+            final String argumentName = argument.getName();
+            if (argumentName != null &&
+                !argumentName.equals("folder") &&
+                !argumentName.equals("root") &&
+                !argumentName.equals("parallelism"))
+            {
+                arguments.add(argument.toString());
+            }
+        }
+        arguments.add("-folder=" + projectFolder.toString());
 
-        final Folder result = console.getFileSystem().getFolder(getFolderPathToInstall(console)).await();
+        final Console result = new Console(arguments);
+        result.setLineSeparator(console.getLineSeparator());
+        result.setOutput(output);
+        result.setFileSystem(console.getFileSystem());
+        result.setCurrentFolderPath(console.getCurrentFolderPath());
+        result.setEnvironmentVariables(console.getEnvironmentVariables());
 
         PostCondition.assertNotNull(result, "result");
 
         return result;
     }
 
-    public static boolean isVerbose(Console console)
+    private static boolean isInstalledAndUnchanged(Console console, Folder projectFolder)
     {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
         boolean result = false;
 
-        CommandLineArgument verboseArgument = console.getCommandLine().get("verbose");
-        if (verboseArgument != null)
+        final String qubHome = console.getEnvironmentVariable("QUB_HOME");
+        final File projectJsonFile = projectFolder.getFile("project.json").await();
+        if (!Strings.isNullOrEmpty(qubHome) && projectJsonFile.exists().await())
         {
-            final String verboseArgumentValue = verboseArgument.getValue();
-            result = Strings.isNullOrEmpty(verboseArgumentValue) ||
-                Booleans.isTrue(java.lang.Boolean.valueOf(verboseArgumentValue));
+            final ProjectJSON projectJson = ProjectJSON.parse(projectJsonFile).await();
+            if (!Strings.isNullOrEmpty(projectJson.getPublisher()) &&
+                !Strings.isNullOrEmpty(projectJson.getProject()) &&
+                !Strings.isNullOrEmpty(projectJson.getVersion()))
+            {
+                final Folder qubFolder = console.getFileSystem().getFolder(qubHome).await();
+                final PackageSignature signature = new PackageSignature(projectJson.getPublisher(), projectJson.getProject(), projectJson.getVersion());
+                if (signature.getVersionFolder(qubFolder).exists().await())
+                {
+                    final File projectJarFile = projectFolder.getFolder("outputs").await()
+                        .getFile(projectJson.getProject() + ".jar").await();
+                    final File manifestFile = InstallManifest.getManifestFile(projectJarFile);
+                    result = manifestFile.exists().await() &&
+                        InstallManifest.create(projectFolder, projectJarFile).getDifference(InstallManifest.parse(manifestFile).await()) == null;
+                }
+            }
         }
 
         return result;
     }
 
-    public static Result<Void> verbose(Console console, String message)
+    private void installFolder(InstallLogger logger, QubTest qubTest, Folder folderToInstall)
     {
-        return verbose(console, false, message);
+        installFolder(logger, qubTest, folderToInstall, false, false);
     }
 
-    public static Result<Void> verbose(Console console, boolean showTimestamp, String message)
+    private void installFolder(InstallLogger logger, QubTest qubTest, Folder folderToInstall, boolean replaceExisting, boolean testsOnly)
     {
-        PreCondition.assertNotNull(console, "console");
-        PreCondition.assertNotNull(message, "message");
+        PreCondition.assertNotNull(logger, "logger");
+        PreCondition.assertNotNull(qubTest, "qubTest");
+        PreCondition.assertNotNull(folderToInstall, "folderToInstall");
 
-        Result<Void> result = Result.success();
-        if (isVerbose(console))
+        // Every file system call the install makes goes through the console's file system or the
+        // folder being installed, so both are counted for the -profile metrics while it runs.
+        final Console console = logger.getConsole();
+        final FileSystem consoleFileSystem = console.getFileSystem();
+        final CountingFileSystem countingFileSystem = new CountingFileSystem(folderToInstall.getFileSystem());
+        if (consoleFileSystem == folderToInstall.getFileSystem())
         {
-            result = console.writeLine("VERBOSE" + (showTimestamp ? "(" + System.currentTimeMillis() + ")" : "") + ": " + message)
-                .then(() -> {});
+            console.setFileSystem(countingFileSystem.getFileSystem());
+        }
+        try
+        {
+            installFolder(logger, qubTest, countingFileSystem.wrap(folderToInstall), replaceExisting, testsOnly, countingFileSystem);
+        }
+        finally
+        {
+            console.setFileSystem(consoleFileSystem);
         }
-
-        PostCondition.assertNotNull(result, "result");
-
-        return result;
     }
 
-    public static Result<Void> error(Console console, String message)
+    private void installFolder(InstallLogger logger, QubTest qubTest, Folder folderToInstall, boolean replaceExisting, boolean testsOnly, CountingFileSystem countingFileSystem)
     {
-        return error(console, false, message);
+        PreCondition.assertNotNull(logger, "logger");
+        PreCondition.assertNotNull(qubTest, "qubTest");
+        PreCondition.assertNotNull(folderToInstall, "folderToInstall");
+        PreCondition.assertNotNull(countingFileSystem, "countingFileSystem");
+
+        final Console console = logger.getConsole();
+        final InstallMetrics metrics = new InstallMetrics();
+        final PublishMode publishMode = getPublishMode(logger);
+        final InstallPlan plan = publishMode == null ? null : InstallPlan.create(logger, folderToInstall, metrics, replaceExisting, getInstallCache());
+        if (plan != null)
+        {
+            plan.setUseCdsArchive(isFlagSet(console, "cds"));
+            plan.setOptimizeCompressionLevel(getOptimizeCompressionLevel(logger));
+        }
+        if (console.getExitCode() == 0)
+        {
+            if (isPlan(console))
+            {
+                if (plan == null)
+                {
+                    logger.error("Couldn't find a project.json file in " + folderToInstall.toString() + ".");
+                }
+                else
+                {
+                    plan.setBuildStep(getBuildStep(logger, plan, folderToInstall));
+                    if (console.getExitCode() == 0)
+                    {
+                        logger.flush();
+                        plan.writeTo(console).await();
+                    }
+                }
+            }
+            else
+            {
+                final File projectJarFile = plan == null ? null : plan.getProjectJarFile();
+                final InstallManifest installManifest = projectJarFile == null
+                    ? null
+                    : metrics.measure("Hash project files", () -> InstallManifest.create(folderToInstall, projectJarFile));
+                final ArtifactPublisher publisher = publishMode == null ? null : new ArtifactPublisher(publishMode);
+                final java.util.concurrent.atomic.AtomicReference<java.util.concurrent.CompletableFuture<StagedInstall>> pendingStagedInstall = new java.util.concurrent.atomic.AtomicReference<>();
+                if (!isUpToDate(logger, installManifest, projectJarFile))
+                {
+                    logger.flush();
+                    // When the tests run separately from the build, the install is staged while they run.
+                    final Action0 onBuilt = testsOnly ? null : () -> pendingStagedInstall.set(java.util.concurrent.CompletableFuture.supplyAsync(() ->
+                        metrics.measureConcurrently("Stage install", () -> stage(logger, plan, publisher, null, true, metrics)))));
+                    final ClassDependencyGraph classGraph = buildAndTest(logger, qubTest, plan, folderToInstall, onBuilt, metrics);
+
+                    if (console.getExitCode() == 0 && installManifest != null && projectJarFile.exists().await())
+                    {
+                        metrics.measure("Write install manifest", () ->
+                        {
+                            final File manifestFile = InstallManifest.getManifestFile(projectJarFile);
+                            installManifest.setFileHash(projectJarFile.relativeTo(folderToInstall).toString(), ContentHash.sha256(projectJarFile).await());
+                            logger.verbose(() -> "Writing " + manifestFile.toString() + "...");
+                            installManifest.save(manifestFile).await();
+                        });
+
+                        metrics.measure("Write class dependency graph", () ->
+                        {
+                            final File classGraphFile = ClassDependencyGraph.getGraphFile(projectJarFile);
+                            logger.verbose(() -> "Writing " + classGraphFile.toString() + "...");
+                            (classGraph != null ? classGraph : createClassGraph(plan, folderToInstall)).save(classGraphFile).await();
+                        });
+
+                        if (getIncrementalCompiler().isSupported(folderToInstall))
+                        {
+                            metrics.measure("Write compilation state", () ->
+                            {
+                                final File compilationStateFile = CompilationState.getStateFile(projectJarFile);
+                                logger.verbose(() -> "Writing " + compilationStateFile.toString() + "...");
+                                final CompilationState compilationState = CompilationState.create(folderToInstall).await();
+                                compilationState.addInputFiles(getInputFiles(plan)).await();
+                                compilationState.save(compilationStateFile).await();
+                            });
+                        }
+                    }
+                }
+
+                StagedInstall stagedInstall = null;
+                if (pendingStagedInstall.get() != null)
+                {
+                    try
+                    {
+                        stagedInstall = pendingStagedInstall.get().join();
+                    }
+                    catch (java.util.concurrent.CompletionException e)
+                    {
+                        final Throwable cause = e.getCause() == null ? e : e.getCause();
+                        logger.error("Couldn't stage the install: " + cause.getMessage());
+                    }
+                }
+
+                if (console.getExitCode() == 0 && testsOnly)
+                {
+                    logger.info("Skipping install because only tests changed.");
+                }
+                else if (console.getExitCode() == 0)
+                {
+                    logger.info("Installing...");
+                    if (stagedInstall != null)
+                    {
+                        commit(logger, plan, stagedInstall, metrics);
+                    }
+                    else if (pendingStagedInstall.get() == null)
+                    {
+                        final String projectJarHash = installManifest == null ? null : installManifest.getFileHash(projectJarFile.relativeTo(folderToInstall).toString());
+                        install(logger, plan, publisher, projectJarHash, metrics);
+                    }
+                }
+                else if (stagedInstall != null)
+                {
+                    final Folder stagingFolder = stagedInstall.getStagingFolder();
+                    logger.verbose(() -> "Discarding " + stagingFolder.toString() + " because the install didn't pass...");
+                    stagedInstall.discard()
+                        .catchError((Throwable e) -> logger.warning("Couldn't delete " + stagingFolder.toString() + ": " + e.getMessage()))
+                        .await();
+                }
+
+                metrics.addFileSystemOperations(countingFileSystem.getOperationCount());
+                if (isFlagSet(console, "profile"))
+                {
+                    logger.flush();
+                    metrics.writeTableTo(console).await();
+                }
+
+                if (projectJarFile != null && projectJarFile.getParentFolder().await().exists().await())
+                {
+                    final File metricsFile = InstallMetrics.getMetricsFile(projectJarFile);
+                    logger.verbose(() -> "Writing " + metricsFile.toString() + "...");
+                    metrics.save(metricsFile, plan.getPackageSignature().toString(), console.getExitCode() == 0)
+                        .catchError((Throwable e) -> logger.warning("Couldn't write " + metricsFile.toString() + ": " + e.getMessage()))
+                        .await();
+                }
+            }
+        }
     }
 
-    public static Result<Void> error(Console console, boolean showTimestamp, String message)
+    private ClassDependencyGraph buildAndTest(InstallLogger logger, QubTest qubTest, InstallPlan plan, Folder projectFolder, Action0 onBuilt, InstallMetrics metrics)
     {
-        PreCondition.assertNotNull(console, "console");
-        PreCondition.assertNotNull(message, "message");
+        PreCondition.assertNotNull(logger, "logger");
+        PreCondition.assertNotNull(qubTest, "qubTest");
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertNotNull(metrics, "metrics");
 
-        final Result<Void> result = console.writeLine("ERROR" + (showTimestamp ? "(" + System.currentTimeMillis() + ")" : "") + ": " + message).then(() -> {});
-        console.incrementExitCode();
+        final Console console = logger.getConsole();
+        ClassDependencyGraph result = null;
 
-        PostCondition.assertNotNull(result, "result");
+        final Integer testShardCount = getTestShardCount(logger);
+        if (testShardCount != null)
+        {
+            final ClassDependencyGraph previousClassGraph = getPreviousClassGraph(logger, plan);
+            final boolean selectTests = previousClassGraph != null && previousClassGraph.getTestClassNames().any();
+            final CompilationState previousCompilationState = getPreviousCompilationState(logger, plan, projectFolder);
+
+            if (plan == null || (testShardCount == 1 && !selectTests && previousCompilationState == null))
+            {
+                // QubTest builds and runs the tests in one call, so the two can't be timed separately.
+                qubTest.setShowTotalDuration(false);
+                metrics.measure("Build and test", () -> qubTest.main(console));
+            }
+            else
+            {
+                if (previousCompilationState != null)
+                {
+                    logger.flush();
+                    final CompilationState compilationState = previousCompilationState;
+                    metrics.measure("Compile", () ->
+                    {
+                        getIncrementalCompiler().compile(console, projectFolder, plan.getProjectJarFile(), plan.getDependencyJarFiles(), compilationState)
+                            .catchError((Throwable e) -> logger.error("Couldn't compile incrementally: " + e.getMessage()))
+                            .await();
+                    });
+                }
+                else
+                {
+                    logger.flush();
+                    final Build build = qubTest.getBuild();
+                    build.setShowTotalDuration(false);
+                    metrics.measure("Compile", () -> build.main(console));
+                }
+                if (console.getExitCode() == 0)
+                {
+                    if (onBuilt != null)
+                    {
+                        onBuilt.run();
+                    }
+
+                    result = metrics.measure("Build class graph", () -> createClassGraph(plan, projectFolder));
+                    final int testClassCount = result.getTestClassNames().getCount();
+                    Iterable<String> testClassNames = result.getTestClassNames();
+                    final Iterable<String> changedInputNames = selectTests ? result.getChangedInputNames(previousClassGraph) : Iterable.create();
+                    if (changedInputNames.any())
+                    {
+                        // The class hashes can't show what a changed dependency or project setting affects.
+                        logger.info("Running all " + testClassCount + " test classes because the project.json file or the dependencies changed since the last passing run.");
+                        logger.verbose(() -> "Changed: " + String.join(", ", changedInputNames));
+                    }
+                    else if (selectTests)
+                    {
+                        final Iterable<String> changedClassNames = result.getChangedClassNames(previousClassGraph);
+                        testClassNames = result.getImpactedTestClassNames(previousClassGraph);
+                        final int skippedTestClassCount = testClassCount - testClassNames.getCount();
+                        if (!testClassNames.any())
+                        {
+                            logger.info("Skipping all " + testClassCount + " test classes because none of them reach a class that changed since the last passing run.");
+                        }
+                        else
+                        {
+                            logger.info("Running " + testClassNames.getCount() + " of " + testClassCount + " test classes that reach classes changed since the last passing run (" + String.join(", ", changedClassNames) + ").");
+                            if (skippedTestClassCount > 0)
+                            {
+                                logger.info("Use -fullTests to run the other " + skippedTestClassCount + ".");
+                            }
+                        }
+                    }
+
+                    if (testClassNames.any())
+                    {
+                        final Iterable<String> testClassNamesToRun = testClassNames;
+                        metrics.measure("Run tests", () -> runTests(logger, plan, projectFolder, testClassNamesToRun, testShardCount));
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    // The step that -plan shows for building and testing, which matches what buildAndTest() would run.
+    private String getBuildStep(InstallLogger logger, InstallPlan plan, Folder projectFolder)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+        PreCondition.assertNotNull(plan, "plan");
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        String result;
+        final File projectJarFile = plan.getProjectJarFile();
+        final File manifestFile = InstallManifest.getManifestFile(projectJarFile);
+        final InstallManifest previousManifest = !manifestFile.exists().await() ? null : InstallManifest.parse(manifestFile).catchError().await();
+        if (previousManifest != null && InstallManifest.create(projectFolder, projectJarFile).getDifference(previousManifest) == null)
+        {
+            result = "Skip building and testing " + projectFolder.toString() + " because nothing changed since the last successful build";
+        }
+        else
+        {
+            final Integer testShardCount = getTestShardCount(logger);
+            final ClassDependencyGraph previousClassGraph = getPreviousClassGraph(logger, plan);
+            final boolean selectTests = previousClassGraph != null && previousClassGraph.getTestClassNames().any();
+            final CompilationState previousCompilationState = getPreviousCompilationState(logger, plan, projectFolder);
+            if ((testShardCount == null || testShardCount == 1) && !selectTests && previousCompilationState == null)
+            {
+                result = "Build and test " + projectFolder.toString();
+            }
+            else
+            {
+                result = (previousCompilationState != null ? "Compile the changed source files in " : "Build ") + projectFolder.toString() +
+                    (selectTests ? " and run the test classes that reach changed classes" : " and run every test class") +
+                    (testShardCount != null && testShardCount > 1 ? " in " + testShardCount + " test shards" : "");
+            }
+        }
+
+        PostCondition.assertNotNullAndNotEmpty(result, "result");
+
+        return result;
+    }
+
+    private ClassDependencyGraph getPreviousClassGraph(InstallLogger logger, InstallPlan plan)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+
+        ClassDependencyGraph result = null;
+        if (plan != null && !isFlagSet(logger.getConsole(), "fullTests"))
+        {
+            final File classGraphFile = ClassDependencyGraph.getGraphFile(plan.getProjectJarFile());
+            if (classGraphFile.exists().await())
+            {
+                result = ClassDependencyGraph.parse(classGraphFile)
+                    .catchError((Throwable e) -> logger.verbose(() -> "Running all tests because " + classGraphFile.toString() + " couldn't be read: " + e.getMessage()))
+                    .await();
+            }
+        }
+        return result;
+    }
+
+    // Returns the state of the last passing build when only the source files that changed since then
+    // need to be compiled, or null when every source file needs to be compiled.
+    private CompilationState getPreviousCompilationState(InstallLogger logger, InstallPlan plan, Folder projectFolder)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        CompilationState result = null;
+        if (plan != null && !isFlagSet(logger.getConsole(), "fullBuild") && getIncrementalCompiler().isSupported(projectFolder) && plan.getProjectJarFile().exists().await())
+        {
+            final File compilationStateFile = CompilationState.getStateFile(plan.getProjectJarFile());
+            if (compilationStateFile.exists().await())
+            {
+                result = CompilationState.parse(compilationStateFile)
+                    .catchError((Throwable e) -> logger.verbose(() -> "Compiling every source file because " + compilationStateFile.toString() + " couldn't be read: " + e.getMessage()))
+                    .await();
+            }
+            if (result != null)
+            {
+                // The unchanged sources were compiled for the previous Java version and against the previous
+                // dependency APIs, so only a full build can check them against the new ones.
+                final CompilationState currentCompilationInputs = CompilationState.create();
+                currentCompilationInputs.addInputFiles(getInputFiles(plan)).await();
+                final Iterable<String> changedInputNames = currentCompilationInputs.getChangedInputNames(result);
+                if (changedInputNames.any())
+                {
+                    logger.info("Compiling every source file because the project.json file or the dependencies changed since the last passing build.");
+                    logger.verbose(() -> "Changed: " + String.join(", ", changedInputNames));
+                    result = null;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static ClassDependencyGraph createClassGraph(InstallPlan plan, Folder projectFolder)
+    {
+        PreCondition.assertNotNull(plan, "plan");
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        final ClassDependencyGraph result = ClassDependencyGraph.create(projectFolder).await();
+        result.addInputFiles(getInputFiles(plan)).await();
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    private static Iterable<File> getInputFiles(InstallPlan plan)
+    {
+        PreCondition.assertNotNull(plan, "plan");
+
+        final List<File> result = List.create();
+        result.add(plan.getProjectJsonFile());
+        result.addAll(plan.getDependencyJarFiles());
+        return result;
+    }
+
+    private void runTests(InstallLogger logger, InstallPlan plan, Folder projectFolder, Iterable<String> testClassNames, int testShardCount)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+        PreCondition.assertNotNull(plan, "plan");
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertNotNull(testClassNames, "testClassNames");
+        PreCondition.assertGreaterThanOrEqualTo(testShardCount, 1, "testShardCount");
+
+        final Console console = logger.getConsole();
+        final Iterable<String> classpath = TestClassLauncher.getClasspath(projectFolder, plan.getDependencyJarFiles());
+
+        final Integer testExitCode;
+        if (testShardCount == 1)
+        {
+            logger.flush();
+            testExitCode = getTestClassLauncher().run(console, classpath, testClassNames)
+                .catchError((Throwable e) -> logger.error("Couldn't run tests: " + e.getMessage()))
+                .await();
+        }
+        else
+        {
+            final File historyFile = TestTimingHistory.getHistoryFile(plan.getProjectJarFile());
+            TestTimingHistory history = null;
+            if (historyFile.exists().await())
+            {
+                history = TestTimingHistory.parse(historyFile)
+                    .catchError((Throwable e) -> logger.verbose(() -> "Ignoring test timing history because " + historyFile.toString() + " couldn't be read: " + e.getMessage()))
+                    .await();
+            }
+            if (history == null)
+            {
+                history = TestTimingHistory.create();
+            }
+
+            final Iterable<Iterable<String>> shards = TestClassLauncher.createShards(testClassNames, testShardCount, history);
+            if (shards.getCount() > 1)
+            {
+                logger.info("Running " + testClassNames.getCount() + " test classes in " + shards.getCount() + " JVMs...");
+            }
+            logger.flush();
+            testExitCode = getTestClassLauncher().run(console, classpath, shards, history)
+                .catchError((Throwable e) -> logger.error("Couldn't run tests: " + e.getMessage()))
+                .await();
+
+            logger.verbose(() -> "Writing " + historyFile.toString() + "...");
+            history.save(historyFile)
+                .catchError((Throwable e) -> logger.verbose(() -> "Couldn't write " + historyFile.toString() + ": " + e.getMessage()))
+                .await();
+        }
+
+        if (testExitCode != null && testExitCode != 0)
+        {
+            console.incrementExitCode();
+        }
+    }
+
+    private static boolean shouldShowUsage(Console console)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        return console.getCommandLine().contains(
+            (CommandLineArgument argument) ->
+            {
+                final String argumentString = argument.toString();
+                return argumentString.equals("/?") || argumentString.equals("-?");
+            });
+    }
+
+    private static Iterable<Path> getFolderPathsToInstall(Console console)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        final List<Path> result = List.create();
+        for (final CommandLineArgument argument : console.getCommandLine().getArguments())
+        {
+            final String argumentName = argument.getName();
+            if ((argumentName == null || argumentName.equals("folder")) && !Strings.isNullOrEmpty(argument.getValue()))
+            {
+                result.add(resolvePath(console, argument.getValue()));
+            }
+        }
+
+        if (!result.any())
+        {
+            result.add(console.getCurrentFolderPath());
+        }
+
+        PostCondition.assertNotNull(result, "result");
+        PostCondition.assertTrue(result.any(), "result.any()");
+
+        return result;
+    }
+
+    private static Path resolvePath(Console console, String pathString)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNullAndNotEmpty(pathString, "pathString");
+
+        Path result = Path.parse(pathString);
+        if (!result.isRooted())
+        {
+            result = console.getCurrentFolderPath().resolve(result).await();
+        }
+
+        PostCondition.assertNotNull(result, "result");
+        PostCondition.assertTrue(result.isRooted(), "result.isRooted()");
+
+        return result;
+    }
+
+    private static Iterable<Folder> getFoldersToInstall(InstallLogger logger)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+
+        List<Folder> result = List.create();
+
+        final Console console = logger.getConsole();
+        final FileSystem fileSystem = console.getFileSystem();
+        final CommandLineArgument rootArgument = console.getCommandLine().get("root");
+        if (rootArgument == null)
+        {
+            for (final Path folderPath : getFolderPathsToInstall(console))
+            {
+                result.add(fileSystem.getFolder(folderPath).await());
+            }
+        }
+        else if (Strings.isNullOrEmpty(rootArgument.getValue()))
+        {
+            logger.error("The -root argument must specify a folder to search for projects.");
+            result = null;
+        }
+        else
+        {
+            final Folder rootFolder = fileSystem.getFolder(resolvePath(console, rootArgument.getValue())).await();
+            if (!rootFolder.exists().await())
+            {
+                logger.error("The root folder " + rootFolder.toString() + " doesn't exist.");
+                result = null;
+            }
+            else
+            {
+                final java.util.TreeMap<String,Folder> projectFolders = new java.util.TreeMap<>();
+                for (final File file : rootFolder.getFilesRecursively().await())
+                {
+                    if (file.getName().equals("project.json"))
+                    {
+                        final Folder projectFolder = file.getParentFolder().await();
+                        projectFolders.put(projectFolder.toString(), projectFolder);
+                    }
+                }
+                for (final Folder projectFolder : projectFolders.values())
+                {
+                    result.add(projectFolder);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static Integer getParallelism(InstallLogger logger)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+
+        Integer result = Runtime.getRuntime().availableProcessors();
+
+        final CommandLineArgument parallelismArgument = logger.getConsole().getCommandLine().get("parallelism");
+        if (parallelismArgument != null)
+        {
+            final String parallelismText = parallelismArgument.getValue();
+            try
+            {
+                result = Integer.parseInt(parallelismText);
+            }
+            catch (NumberFormatException e)
+            {
+                result = null;
+            }
+
+            if (result == null || result < 1)
+            {
+                logger.error("The -parallelism argument must be a positive integer, but was " + Strings.escapeAndQuote(parallelismText) + ".");
+                result = null;
+            }
+        }
+
+        return result;
+    }
+
+    private static OptimizedJar optimize(InstallLogger logger, InstallPlan plan, InstallMetrics metrics)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+        PreCondition.assertNotNull(plan, "plan");
+        PreCondition.assertNotNull(metrics, "metrics");
+
+        OptimizedJar result = null;
+        final File optimizedJarFile = plan.getOptimizedProjectJarFile();
+        if (optimizedJarFile != null)
+        {
+            final File projectJarFile = plan.getProjectJarFile();
+            final String mainClass = plan.getMainClass();
+
+            JarTrainingRun trainingRunBefore = null;
+            if (!Strings.isNullOrEmpty(mainClass))
+            {
+                logger.verbose(() -> "Training " + mainClass + " to record its class-load order...");
+                trainingRunBefore = metrics.measure("Train jar class-load order", () ->
+                    JarTrainingRun.run(getTrainingClasspath(plan, projectJarFile), mainClass, plan.getJvmOptions(), Iterable.create("-?"))
+                        .catchError((Throwable e) -> logger.warning("Couldn't record the class-load order of " + mainClass + ": " + e.getMessage()))
+                        .await());
+            }
+            final Iterable<String> classLoadOrder = trainingRunBefore == null ? Iterable.create() : trainingRunBefore.getClassLoadOrder();
+
+            logger.verbose(() -> "Optimizing " + projectJarFile.toString() + " into " + optimizedJarFile.toString() + "...");
+            result = metrics.measure("Optimize jar", () ->
+                JarOptimizer.optimize(projectJarFile, optimizedJarFile, classLoadOrder, plan.getOptimizeCompressionLevel())
+                    .catchError((Throwable e) -> logger.warning("Couldn't optimize " + projectJarFile.toString() + ", so it will be installed as it is: " + e.getMessage()))
+                    .await());
+            if (result != null)
+            {
+                final OptimizedJar optimizedJar = result;
+                logger.info("Optimized " + projectJarFile.getName() + " from " + optimizedJar.getOriginalSize() + " to " + optimizedJar.getSize() + " bytes" +
+                    (optimizedJar.getStrippedEntryNames().any() ? " and stripped " + optimizedJar.getStrippedEntryNames().getCount() + " unneeded entries." : "."));
+                logger.verbose(() -> "Stripped entries: " + String.join(", ", optimizedJar.getStrippedEntryNames()));
+
+                if (trainingRunBefore != null)
+                {
+                    final JarTrainingRun trainingRunAfter = metrics.measure("Time optimized jar", () ->
+                        JarTrainingRun.run(getTrainingClasspath(plan, optimizedJar.getFile()), mainClass, plan.getJvmOptions(), Iterable.create("-?"))
+                            .catchError((Throwable e) -> logger.warning("Couldn't time the optimized jar: " + e.getMessage()))
+                            .await());
+                    if (trainingRunAfter != null)
+                    {
+                        logger.info("Cold start of " + mainClass + " went from " + trainingRunBefore.getMilliseconds() + " to " + trainingRunAfter.getMilliseconds() + " milliseconds.");
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Iterable<File> getTrainingClasspath(InstallPlan plan, File projectJarFile)
+    {
+        PreCondition.assertNotNull(plan, "plan");
+        PreCondition.assertNotNull(projectJarFile, "projectJarFile");
+
+        final List<File> result = List.create();
+        result.add(projectJarFile);
+        result.addAll(plan.getDependencyJarFiles());
+        return result;
+    }
+
+    private static Integer getOptimizeCompressionLevel(InstallLogger logger)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+
+        Integer result = null;
+
+        final CommandLineArgument optimizeArgument = logger.getConsole().getCommandLine().get("optimize");
+        if (optimizeArgument != null)
+        {
+            final String optimizeText = optimizeArgument.getValue();
+            if (Strings.isNullOrEmpty(optimizeText))
+            {
+                result = JarOptimizer.storedCompressionLevel;
+            }
+            else
+            {
+                try
+                {
+                    result = Integer.parseInt(optimizeText);
+                }
+                catch (NumberFormatException e)
+                {
+                    result = null;
+                }
+
+                if (result == null || result < 0 || 9 < result)
+                {
+                    logger.error("The -optimize argument must be a compression level between 0 and 9, but was " + Strings.escapeAndQuote(optimizeText) + ".");
+                    result = null;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static Integer getTestShardCount(InstallLogger logger)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+
+        Integer result = 1;
+
+        final CommandLineArgument testShardsArgument = logger.getConsole().getCommandLine().get("testShards");
+        if (testShardsArgument != null)
+        {
+            final String testShardsText = testShardsArgument.getValue();
+            if (Strings.isNullOrEmpty(testShardsText))
+            {
+                result = Runtime.getRuntime().availableProcessors();
+            }
+            else
+            {
+                try
+                {
+                    result = Integer.parseInt(testShardsText);
+                }
+                catch (NumberFormatException e)
+                {
+                    result = null;
+                }
+
+                if (result == null || result < 1)
+                {
+                    logger.error("The -testShards argument must be a positive integer, but was " + Strings.escapeAndQuote(testShardsText) + ".");
+                    result = null;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static void install(InstallLogger logger, InstallPlan plan, ArtifactPublisher publisher, String projectJarHash, InstallMetrics metrics)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+        PreCondition.assertNotNull(plan, "plan");
+        PreCondition.assertNotNull(publisher, "publisher");
+        PreCondition.assertNotNull(metrics, "metrics");
+
+        final StagedInstall stagedInstall = stage(logger, plan, publisher, projectJarHash, false, metrics);
+        if (stagedInstall != null)
+        {
+            commit(logger, plan, stagedInstall, metrics);
+        }
+    }
+
+    // A speculative stage runs before the tests have passed, so it must leave the build output where it
+    // is. A Move is staged as a Copy instead, and the build output is only deleted when the install commits.
+    private static StagedInstall stage(InstallLogger logger, InstallPlan plan, ArtifactPublisher publisher, String projectJarHash, boolean speculative, InstallMetrics metrics)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+        PreCondition.assertNotNull(plan, "plan");
+        PreCondition.assertNotNull(publisher, "publisher");
+        PreCondition.assertNotNull(metrics, "metrics");
+
+        StagedInstall result = null;
+        final File projectJarFile = plan.getProjectJarFile();
+        final Folder versionFolder = plan.getVersionFolder();
+        if (!projectJarFile.exists().await())
+        {
+            logger.error("Couldn't find a compiled project jar file at " + projectJarFile.toString() + ".");
+        }
+        else if (!plan.getReplaceExisting() && versionFolder.exists().await())
+        {
+            logger.error("This package (" + plan.getPackageSignature().toString() + ") can't be installed because a package with that signature already exists.");
+        }
+        else
+        {
+            // Nothing here touches the version folder, so it doesn't need the package lock. commit() takes it.
+            final File installedProjectJarFile = plan.getInstalledProjectJarFile();
+            final Folder stagingFolder = AtomicFiles.getStagingFolder(versionFolder);
+            try
+            {
+                final File projectJsonFile = plan.getProjectJsonFile();
+                final File stagedProjectJsonFile = getStagedFile(plan, stagingFolder, plan.getInstalledProjectJsonFile());
+                logger.verbose(() -> "Copying " + projectJsonFile.toString() + " to " + stagedProjectJsonFile.toString() + "...");
+                metrics.measure("Copy project.json", () ->
+                {
+                    final byte[] projectJsonBytes = projectJsonFile.getContents().await();
+                    stagedProjectJsonFile.setContents(projectJsonBytes).await();
+                    metrics.addBytesCopied(projectJsonBytes.length);
+                });
+
+                final OptimizedJar optimizedJar = optimize(logger, plan, metrics);
+                final File jarFileToStore = optimizedJar == null ? projectJarFile : optimizedJar.getFile();
+                // A jar that was just built has no hash yet. Hashing it first lets the store skip the copy
+                // when it already has the same jar, such as after a rebuild that changed nothing.
+                final String jarHashToStore = optimizedJar != null
+                    ? null
+                    : !Strings.isNullOrEmpty(projectJarHash) ? projectJarHash : ContentHash.sha256(projectJarFile).await();
+
+                final boolean deferMove = speculative && optimizedJar == null && publisher.getMode() == PublishMode.Move;
+                final PublishMode storeMode = optimizedJar != null ? PublishMode.Move : deferMove ? PublishMode.Copy : publisher.getMode();
+
+                final JarStore jarStore = plan.getJarStore();
+                logger.verbose(() -> "Storing " + jarFileToStore.toString() + " in " + jarStore.getStoreFolder().toString() + "...");
+                final StoredJar projectStoredJar = metrics.measure("Store jar", () -> jarStore.add(jarFileToStore, jarHashToStore, storeMode).await());
+                if (projectStoredJar.wasCopied())
+                {
+                    metrics.addBytesCopied(projectStoredJar.getSize());
+                }
+                else
+                {
+                    logger.verbose(() -> "The jar store already contains " + projectStoredJar.getHash() + ".");
+                }
+
+                final File stagedProjectJarFile = getStagedFile(plan, stagingFolder, installedProjectJarFile);
+                logger.verbose(() -> "Linking " + projectStoredJar.getFile().toString() + " to " + stagedProjectJarFile.toString() + "...");
+                final PublishMode linkMode = metrics.measure("Link jar", () -> jarStore.link(projectStoredJar, stagedProjectJarFile).await());
+                if (linkMode != PublishMode.HardLink)
+                {
+                    logger.verbose(() -> "Fell back to " + linkMode + " because " + PublishMode.HardLink + " isn't possible between these folders.");
+                    metrics.addBytesCopied(projectStoredJar.getSize());
+                }
+
+                final File launcherJarFile = plan.getLauncherJarFile();
+                if (launcherJarFile != null)
+                {
+                    final File stagedLauncherJarFile = getStagedFile(plan, stagingFolder, launcherJarFile);
+                    final List<File> stagedClasspathFiles = List.create();
+                    stagedClasspathFiles.add(stagedProjectJarFile);
+                    stagedClasspathFiles.addAll(plan.getDependencyJarFiles());
+                    logger.verbose(() -> "Writing " + stagedLauncherJarFile.toString() + "...");
+                    metrics.measure("Write launcher jar", () -> LauncherJar.create(stagedLauncherJarFile, plan.getMainClass(), stagedClasspathFiles).await());
+                }
+
+                // Reinstalling a version keeps its class data sharing archive, so commit() only has to train
+                // a new one if the jars that it was trained with changed.
+                final File cdsArchiveFile = plan.getCdsArchiveFile();
+                if (cdsArchiveFile != null && plan.getReplaceExisting())
+                {
+                    final File fingerprintFile = CdsArchive.getFingerprintFile(cdsArchiveFile);
+                    if (cdsArchiveFile.exists().await() && fingerprintFile.exists().await())
+                    {
+                        logger.verbose(() -> "Copying " + cdsArchiveFile.toString() + " to " + stagingFolder.toString() + "...");
+                        cdsArchiveFile.copyTo(getStagedFile(plan, stagingFolder, cdsArchiveFile)).await();
+                        fingerprintFile.copyTo(getStagedFile(plan, stagingFolder, fingerprintFile)).await();
+                    }
+                }
+
+                final File stagedClosureFile = DependencyClosure.getClosureFile(stagingFolder);
+                logger.verbose(() -> "Writing " + stagedClosureFile.toString() + "...");
+                metrics.measure("Write dependency closure", () -> plan.getDependencyClosure().save(stagedClosureFile).await());
+
+                final Folder qubFolder = plan.getQubFolder();
+                final List<PackageIndexEntry> dependencyEntries = List.create();
+                for (final PackageSignature dependency : plan.getUnindexedDependencies())
+                {
+                    dependencyEntries.add(PackageIndexEntry.create(qubFolder, dependency.getPublisher(), dependency.getProject(), dependency.getVersion(), dependency.getJarFile(qubFolder)).await());
+                }
+
+                result = new StagedInstall(stagingFolder, projectStoredJar, plan.getShortcutFileContents(), dependencyEntries, deferMove ? projectJarFile : null);
+            }
+            finally
+            {
+                if (result == null)
+                {
+                    AtomicFiles.deleteFolder(stagingFolder)
+                        .catchError((Throwable e) -> logger.warning("Couldn't delete " + stagingFolder.toString() + ": " + e.getMessage()))
+                        .await();
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void commit(InstallLogger logger, InstallPlan plan, StagedInstall stagedInstall, InstallMetrics metrics)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+        PreCondition.assertNotNull(plan, "plan");
+        PreCondition.assertNotNull(stagedInstall, "stagedInstall");
+        PreCondition.assertNotNull(metrics, "metrics");
+
+        final ProjectJSON projectJson = plan.getProjectJson();
+        final Folder versionFolder = plan.getVersionFolder();
+        final Folder stagingFolder = stagedInstall.getStagingFolder();
+        boolean installed = false;
+        try (final PackageLock lock = PackageLock.acquire(PackageLock.getLockFile(versionFolder)).await())
+        {
+            // Another install may have finished while this one was staged.
+            if (!plan.getReplaceExisting() && versionFolder.exists().await())
+            {
+                logger.error("This package (" + plan.getPackageSignature().toString() + ") can't be installed because a package with that signature already exists.");
+            }
+            else
+            {
+                logger.verbose(() -> "Moving " + stagingFolder.toString() + " to " + versionFolder.toString() + "...");
+                metrics.measure("Commit staged install", () ->
+                {
+                    if (plan.getReplaceExisting())
+                    {
+                        AtomicFiles.replaceFolder(stagingFolder, versionFolder).await();
+                    }
+                    else
+                    {
+                        AtomicFiles.moveFolder(stagingFolder, versionFolder).await();
+                    }
+                });
+                installed = true;
+            }
+        }
+        finally
+        {
+            if (!installed)
+            {
+                stagedInstall.discard()
+                    .catchError((Throwable e) -> logger.warning("Couldn't delete " + stagingFolder.toString() + ": " + e.getMessage()))
+                    .await();
+            }
+        }
+
+        if (installed)
+        {
+            final File deferredMoveFile = stagedInstall.getDeferredMoveFile();
+            if (deferredMoveFile != null)
+            {
+                logger.verbose(() -> "Deleting " + deferredMoveFile.toString() + " to finish moving it into the Qub folder...");
+                deferredMoveFile.delete()
+                    .catchError((Throwable e) -> logger.warning("Couldn't delete " + deferredMoveFile.toString() + ": " + e.getMessage()))
+                    .await();
+            }
+
+            String shortcutFileContents = stagedInstall.getShortcutFileContents();
+            final File launcherJarFile = plan.getLauncherJarFile();
+            final File cdsArchiveFile = plan.getCdsArchiveFile();
+            if (cdsArchiveFile != null && CdsArchive.isUpToDate(cdsArchiveFile, plan.getClasspathFiles()).await())
+            {
+                logger.verbose(() -> cdsArchiveFile.toString() + " was trained with the same jars, so it doesn't need to be trained again.");
+            }
+            else if (cdsArchiveFile != null)
+            {
+                logger.verbose(() -> "Training " + plan.getMainClass() + " to write " + cdsArchiveFile.toString() + "...");
+                metrics.measure("Train class data sharing archive", () ->
+                {
+                    CdsArchive.create(cdsArchiveFile, launcherJarFile, plan.getClasspathFiles(), plan.getJvmOptions(), Iterable.create("-?"))
+                        .catchError((Throwable e) ->
+                        {
+                            logger.warning("Couldn't create a class data sharing archive: " + e.getMessage());
+                            plan.setUseCdsArchive(false);
+                        })
+                        .await();
+                });
+                if (!plan.getUseCdsArchive())
+                {
+                    shortcutFileContents = plan.getShortcutFileContents();
+                }
+            }
+
+            final File shortcutFile = plan.getShortcutFile();
+            if (shortcutFile != null)
+            {
+                final String contents = shortcutFileContents;
+                logger.verbose(() -> "Writing " + shortcutFile.toString() + "...");
+                metrics.measure("Write shortcut", () -> AtomicFiles.setContentsAsString(shortcutFile, contents).await());
+            }
+
+            final Folder qubFolder = plan.getQubFolder();
+            final StoredJar storedJar = stagedInstall.getStoredJar();
+            final PackageIndexEntry projectEntry = new PackageIndexEntry(projectJson.getPublisher(), projectJson.getProject(), projectJson.getVersion(), plan.getInstalledProjectJarFile().relativeTo(qubFolder).toString(), storedJar.getSize(), storedJar.getHash());
+            logger.verbose(() -> "Updating " + plan.getPackageIndex().getIndexFile().toString() + "...");
+            metrics.measure("Update package index", () ->
+            {
+                PackageIndex.update(qubFolder, (PackageIndex packageIndex) ->
+                {
+                    for (final PackageIndexEntry dependencyEntry : stagedInstall.getDependencyEntries())
+                    {
+                        packageIndex.set(dependencyEntry);
+                    }
+                    packageIndex.set(projectEntry);
+                }).await();
+            });
+        }
+    }
+
+    private static File getStagedFile(InstallPlan plan, Folder stagingFolder, File installedFile)
+    {
+        return stagingFolder.getFile(installedFile.relativeTo(plan.getVersionFolder()).toString()).await();
+    }
+
+    private static void list(InstallLogger logger)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+
+        final Folder qubFolder = getQubFolder(logger);
+        if (qubFolder != null)
+        {
+            final PackageIndex packageIndex = PackageIndex.load(qubFolder).await();
+            for (final String skippedLine : packageIndex.getSkippedLines())
+            {
+                logger.warning(skippedLine);
+            }
+            for (final PackageIndexEntry entry : packageIndex.getEntries())
+            {
+                logger.info(entry.getPublisher() + "/" + entry.getProject() + ":" + entry.getVersion() + " " + entry.getJarPath() + " (" + entry.getJarSize() + " bytes)");
+            }
+        }
+    }
+
+    private void exportPackages(InstallLogger logger)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+
+        final Console console = logger.getConsole();
+        final File bundleFile = getBundleFile(logger, "export");
+        final Folder qubFolder = bundleFile == null ? null : getQubFolder(logger);
+        if (qubFolder != null)
+        {
+            final List<PackageSignature> packages = List.create();
+            for (final CommandLineArgument argument : console.getCommandLine().getArguments())
+            {
+                if ("package".equals(argument.getName()))
+                {
+                    final PackageSignature signature = PackageSignature.parse(argument.getValue() == null ? "" : argument.getValue())
+                        .catchError((Throwable e) -> logger.error(e.getMessage()))
+                        .await();
+                    if (signature != null)
+                    {
+                        packages.add(signature);
+                    }
+                }
+            }
+            if (console.getExitCode() == 0 && !packages.any())
+            {
+                for (final PackageIndexEntry entry : PackageIndex.load(qubFolder).await().getEntries())
+                {
+                    packages.add(new PackageSignature(entry.getPublisher(), entry.getProject(), entry.getVersion()));
+                }
+            }
+
+            if (console.getExitCode() == 0)
+            {
+                final Iterable<PackageSignature> packagesToExport = PackageBundle.getPackagesToExport(getInstallCache().getDependencyClosureResolver(qubFolder), packages).await();
+                logger.info("Exporting " + packagesToExport.getCount() + " packages to " + bundleFile.toString() + "...");
+                for (final PackageSignature signature : packagesToExport)
+                {
+                    logger.verbose(() -> "Exporting " + signature.toString() + "...");
+                }
+                final Long exportedBytes = PackageBundle.export(qubFolder, packagesToExport, bundleFile)
+                    .catchError((Throwable e) -> logger.error(e.getMessage()))
+                    .await();
+                if (exportedBytes != null)
+                {
+                    logger.info("Exported " + packagesToExport.getCount() + " packages (" + exportedBytes + " bytes) to " + bundleFile.toString() + ".");
+                }
+            }
+        }
+    }
+
+    private static void importPackages(InstallLogger logger)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+
+        final File bundleFile = getBundleFile(logger, "import");
+        final Folder qubFolder = bundleFile == null ? null : getQubFolder(logger);
+        final Integer parallelism = qubFolder == null ? null : getParallelism(logger);
+        if (parallelism != null)
+        {
+            if (!bundleFile.exists().await())
+            {
+                logger.error("The bundle file " + bundleFile.toString() + " doesn't exist.");
+            }
+            else
+            {
+                logger.info("Importing packages from " + bundleFile.toString() + "...");
+                final PackageBundleImport bundleImport = PackageBundle.extract(qubFolder, bundleFile, parallelism)
+                    .catchError((Throwable e) -> logger.error(e.getMessage()))
+                    .await();
+                if (bundleImport != null)
+                {
+                    for (final PackageSignature signature : bundleImport.getSkipped())
+                    {
+                        logger.info("Skipped " + signature.toString() + " because it's already installed.");
+                    }
+                    for (final String error : bundleImport.getErrors())
+                    {
+                        logger.error(error);
+                    }
+                    for (final File shortcutFile : bundleImport.getShortcutFiles())
+                    {
+                        logger.verbose(() -> "Wrote " + shortcutFile.toString() + ".");
+                    }
+                    logger.info("Imported " + bundleImport.getImported().getCount() + " packages and wrote " + bundleImport.getShortcutFiles().getCount() + " shortcuts.");
+                }
+            }
+        }
+    }
+
+    private void relink(InstallLogger logger)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+
+        final Folder qubFolder = getQubFolder(logger);
+        final Integer parallelism = qubFolder == null ? null : getParallelism(logger);
+        if (parallelism != null)
+        {
+            logger.info("Relinking installed packages in " + qubFolder.toString() + "...");
+            final ShortcutRelink relink = ShortcutRelinker.relink(getInstallCache().getDependencyClosureResolver(qubFolder), parallelism)
+                .catchError((Throwable e) -> logger.error(e.getMessage()))
+                .await();
+            if (relink != null)
+            {
+                for (final String error : relink.getErrors())
+                {
+                    logger.error(error);
+                }
+                for (final File launcherJarFile : relink.getRewrittenLauncherJarFiles())
+                {
+                    logger.verbose(() -> "Wrote " + launcherJarFile.toString() + ".");
+                }
+                for (final File shortcutFile : relink.getRewrittenShortcutFiles())
+                {
+                    logger.verbose(() -> "Wrote " + shortcutFile.toString() + ".");
+                }
+                for (final File cdsArchiveFile : relink.getRemovedCdsArchiveFiles())
+                {
+                    logger.info("Removed " + cdsArchiveFile.toString() + " because the jars that it was trained with changed. Reinstall its package with -cds to train it again.");
+                }
+                logger.info("Rewrote " + relink.getRewrittenShortcutFiles().getCount() + " of " + relink.getShortcutFiles().getCount() + " shortcuts and " + relink.getRewrittenLauncherJarFiles().getCount() + " launcher jars.");
+            }
+        }
+    }
+
+    private void collectGarbage(InstallLogger logger)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+
+        final Folder qubFolder = getQubFolder(logger);
+        final Integer keepCount = qubFolder == null ? null : getKeepCount(logger);
+        if (keepCount != null)
+        {
+            final boolean dryRun = logger.getConsole().getCommandLine().get("dryRun") != null;
+            logger.info("Collecting unreachable packages in " + qubFolder.toString() + "...");
+            final GarbageCollection collection = GarbageCollector.collect(getInstallCache().getDependencyClosureResolver(qubFolder), keepCount, dryRun)
+                .catchError((Throwable e) -> logger.error(e.getMessage()))
+                .await();
+            if (collection != null)
+            {
+                for (final PackageSignature signature : collection.getUnreachable())
+                {
+                    if (dryRun)
+                    {
+                        logger.info("Would remove " + signature.toString() + ".");
+                    }
+                    else
+                    {
+                        logger.verbose(() -> "Removed " + signature.toString() + ".");
+                    }
+                }
+                for (final File unusedJarFile : collection.getUnusedJarFiles())
+                {
+                    logger.verbose(() -> (dryRun ? "Would remove " : "Removed ") + unusedJarFile.toString() + ".");
+                }
+                for (final String error : collection.getErrors())
+                {
+                    logger.error(error);
+                }
+
+                final int installedCount = collection.getReachable().getCount() + collection.getUnreachable().getCount();
+                logger.info((dryRun ? "Found " : "Removed ") + collection.getUnreachable().getCount() + " unreachable of " + installedCount + " installed packages and " +
+                    collection.getUnusedJarFiles().getCount() + " unused stored jars (" + collection.getReclaimableBytes() + " bytes " + (dryRun ? "reclaimable" : "reclaimed") + ").");
+            }
+        }
+    }
+
+    private static Integer getKeepCount(InstallLogger logger)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+
+        Integer result = 1;
+
+        final CommandLineArgument keepArgument = logger.getConsole().getCommandLine().get("keep");
+        if (keepArgument != null)
+        {
+            final String keepText = keepArgument.getValue();
+            try
+            {
+                result = Integer.parseInt(keepText);
+            }
+            catch (NumberFormatException e)
+            {
+                result = null;
+            }
+
+            if (result == null || result < 0)
+            {
+                logger.error("The -keep argument must be a non-negative integer, but was " + Strings.escapeAndQuote(keepText) + ".");
+                result = null;
+            }
+        }
+
+        return result;
+    }
+
+    private static File getBundleFile(InstallLogger logger, String argumentName)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+        PreCondition.assertNotNullAndNotEmpty(argumentName, "argumentName");
+
+        File result = null;
+        final Console console = logger.getConsole();
+        final CommandLineArgument bundleArgument = console.getCommandLine().get(argumentName);
+        if (bundleArgument == null || Strings.isNullOrEmpty(bundleArgument.getValue()))
+        {
+            logger.error("The -" + argumentName + " argument must specify a bundle file.");
+        }
+        else
+        {
+            result = console.getFileSystem().getFile(resolvePath(console, bundleArgument.getValue())).await();
+        }
+        return result;
+    }
+
+    private static Folder getQubFolder(InstallLogger logger)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+
+        Folder result = null;
+        final Console console = logger.getConsole();
+        final String qubHome = console.getEnvironmentVariable("QUB_HOME");
+        if (Strings.isNullOrEmpty(qubHome))
+        {
+            logger.error("A QUB_HOME environment variable must be specified.");
+        }
+        else
+        {
+            result = console.getFileSystem().getFolder(qubHome).await();
+        }
+        return result;
+    }
+
+    private static boolean isUpToDate(InstallLogger logger, InstallManifest installManifest, File projectJarFile)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+
+        boolean result = false;
+        if (installManifest != null)
+        {
+            final File manifestFile = InstallManifest.getManifestFile(projectJarFile);
+            if (!manifestFile.exists().await())
+            {
+                logger.verbose(() -> "No install manifest found at " + manifestFile.toString() + ".");
+            }
+            else
+            {
+                final InstallManifest previousManifest = InstallManifest.parse(manifestFile).await();
+                final String difference = installManifest.getDifference(previousManifest);
+                if (difference == null)
+                {
+                    logger.info("Skipping build and tests because nothing changed since the last successful build.");
+                    result = true;
+                }
+                else
+                {
+                    logger.info("Running build and tests because " + difference + " since the last successful build.");
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static PublishMode getPublishMode(InstallLogger logger)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+
+        final CommandLineArgument publishArgument = logger.getConsole().getCommandLine().get("publish");
+        final PublishMode result = ArtifactPublisher.parseMode(publishArgument == null ? null : publishArgument.getValue())
+            .catchError((Throwable e) -> logger.error(e.getMessage()))
+            .await();
+
+        return result;
+    }
+
+    private static boolean isList(Console console)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        return isFlagSet(console, "list");
+    }
+
+    private static boolean isPlan(Console console)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        return isFlagSet(console, "plan");
+    }
+
+    static boolean isFlagSet(Console console, String flagName)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNullAndNotEmpty(flagName, "flagName");
+
+        boolean result = false;
+
+        final CommandLineArgument flagArgument = console.getCommandLine().get(flagName);
+        if (flagArgument != null)
+        {
+            final String flagArgumentValue = flagArgument.getValue();
+            result = Strings.isNullOrEmpty(flagArgumentValue) ||
+                Booleans.isTrue(java.lang.Boolean.valueOf(flagArgumentValue));
+        }
 
         return result;
     }
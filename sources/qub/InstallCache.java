@@ -0,0 +1,52 @@
+package qub;
+
+public class InstallCache
+{
+    private final java.util.concurrent.ConcurrentHashMap<String,java.util.Map.Entry<String,ProjectJSON>> projectJsons;
+    private final java.util.concurrent.ConcurrentHashMap<String,DependencyClosureResolver> dependencyClosureResolvers;
+
+    public InstallCache()
+    {
+        this.projectJsons = new java.util.concurrent.ConcurrentHashMap<>();
+        this.dependencyClosureResolvers = new java.util.concurrent.ConcurrentHashMap<>();
+    }
+
+    public Result<ProjectJSON> getProjectJson(File projectJsonFile)
+    {
+        PreCondition.assertNotNull(projectJsonFile, "projectJsonFile");
+
+        return Result.create(() ->
+        {
+            final String key = projectJsonFile.toString();
+            final String hash = ContentHash.sha256(projectJsonFile).await();
+            final java.util.Map.Entry<String,ProjectJSON> cachedEntry = projectJsons.get(key);
+
+            ProjectJSON result;
+            if (cachedEntry != null && cachedEntry.getKey().equals(hash))
+            {
+                result = cachedEntry.getValue();
+            }
+            else
+            {
+                result = ProjectJSON.parse(projectJsonFile).await();
+                projectJsons.put(key, new java.util.AbstractMap.SimpleImmutableEntry<>(hash, result));
+            }
+
+            PostCondition.assertNotNull(result, "result");
+
+            return result;
+        });
+    }
+
+    public DependencyClosureResolver getDependencyClosureResolver(Folder qubFolder)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+
+        final DependencyClosureResolver result = dependencyClosureResolvers.computeIfAbsent(qubFolder.toString(),
+            (String key) -> new DependencyClosureResolver(qubFolder));
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+}
@@ -0,0 +1,174 @@
+package qub;
+
+public class InstallClient
+{
+    private Function0<Install> installCreator;
+
+    public void setInstallCreator(Function0<Install> installCreator)
+    {
+        this.installCreator = installCreator;
+    }
+
+    public Function0<Install> getInstallCreator()
+    {
+        if (installCreator == null)
+        {
+            installCreator = Install::new;
+        }
+        final Function0<Install> result = installCreator;
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public void main(Console console)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        final boolean runLocally = Install.isFlagSet(console, "watch") || console.getCommandLine().get("server") != null;
+        final java.util.Map.Entry<Integer,String> server = runLocally ? null : getServer(console);
+        final java.net.Socket socket = server == null ? null : connect(server.getKey());
+        if (socket == null)
+        {
+            getInstallCreator().run().main(console);
+        }
+        else
+        {
+            console.setExitCode(send(console, socket, server.getValue()).await());
+        }
+    }
+
+    public static java.net.Socket connect(int serverPort)
+    {
+        PreCondition.assertBetween(1, serverPort, 65535, "serverPort");
+
+        java.net.Socket result;
+        try
+        {
+            result = new java.net.Socket(java.net.InetAddress.getLoopbackAddress(), serverPort);
+        }
+        catch (java.io.IOException e)
+        {
+            // No server is listening on this port anymore, so the port file is stale.
+            result = null;
+        }
+        return result;
+    }
+
+    public static Result<Integer> send(Console console, java.net.Socket socket, String token)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(socket, "socket");
+        PreCondition.assertNotNullAndNotEmpty(token, "token");
+
+        return Result.create(() ->
+        {
+            try (final java.net.Socket connection = socket;
+                 final java.io.Writer writer = new java.io.BufferedWriter(new java.io.OutputStreamWriter(connection.getOutputStream(), java.nio.charset.StandardCharsets.UTF_8));
+                 final java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.InputStreamReader(connection.getInputStream(), java.nio.charset.StandardCharsets.UTF_8)))
+            {
+                writer.write(InstallServer.protocolVersion + "\n");
+                writer.write("token " + token + "\n");
+                writer.write("folder " + console.getCurrentFolderPath().toString() + "\n");
+                final String qubHome = console.getEnvironmentVariable("QUB_HOME");
+                if (!Strings.isNullOrEmpty(qubHome))
+                {
+                    writer.write("qubhome " + qubHome + "\n");
+                }
+                for (final String name : InstallServer.forwardedEnvironmentVariableNames)
+                {
+                    final String value = console.getEnvironmentVariable(name);
+                    if (!Strings.isNullOrEmpty(value))
+                    {
+                        writer.write("env " + name + "=" + value + "\n");
+                    }
+                }
+                for (final CommandLineArgument argument : console.getCommandLine().getArguments())
+                {
+                    writer.write("arg " + argument.toString() + "\n");
+                }
+                writer.write("end\n");
+                writer.flush();
+
+                Integer result = null;
+                String line = reader.readLine();
+                while (result == null && line != null)
+                {
+                    if (line.startsWith("out "))
+                    {
+                        final char[] text = new char[java.lang.Integer.parseInt(line.substring("out ".length()))];
+                        int textLength = 0;
+                        while (textLength < text.length)
+                        {
+                            final int charactersRead = reader.read(text, textLength, text.length - textLength);
+                            if (charactersRead == -1)
+                            {
+                                throw new java.io.EOFException("The install server closed the connection while sending output.");
+                            }
+                            textLength += charactersRead;
+                        }
+                        console.write(new String(text)).await();
+                        line = reader.readLine();
+                    }
+                    else if (line.startsWith("exit "))
+                    {
+                        result = java.lang.Integer.parseInt(line.substring("exit ".length()));
+                    }
+                    else
+                    {
+                        line = reader.readLine();
+                    }
+                }
+
+                if (result == null)
+                {
+                    throw new java.io.EOFException("The install server closed the connection before sending an exit code.");
+                }
+                return result;
+            }
+            catch (java.io.IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    // The port and token from the port file that a running install server wrote, or null if there
+    // is no valid port file.
+    private static java.util.Map.Entry<Integer,String> getServer(Console console)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        java.util.Map.Entry<Integer,String> result = null;
+        final String qubHome = console.getEnvironmentVariable("QUB_HOME");
+        if (!Strings.isNullOrEmpty(qubHome))
+        {
+            final File portFile = InstallServer.getPortFile(console.getFileSystem().getFolder(qubHome).await());
+            if (portFile.exists().await())
+            {
+                final String[] lines = portFile.getContentsAsString().await().trim().split("\n");
+                if (lines.length == 2 && !lines[1].trim().isEmpty())
+                {
+                    try
+                    {
+                        final int port = java.lang.Integer.parseInt(lines[0].trim());
+                        if (1 <= port && port <= 65535)
+                        {
+                            result = new java.util.AbstractMap.SimpleImmutableEntry<>(port, lines[1].trim());
+                        }
+                    }
+                    catch (NumberFormatException ignored)
+                    {
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    public static void main(String[] args)
+    {
+        Console.run(args, (Console console) -> new InstallClient().main(console));
+    }
+}
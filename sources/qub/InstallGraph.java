@@ -0,0 +1,150 @@
+package qub;
+
+public class InstallGraph
+{
+    private final java.util.LinkedHashMap<String,Folder> projectFolders;
+    private final java.util.HashMap<String,List<String>> dependencies;
+    private final java.util.HashMap<String,List<String>> dependents;
+
+    private InstallGraph()
+    {
+        projectFolders = new java.util.LinkedHashMap<>();
+        dependencies = new java.util.HashMap<>();
+        dependents = new java.util.HashMap<>();
+    }
+
+    public static Result<InstallGraph> create(Iterable<Folder> projectFolders)
+    {
+        PreCondition.assertNotNull(projectFolders, "projectFolders");
+
+        return Result.create(() ->
+        {
+            final InstallGraph result = new InstallGraph();
+
+            final java.util.HashMap<PackageSignature,String> projectKeysBySignature = new java.util.HashMap<>();
+            final java.util.HashMap<String,Iterable<PackageSignature>> projectDependencies = new java.util.HashMap<>();
+            for (final Folder projectFolder : projectFolders)
+            {
+                final String projectKey = projectFolder.toString();
+                if (!result.projectFolders.containsKey(projectKey))
+                {
+                    result.projectFolders.put(projectKey, projectFolder);
+                    result.dependencies.put(projectKey, List.create());
+                    result.dependents.put(projectKey, List.create());
+
+                    final File projectJsonFile = projectFolder.getFile("project.json").await();
+                    if (projectJsonFile.exists().await())
+                    {
+                        final ProjectJSON projectJson = ProjectJSON.parse(projectJsonFile).await();
+                        if (!Strings.isNullOrEmpty(projectJson.getPublisher()) &&
+                            !Strings.isNullOrEmpty(projectJson.getProject()) &&
+                            !Strings.isNullOrEmpty(projectJson.getVersion()))
+                        {
+                            projectKeysBySignature.put(new PackageSignature(projectJson.getPublisher(), projectJson.getProject(), projectJson.getVersion()), projectKey);
+                        }
+
+                        final ProjectJSONJava projectJsonJava = projectJson.getJava();
+                        if (projectJsonJava != null)
+                        {
+                            projectDependencies.put(projectKey, projectJsonJava.getDependencies().map(PackageSignature::create));
+                        }
+                    }
+                }
+            }
+
+            for (final java.util.Map.Entry<String,Iterable<PackageSignature>> entry : projectDependencies.entrySet())
+            {
+                for (final PackageSignature dependency : entry.getValue())
+                {
+                    final String dependencyProjectKey = projectKeysBySignature.get(dependency);
+                    if (dependencyProjectKey != null && !dependencyProjectKey.equals(entry.getKey()))
+                    {
+                        result.dependencies.get(entry.getKey()).add(dependencyProjectKey);
+                        result.dependents.get(dependencyProjectKey).add(entry.getKey());
+                    }
+                }
+            }
+
+            final String cycle = result.findCycle();
+            if (cycle != null)
+            {
+                throw new IllegalArgumentException("The projects can't be installed because they have a dependency cycle: " + cycle);
+            }
+
+            return result;
+        });
+    }
+
+    public Iterable<Folder> getProjectFolders()
+    {
+        return Iterable.create(projectFolders.values().toArray(new Folder[0]));
+    }
+
+    public int getProjectCount()
+    {
+        return projectFolders.size();
+    }
+
+    public Iterable<Folder> getDependencies(Folder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        return dependencies.get(projectFolder.toString()).map(projectFolders::get);
+    }
+
+    public Iterable<Folder> getDependents(Folder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        return dependents.get(projectFolder.toString()).map(projectFolders::get);
+    }
+
+    private String findCycle()
+    {
+        String result = null;
+
+        final java.util.HashSet<String> visited = new java.util.HashSet<>();
+        final java.util.ArrayList<String> path = new java.util.ArrayList<>();
+        for (final String projectKey : projectFolders.keySet())
+        {
+            result = findCycle(projectKey, visited, path);
+            if (result != null)
+            {
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    private String findCycle(String projectKey, java.util.HashSet<String> visited, java.util.ArrayList<String> path)
+    {
+        String result = null;
+
+        final int pathIndex = path.indexOf(projectKey);
+        if (pathIndex != -1)
+        {
+            final StringBuilder builder = new StringBuilder();
+            for (int i = pathIndex; i < path.size(); ++i)
+            {
+                builder.append(path.get(i)).append(" -> ");
+            }
+            result = builder.append(projectKey).toString();
+        }
+        else if (visited.add(projectKey))
+        {
+            path.add(projectKey);
+            for (final String dependencyProjectKey : dependencies.get(projectKey))
+            {
+                result = findCycle(dependencyProjectKey, visited, path);
+                if (result != null)
+                {
+                    break;
+                }
+            }
+            path.remove(path.size() - 1);
+        }
+
+        return result;
+    }
+}
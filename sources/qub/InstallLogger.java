@@ -0,0 +1,201 @@
+package qub;
+
+public class InstallLogger implements java.lang.AutoCloseable
+{
+    public static final int flushThreshold = 8 * 1024;
+
+    private final Console console;
+    private final LogLevel minimumLevel;
+    private final Function0<Long> nanoClock;
+    private final long startNanoseconds;
+    private final StringBuilder buffer;
+    private boolean showTimestamps;
+    private java.util.concurrent.ExecutorService writer;
+    private java.util.concurrent.Future<?> lastWrite;
+
+    public InstallLogger(Console console, LogLevel minimumLevel)
+    {
+        this(console, minimumLevel, System::nanoTime);
+    }
+
+    public InstallLogger(Console console, LogLevel minimumLevel, Function0<Long> nanoClock)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(minimumLevel, "minimumLevel");
+        PreCondition.assertNotNull(nanoClock, "nanoClock");
+
+        this.console = console;
+        this.minimumLevel = minimumLevel;
+        this.nanoClock = nanoClock;
+        this.startNanoseconds = nanoClock.run();
+        this.buffer = new StringBuilder();
+    }
+
+    public static InstallLogger create(Console console)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        return new InstallLogger(console, Install.isFlagSet(console, "verbose") ? LogLevel.Verbose : LogLevel.Info);
+    }
+
+    public Console getConsole()
+    {
+        return console;
+    }
+
+    public LogLevel getMinimumLevel()
+    {
+        return minimumLevel;
+    }
+
+    public void setShowTimestamps(boolean showTimestamps)
+    {
+        this.showTimestamps = showTimestamps;
+    }
+
+    public boolean isEnabled(LogLevel level)
+    {
+        PreCondition.assertNotNull(level, "level");
+
+        return level.compareTo(minimumLevel) >= 0;
+    }
+
+    public void verbose(Function0<String> message)
+    {
+        log(LogLevel.Verbose, message);
+    }
+
+    public void info(String message)
+    {
+        PreCondition.assertNotNull(message, "message");
+
+        log(LogLevel.Info, () -> message);
+    }
+
+    public void warning(String message)
+    {
+        PreCondition.assertNotNull(message, "message");
+
+        log(LogLevel.Warning, () -> message);
+    }
+
+    public void error(String message)
+    {
+        PreCondition.assertNotNull(message, "message");
+
+        console.incrementExitCode();
+        log(LogLevel.Error, () -> message);
+    }
+
+    public void log(LogLevel level, Function0<String> message)
+    {
+        PreCondition.assertNotNull(level, "level");
+        PreCondition.assertNotNull(message, "message");
+
+        if (isEnabled(level))
+        {
+            final String prefix = getPrefix(level);
+            final String timestamp = showTimestamps
+                ? String.format(java.util.Locale.ROOT, "(%.3f)", (nanoClock.run() - startNanoseconds) / 1000000.0)
+                : "";
+            synchronized (buffer)
+            {
+                if (prefix != null)
+                {
+                    buffer.append(prefix).append(timestamp).append(": ");
+                }
+                buffer.append(message.run()).append(console.getLineSeparator());
+                if (buffer.length() >= flushThreshold)
+                {
+                    writeBuffer();
+                }
+            }
+        }
+    }
+
+    public void flush()
+    {
+        final java.util.concurrent.Future<?> write;
+        synchronized (buffer)
+        {
+            writeBuffer();
+            write = lastWrite;
+        }
+
+        if (write != null)
+        {
+            try
+            {
+                write.get();
+            }
+            catch (InterruptedException | java.util.concurrent.ExecutionException e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            synchronized (buffer)
+            {
+                if (writer != null)
+                {
+                    writer.shutdown();
+                    writer = null;
+                }
+            }
+        }
+    }
+
+    private void writeBuffer()
+    {
+        if (buffer.length() > 0)
+        {
+            final String text = buffer.toString();
+            buffer.setLength(0);
+
+            if (writer == null)
+            {
+                writer = java.util.concurrent.Executors.newSingleThreadExecutor((Runnable runnable) ->
+                {
+                    final Thread thread = new Thread(runnable, "qub-install-logger");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            lastWrite = writer.submit(() -> console.write(text).await());
+        }
+    }
+
+    private static String getPrefix(LogLevel level)
+    {
+        String result;
+        switch (level)
+        {
+            case Verbose:
+                result = "VERBOSE";
+                break;
+
+            case Warning:
+                result = "WARNING";
+                break;
+
+            case Error:
+                result = "ERROR";
+                break;
+
+            default:
+                result = null;
+                break;
+        }
+        return result;
+    }
+}
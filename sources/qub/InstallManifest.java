@@ -0,0 +1,234 @@
+package qub;
+
+public class InstallManifest
+{
+    private final java.util.TreeMap<String,String> fileHashes;
+
+    private InstallManifest()
+    {
+        fileHashes = new java.util.TreeMap<>();
+    }
+
+    public static InstallManifest create()
+    {
+        return new InstallManifest();
+    }
+
+    public static InstallManifest create(Folder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        final InstallManifest result = new InstallManifest();
+        result.addFile(projectFolder, projectFolder.getFile("project.json").await());
+        result.addFolder(projectFolder, projectFolder.getFolder("sources").await());
+        result.addFolder(projectFolder, projectFolder.getFolder("tests").await());
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public static InstallManifest create(Folder projectFolder, File projectJarFile)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertNotNull(projectJarFile, "projectJarFile");
+
+        final InstallManifest result = create(projectFolder);
+        result.addFile(projectFolder, projectJarFile);
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public static Result<InstallManifest> parse(File manifestFile)
+    {
+        PreCondition.assertNotNull(manifestFile, "manifestFile");
+
+        return manifestFile.getContentsAsString()
+            .then((String contents) ->
+            {
+                final InstallManifest result = new InstallManifest();
+                for (final String line : Strings.getLines(contents))
+                {
+                    final int separatorIndex = line.indexOf(' ');
+                    if (separatorIndex > 0)
+                    {
+                        result.setFileHash(line.substring(separatorIndex + 1).trim(), line.substring(0, separatorIndex));
+                    }
+                }
+                return result;
+            });
+    }
+
+    public static File getManifestFile(File projectJarFile)
+    {
+        PreCondition.assertNotNull(projectJarFile, "projectJarFile");
+
+        final File result = projectJarFile.getParentFolder().await()
+            .getFile(projectJarFile.getNameWithoutFileExtension() + ".manifest").await();
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public Iterable<String> getFilePaths()
+    {
+        return Iterable.create(fileHashes.keySet().toArray(new String[0]));
+    }
+
+    public String getFileHash(String relativeFilePath)
+    {
+        PreCondition.assertNotNullAndNotEmpty(relativeFilePath, "relativeFilePath");
+
+        return fileHashes.get(relativeFilePath);
+    }
+
+    public void setFileHash(String relativeFilePath, String hash)
+    {
+        PreCondition.assertNotNullAndNotEmpty(relativeFilePath, "relativeFilePath");
+        PreCondition.assertNotNullAndNotEmpty(hash, "hash");
+
+        fileHashes.put(relativeFilePath, hash);
+    }
+
+    public void removeFileHash(String relativeFilePath)
+    {
+        PreCondition.assertNotNullAndNotEmpty(relativeFilePath, "relativeFilePath");
+
+        fileHashes.remove(relativeFilePath);
+    }
+
+    public String getDifference(InstallManifest previous)
+    {
+        PreCondition.assertNotNull(previous, "previous");
+
+        String result = null;
+        for (final java.util.Map.Entry<String,String> entry : fileHashes.entrySet())
+        {
+            final String previousHash = previous.fileHashes.get(entry.getKey());
+            if (previousHash == null)
+            {
+                result = entry.getKey() + " was added";
+                break;
+            }
+            else if (!previousHash.equals(entry.getValue()))
+            {
+                result = entry.getKey() + " changed";
+                break;
+            }
+        }
+
+        if (result == null)
+        {
+            for (final String previousFilePath : previous.fileHashes.keySet())
+            {
+                if (!fileHashes.containsKey(previousFilePath))
+                {
+                    result = previousFilePath + " was removed";
+                    break;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public Iterable<String> getChangedFilePaths(InstallManifest previous)
+    {
+        PreCondition.assertNotNull(previous, "previous");
+
+        final java.util.TreeSet<String> changedFilePaths = new java.util.TreeSet<>();
+        for (final java.util.Map.Entry<String,String> entry : fileHashes.entrySet())
+        {
+            if (!entry.getValue().equals(previous.fileHashes.get(entry.getKey())))
+            {
+                changedFilePaths.add(entry.getKey());
+            }
+        }
+        for (final String previousFilePath : previous.fileHashes.keySet())
+        {
+            if (!fileHashes.containsKey(previousFilePath))
+            {
+                changedFilePaths.add(previousFilePath);
+            }
+        }
+        final Iterable<String> result = Iterable.create(changedFilePaths.toArray(new String[0]));
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    // Hash the provided project-relative paths again, where each path can name a file or a folder, and
+    // return the file paths whose hashes changed. Paths outside of project.json, sources, and tests
+    // aren't part of a manifest, so they're skipped without being hashed.
+    public Iterable<String> update(Folder projectFolder, Iterable<String> relativePaths)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertNotNull(relativePaths, "relativePaths");
+
+        final InstallManifest previous = new InstallManifest();
+        previous.fileHashes.putAll(fileHashes);
+        for (final String relativePath : relativePaths)
+        {
+            if (isProjectPath(relativePath))
+            {
+                fileHashes.keySet().removeIf((String filePath) -> filePath.equals(relativePath) || filePath.startsWith(relativePath + "/"));
+                addFolder(projectFolder, projectFolder.getFolder(relativePath).await());
+                addFile(projectFolder, projectFolder.getFile(relativePath).await());
+            }
+        }
+        final Iterable<String> result = getChangedFilePaths(previous);
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public Result<Void> save(File manifestFile)
+    {
+        PreCondition.assertNotNull(manifestFile, "manifestFile");
+
+        return manifestFile.setContentsAsString(toString());
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        for (final java.util.Map.Entry<String,String> entry : fileHashes.entrySet())
+        {
+            builder.append(entry.getValue()).append(' ').append(entry.getKey()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static boolean isProjectPath(String relativePath)
+    {
+        return !Strings.isNullOrEmpty(relativePath) &&
+            (relativePath.equals("project.json") ||
+             relativePath.equals("sources") || relativePath.startsWith("sources/") ||
+             relativePath.equals("tests") || relativePath.startsWith("tests/"));
+    }
+
+    private void addFolder(Folder projectFolder, Folder folder)
+    {
+        if (folder.exists().await())
+        {
+            for (final File file : folder.getFilesRecursively().await())
+            {
+                addFile(projectFolder, file);
+            }
+        }
+    }
+
+    private void addFile(Folder projectFolder, File file)
+    {
+        if (file.exists().await())
+        {
+            setFileHash(file.relativeTo(projectFolder).toString(), ContentHash.sha256(file).await());
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package qub;
+
+public class InstallMetrics
+{
+    public static final String fileExtension = ".metrics.json";
+
+    private final Function0<Long> nanoClock;
+    private final long startNanoseconds;
+    private final java.util.LinkedHashMap<String,Long> phaseNanoseconds;
+    private final java.util.LinkedHashSet<String> concurrentPhaseNames;
+    private final java.util.concurrent.atomic.AtomicLong bytesCopied;
+    private final java.util.concurrent.atomic.AtomicLong fileSystemOperations;
+
+    public InstallMetrics()
+    {
+        this(System::nanoTime);
+    }
+
+    public InstallMetrics(Function0<Long> nanoClock)
+    {
+        PreCondition.assertNotNull(nanoClock, "nanoClock");
+
+        this.nanoClock = nanoClock;
+        this.startNanoseconds = nanoClock.run();
+        this.phaseNanoseconds = new java.util.LinkedHashMap<>();
+        this.concurrentPhaseNames = new java.util.LinkedHashSet<>();
+        this.bytesCopied = new java.util.concurrent.atomic.AtomicLong();
+        this.fileSystemOperations = new java.util.concurrent.atomic.AtomicLong();
+    }
+
+    public static File getMetricsFile(File projectJarFile)
+    {
+        PreCondition.assertNotNull(projectJarFile, "projectJarFile");
+
+        final File result = projectJarFile.getParentFolder().await()
+            .getFile(projectJarFile.getNameWithoutFileExtension() + fileExtension).await();
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public void measure(String phaseName, Action0 action)
+    {
+        PreCondition.assertNotNullAndNotEmpty(phaseName, "phaseName");
+        PreCondition.assertNotNull(action, "action");
+
+        measure(phaseName, () ->
+        {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T measure(String phaseName, Function0<T> action)
+    {
+        PreCondition.assertNotNullAndNotEmpty(phaseName, "phaseName");
+        PreCondition.assertNotNull(action, "action");
+
+        final long phaseStartNanoseconds = nanoClock.run();
+        try
+        {
+            return action.run();
+        }
+        finally
+        {
+            addPhaseNanoseconds(phaseName, nanoClock.run() - phaseStartNanoseconds);
+        }
+    }
+
+    // Measure a phase that runs at the same time as other phases. Its duration overlaps theirs, so
+    // it is marked in the table and isn't part of the sequential phases that add up to the total.
+    public <T> T measureConcurrently(String phaseName, Function0<T> action)
+    {
+        PreCondition.assertNotNullAndNotEmpty(phaseName, "phaseName");
+        PreCondition.assertNotNull(action, "action");
+
+        synchronized (this)
+        {
+            concurrentPhaseNames.add(phaseName);
+        }
+        return measure(phaseName, action);
+    }
+
+    public synchronized boolean isConcurrentPhase(String phaseName)
+    {
+        PreCondition.assertNotNullAndNotEmpty(phaseName, "phaseName");
+
+        return concurrentPhaseNames.contains(phaseName);
+    }
+
+    public synchronized void addPhaseNanoseconds(String phaseName, long nanoseconds)
+    {
+        PreCondition.assertNotNullAndNotEmpty(phaseName, "phaseName");
+        PreCondition.assertGreaterThanOrEqualTo(nanoseconds, 0, "nanoseconds");
+
+        phaseNanoseconds.merge(phaseName, nanoseconds, Long::sum);
+    }
+
+    public synchronized Iterable<String> getPhaseNames()
+    {
+        return Iterable.create(phaseNanoseconds.keySet().toArray(new String[0]));
+    }
+
+    public synchronized long getPhaseNanoseconds(String phaseName)
+    {
+        PreCondition.assertNotNullAndNotEmpty(phaseName, "phaseName");
+
+        final Long result = phaseNanoseconds.get(phaseName);
+        return result == null ? 0 : result;
+    }
+
+    public long getTotalNanoseconds()
+    {
+        return nanoClock.run() - startNanoseconds;
+    }
+
+    public void addBytesCopied(long byteCount)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(byteCount, 0, "byteCount");
+
+        bytesCopied.addAndGet(byteCount);
+    }
+
+    public long getBytesCopied()
+    {
+        return bytesCopied.get();
+    }
+
+    public void addFileSystemOperations(long operationCount)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(operationCount, 0, "operationCount");
+
+        fileSystemOperations.addAndGet(operationCount);
+    }
+
+    public long getFileSystemOperations()
+    {
+        return fileSystemOperations.get();
+    }
+
+    public Result<Void> writeTableTo(Console console)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        return Result.create(() ->
+        {
+            console.writeLine(String.format(java.util.Locale.ROOT, "%-32s %12s", "Phase", "Duration")).await();
+            boolean hasConcurrentPhases = false;
+            for (final String phaseName : getPhaseNames())
+            {
+                final boolean concurrent = isConcurrentPhase(phaseName);
+                hasConcurrentPhases |= concurrent;
+                console.writeLine(String.format(java.util.Locale.ROOT, "%-32s %12s", (concurrent ? "* " : "") + phaseName, formatMilliseconds(getPhaseNanoseconds(phaseName)))).await();
+            }
+            console.writeLine(String.format(java.util.Locale.ROOT, "%-32s %12s", "Total", formatMilliseconds(getTotalNanoseconds()))).await();
+            if (hasConcurrentPhases)
+            {
+                console.writeLine("* Ran at the same time as other phases, so its time overlaps the total.").await();
+            }
+            console.writeLine("Bytes copied: " + getBytesCopied()).await();
+            console.writeLine("File system operations: " + getFileSystemOperations()).await();
+        });
+    }
+
+    public String toJson(String packageSignature, boolean succeeded)
+    {
+        PreCondition.assertNotNullAndNotEmpty(packageSignature, "packageSignature");
+
+        final long totalNanoseconds = getTotalNanoseconds();
+        return JSON.object(metricsJson ->
+        {
+            metricsJson.stringProperty("package", packageSignature);
+            metricsJson.numberProperty("timestamp", System.currentTimeMillis());
+            metricsJson.booleanProperty("succeeded", succeeded);
+            metricsJson.numberProperty("totalMilliseconds", toMilliseconds(totalNanoseconds));
+            metricsJson.numberProperty("bytesCopied", getBytesCopied());
+            metricsJson.numberProperty("fileSystemOperations", getFileSystemOperations());
+            metricsJson.arrayProperty("phases", phasesArray ->
+            {
+                for (final String phaseName : getPhaseNames())
+                {
+                    phasesArray.objectElement(phaseJson ->
+                    {
+                        phaseJson.stringProperty("name", phaseName);
+                        phaseJson.numberProperty("milliseconds", toMilliseconds(getPhaseNanoseconds(phaseName)));
+                        phaseJson.booleanProperty("concurrent", isConcurrentPhase(phaseName));
+                    });
+                }
+            });
+        }).toString();
+    }
+
+    public Result<Void> save(File metricsFile, String packageSignature, boolean succeeded)
+    {
+        PreCondition.assertNotNull(metricsFile, "metricsFile");
+        PreCondition.assertNotNullAndNotEmpty(packageSignature, "packageSignature");
+
+        return metricsFile.setContentsAsString(toJson(packageSignature, succeeded));
+    }
+
+    private static double toMilliseconds(long nanoseconds)
+    {
+        return nanoseconds / 1000000.0;
+    }
+
+    private static String formatMilliseconds(long nanoseconds)
+    {
+        return String.format(java.util.Locale.ROOT, "%.1f ms", toMilliseconds(nanoseconds));
+    }
+}
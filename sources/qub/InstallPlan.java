@@ -0,0 +1,366 @@
+package qub;
+
+public class InstallPlan
+{
+    private final Folder projectFolder;
+    private final ProjectJSON projectJson;
+    private final Folder qubFolder;
+    private final Folder versionFolder;
+    private final PackageIndex packageIndex;
+    private final DependencyClosure dependencyClosure;
+    private final List<File> dependencyJarFiles;
+    private final List<PackageSignature> unindexedDependencies;
+    private boolean useCdsArchive;
+    private Integer optimizeCompressionLevel;
+    private Iterable<String> jvmOptions;
+    private String buildStep;
+    private final boolean replaceExisting;
+
+    private InstallPlan(Folder projectFolder, ProjectJSON projectJson, Folder qubFolder, Folder versionFolder, PackageIndex packageIndex, DependencyClosure dependencyClosure, List<File> dependencyJarFiles, List<PackageSignature> unindexedDependencies, boolean replaceExisting)
+    {
+        this.projectFolder = projectFolder;
+        this.projectJson = projectJson;
+        this.qubFolder = qubFolder;
+        this.versionFolder = versionFolder;
+        this.packageIndex = packageIndex;
+        this.dependencyClosure = dependencyClosure;
+        this.dependencyJarFiles = dependencyJarFiles;
+        this.unindexedDependencies = unindexedDependencies;
+        this.jvmOptions = Iterable.create();
+        this.replaceExisting = replaceExisting;
+    }
+
+    public static InstallPlan create(InstallLogger logger, Folder projectFolder, InstallMetrics metrics, boolean replaceExisting, InstallCache cache)
+    {
+        PreCondition.assertNotNull(logger, "logger");
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertNotNull(metrics, "metrics");
+        PreCondition.assertNotNull(cache, "cache");
+
+        final Console console = logger.getConsole();
+
+        InstallPlan result = null;
+
+        final File projectJsonFile = projectFolder.getFile("project.json").await();
+        if (projectJsonFile.exists().await())
+        {
+            final ProjectJSON projectJson = metrics.measure("Parse project.json", () -> cache.getProjectJson(projectJsonFile).await());
+            final String project = projectJson.getProject();
+            if (Strings.isNullOrEmpty(project))
+            {
+                logger.error("A project property must be specified in the project.json file.");
+            }
+            else
+            {
+                final String publisher = projectJson.getPublisher();
+                if (Strings.isNullOrEmpty(publisher))
+                {
+                    logger.error("A publisher property must be specified in the project.json file.");
+                }
+                else
+                {
+                    final String version = projectJson.getVersion();
+                    if (Strings.isNullOrEmpty(version))
+                    {
+                        logger.error("A version property must be specified in the project.json file.");
+                    }
+                    else
+                    {
+                        // The project.json file is checked first so that its errors don't depend on the environment.
+                        final String qubHome = console.getEnvironmentVariable("QUB_HOME");
+                        if (Strings.isNullOrEmpty(qubHome))
+                        {
+                            logger.error("A QUB_HOME environment variable must be specified.");
+                        }
+                        else
+                        {
+                            final Folder qubFolder = console.getFileSystem().getFolder(qubHome).await();
+                            final Folder versionFolder = qubFolder
+                                .getFolder(publisher).await()
+                                .getFolder(project).await()
+                                .getFolder(version).await();
+                            if (!replaceExisting && versionFolder.exists().await())
+                            {
+                                logger.error("This package (" + publisher + "/" + project + ":" + version + ") can't be installed because a package with that signature already exists.");
+                            }
+                            else
+                            {
+                                // Older versions installed packages into <publisher>/<version>, where dependency
+                                // resolution never looks.
+                                final File legacyJarFile = qubFolder.getFile(publisher + "/" + version + "/" + project + ".jar").await();
+                                if (legacyJarFile.exists().await())
+                                {
+                                    logger.warning(legacyJarFile.toString() + " uses the old <publisher>/<version> layout, so it can't be found as a dependency. This install writes " + versionFolder.toString() + " and points the shortcut there instead.");
+                                }
+
+                                final PackageIndex packageIndex = metrics.measure("Load package index", () -> PackageIndex.load(qubFolder).await());
+                                for (final String skippedLine : packageIndex.getSkippedLines())
+                                {
+                                    logger.warning(skippedLine);
+                                }
+                                final List<File> dependencyJarFiles = List.create();
+                                final List<PackageSignature> unindexedDependencies = List.create();
+                                boolean dependenciesExist = true;
+                                final ProjectJSONJava projectJsonJava = projectJson.getJava();
+                                final Iterable<PackageSignature> directDependencies = projectJsonJava == null
+                                    ? Iterable.create()
+                                    : projectJsonJava.getDependencies().map(PackageSignature::create);
+
+                                final DependencyClosure dependencyClosure = metrics.measure("Resolve dependencies", () -> cache.getDependencyClosureResolver(qubFolder).resolve(directDependencies).await());
+                                for (final String conflict : dependencyClosure.getConflicts())
+                                {
+                                    logger.warning("Dependency version conflict: " + conflict);
+                                }
+
+                                for (final PackageSignature dependency : dependencyClosure.getDependencies())
+                                {
+                                    // An index entry whose jar is gone is ignored, and the dependency is indexed again from its version folder.
+                                    final PackageIndexEntry entry = packageIndex.get(dependency.getPublisher(), dependency.getProject(), dependency.getVersion());
+                                    final File indexedJarFile = entry == null ? null : qubFolder.getFile(entry.getJarPath()).await();
+                                    if (indexedJarFile != null && indexedJarFile.exists().await())
+                                    {
+                                        dependencyJarFiles.add(indexedJarFile);
+                                    }
+                                    else
+                                    {
+                                        final File dependencyJarFile = dependency.getJarFile(qubFolder);
+                                        if (!dependencyJarFile.exists().await())
+                                        {
+                                            logger.error("The dependency " + dependency.toString() + " isn't installed. Couldn't find " + dependencyJarFile.toString() + ".");
+                                            dependenciesExist = false;
+                                        }
+                                        dependencyJarFiles.add(dependencyJarFile);
+                                        unindexedDependencies.add(dependency);
+                                    }
+                                }
+
+                                if (dependenciesExist)
+                                {
+                                    final InstallPlan plan = new InstallPlan(projectFolder, projectJson, qubFolder, versionFolder, packageIndex, dependencyClosure, dependencyJarFiles, unindexedDependencies, replaceExisting);
+                                    final String shortcutName = plan.getShortcutName();
+                                    if (shortcutName == null)
+                                    {
+                                        result = plan;
+                                    }
+                                    else
+                                    {
+                                        final Iterable<String> jvmOptions = LaunchProfile.parse(projectJsonFile)
+                                            .then((LaunchProfile launchProfile) -> launchProfile.getJvmOptions(qubFolder, shortcutName).await())
+                                            .catchError((Throwable e) -> logger.error(e.getMessage()))
+                                            .await();
+                                        if (jvmOptions != null)
+                                        {
+                                            plan.jvmOptions = jvmOptions;
+                                            result = plan;
+                                        }
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public ProjectJSON getProjectJson()
+    {
+        return projectJson;
+    }
+
+    public PackageSignature getPackageSignature()
+    {
+        return new PackageSignature(projectJson.getPublisher(), projectJson.getProject(), projectJson.getVersion());
+    }
+
+    public boolean getReplaceExisting()
+    {
+        return replaceExisting;
+    }
+
+    public Folder getQubFolder()
+    {
+        return qubFolder;
+    }
+
+    public Folder getVersionFolder()
+    {
+        return versionFolder;
+    }
+
+    public JarStore getJarStore()
+    {
+        return new JarStore(qubFolder);
+    }
+
+    public PackageIndex getPackageIndex()
+    {
+        return packageIndex;
+    }
+
+    public DependencyClosure getDependencyClosure()
+    {
+        return dependencyClosure;
+    }
+
+    public Iterable<PackageSignature> getUnindexedDependencies()
+    {
+        return unindexedDependencies;
+    }
+
+    public Iterable<File> getDependencyJarFiles()
+    {
+        return dependencyJarFiles;
+    }
+
+    public File getProjectJsonFile()
+    {
+        return projectFolder.getFile("project.json").await();
+    }
+
+    public File getProjectJarFile()
+    {
+        return projectFolder.getFolder("outputs").await()
+            .getFile(projectJson.getProject() + ".jar").await();
+    }
+
+    public File getInstalledProjectJsonFile()
+    {
+        return versionFolder.getFile("project.json").await();
+    }
+
+    public File getInstalledProjectJarFile()
+    {
+        return versionFolder.getFile(projectJson.getProject() + ".jar").await();
+    }
+
+    public String getMainClass()
+    {
+        final ProjectJSONJava projectJsonJava = projectJson.getJava();
+        return projectJsonJava == null ? null : projectJsonJava.getMainClass();
+    }
+
+    public String getShortcutName()
+    {
+        return PackageShortcut.getShortcutName(projectJson);
+    }
+
+    public File getShortcutFile()
+    {
+        final String shortcutName = getShortcutName();
+        return shortcutName == null ? null : PackageShortcut.getShortcutFile(qubFolder, shortcutName);
+    }
+
+    // The build and test step that -plan shows. Defaults to building and testing the whole project.
+    public void setBuildStep(String buildStep)
+    {
+        PreCondition.assertNotNullAndNotEmpty(buildStep, "buildStep");
+
+        this.buildStep = buildStep;
+    }
+
+    public String getBuildStep()
+    {
+        return buildStep != null ? buildStep : "Build and test " + projectFolder.toString();
+    }
+
+    public void setUseCdsArchive(boolean useCdsArchive)
+    {
+        this.useCdsArchive = useCdsArchive;
+    }
+
+    public boolean getUseCdsArchive()
+    {
+        return useCdsArchive;
+    }
+
+    public void setOptimizeCompressionLevel(Integer optimizeCompressionLevel)
+    {
+        PreCondition.assertTrue(optimizeCompressionLevel == null || (0 <= optimizeCompressionLevel && optimizeCompressionLevel <= 9), "optimizeCompressionLevel == null || (0 <= optimizeCompressionLevel && optimizeCompressionLevel <= 9)");
+
+        this.optimizeCompressionLevel = optimizeCompressionLevel;
+    }
+
+    public Integer getOptimizeCompressionLevel()
+    {
+        return optimizeCompressionLevel;
+    }
+
+    public File getOptimizedProjectJarFile()
+    {
+        return optimizeCompressionLevel == null ? null : JarOptimizer.getOptimizedJarFile(getProjectJarFile());
+    }
+
+    public Iterable<String> getJvmOptions()
+    {
+        return jvmOptions;
+    }
+
+    public File getCdsArchiveFile()
+    {
+        final String shortcutName = getShortcutName();
+        return !useCdsArchive || shortcutName == null ? null : CdsArchive.getArchiveFile(versionFolder, shortcutName);
+    }
+
+    public Iterable<File> getClasspathFiles()
+    {
+        final List<File> result = List.create();
+        result.add(getInstalledProjectJarFile());
+        result.addAll(dependencyJarFiles);
+        return result;
+    }
+
+    public File getLauncherJarFile()
+    {
+        final String shortcutName = getShortcutName();
+        return shortcutName == null ? null : LauncherJar.getLauncherJarFile(versionFolder, shortcutName);
+    }
+
+    public String getShortcutFileContents()
+    {
+        final File launcherJarFile = getLauncherJarFile();
+        return launcherJarFile == null ? null : PackageShortcut.getContents(qubFolder, launcherJarFile, jvmOptions, getCdsArchiveFile());
+    }
+
+    public Result<Void> writeTo(Console console)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        return Result.create(() ->
+        {
+            console.writeLine("Install plan for " + getPackageSignature().toString() + ":").await();
+            console.writeLine("  " + getBuildStep()).await();
+            console.writeLine("  Copy " + getProjectJsonFile().toString() + " to " + getInstalledProjectJsonFile().toString()).await();
+            final File optimizedProjectJarFile = getOptimizedProjectJarFile();
+            if (optimizedProjectJarFile != null)
+            {
+                console.writeLine("  Optimize " + getProjectJarFile().toString() + " into " + optimizedProjectJarFile.toString() + " with " +
+                    (optimizeCompressionLevel == JarOptimizer.storedCompressionLevel ? "uncompressed entries" : "compression level " + optimizeCompressionLevel)).await();
+            }
+            console.writeLine("  Store " + (optimizedProjectJarFile != null ? optimizedProjectJarFile : getProjectJarFile()).toString() + " in " + getJarStore().getStoreFolder().toString() + " and link it to " + getInstalledProjectJarFile().toString()).await();
+            final File launcherJarFile = getLauncherJarFile();
+            if (launcherJarFile != null)
+            {
+                console.writeLine("  Write " + launcherJarFile.toString()).await();
+            }
+            if (jvmOptions.any())
+            {
+                console.writeLine("  Launch with " + String.join(" ", jvmOptions)).await();
+            }
+            final File cdsArchiveFile = getCdsArchiveFile();
+            if (cdsArchiveFile != null)
+            {
+                console.writeLine("  Train " + getMainClass() + " to write " + cdsArchiveFile.toString()).await();
+            }
+            final File shortcutFile = getShortcutFile();
+            if (shortcutFile != null)
+            {
+                console.writeLine("  Write " + shortcutFile.toString()).await();
+            }
+            console.writeLine("  Write " + DependencyClosure.getClosureFile(versionFolder).toString()).await();
+            console.writeLine("  Update " + packageIndex.getIndexFile().toString()).await();
+        });
+    }
+}
@@ -0,0 +1,128 @@
+package qub;
+
+public class InstallScheduler
+{
+    private final int parallelism;
+
+    public InstallScheduler(int parallelism)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(parallelism, 1, "parallelism");
+
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    public Result<Void> run(InstallGraph graph, Function1<Folder,Boolean> install, Action2<Folder,Boolean> onFinished)
+    {
+        PreCondition.assertNotNull(graph, "graph");
+        PreCondition.assertNotNull(install, "install");
+        PreCondition.assertNotNull(onFinished, "onFinished");
+
+        return Result.create(() ->
+        {
+            final java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, graph.getProjectCount())));
+            try
+            {
+                final java.util.concurrent.ExecutorCompletionService<Folder> completionService = new java.util.concurrent.ExecutorCompletionService<>(executor);
+                final java.util.HashMap<String,Boolean> succeeded = new java.util.HashMap<>();
+                final java.util.HashMap<String,Integer> remainingDependencyCounts = new java.util.HashMap<>();
+                final java.util.ArrayDeque<Folder> failedQueue = new java.util.ArrayDeque<>();
+                int running = 0;
+                int finished = 0;
+
+                for (final Folder projectFolder : graph.getProjectFolders())
+                {
+                    final int dependencyCount = graph.getDependencies(projectFolder).getCount();
+                    remainingDependencyCounts.put(projectFolder.toString(), dependencyCount);
+                    if (dependencyCount == 0)
+                    {
+                        submit(completionService, install, succeeded, projectFolder);
+                        ++running;
+                    }
+                }
+
+                while (finished < graph.getProjectCount())
+                {
+                    final Folder finishedFolder;
+                    final boolean finishedSuccessfully;
+                    if (!failedQueue.isEmpty())
+                    {
+                        finishedFolder = failedQueue.removeFirst();
+                        finishedSuccessfully = false;
+                    }
+                    else
+                    {
+                        finishedFolder = completionService.take().get();
+                        --running;
+                        synchronized (succeeded)
+                        {
+                            finishedSuccessfully = succeeded.get(finishedFolder.toString());
+                        }
+                    }
+                    ++finished;
+                    onFinished.run(finishedFolder, finishedSuccessfully);
+
+                    for (final Folder dependentFolder : graph.getDependents(finishedFolder))
+                    {
+                        final String dependentKey = dependentFolder.toString();
+                        if (!finishedSuccessfully)
+                        {
+                            if (remainingDependencyCounts.remove(dependentKey) != null)
+                            {
+                                failedQueue.addLast(dependentFolder);
+                            }
+                        }
+                        else if (remainingDependencyCounts.containsKey(dependentKey))
+                        {
+                            final int remaining = remainingDependencyCounts.get(dependentKey) - 1;
+                            remainingDependencyCounts.put(dependentKey, remaining);
+                            if (remaining == 0)
+                            {
+                                submit(completionService, install, succeeded, dependentFolder);
+                                ++running;
+                            }
+                        }
+                    }
+                    remainingDependencyCounts.remove(finishedFolder.toString());
+                }
+
+                PostCondition.assertEqual(0, running, "running");
+            }
+            catch (InterruptedException | java.util.concurrent.ExecutionException e)
+            {
+                throw new RuntimeException(e);
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+        });
+    }
+
+    private static void submit(java.util.concurrent.ExecutorCompletionService<Folder> completionService, Function1<Folder,Boolean> install, java.util.HashMap<String,Boolean> succeeded, Folder projectFolder)
+    {
+        completionService.submit(() ->
+        {
+            boolean result;
+            try
+            {
+                result = Booleans.isTrue(install.run(projectFolder));
+            }
+            catch (Throwable e)
+            {
+                // The install function reports its own errors to the project's console. This only keeps an
+                // exception that escapes it from stopping the projects that don't depend on this one.
+                result = false;
+            }
+            synchronized (succeeded)
+            {
+                succeeded.put(projectFolder.toString(), result);
+            }
+            return projectFolder;
+        });
+    }
+}
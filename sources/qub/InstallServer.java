@@ -0,0 +1,276 @@
+package qub;
+
+public class InstallServer implements AutoCloseable
+{
+    public static final String portFileName = "install-server.port";
+    public static final String protocolVersion = "qub-install/1";
+    public static final long outputPollMilliseconds = 50;
+    // The environment variables that a request brings from the client, besides QUB_HOME. Building and
+    // testing a project runs javac and java, so a request needs the client's PATH and JAVA_HOME.
+    public static final Iterable<String> forwardedEnvironmentVariableNames = Iterable.create("PATH", "JAVA_HOME");
+
+    private final Folder qubFolder;
+    private final String token;
+    private final FileSystem fileSystem;
+    private final String lineSeparator;
+    private final java.net.ServerSocket serverSocket;
+    private final Action1<Console> requestHandler;
+    private final java.util.concurrent.ExecutorService connectionExecutor;
+
+    private InstallServer(Folder qubFolder, String token, FileSystem fileSystem, String lineSeparator, java.net.ServerSocket serverSocket, Action1<Console> requestHandler)
+    {
+        this.qubFolder = qubFolder;
+        this.token = token;
+        this.fileSystem = fileSystem;
+        this.lineSeparator = lineSeparator;
+        this.serverSocket = serverSocket;
+        this.requestHandler = requestHandler;
+        this.connectionExecutor = java.util.concurrent.Executors.newCachedThreadPool((Runnable runnable) ->
+        {
+            final Thread thread = new Thread(runnable, "qub-install-server-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static Result<InstallServer> start(Console console, Folder qubFolder, int port, Action1<Console> requestHandler)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertBetween(0, port, 65535, "port");
+        PreCondition.assertNotNull(requestHandler, "requestHandler");
+
+        return Result.create(() ->
+        {
+            final java.net.ServerSocket serverSocket;
+            try
+            {
+                serverSocket = new java.net.ServerSocket(port, 50, java.net.InetAddress.getLoopbackAddress());
+            }
+            catch (java.io.IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+
+            // Any local process can connect to the port, so requests also have to send the token, which
+            // only the user that can read the port file knows.
+            final byte[] tokenBytes = new byte[32];
+            new java.security.SecureRandom().nextBytes(tokenBytes);
+            final StringBuilder token = new StringBuilder();
+            for (final byte tokenByte : tokenBytes)
+            {
+                token.append(String.format("%02x", tokenByte));
+            }
+
+            final InstallServer result = new InstallServer(qubFolder, token.toString(), console.getFileSystem(), console.getLineSeparator(), serverSocket, requestHandler);
+            AtomicFiles.setContentsAsString(getPortFile(qubFolder), getPortFileContents(result.getPort(), result.getToken()), true).await();
+            return result;
+        });
+    }
+
+    public static File getPortFile(Folder qubFolder)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+
+        return qubFolder.getFile(portFileName).await();
+    }
+
+    public static String getPortFileContents(int port, String token)
+    {
+        PreCondition.assertBetween(1, port, 65535, "port");
+        PreCondition.assertNotNullAndNotEmpty(token, "token");
+
+        return port + "\n" + token + "\n";
+    }
+
+    public int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+    public String getToken()
+    {
+        return token;
+    }
+
+    public Result<Void> run()
+    {
+        return Result.create(() ->
+        {
+            while (!serverSocket.isClosed())
+            {
+                try
+                {
+                    final java.net.Socket socket = serverSocket.accept();
+                    connectionExecutor.execute(() -> handleConnection(socket));
+                }
+                catch (java.net.SocketException e)
+                {
+                    // The server socket was closed.
+                }
+                catch (java.io.IOException e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            serverSocket.close();
+        }
+        catch (java.io.IOException ignored)
+        {
+        }
+        connectionExecutor.shutdown();
+        final File portFile = getPortFile(qubFolder);
+        if (portFile.exists().await() && portFile.getContentsAsString().await().equals(getPortFileContents(getPort(), token)))
+        {
+            portFile.delete().await();
+        }
+    }
+
+    private void handleConnection(java.net.Socket socket)
+    {
+        try (final java.net.Socket connection = socket;
+             final java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.InputStreamReader(connection.getInputStream(), java.nio.charset.StandardCharsets.UTF_8));
+             final java.io.Writer writer = new java.io.BufferedWriter(new java.io.OutputStreamWriter(connection.getOutputStream(), java.nio.charset.StandardCharsets.UTF_8)))
+        {
+            String currentFolderPath = null;
+            String qubHome = null;
+            String requestToken = null;
+            final Map<String,String> environmentVariables = Map.create();
+            final List<String> arguments = List.create();
+            String line = reader.readLine();
+            if (protocolVersion.equals(line))
+            {
+                line = reader.readLine();
+                while (line != null && !line.equals("end"))
+                {
+                    if (line.startsWith("token "))
+                    {
+                        requestToken = line.substring("token ".length());
+                    }
+                    else if (line.startsWith("folder "))
+                    {
+                        currentFolderPath = line.substring("folder ".length());
+                    }
+                    else if (line.startsWith("qubhome "))
+                    {
+                        qubHome = line.substring("qubhome ".length());
+                    }
+                    else if (line.startsWith("env ") && line.indexOf('=') > "env ".length())
+                    {
+                        final String name = line.substring("env ".length(), line.indexOf('='));
+                        if (forwardedEnvironmentVariableNames.contains(name))
+                        {
+                            environmentVariables.set(name, line.substring(line.indexOf('=') + 1));
+                        }
+                    }
+                    else if (line.startsWith("arg "))
+                    {
+                        arguments.add(line.substring("arg ".length()));
+                    }
+                    line = reader.readLine();
+                }
+            }
+
+            if (line == null || currentFolderPath == null)
+            {
+                writeOutput(writer, "ERROR: Expected a " + protocolVersion + " request." + lineSeparator);
+                writeExitCode(writer, 1);
+            }
+            else if (requestToken == null || !java.security.MessageDigest.isEqual(
+                requestToken.getBytes(java.nio.charset.StandardCharsets.UTF_8),
+                token.getBytes(java.nio.charset.StandardCharsets.UTF_8)))
+            {
+                writeOutput(writer, "ERROR: The request's token doesn't match this install server's port file." + lineSeparator);
+                writeExitCode(writer, 1);
+            }
+            else if (qubHome != null && !fileSystem.getFolder(qubHome).await().toString().equals(qubFolder.toString()))
+            {
+                // The server's caches and locks belong to its own Qub folder.
+                writeOutput(writer, "ERROR: This install server only installs to " + qubFolder.toString() + ", not to " + qubHome + "." + lineSeparator);
+                writeExitCode(writer, 1);
+            }
+            else
+            {
+                final InMemoryCharacterStream output = new InMemoryCharacterStream();
+                environmentVariables.set("QUB_HOME", qubFolder.toString());
+                try (final Console requestConsole = new Console(arguments))
+                {
+                    requestConsole.setLineSeparator(lineSeparator);
+                    requestConsole.setOutput(output);
+                    requestConsole.setFileSystem(fileSystem);
+                    requestConsole.setCurrentFolderPath(Path.parse(currentFolderPath));
+                    requestConsole.setEnvironmentVariables(environmentVariables);
+
+                    final Throwable[] requestError = new Throwable[1];
+                    final Thread requestThread = new Thread(() ->
+                    {
+                        try
+                        {
+                            requestHandler.run(requestConsole);
+                        }
+                        catch (Throwable e)
+                        {
+                            requestError[0] = e;
+                        }
+                    }, "qub-install-server-request");
+                    requestThread.setDaemon(true);
+                    requestThread.start();
+
+                    int sentLength = 0;
+                    while (requestThread.isAlive())
+                    {
+                        requestThread.join(outputPollMilliseconds);
+                        sentLength = writeNewOutput(writer, output, sentLength);
+                    }
+                    writeNewOutput(writer, output, sentLength);
+
+                    int exitCode = requestConsole.getExitCode();
+                    if (requestError[0] != null)
+                    {
+                        writeOutput(writer, "ERROR: " + requestError[0].getMessage() + lineSeparator);
+                        if (exitCode == 0)
+                        {
+                            exitCode = 1;
+                        }
+                    }
+                    writeExitCode(writer, exitCode);
+                }
+            }
+        }
+        catch (java.io.IOException | InterruptedException e)
+        {
+            // The client disconnected. Its request has nowhere to report to.
+        }
+    }
+
+    private static int writeNewOutput(java.io.Writer writer, InMemoryCharacterStream output, int sentLength) throws java.io.IOException
+    {
+        final String text = output.getText().await();
+        if (text.length() > sentLength)
+        {
+            writeOutput(writer, text.substring(sentLength));
+        }
+        return text.length();
+    }
+
+    private static void writeOutput(java.io.Writer writer, String text) throws java.io.IOException
+    {
+        writer.write("out " + text.length() + "\n");
+        writer.write(text);
+        writer.flush();
+    }
+
+    private static void writeExitCode(java.io.Writer writer, int exitCode) throws java.io.IOException
+    {
+        writer.write("exit " + exitCode + "\n");
+        writer.flush();
+    }
+}
@@ -0,0 +1,84 @@
+package qub;
+
+public class InstalledPackages
+{
+    InstalledPackages()
+    {
+    }
+
+    // Every <publisher>/<project>/<version> folder in the Qub folder that has a project.json file.
+    // The jar store, staging folders, and lock files aren't packages, so they're skipped.
+    public static Result<Iterable<PackageSignature>> getAll(Folder qubFolder)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+
+        return Result.create(() ->
+        {
+            final List<PackageSignature> result = List.create();
+            if (qubFolder.exists().await())
+            {
+                for (final Folder publisherFolder : qubFolder.getFolders().await())
+                {
+                    if (isPackageFolder(publisherFolder) && !publisherFolder.getName().equals(JarStore.folderName))
+                    {
+                        for (final Folder projectFolder : publisherFolder.getFolders().await())
+                        {
+                            if (isPackageFolder(projectFolder))
+                            {
+                                for (final Folder versionFolder : projectFolder.getFolders().await())
+                                {
+                                    if (isPackageFolder(versionFolder) && versionFolder.getFile("project.json").await().exists().await())
+                                    {
+                                        result.add(new PackageSignature(publisherFolder.getName(), projectFolder.getName(), versionFolder.getName()));
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    private static boolean isPackageFolder(Folder folder)
+    {
+        return !folder.getName().startsWith(".") && !AtomicFiles.isStagingFolder(folder);
+    }
+
+    // Compares versions one dot-separated segment at a time, numerically when both segments are
+    // numbers, so that 10 comes after 9.
+    public static int compareVersions(String lhs, String rhs)
+    {
+        PreCondition.assertNotNull(lhs, "lhs");
+        PreCondition.assertNotNull(rhs, "rhs");
+
+        final String[] lhsSegments = lhs.split("\\.");
+        final String[] rhsSegments = rhs.split("\\.");
+        int result = 0;
+        for (int i = 0; result == 0 && i < Math.max(lhsSegments.length, rhsSegments.length); ++i)
+        {
+            final String lhsSegment = i < lhsSegments.length ? lhsSegments[i] : "";
+            final String rhsSegment = i < rhsSegments.length ? rhsSegments[i] : "";
+            if (isNumber(lhsSegment) && isNumber(rhsSegment))
+            {
+                result = new java.math.BigInteger(lhsSegment).compareTo(new java.math.BigInteger(rhsSegment));
+            }
+            else
+            {
+                result = lhsSegment.compareTo(rhsSegment);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isNumber(String text)
+    {
+        boolean result = !text.isEmpty();
+        for (int i = 0; result && i < text.length(); ++i)
+        {
+            result = Character.isDigit(text.charAt(i));
+        }
+        return result;
+    }
+}
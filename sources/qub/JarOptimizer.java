@@ -0,0 +1,132 @@
+package qub;
+
+public class JarOptimizer
+{
+    public static final String optimizedJarFileExtension = ".optimized.jar";
+    public static final int storedCompressionLevel = 0;
+
+    JarOptimizer()
+    {
+    }
+
+    public static File getOptimizedJarFile(File projectJarFile)
+    {
+        PreCondition.assertNotNull(projectJarFile, "projectJarFile");
+
+        return projectJarFile.getParentFolder().await()
+            .getFile(projectJarFile.getNameWithoutFileExtension() + optimizedJarFileExtension).await();
+    }
+
+    public static boolean isStripped(String entryName)
+    {
+        PreCondition.assertNotNull(entryName, "entryName");
+
+        return entryName.endsWith(".java") || entryName.startsWith("META-INF/maven/");
+    }
+
+    public static Result<OptimizedJar> optimize(File sourceJarFile, File targetJarFile, Iterable<String> classLoadOrder, int compressionLevel)
+    {
+        PreCondition.assertNotNull(sourceJarFile, "sourceJarFile");
+        PreCondition.assertNotNull(targetJarFile, "targetJarFile");
+        PreCondition.assertNotNull(classLoadOrder, "classLoadOrder");
+        PreCondition.assertBetween(0, compressionLevel, 9, "compressionLevel");
+
+        return Result.create(() ->
+        {
+            final byte[] sourceContents = sourceJarFile.getContents().await();
+
+            final java.util.LinkedHashMap<String,java.util.Map.Entry<java.util.zip.ZipEntry,byte[]>> entries = new java.util.LinkedHashMap<>();
+            final List<String> strippedEntryNames = List.create();
+            try (final java.util.zip.ZipInputStream zipInput = new java.util.zip.ZipInputStream(new java.io.ByteArrayInputStream(sourceContents)))
+            {
+                java.util.zip.ZipEntry entry = zipInput.getNextEntry();
+                while (entry != null)
+                {
+                    final java.io.ByteArrayOutputStream entryContents = new java.io.ByteArrayOutputStream();
+                    final byte[] buffer = new byte[8192];
+                    int bytesRead = zipInput.read(buffer);
+                    while (bytesRead != -1)
+                    {
+                        entryContents.write(buffer, 0, bytesRead);
+                        bytesRead = zipInput.read(buffer);
+                    }
+
+                    if (isStripped(entry.getName()))
+                    {
+                        strippedEntryNames.add(entry.getName());
+                    }
+                    else
+                    {
+                        entries.put(entry.getName(), new java.util.AbstractMap.SimpleImmutableEntry<>(entry, entryContents.toByteArray()));
+                    }
+                    entry = zipInput.getNextEntry();
+                }
+            }
+            catch (java.io.IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+            if (entries.isEmpty() && !strippedEntryNames.any())
+            {
+                throw new IllegalArgumentException(sourceJarFile.toString() + " isn't a jar file.");
+            }
+
+            // The manifest has to stay first for JarInputStream. Classes follow in the order the training run loaded them.
+            final java.util.LinkedHashSet<String> orderedEntryNames = new java.util.LinkedHashSet<>();
+            for (final String entryName : new String[] { "META-INF/", java.util.jar.JarFile.MANIFEST_NAME })
+            {
+                if (entries.containsKey(entryName))
+                {
+                    orderedEntryNames.add(entryName);
+                }
+            }
+            for (final String className : classLoadOrder)
+            {
+                final String entryName = className.replace('.', '/') + ".class";
+                if (entries.containsKey(entryName))
+                {
+                    orderedEntryNames.add(entryName);
+                }
+            }
+            orderedEntryNames.addAll(entries.keySet());
+
+            final java.io.ByteArrayOutputStream targetContents = new java.io.ByteArrayOutputStream();
+            try (final java.util.zip.ZipOutputStream zipOutput = new java.util.zip.ZipOutputStream(targetContents))
+            {
+                zipOutput.setLevel(compressionLevel);
+                for (final String entryName : orderedEntryNames)
+                {
+                    final java.util.Map.Entry<java.util.zip.ZipEntry,byte[]> sourceEntry = entries.get(entryName);
+                    final byte[] entryContents = sourceEntry.getValue();
+                    final java.util.zip.ZipEntry targetEntry = new java.util.zip.ZipEntry(entryName);
+                    targetEntry.setTime(sourceEntry.getKey().getTime());
+                    if (compressionLevel == storedCompressionLevel)
+                    {
+                        final java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+                        crc.update(entryContents);
+                        targetEntry.setMethod(java.util.zip.ZipEntry.STORED);
+                        targetEntry.setSize(entryContents.length);
+                        targetEntry.setCompressedSize(entryContents.length);
+                        targetEntry.setCrc(crc.getValue());
+                    }
+                    else
+                    {
+                        targetEntry.setMethod(java.util.zip.ZipEntry.DEFLATED);
+                    }
+                    zipOutput.putNextEntry(targetEntry);
+                    zipOutput.write(entryContents);
+                    zipOutput.closeEntry();
+                }
+            }
+            catch (java.io.IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+
+            final byte[] optimizedContents = targetContents.toByteArray();
+            targetJarFile.setContents(optimizedContents).await();
+
+            return new OptimizedJar(targetJarFile, sourceContents.length, optimizedContents.length, strippedEntryNames);
+        });
+    }
+}
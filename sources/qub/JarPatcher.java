@@ -0,0 +1,96 @@
+package qub;
+
+public class JarPatcher
+{
+    JarPatcher()
+    {
+    }
+
+    public static Result<Void> patch(File jarFile, java.util.Map<String,byte[]> updatedEntries, Iterable<String> removedEntryNames)
+    {
+        PreCondition.assertNotNull(jarFile, "jarFile");
+        PreCondition.assertNotNull(updatedEntries, "updatedEntries");
+        PreCondition.assertNotNull(removedEntryNames, "removedEntryNames");
+
+        return Result.create(() ->
+        {
+            if (CountingFileSystem.getInnerFileSystem(jarFile.getFileSystem()) instanceof JavaFileSystem)
+            {
+                patchInPlace(jarFile, updatedEntries, removedEntryNames);
+            }
+            else
+            {
+                rewrite(jarFile, updatedEntries, removedEntryNames);
+            }
+        });
+    }
+
+    // The zip file system only rewrites the entries that changed and copies the rest as they are.
+    private static void patchInPlace(File jarFile, java.util.Map<String,byte[]> updatedEntries, Iterable<String> removedEntryNames)
+    {
+        final java.net.URI jarUri = java.net.URI.create("jar:" + java.nio.file.Paths.get(jarFile.toString()).toUri());
+        try (final java.nio.file.FileSystem zipFileSystem = java.nio.file.FileSystems.newFileSystem(jarUri, new java.util.HashMap<String,Object>()))
+        {
+            for (final String removedEntryName : removedEntryNames)
+            {
+                java.nio.file.Files.deleteIfExists(zipFileSystem.getPath(removedEntryName));
+            }
+            for (final java.util.Map.Entry<String,byte[]> updatedEntry : updatedEntries.entrySet())
+            {
+                final java.nio.file.Path entryPath = zipFileSystem.getPath(updatedEntry.getKey());
+                if (entryPath.getParent() != null)
+                {
+                    java.nio.file.Files.createDirectories(entryPath.getParent());
+                }
+                java.nio.file.Files.write(entryPath, updatedEntry.getValue());
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void rewrite(File jarFile, java.util.Map<String,byte[]> updatedEntries, Iterable<String> removedEntryNames)
+    {
+        final java.util.HashSet<String> skippedEntryNames = new java.util.HashSet<>(updatedEntries.keySet());
+        for (final String removedEntryName : removedEntryNames)
+        {
+            skippedEntryNames.add(removedEntryName);
+        }
+
+        final java.io.ByteArrayOutputStream result = new java.io.ByteArrayOutputStream();
+        try (final java.util.zip.ZipInputStream zipInput = new java.util.zip.ZipInputStream(new java.io.ByteArrayInputStream(jarFile.getContents().await()));
+             final java.util.zip.ZipOutputStream zipOutput = new java.util.zip.ZipOutputStream(result))
+        {
+            final byte[] buffer = new byte[8192];
+            java.util.zip.ZipEntry entry = zipInput.getNextEntry();
+            while (entry != null)
+            {
+                if (!skippedEntryNames.contains(entry.getName()))
+                {
+                    zipOutput.putNextEntry(new java.util.zip.ZipEntry(entry.getName()));
+                    int bytesRead = zipInput.read(buffer);
+                    while (bytesRead != -1)
+                    {
+                        zipOutput.write(buffer, 0, bytesRead);
+                        bytesRead = zipInput.read(buffer);
+                    }
+                    zipOutput.closeEntry();
+                }
+                entry = zipInput.getNextEntry();
+            }
+            for (final java.util.Map.Entry<String,byte[]> updatedEntry : new java.util.TreeMap<>(updatedEntries).entrySet())
+            {
+                zipOutput.putNextEntry(new java.util.zip.ZipEntry(updatedEntry.getKey()));
+                zipOutput.write(updatedEntry.getValue());
+                zipOutput.closeEntry();
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        jarFile.setContents(result.toByteArray()).await();
+    }
+}
@@ -0,0 +1,199 @@
+package qub;
+
+public class JarStore
+{
+    public static final String folderName = "jars";
+    public static final int streamBufferSize = 64 * 1024;
+
+    private final Folder storeFolder;
+
+    public JarStore(Folder qubFolder)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+
+        this.storeFolder = qubFolder.getFolder(folderName).await();
+    }
+
+    public Folder getStoreFolder()
+    {
+        return storeFolder;
+    }
+
+    public File getJarFile(String hash)
+    {
+        PreCondition.assertNotNullAndNotEmpty(hash, "hash");
+        PreCondition.assertGreaterThanOrEqualTo(hash.length(), 2, "hash.length()");
+
+        final File result = storeFolder
+            .getFolder(hash.substring(0, 2)).await()
+            .getFile(hash + ".jar").await();
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public Result<StoredJar> add(File sourceFile, String knownHash, PublishMode mode)
+    {
+        PreCondition.assertNotNull(sourceFile, "sourceFile");
+        PreCondition.assertNotNull(mode, "mode");
+
+        return Result.create(() ->
+        {
+            StoredJar result = null;
+            if (!Strings.isNullOrEmpty(knownHash))
+            {
+                final File storedFile = getJarFile(knownHash);
+                if (storedFile.exists().await())
+                {
+                    result = new StoredJar(storedFile, knownHash, getSize(storedFile), false);
+                }
+            }
+
+            if (result == null)
+            {
+                if (!isLocal(sourceFile.getFileSystem()) || !isLocal(storeFolder.getFileSystem()))
+                {
+                    final byte[] contents = sourceFile.getContents().await();
+                    final String hash = ContentHash.sha256(contents);
+                    final File storedFile = getJarFile(hash);
+                    final boolean copied = !storedFile.exists().await();
+                    if (copied)
+                    {
+                        storedFile.setContents(contents).await();
+                    }
+                    result = new StoredJar(storedFile, hash, contents.length, copied);
+                }
+                else if (mode == PublishMode.Move)
+                {
+                    final String hash = Strings.isNullOrEmpty(knownHash) ? ContentHash.sha256(sourceFile).await() : knownHash;
+                    final File storedFile = getJarFile(hash);
+                    final boolean copied = !storedFile.exists().await();
+                    if (copied)
+                    {
+                        new ArtifactPublisher(mode).publish(sourceFile, storedFile).await();
+                    }
+                    result = new StoredJar(storedFile, hash, getSize(storedFile), copied);
+                }
+                else
+                {
+                    // The source jar is rebuilt in place, so a stored jar that was a hard link to it would
+                    // change with the next build. Linking always copies it into the store first, and only
+                    // the stored jar is ever linked into a version folder.
+                    result = copyAndHash(sourceFile);
+                }
+            }
+
+            PostCondition.assertNotNull(result, "result");
+
+            return result;
+        });
+    }
+
+    public Result<PublishMode> link(StoredJar storedJar, File targetFile)
+    {
+        PreCondition.assertNotNull(storedJar, "storedJar");
+        PreCondition.assertNotNull(targetFile, "targetFile");
+
+        return new ArtifactPublisher(PublishMode.HardLink).publish(storedJar.getFile(), targetFile);
+    }
+
+    private StoredJar copyAndHash(File sourceFile)
+    {
+        final java.nio.file.Path sourcePath = toLocalPath(sourceFile);
+        final java.nio.file.Path storePath = toLocalPath(storeFolder);
+        final java.security.MessageDigest digest = ContentHash.createDigest();
+        java.nio.file.Path temporaryPath = null;
+        try
+        {
+            java.nio.file.Files.createDirectories(storePath);
+            temporaryPath = java.nio.file.Files.createTempFile(storePath, ".", ".tmp");
+
+            long size = 0;
+            try (final java.io.InputStream sourceStream = java.nio.file.Files.newInputStream(sourcePath);
+                 final java.io.OutputStream temporaryStream = java.nio.file.Files.newOutputStream(temporaryPath))
+            {
+                final byte[] buffer = new byte[streamBufferSize];
+                int bytesRead;
+                while ((bytesRead = sourceStream.read(buffer)) != -1)
+                {
+                    digest.update(buffer, 0, bytesRead);
+                    temporaryStream.write(buffer, 0, bytesRead);
+                    size += bytesRead;
+                }
+            }
+
+            final String hash = ContentHash.toHexString(digest.digest());
+            final File storedFile = getJarFile(hash);
+            final java.nio.file.Path storedPath = toLocalPath(storedFile);
+            boolean copied = false;
+            if (!java.nio.file.Files.exists(storedPath))
+            {
+                java.nio.file.Files.createDirectories(storedPath.getParent());
+                try
+                {
+                    java.nio.file.Files.move(temporaryPath, storedPath, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+                    copied = true;
+                }
+                catch (java.nio.file.FileAlreadyExistsException e)
+                {
+                    // Another install stored the same content first.
+                }
+            }
+            return new StoredJar(storedFile, hash, size, copied);
+        }
+        catch (java.io.IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        finally
+        {
+            if (temporaryPath != null)
+            {
+                try
+                {
+                    java.nio.file.Files.deleteIfExists(temporaryPath);
+                }
+                catch (java.io.IOException ignored)
+                {
+                }
+            }
+        }
+    }
+
+    static long getSize(File file)
+    {
+        long result;
+        if (isLocal(file.getFileSystem()))
+        {
+            try
+            {
+                result = java.nio.file.Files.size(toLocalPath(file));
+            }
+            catch (java.io.IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
+        else
+        {
+            result = file.getContents().await().length;
+        }
+        return result;
+    }
+
+    private static boolean isLocal(FileSystem fileSystem)
+    {
+        return CountingFileSystem.getInnerFileSystem(fileSystem) instanceof JavaFileSystem;
+    }
+
+    private static java.nio.file.Path toLocalPath(File file)
+    {
+        return java.nio.file.Paths.get(file.toString());
+    }
+
+    private static java.nio.file.Path toLocalPath(Folder folder)
+    {
+        return java.nio.file.Paths.get(folder.toString());
+    }
+}
@@ -0,0 +1,96 @@
+package qub;
+
+public class JarTrainingRun
+{
+    private static final java.util.regex.Pattern classLoadPattern = java.util.regex.Pattern.compile("\\[class,load\\]\\s+(\\S+)\\s+source:");
+
+    private final Iterable<String> classLoadOrder;
+    private final long milliseconds;
+
+    public JarTrainingRun(Iterable<String> classLoadOrder, long milliseconds)
+    {
+        PreCondition.assertNotNull(classLoadOrder, "classLoadOrder");
+        PreCondition.assertGreaterThanOrEqualTo(milliseconds, 0L, "milliseconds");
+
+        this.classLoadOrder = classLoadOrder;
+        this.milliseconds = milliseconds;
+    }
+
+    public static Result<JarTrainingRun> run(Iterable<File> classpathFiles, String mainClass, Iterable<String> jvmOptions, Iterable<String> trainingArguments)
+    {
+        PreCondition.assertNotNull(classpathFiles, "classpathFiles");
+        PreCondition.assertNotNullAndNotEmpty(mainClass, "mainClass");
+        PreCondition.assertNotNull(jvmOptions, "jvmOptions");
+        PreCondition.assertNotNull(trainingArguments, "trainingArguments");
+
+        return Result.create(() ->
+        {
+            for (final File classpathFile : classpathFiles)
+            {
+                if (!(CountingFileSystem.getInnerFileSystem(classpathFile.getFileSystem()) instanceof JavaFileSystem))
+                {
+                    throw new UnsupportedOperationException("Training runs can only be done on a local file system.");
+                }
+            }
+
+            final java.util.List<String> classpath = new java.util.ArrayList<>();
+            for (final File classpathFile : classpathFiles)
+            {
+                classpath.add(classpathFile.toString());
+            }
+
+            final List<String> arguments = List.create();
+            arguments.addAll(jvmOptions);
+            arguments.add("-Xshare:off");
+            arguments.add("-Xlog:class+load=info:stdout");
+            arguments.add("-classpath");
+            arguments.add(String.join(java.io.File.pathSeparator, classpath));
+            arguments.add(mainClass);
+            arguments.addAll(trainingArguments);
+
+            final long startNanoseconds = System.nanoTime();
+            final JavaProcess trainingRun = JavaProcess.run(arguments, JavaProcess.defaultTimeoutSeconds).await();
+            final long milliseconds = (System.nanoTime() - startNanoseconds) / 1000000;
+
+            // A run that failed may have stopped partway, so its class-load order and timing aren't usable.
+            if (trainingRun.getExitCode() != 0)
+            {
+                throw new RuntimeException("The training run of " + mainClass + " exited with code " + trainingRun.getExitCode() + ".");
+            }
+
+            final List<String> classLoadOrder = parseClassLoadOrder(trainingRun.getOutput());
+            if (!classLoadOrder.any())
+            {
+                throw new RuntimeException("The training run of " + mainClass + " didn't log any loaded classes. This requires a JDK that supports -Xlog (9 or later).");
+            }
+
+            return new JarTrainingRun(classLoadOrder, milliseconds);
+        });
+    }
+
+    public static List<String> parseClassLoadOrder(String trainingRunOutput)
+    {
+        PreCondition.assertNotNull(trainingRunOutput, "trainingRunOutput");
+
+        final List<String> result = List.create();
+        final java.util.regex.Matcher matcher = classLoadPattern.matcher("");
+        for (final String line : trainingRunOutput.split("\\r?\\n"))
+        {
+            if (matcher.reset(line).find())
+            {
+                result.add(matcher.group(1));
+            }
+        }
+        return result;
+    }
+
+    public Iterable<String> getClassLoadOrder()
+    {
+        return classLoadOrder;
+    }
+
+    public long getMilliseconds()
+    {
+        return milliseconds;
+    }
+}
@@ -0,0 +1,112 @@
+package qub;
+
+public class JavaProcess
+{
+    public static final long defaultTimeoutSeconds = 60;
+
+    private final int exitCode;
+    private final String output;
+
+    public JavaProcess(int exitCode, String output)
+    {
+        PreCondition.assertNotNull(output, "output");
+
+        this.exitCode = exitCode;
+        this.output = output;
+    }
+
+    // The java executable of the JDK that runs this process, rather than whichever one is first on the PATH.
+    public static String getJavaExecutablePath()
+    {
+        return java.nio.file.Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    // Runs java with the provided arguments and an empty stdin, and collects its combined stdout and
+    // stderr. A process that hasn't exited after timeoutSeconds is killed.
+    public static Result<JavaProcess> run(Iterable<String> arguments, long timeoutSeconds)
+    {
+        PreCondition.assertNotNull(arguments, "arguments");
+        PreCondition.assertGreaterThanOrEqualTo(timeoutSeconds, 1L, "timeoutSeconds");
+
+        return Result.create(() ->
+        {
+            final java.util.List<String> command = new java.util.ArrayList<>();
+            command.add(getJavaExecutablePath());
+            for (final String argument : arguments)
+            {
+                command.add(argument);
+            }
+
+            final java.io.ByteArrayOutputStream processOutput = new java.io.ByteArrayOutputStream();
+            final int exitCode;
+            try
+            {
+                final java.lang.Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .start();
+                try
+                {
+                    process.getOutputStream().close();
+
+                    // The output is read on its own thread so that a process that never exits can't block the wait below.
+                    final java.lang.Thread outputReader = new java.lang.Thread(() ->
+                    {
+                        try (final java.io.InputStream processOutputStream = process.getInputStream())
+                        {
+                            final byte[] buffer = new byte[4096];
+                            int bytesRead;
+                            while ((bytesRead = processOutputStream.read(buffer)) != -1)
+                            {
+                                synchronized (processOutput)
+                                {
+                                    processOutput.write(buffer, 0, bytesRead);
+                                }
+                            }
+                        }
+                        catch (java.io.IOException ignored)
+                        {
+                            // The process was killed or its output was closed.
+                        }
+                    });
+                    outputReader.setDaemon(true);
+                    outputReader.start();
+
+                    if (!process.waitFor(timeoutSeconds, java.util.concurrent.TimeUnit.SECONDS))
+                    {
+                        throw new RuntimeException("The java process didn't finish within " + timeoutSeconds + " seconds, so it was stopped.");
+                    }
+                    outputReader.join(java.util.concurrent.TimeUnit.SECONDS.toMillis(timeoutSeconds));
+                    exitCode = process.exitValue();
+                }
+                finally
+                {
+                    if (process.isAlive())
+                    {
+                        process.destroyForcibly();
+                    }
+                }
+            }
+            catch (java.io.IOException | InterruptedException e)
+            {
+                throw new RuntimeException(e);
+            }
+
+            final String output;
+            synchronized (processOutput)
+            {
+                output = new String(processOutput.toByteArray(), java.nio.charset.StandardCharsets.UTF_8);
+            }
+            return new JavaProcess(exitCode, output);
+        });
+    }
+
+    public int getExitCode()
+    {
+        return exitCode;
+    }
+
+    public String getOutput()
+    {
+        return output;
+    }
+}
@@ -0,0 +1,177 @@
+package qub;
+
+public class LaunchProfile
+{
+    public static final String configFileName = "launch.config";
+    public static final String unsafeOptionCharacters = "&|<>^%!()\"";
+
+    private final String profileName;
+    private final List<String> jvmOptions;
+
+    private LaunchProfile(String profileName, List<String> jvmOptions)
+    {
+        this.profileName = profileName;
+        this.jvmOptions = jvmOptions;
+    }
+
+    public static LaunchProfile create()
+    {
+        return new LaunchProfile(null, List.create());
+    }
+
+    public static LaunchProfile create(String profileName, Iterable<String> jvmOptions)
+    {
+        PreCondition.assertNotNull(jvmOptions, "jvmOptions");
+
+        final List<String> options = List.create();
+        options.addAll(jvmOptions);
+        return new LaunchProfile(profileName, options);
+    }
+
+    public static Iterable<String> getPresetNames()
+    {
+        return Iterable.create("fast-startup", "throughput");
+    }
+
+    public static Iterable<String> getPresetOptions(String profileName)
+    {
+        Iterable<String> result = null;
+        if ("fast-startup".equals(profileName))
+        {
+            result = Iterable.create("-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC", "-Xms16m", "-Xmx256m");
+        }
+        else if ("throughput".equals(profileName))
+        {
+            result = Iterable.create("-XX:+UseParallelGC", "-Xms256m");
+        }
+        return result;
+    }
+
+    public static Result<LaunchProfile> parse(File projectJsonFile)
+    {
+        PreCondition.assertNotNull(projectJsonFile, "projectJsonFile");
+
+        return Result.create(() ->
+        {
+            String profileName = null;
+            final List<String> options = List.create();
+
+            final JSONObject rootObject = JSON.parse(projectJsonFile.getContentsAsString().await()).getRootObject().await();
+            final JSONObject javaObject = rootObject.getObjectPropertyValue("java").catchError().await();
+            if (javaObject != null)
+            {
+                profileName = javaObject.getStringPropertyValue("launchProfile").catchError().await();
+
+                final JSONArray jvmOptionsArray = javaObject.getArrayPropertyValue("jvmOptions").catchError().await();
+                if (jvmOptionsArray != null)
+                {
+                    for (final JSONSegment element : jvmOptionsArray.getElements())
+                    {
+                        if (element instanceof JSONQuotedString)
+                        {
+                            options.add(assertSafeOption(((JSONQuotedString)element).toUnquotedString(), projectJsonFile));
+                        }
+                    }
+                }
+            }
+
+            return new LaunchProfile(profileName, options);
+        });
+    }
+
+    // Shortcuts are cmd files that pass each option to java as it is, so an option can't contain
+    // anything that cmd would split, expand, or redirect.
+    public static boolean isSafeOption(String option)
+    {
+        PreCondition.assertNotNull(option, "option");
+
+        boolean result = !option.isEmpty();
+        for (int i = 0; result && i < option.length(); ++i)
+        {
+            final char c = option.charAt(i);
+            result = !java.lang.Character.isWhitespace(c) && !java.lang.Character.isISOControl(c) && unsafeOptionCharacters.indexOf(c) == -1;
+        }
+        return result;
+    }
+
+    private static String assertSafeOption(String option, File sourceFile)
+    {
+        if (!isSafeOption(option))
+        {
+            throw new IllegalArgumentException("The JVM option " + Strings.escapeAndQuote(option) + " in " + sourceFile.toString() + " can't be used in a shortcut. JVM options can't be empty or contain whitespace or any of the characters " + unsafeOptionCharacters + ".");
+        }
+        return option;
+    }
+
+    public String getProfileName()
+    {
+        return profileName;
+    }
+
+    public Iterable<String> getProjectJvmOptions()
+    {
+        return jvmOptions;
+    }
+
+    public static File getConfigFile(Folder qubFolder)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+
+        return qubFolder.getFile(configFileName).await();
+    }
+
+    public Result<Iterable<String>> getJvmOptions(Folder qubFolder, String shortcutName)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNullAndNotEmpty(shortcutName, "shortcutName");
+
+        return Result.create(() ->
+        {
+            String resolvedProfileName = profileName;
+            final List<String> userOptions = List.create();
+
+            final File configFile = getConfigFile(qubFolder);
+            if (configFile.exists().await())
+            {
+                for (final String line : Strings.getLines(configFile.getContentsAsString().await()))
+                {
+                    final String trimmedLine = line.trim();
+                    final int equalsIndex = trimmedLine.indexOf('=');
+                    if (!trimmedLine.isEmpty() && !trimmedLine.startsWith("#") && equalsIndex > 0)
+                    {
+                        final String key = trimmedLine.substring(0, equalsIndex).trim();
+                        final String value = trimmedLine.substring(equalsIndex + 1).trim();
+                        if (key.equals(shortcutName + ".profile"))
+                        {
+                            resolvedProfileName = value;
+                        }
+                        else if (key.equals("*") || key.equals(shortcutName))
+                        {
+                            for (final String option : value.split("\\s+"))
+                            {
+                                if (!option.isEmpty())
+                                {
+                                    userOptions.add(assertSafeOption(option, configFile));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+
+            final List<String> result = List.create();
+            if (!Strings.isNullOrEmpty(resolvedProfileName))
+            {
+                final Iterable<String> presetOptions = getPresetOptions(resolvedProfileName);
+                if (presetOptions == null)
+                {
+                    throw new IllegalArgumentException("Unrecognized launch profile: " + Strings.escapeAndQuote(resolvedProfileName) + ". Expected one of " + String.join(", ", getPresetNames()) + ".");
+                }
+                result.addAll(presetOptions);
+            }
+            result.addAll(jvmOptions);
+            result.addAll(userOptions);
+            return result;
+        });
+    }
+}
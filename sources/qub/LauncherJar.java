@@ -0,0 +1,268 @@
+package qub;
+
+public class LauncherJar
+{
+    public static final String fileExtension = ".launcher.jar";
+    public static final String indexEntryName = "META-INF/INDEX.LIST";
+
+    LauncherJar()
+    {
+    }
+
+    public static File getLauncherJarFile(Folder versionFolder, String shortcutName)
+    {
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+        PreCondition.assertNotNullAndNotEmpty(shortcutName, "shortcutName");
+
+        return versionFolder.getFile(shortcutName + fileExtension).await();
+    }
+
+    public static String getRelativePath(Folder fromFolder, File toFile)
+    {
+        PreCondition.assertNotNull(fromFolder, "fromFolder");
+        PreCondition.assertNotNull(toFile, "toFile");
+
+        final String[] fromSegments = fromFolder.toString().split("/");
+        final String[] toSegments = toFile.toString().split("/");
+
+        int commonSegmentCount = 0;
+        while (commonSegmentCount < fromSegments.length &&
+            commonSegmentCount < toSegments.length - 1 &&
+            fromSegments[commonSegmentCount].equals(toSegments[commonSegmentCount]))
+        {
+            ++commonSegmentCount;
+        }
+
+        final StringBuilder builder = new StringBuilder();
+        for (int i = commonSegmentCount; i < fromSegments.length; ++i)
+        {
+            if (!fromSegments[i].isEmpty())
+            {
+                builder.append("../");
+            }
+        }
+        for (int i = commonSegmentCount; i < toSegments.length; ++i)
+        {
+            builder.append(toSegments[i]);
+            if (i < toSegments.length - 1)
+            {
+                builder.append('/');
+            }
+        }
+        return builder.toString();
+    }
+
+    public static String getClassPath(File launcherJarFile, Iterable<File> classpathFiles)
+    {
+        PreCondition.assertNotNull(launcherJarFile, "launcherJarFile");
+        PreCondition.assertNotNull(classpathFiles, "classpathFiles");
+
+        final Folder launcherFolder = launcherJarFile.getParentFolder().await();
+        final StringBuilder result = new StringBuilder();
+        for (final File classpathFile : classpathFiles)
+        {
+            if (result.length() > 0)
+            {
+                result.append(' ');
+            }
+            result.append(getClassPathEntry(launcherFolder, classpathFile));
+        }
+        return result.toString();
+    }
+
+    private static String getClassPathEntry(Folder launcherFolder, File classpathFile)
+    {
+        return getRelativePath(launcherFolder, classpathFile).replace(" ", "%20");
+    }
+
+    // Whether the launcher jar already starts this main class with this classpath, and its index still
+    // lists the packages that each classpath jar has now. The manifest and the index are compared
+    // instead of the whole jar, since a rewritten jar never has the same bytes because of its entry
+    // timestamps.
+    public static Result<Boolean> isCurrent(File launcherJarFile, String mainClass, Iterable<File> classpathFiles)
+    {
+        PreCondition.assertNotNull(launcherJarFile, "launcherJarFile");
+        PreCondition.assertNotNullAndNotEmpty(mainClass, "mainClass");
+        PreCondition.assertNotNull(classpathFiles, "classpathFiles");
+
+        return Result.create(() ->
+        {
+            boolean result = false;
+            if (launcherJarFile.exists().await())
+            {
+                try (final java.util.jar.JarInputStream jarStream = new java.util.jar.JarInputStream(new java.io.ByteArrayInputStream(launcherJarFile.getContents().await())))
+                {
+                    final java.util.jar.Manifest manifest = jarStream.getManifest();
+                    if (manifest != null)
+                    {
+                        final java.util.jar.Attributes attributes = manifest.getMainAttributes();
+                        result = mainClass.equals(attributes.getValue(java.util.jar.Attributes.Name.MAIN_CLASS)) &&
+                            getClassPath(launcherJarFile, classpathFiles).equals(attributes.getValue(java.util.jar.Attributes.Name.CLASS_PATH));
+                    }
+                    if (result)
+                    {
+                        String index = null;
+                        java.util.jar.JarEntry entry;
+                        while (index == null && (entry = jarStream.getNextJarEntry()) != null)
+                        {
+                            if (entry.getName().equals(indexEntryName))
+                            {
+                                final java.io.ByteArrayOutputStream indexBytes = new java.io.ByteArrayOutputStream();
+                                final byte[] buffer = new byte[JarStore.streamBufferSize];
+                                int bytesRead;
+                                while ((bytesRead = jarStream.read(buffer)) != -1)
+                                {
+                                    indexBytes.write(buffer, 0, bytesRead);
+                                }
+                                index = new String(indexBytes.toByteArray(), java.nio.charset.StandardCharsets.UTF_8);
+                            }
+                        }
+                        result = getIndex(launcherJarFile, classpathFiles).await().equals(index);
+                    }
+                }
+                catch (java.io.IOException e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }
+            return result;
+        });
+    }
+
+    public static Result<Iterable<String>> getPackageFolders(File jarFile)
+    {
+        PreCondition.assertNotNull(jarFile, "jarFile");
+
+        return Result.create(() ->
+        {
+            final java.util.TreeSet<String> packageFolders = new java.util.TreeSet<>();
+            for (final String entryName : getEntryNames(jarFile).await())
+            {
+                if (!entryName.startsWith("META-INF/"))
+                {
+                    final int lastSlashIndex = entryName.lastIndexOf('/');
+                    if (lastSlashIndex == -1)
+                    {
+                        packageFolders.add(entryName);
+                    }
+                    else if (lastSlashIndex > 0)
+                    {
+                        packageFolders.add(entryName.substring(0, lastSlashIndex));
+                    }
+                }
+            }
+            return Iterable.create(packageFolders.toArray(new String[0]));
+        });
+    }
+
+    public static Result<Iterable<String>> getEntryNames(File jarFile)
+    {
+        PreCondition.assertNotNull(jarFile, "jarFile");
+
+        return Result.create(() ->
+        {
+            final List<String> result = List.create();
+            try
+            {
+                if (CountingFileSystem.getInnerFileSystem(jarFile.getFileSystem()) instanceof JavaFileSystem)
+                {
+                    try (final java.util.zip.ZipFile zipFile = new java.util.zip.ZipFile(jarFile.toString()))
+                    {
+                        final java.util.Enumeration<? extends java.util.zip.ZipEntry> entries = zipFile.entries();
+                        while (entries.hasMoreElements())
+                        {
+                            result.add(entries.nextElement().getName());
+                        }
+                    }
+                }
+                else
+                {
+                    try (final java.util.zip.ZipInputStream zipStream = new java.util.zip.ZipInputStream(new java.io.ByteArrayInputStream(jarFile.getContents().await())))
+                    {
+                        java.util.zip.ZipEntry entry;
+                        while ((entry = zipStream.getNextEntry()) != null)
+                        {
+                            result.add(entry.getName());
+                        }
+                    }
+                }
+            }
+            catch (java.io.IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+            return result;
+        });
+    }
+
+    // The JarIndex that lists the packages in each classpath jar, so a JVM before JDK 18 only opens the
+    // jar that has a class's package. JDK 18 and later ignore the index.
+    public static Result<String> getIndex(File launcherJarFile, Iterable<File> classpathFiles)
+    {
+        PreCondition.assertNotNull(launcherJarFile, "launcherJarFile");
+        PreCondition.assertNotNull(classpathFiles, "classpathFiles");
+
+        return Result.create(() ->
+        {
+            final Folder launcherFolder = launcherJarFile.getParentFolder().await();
+
+            final StringBuilder result = new StringBuilder();
+            result.append("JarIndex-Version: 1.0\n\n");
+            result.append(launcherJarFile.getName()).append("\n\n");
+            for (final File classpathFile : classpathFiles)
+            {
+                result.append(getClassPathEntry(launcherFolder, classpathFile)).append('\n');
+                for (final String packageFolder : getPackageFolders(classpathFile).await())
+                {
+                    result.append(packageFolder).append('\n');
+                }
+                result.append('\n');
+            }
+            return result.toString();
+        });
+    }
+
+    public static Result<Void> create(File launcherJarFile, String mainClass, Iterable<File> classpathFiles)
+    {
+        PreCondition.assertNotNull(launcherJarFile, "launcherJarFile");
+        PreCondition.assertNotNullAndNotEmpty(mainClass, "mainClass");
+        PreCondition.assertNotNull(classpathFiles, "classpathFiles");
+
+        return getContents(launcherJarFile, mainClass, classpathFiles)
+            .then((byte[] contents) -> launcherJarFile.setContents(contents).await());
+    }
+
+    // The bytes of a launcher jar at launcherJarFile's location, so that a caller can choose how to
+    // write them.
+    public static Result<byte[]> getContents(File launcherJarFile, String mainClass, Iterable<File> classpathFiles)
+    {
+        PreCondition.assertNotNull(launcherJarFile, "launcherJarFile");
+        PreCondition.assertNotNullAndNotEmpty(mainClass, "mainClass");
+        PreCondition.assertNotNull(classpathFiles, "classpathFiles");
+
+        return Result.create(() ->
+        {
+            final String index = getIndex(launcherJarFile, classpathFiles).await();
+
+            final java.util.jar.Manifest manifest = new java.util.jar.Manifest();
+            final java.util.jar.Attributes attributes = manifest.getMainAttributes();
+            attributes.put(java.util.jar.Attributes.Name.MANIFEST_VERSION, "1.0");
+            attributes.put(java.util.jar.Attributes.Name.MAIN_CLASS, mainClass);
+            attributes.put(java.util.jar.Attributes.Name.CLASS_PATH, getClassPath(launcherJarFile, classpathFiles));
+
+            final java.io.ByteArrayOutputStream jarBytes = new java.io.ByteArrayOutputStream();
+            try (final java.util.jar.JarOutputStream jarStream = new java.util.jar.JarOutputStream(jarBytes, manifest))
+            {
+                jarStream.putNextEntry(new java.util.jar.JarEntry(indexEntryName));
+                jarStream.write(index.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                jarStream.closeEntry();
+            }
+            catch (java.io.IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+
+            return jarBytes.toByteArray();
+        });
+    }
+}
@@ -0,0 +1,9 @@
+package qub;
+
+public enum LogLevel
+{
+    Verbose,
+    Info,
+    Warning,
+    Error
+}
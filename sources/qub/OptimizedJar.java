@@ -0,0 +1,42 @@
+package qub;
+
+public class OptimizedJar
+{
+    private final File file;
+    private final long originalSize;
+    private final long size;
+    private final Iterable<String> strippedEntryNames;
+
+    public OptimizedJar(File file, long originalSize, long size, Iterable<String> strippedEntryNames)
+    {
+        PreCondition.assertNotNull(file, "file");
+        PreCondition.assertGreaterThanOrEqualTo(originalSize, 0L, "originalSize");
+        PreCondition.assertGreaterThanOrEqualTo(size, 0L, "size");
+        PreCondition.assertNotNull(strippedEntryNames, "strippedEntryNames");
+
+        this.file = file;
+        this.originalSize = originalSize;
+        this.size = size;
+        this.strippedEntryNames = strippedEntryNames;
+    }
+
+    public File getFile()
+    {
+        return file;
+    }
+
+    public long getOriginalSize()
+    {
+        return originalSize;
+    }
+
+    public long getSize()
+    {
+        return size;
+    }
+
+    public Iterable<String> getStrippedEntryNames()
+    {
+        return strippedEntryNames;
+    }
+}
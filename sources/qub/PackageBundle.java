@@ -0,0 +1,507 @@
+package qub;
+
+public class PackageBundle
+{
+    public static final String fileExtension = ".qubbundle";
+    public static final String manifestEntryName = "bundle.manifest";
+    // Entries up to this size are read into memory and written by the write threads. Larger entries
+    // are written to disk as they're read, so that importing large jars doesn't use much memory.
+    public static final long maximumBufferedEntrySize = 16L * JarStore.streamBufferSize;
+
+    PackageBundle()
+    {
+    }
+
+    public static Result<Iterable<PackageSignature>> getPackagesToExport(DependencyClosureResolver resolver, Iterable<PackageSignature> packages)
+    {
+        PreCondition.assertNotNull(resolver, "resolver");
+        PreCondition.assertNotNull(packages, "packages");
+
+        return Result.create(() ->
+        {
+            final java.util.LinkedHashSet<PackageSignature> result = new java.util.LinkedHashSet<>();
+            for (final PackageSignature signature : packages)
+            {
+                result.add(signature);
+                for (final PackageSignature dependency : resolver.getClosure(signature).await())
+                {
+                    result.add(dependency);
+                }
+            }
+            return Iterable.create(result.toArray(new PackageSignature[0]));
+        });
+    }
+
+    public static boolean isExported(File file)
+    {
+        PreCondition.assertNotNull(file, "file");
+
+        // Class data sharing archives only work with the JVM that wrote them, so -cds recreates them instead.
+        final String fileName = file.getName();
+        return !fileName.endsWith(CdsArchive.archiveFileExtension) &&
+            !fileName.endsWith(CdsArchive.fingerprintFileExtension) &&
+            !fileName.endsWith(PackageLock.fileExtension);
+    }
+
+    public static Result<Iterable<PackageBundleEntry>> getEntries(Folder qubFolder, Iterable<PackageSignature> packages)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNull(packages, "packages");
+
+        return Result.create(() ->
+        {
+            final List<PackageBundleEntry> result = List.create();
+            for (final PackageSignature signature : packages)
+            {
+                final Folder versionFolder = signature.getVersionFolder(qubFolder);
+                if (!versionFolder.exists().await())
+                {
+                    throw new IllegalArgumentException("The package " + signature.toString() + " isn't installed.");
+                }
+                for (final File file : versionFolder.getFilesRecursively().await())
+                {
+                    if (isExported(file))
+                    {
+                        result.add(new PackageBundleEntry(signature, file.relativeTo(versionFolder).toString(), JarStore.getSize(file), ContentHash.sha256(file).await()));
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    // The manifest is the first entry in the bundle, so an import knows every file and its hash
+    // before it reads any of them.
+    public static Result<Long> export(Folder qubFolder, Iterable<PackageSignature> packages, File bundleFile)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNull(packages, "packages");
+        PreCondition.assertNotNull(bundleFile, "bundleFile");
+
+        return Result.create(() ->
+        {
+            final Iterable<PackageBundleEntry> entries = getEntries(qubFolder, packages).await();
+            final StringBuilder manifest = new StringBuilder();
+            long result = 0;
+            for (final PackageBundleEntry entry : entries)
+            {
+                manifest.append(entry.toString()).append('\n');
+                result += entry.getSize();
+            }
+
+            try (final java.util.zip.ZipOutputStream zipOutput = new java.util.zip.ZipOutputStream(openOutputStream(bundleFile)))
+            {
+                zipOutput.putNextEntry(new java.util.zip.ZipEntry(manifestEntryName));
+                zipOutput.write(manifest.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                zipOutput.closeEntry();
+
+                for (final PackageBundleEntry entry : entries)
+                {
+                    final File file = entry.getSignature().getVersionFolder(qubFolder).getFile(entry.getPath()).await();
+                    zipOutput.putNextEntry(new java.util.zip.ZipEntry(entry.getEntryName()));
+                    if (isLocal(file.getFileSystem()))
+                    {
+                        java.nio.file.Files.copy(java.nio.file.Paths.get(file.toString()), zipOutput);
+                    }
+                    else
+                    {
+                        zipOutput.write(file.getContents().await());
+                    }
+                    zipOutput.closeEntry();
+                }
+            }
+            catch (java.io.IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+            return result;
+        });
+    }
+
+    // Packages are read from the bundle one entry at a time and written to staging folders by
+    // parallelism threads. Each package's staging folder is only moved into place once every one of its
+    // files has been written and matched its hash, and then the package index and shortcuts are
+    // updated once for every imported package.
+    public static Result<PackageBundleImport> extract(Folder qubFolder, File bundleFile, int parallelism)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNull(bundleFile, "bundleFile");
+        PreCondition.assertGreaterThanOrEqualTo(parallelism, 1, "parallelism");
+
+        return Result.create(() ->
+        {
+            final PackageBundleImport result = new PackageBundleImport();
+            final java.util.LinkedHashMap<PackageSignature,Folder> stagingFolders = new java.util.LinkedHashMap<>();
+            final java.util.HashMap<PackageSignature,java.util.List<java.util.concurrent.Future<?>>> writes = new java.util.HashMap<>();
+            final java.util.HashMap<PackageSignature,String> failures = new java.util.HashMap<>();
+            final java.util.HashSet<PackageSignature> committed = new java.util.HashSet<>();
+            final java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(parallelism);
+            // Every queued write holds its entry's contents, so the reader waits for a write to finish
+            // before it reads more than this many entries ahead. Together with maximumBufferedEntrySize,
+            // this bounds how many bytes are held in memory.
+            final java.util.concurrent.Semaphore pendingWrites = new java.util.concurrent.Semaphore(parallelism * 2);
+            try
+            {
+                try (final java.util.zip.ZipInputStream zipInput = new java.util.zip.ZipInputStream(openInputStream(bundleFile)))
+                {
+                    java.util.zip.ZipEntry zipEntry = zipInput.getNextEntry();
+                    if (zipEntry == null || !zipEntry.getName().equals(manifestEntryName))
+                    {
+                        throw new IllegalArgumentException(bundleFile.toString() + " isn't a package bundle.");
+                    }
+
+                    final java.util.LinkedHashMap<String,PackageBundleEntry> manifest = new java.util.LinkedHashMap<>();
+                    for (final String line : Strings.getLines(new String(readEntry(zipInput, Long.MAX_VALUE), java.nio.charset.StandardCharsets.UTF_8)))
+                    {
+                        if (!Strings.isNullOrEmpty(line))
+                        {
+                            final PackageBundleEntry entry = PackageBundleEntry.parse(line).await();
+                            manifest.put(entry.getEntryName(), entry);
+                        }
+                    }
+
+                    for (final PackageBundleEntry entry : manifest.values())
+                    {
+                        final PackageSignature signature = entry.getSignature();
+                        if (!stagingFolders.containsKey(signature) && !result.getSkipped().contains(signature))
+                        {
+                            final Folder versionFolder = signature.getVersionFolder(qubFolder);
+                            if (versionFolder.exists().await())
+                            {
+                                result.addSkipped(signature);
+                            }
+                            else
+                            {
+                                stagingFolders.put(signature, AtomicFiles.getStagingFolder(versionFolder));
+                                writes.put(signature, new java.util.ArrayList<>());
+                            }
+                        }
+                    }
+
+                    zipEntry = zipInput.getNextEntry();
+                    while (zipEntry != null)
+                    {
+                        final PackageBundleEntry entry = manifest.remove(zipEntry.getName());
+                        if (entry == null)
+                        {
+                            throw new IllegalArgumentException(bundleFile.toString() + " contains " + zipEntry.getName() + ", which isn't in its manifest.");
+                        }
+                        final Folder stagingFolder = stagingFolders.get(entry.getSignature());
+                        if (stagingFolder != null)
+                        {
+                            final File stagedFile = stagingFolder.getFile(entry.getPath()).await();
+                            if (!stagedFile.toString().startsWith(stagingFolder.toString() + "/"))
+                            {
+                                throw new IllegalArgumentException(bundleFile.toString() + " contains " + zipEntry.getName() + ", which is outside of its package's folder.");
+                            }
+                        }
+                        if (stagingFolder != null && entry.getSize() > maximumBufferedEntrySize && isLocal(stagingFolder.getFileSystem()))
+                        {
+                            try
+                            {
+                                streamEntry(zipInput, stagingFolder.getFile(entry.getPath()).await(), entry);
+                            }
+                            catch (IllegalStateException e)
+                            {
+                                failures.putIfAbsent(entry.getSignature(), e.getMessage());
+                            }
+                        }
+                        else if (stagingFolder != null)
+                        {
+                            final File stagedFile = stagingFolder.getFile(entry.getPath()).await();
+                            // A manifest size that is too small is caught by the size check below, so at
+                            // most one byte more than the manifest says is ever read into memory.
+                            final byte[] contents = readEntry(zipInput, entry.getSize() + 1);
+                            pendingWrites.acquire();
+                            try
+                            {
+                                writes.get(entry.getSignature()).add(executor.submit(() ->
+                                {
+                                    try
+                                    {
+                                        if (contents.length != entry.getSize() || !ContentHash.sha256(contents).equals(entry.getHash()))
+                                        {
+                                            throw new IllegalStateException("The contents of " + entry.getEntryName() + " don't match the bundle manifest.");
+                                        }
+                                        stagedFile.setContents(contents).await();
+                                    }
+                                    finally
+                                    {
+                                        pendingWrites.release();
+                                    }
+                                }));
+                            }
+                            catch (java.util.concurrent.RejectedExecutionException e)
+                            {
+                                pendingWrites.release();
+                                throw e;
+                            }
+                        }
+                        zipEntry = zipInput.getNextEntry();
+                    }
+
+                    for (final PackageBundleEntry missingEntry : manifest.values())
+                    {
+                        if (stagingFolders.containsKey(missingEntry.getSignature()))
+                        {
+                            failures.putIfAbsent(missingEntry.getSignature(), missingEntry.getEntryName() + " is in the bundle manifest, but not in the bundle.");
+                        }
+                    }
+                }
+                catch (java.io.IOException | InterruptedException e)
+                {
+                    throw new RuntimeException(e);
+                }
+
+                final List<PackageIndexEntry> indexEntries = List.create();
+                for (final java.util.Map.Entry<PackageSignature,Folder> stagingEntry : stagingFolders.entrySet())
+                {
+                    final PackageSignature signature = stagingEntry.getKey();
+                    final Folder stagingFolder = stagingEntry.getValue();
+                    for (final java.util.concurrent.Future<?> write : writes.get(signature))
+                    {
+                        try
+                        {
+                            write.get();
+                        }
+                        catch (java.util.concurrent.ExecutionException e)
+                        {
+                            failures.putIfAbsent(signature, e.getCause().getMessage());
+                        }
+                        catch (InterruptedException e)
+                        {
+                            throw new RuntimeException(e);
+                        }
+                    }
+
+                    if (failures.containsKey(signature))
+                    {
+                        result.addError("Couldn't import " + signature.toString() + ": " + failures.get(signature));
+                    }
+                    else
+                    {
+                        if (commit(qubFolder, signature, stagingFolder, indexEntries))
+                        {
+                            committed.add(signature);
+                            result.addImported(signature);
+                        }
+                        else
+                        {
+                            // Another install or import finished this package first.
+                            result.addSkipped(signature);
+                        }
+                    }
+                }
+
+                if (indexEntries.any())
+                {
+                    PackageIndex.update(qubFolder, (PackageIndex packageIndex) ->
+                    {
+                        for (final PackageIndexEntry indexEntry : indexEntries)
+                        {
+                            packageIndex.set(indexEntry);
+                        }
+                    }).await();
+                }
+
+                writeShortcuts(qubFolder, result);
+            }
+            finally
+            {
+                executor.shutdownNow();
+                try
+                {
+                    executor.awaitTermination(1, java.util.concurrent.TimeUnit.MINUTES);
+                }
+                catch (InterruptedException ignored)
+                {
+                }
+                for (final java.util.Map.Entry<PackageSignature,Folder> stagingEntry : stagingFolders.entrySet())
+                {
+                    if (!committed.contains(stagingEntry.getKey()) && stagingEntry.getValue().exists().await())
+                    {
+                        AtomicFiles.deleteFolder(stagingEntry.getValue()).catchError().await();
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    private static boolean commit(Folder qubFolder, PackageSignature signature, Folder stagingFolder, List<PackageIndexEntry> indexEntries)
+    {
+        final Folder versionFolder = signature.getVersionFolder(qubFolder);
+        final File stagedJarFile = stagingFolder.getFile(signature.getProject() + ".jar").await();
+        boolean result = false;
+        try (final PackageLock lock = PackageLock.acquire(PackageLock.getLockFile(versionFolder)).await())
+        {
+            if (!versionFolder.exists().await())
+            {
+                if (stagedJarFile.exists().await())
+                {
+                    // Imported jars go through the jar store like installed ones do, so that the
+                    // version folder links to the stored jar.
+                    final JarStore jarStore = new JarStore(qubFolder);
+                    final StoredJar storedJar = jarStore.add(stagedJarFile, ContentHash.sha256(stagedJarFile).await(), PublishMode.Move).await();
+                    if (stagedJarFile.exists().await())
+                    {
+                        stagedJarFile.delete().await();
+                    }
+                    jarStore.link(storedJar, stagedJarFile).await();
+                    indexEntries.add(new PackageIndexEntry(signature.getPublisher(), signature.getProject(), signature.getVersion(), signature.getJarFile(qubFolder).relativeTo(qubFolder).toString(), storedJar.getSize(), storedJar.getHash()));
+                }
+                AtomicFiles.moveFolder(stagingFolder, versionFolder).await();
+                result = true;
+            }
+        }
+        return result;
+    }
+
+    // A bundle usually also contains the dependencies of the packages that it was exported for, and an
+    // installed version of one of them may already own its shortcut. Shortcuts follow the same rule as
+    // relinking: the version that the existing shortcut runs keeps it, and otherwise the highest
+    // installed version gets it. So importing an older version never takes a shortcut from a newer one.
+    private static void writeShortcuts(Folder qubFolder, PackageBundleImport bundleImport)
+    {
+        final java.util.TreeMap<String,java.util.List<PackageShortcut>> shortcuts = new java.util.TreeMap<>();
+        for (final PackageSignature signature : bundleImport.getImported())
+        {
+            final PackageShortcut shortcut = PackageShortcut.create(qubFolder, signature).await();
+            if (shortcut != null)
+            {
+                shortcuts.computeIfAbsent(shortcut.getFile().toString(), (String shortcutPath) -> new java.util.ArrayList<>()).add(shortcut);
+            }
+        }
+
+        if (!shortcuts.isEmpty())
+        {
+            final java.util.HashSet<String> importedProjectKeys = new java.util.HashSet<>();
+            for (final PackageSignature signature : bundleImport.getImported())
+            {
+                importedProjectKeys.add(signature.getProjectKey());
+            }
+            for (final PackageSignature signature : InstalledPackages.getAll(qubFolder).await())
+            {
+                if (importedProjectKeys.contains(signature.getProjectKey()) && !bundleImport.getImported().contains(signature))
+                {
+                    addShortcutCandidate(qubFolder, signature, shortcuts);
+                }
+            }
+            for (final java.util.List<PackageShortcut> candidates : shortcuts.values())
+            {
+                // The existing shortcut may run a different project that has the same shortcut name.
+                final File shortcutFile = candidates.get(0).getFile();
+                if (shortcutFile.exists().await())
+                {
+                    final PackageSignature existingOwner = GarbageCollector.getShortcutPackage(shortcutFile.getContentsAsString().await());
+                    if (existingOwner != null && !importedProjectKeys.contains(existingOwner.getProjectKey()) &&
+                        existingOwner.getVersionFolder(qubFolder).exists().await())
+                    {
+                        addShortcutCandidate(qubFolder, existingOwner, shortcuts);
+                    }
+                }
+            }
+
+            for (final java.util.List<PackageShortcut> candidates : shortcuts.values())
+            {
+                final PackageShortcut owner = ShortcutRelinker.getOwner(qubFolder, candidates).await();
+                if (bundleImport.getImported().contains(owner.getSignature()))
+                {
+                    AtomicFiles.setContentsAsString(owner.getFile(), owner.getContents()).await();
+                    bundleImport.addShortcutFile(owner.getFile());
+                }
+            }
+        }
+    }
+
+    private static void addShortcutCandidate(Folder qubFolder, PackageSignature signature, java.util.TreeMap<String,java.util.List<PackageShortcut>> shortcuts)
+    {
+        final PackageShortcut shortcut = PackageShortcut.create(qubFolder, signature)
+            .catchError()
+            .await();
+        if (shortcut != null)
+        {
+            final java.util.List<PackageShortcut> candidates = shortcuts.get(shortcut.getFile().toString());
+            if (candidates != null)
+            {
+                candidates.add(shortcut);
+            }
+        }
+    }
+
+    // Reads at most maximumSize bytes of the current entry.
+    private static byte[] readEntry(java.util.zip.ZipInputStream zipInput, long maximumSize) throws java.io.IOException
+    {
+        final java.io.ByteArrayOutputStream result = new java.io.ByteArrayOutputStream();
+        final byte[] buffer = new byte[JarStore.streamBufferSize];
+        long remaining = maximumSize;
+        int bytesRead = zipInput.read(buffer, 0, (int)java.lang.Math.min(buffer.length, remaining));
+        while (bytesRead > 0)
+        {
+            result.write(buffer, 0, bytesRead);
+            remaining -= bytesRead;
+            bytesRead = remaining == 0 ? -1 : zipInput.read(buffer, 0, (int)java.lang.Math.min(buffer.length, remaining));
+        }
+        return result.toByteArray();
+    }
+
+    // Writes the current entry to stagedFile as it's read, and checks its size and hash against the
+    // manifest once it's written.
+    private static void streamEntry(java.util.zip.ZipInputStream zipInput, File stagedFile, PackageBundleEntry entry) throws java.io.IOException
+    {
+        final java.nio.file.Path stagedPath = java.nio.file.Paths.get(stagedFile.toString());
+        java.nio.file.Files.createDirectories(stagedPath.getParent());
+        final java.security.MessageDigest digest = ContentHash.createDigest();
+        long size = 0;
+        try (final java.io.OutputStream stagedStream = java.nio.file.Files.newOutputStream(stagedPath))
+        {
+            final byte[] buffer = new byte[JarStore.streamBufferSize];
+            int bytesRead;
+            while (size <= entry.getSize() && (bytesRead = zipInput.read(buffer)) != -1)
+            {
+                digest.update(buffer, 0, bytesRead);
+                stagedStream.write(buffer, 0, bytesRead);
+                size += bytesRead;
+            }
+        }
+        if (size != entry.getSize() || !ContentHash.toHexString(digest.digest()).equals(entry.getHash()))
+        {
+            throw new IllegalStateException("The contents of " + entry.getEntryName() + " don't match the bundle manifest.");
+        }
+    }
+
+    private static java.io.InputStream openInputStream(File file) throws java.io.IOException
+    {
+        return isLocal(file.getFileSystem())
+            ? new java.io.BufferedInputStream(java.nio.file.Files.newInputStream(java.nio.file.Paths.get(file.toString())), JarStore.streamBufferSize)
+            : new java.io.ByteArrayInputStream(file.getContents().await());
+    }
+
+    private static java.io.OutputStream openOutputStream(File file) throws java.io.IOException
+    {
+        java.io.OutputStream result;
+        if (isLocal(file.getFileSystem()))
+        {
+            final java.nio.file.Path path = java.nio.file.Paths.get(file.toString());
+            java.nio.file.Files.createDirectories(path.getParent());
+            result = new java.io.BufferedOutputStream(java.nio.file.Files.newOutputStream(path), JarStore.streamBufferSize);
+        }
+        else
+        {
+            result = new java.io.ByteArrayOutputStream()
+            {
+                @Override
+                public void close()
+                {
+                    file.setContents(toByteArray()).await();
+                }
+            };
+        }
+        return result;
+    }
+
+    private static boolean isLocal(FileSystem fileSystem)
+    {
+        return CountingFileSystem.getInnerFileSystem(fileSystem) instanceof JavaFileSystem;
+    }
+}
@@ -0,0 +1,107 @@
+package qub;
+
+public class PackageBundleEntry
+{
+    private final PackageSignature signature;
+    private final String path;
+    private final long size;
+    private final String hash;
+
+    public PackageBundleEntry(PackageSignature signature, String path, long size, String hash)
+    {
+        PreCondition.assertNotNull(signature, "signature");
+        PreCondition.assertNotNullAndNotEmpty(path, "path");
+        PreCondition.assertGreaterThanOrEqualTo(size, 0, "size");
+        PreCondition.assertNotNullAndNotEmpty(hash, "hash");
+
+        this.signature = signature;
+        this.path = path;
+        this.size = size;
+        this.hash = hash;
+    }
+
+    public static Result<PackageBundleEntry> parse(String line)
+    {
+        PreCondition.assertNotNull(line, "line");
+
+        return Result.create(() ->
+        {
+            final String[] parts = line.split("\t");
+            if (parts.length != 4)
+            {
+                throw new IllegalArgumentException("Expected 4 tab-separated values in bundle manifest line " + Strings.escapeAndQuote(line) + ".");
+            }
+            // The manifest comes from the bundle, so nothing in it may name a file outside of its package's
+            // version folder.
+            final PackageSignature signature = PackageSignature.parse(parts[0]).await();
+            if (!isPathSegment(signature.getPublisher()) || !isPathSegment(signature.getProject()) || !isPathSegment(signature.getVersion()))
+            {
+                throw new IllegalArgumentException("The package signature " + Strings.escapeAndQuote(parts[0]) + " in bundle manifest line " + Strings.escapeAndQuote(line) + " isn't allowed.");
+            }
+            if (!isRelativePath(parts[1]))
+            {
+                throw new IllegalArgumentException("The path " + Strings.escapeAndQuote(parts[1]) + " in bundle manifest line " + Strings.escapeAndQuote(line) + " isn't allowed.");
+            }
+            return new PackageBundleEntry(signature, parts[1], java.lang.Long.parseLong(parts[2]), parts[3]);
+        });
+    }
+
+    private static boolean isPathSegment(String text)
+    {
+        return !text.isEmpty() &&
+            !text.equals(".") &&
+            !text.equals("..") &&
+            text.indexOf('/') == -1 &&
+            text.indexOf('\\') == -1 &&
+            text.indexOf(':') == -1;
+    }
+
+    private static boolean isRelativePath(String text)
+    {
+        boolean result = !text.isEmpty();
+        if (result)
+        {
+            for (final String segment : text.split("/", -1))
+            {
+                if (!isPathSegment(segment))
+                {
+                    result = false;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    public PackageSignature getSignature()
+    {
+        return signature;
+    }
+
+    // The path of this file relative to its package's version folder.
+    public String getPath()
+    {
+        return path;
+    }
+
+    public long getSize()
+    {
+        return size;
+    }
+
+    public String getHash()
+    {
+        return hash;
+    }
+
+    public String getEntryName()
+    {
+        return signature.getPublisher() + "/" + signature.getProject() + "/" + signature.getVersion() + "/" + path;
+    }
+
+    @Override
+    public String toString()
+    {
+        return signature.toString() + "\t" + path + "\t" + size + "\t" + hash;
+    }
+}
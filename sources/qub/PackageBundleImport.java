@@ -0,0 +1,65 @@
+package qub;
+
+public class PackageBundleImport
+{
+    private final List<PackageSignature> imported;
+    private final List<PackageSignature> skipped;
+    private final List<String> errors;
+    private final List<File> shortcutFiles;
+
+    public PackageBundleImport()
+    {
+        this.imported = List.create();
+        this.skipped = List.create();
+        this.errors = List.create();
+        this.shortcutFiles = List.create();
+    }
+
+    public Iterable<PackageSignature> getImported()
+    {
+        return imported;
+    }
+
+    public void addImported(PackageSignature signature)
+    {
+        PreCondition.assertNotNull(signature, "signature");
+
+        imported.add(signature);
+    }
+
+    public Iterable<PackageSignature> getSkipped()
+    {
+        return skipped;
+    }
+
+    public void addSkipped(PackageSignature signature)
+    {
+        PreCondition.assertNotNull(signature, "signature");
+
+        skipped.add(signature);
+    }
+
+    public Iterable<String> getErrors()
+    {
+        return errors;
+    }
+
+    public void addError(String error)
+    {
+        PreCondition.assertNotNullAndNotEmpty(error, "error");
+
+        errors.add(error);
+    }
+
+    public Iterable<File> getShortcutFiles()
+    {
+        return shortcutFiles;
+    }
+
+    public void addShortcutFile(File shortcutFile)
+    {
+        PreCondition.assertNotNull(shortcutFile, "shortcutFile");
+
+        shortcutFiles.add(shortcutFile);
+    }
+}
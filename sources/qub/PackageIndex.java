@@ -0,0 +1,108 @@
+package qub;
+
+public class PackageIndex
+{
+    public static final String fileName = "packages.index";
+
+    private final File indexFile;
+    private final java.util.TreeMap<String,PackageIndexEntry> entries;
+    private final List<String> skippedLines;
+
+    private PackageIndex(File indexFile)
+    {
+        this.indexFile = indexFile;
+        this.entries = new java.util.TreeMap<>();
+        this.skippedLines = List.create();
+    }
+
+    public static Result<PackageIndex> load(Folder qubFolder)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+
+        return Result.create(() ->
+        {
+            final PackageIndex result = new PackageIndex(qubFolder.getFile(fileName).await());
+            if (result.indexFile.exists().await())
+            {
+                for (final String line : Strings.getLines(result.indexFile.getContentsAsString().await()))
+                {
+                    if (!Strings.isNullOrEmpty(line))
+                    {
+                        // One damaged line shouldn't hide every other installed package. The next save drops it.
+                        final PackageIndexEntry entry = PackageIndexEntry.parse(line)
+                            .catchError((Throwable e) ->
+                            {
+                                result.skippedLines.add("Skipped a line of " + result.indexFile.toString() + " that couldn't be parsed: " + e.getMessage());
+                            })
+                            .await();
+                        if (entry != null)
+                        {
+                            result.set(entry);
+                        }
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    public static Result<PackageIndex> update(Folder qubFolder, Action1<PackageIndex> action)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNull(action, "action");
+
+        return Result.create(() ->
+        {
+            final File indexFile = qubFolder.getFile(fileName).await();
+            try (final PackageLock lock = PackageLock.acquire(PackageLock.getLockFile(indexFile)).await())
+            {
+                final PackageIndex result = load(qubFolder).await();
+                action.run(result);
+                result.save().await();
+                return result;
+            }
+        });
+    }
+
+    public File getIndexFile()
+    {
+        return indexFile;
+    }
+
+    public Iterable<String> getSkippedLines()
+    {
+        return skippedLines;
+    }
+
+    public PackageIndexEntry get(String publisher, String project, String version)
+    {
+        return entries.get(PackageIndexEntry.getKey(publisher, project, version));
+    }
+
+    public void set(PackageIndexEntry entry)
+    {
+        PreCondition.assertNotNull(entry, "entry");
+
+        entries.put(entry.getKey(), entry);
+    }
+
+    public void remove(String publisher, String project, String version)
+    {
+        entries.remove(PackageIndexEntry.getKey(publisher, project, version));
+    }
+
+    public Iterable<PackageIndexEntry> getEntries()
+    {
+        return Iterable.create(entries.values().toArray(new PackageIndexEntry[0]));
+    }
+
+    public Result<Void> save()
+    {
+        final StringBuilder builder = new StringBuilder();
+        for (final PackageIndexEntry entry : entries.values())
+        {
+            builder.append(entry.toString()).append('\n');
+        }
+        return AtomicFiles.setContentsAsString(indexFile, builder.toString());
+    }
+}
@@ -0,0 +1,121 @@
+package qub;
+
+public class PackageIndexEntry
+{
+    private final String publisher;
+    private final String project;
+    private final String version;
+    private final String jarPath;
+    private final long jarSize;
+    private final String jarHash;
+
+    public PackageIndexEntry(String publisher, String project, String version, String jarPath, long jarSize, String jarHash)
+    {
+        PreCondition.assertNotNullAndNotEmpty(publisher, "publisher");
+        PreCondition.assertNotNullAndNotEmpty(project, "project");
+        PreCondition.assertNotNullAndNotEmpty(version, "version");
+        PreCondition.assertNotNullAndNotEmpty(jarPath, "jarPath");
+        PreCondition.assertGreaterThanOrEqualTo(jarSize, 0, "jarSize");
+        PreCondition.assertNotNullAndNotEmpty(jarHash, "jarHash");
+
+        this.publisher = publisher;
+        this.project = project;
+        this.version = version;
+        this.jarPath = jarPath;
+        this.jarSize = jarSize;
+        this.jarHash = jarHash;
+    }
+
+    public static Result<PackageIndexEntry> create(Folder qubFolder, String publisher, String project, String version, File jarFile)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNull(jarFile, "jarFile");
+
+        return ContentHash.sha256(jarFile)
+            .then((String jarHash) -> new PackageIndexEntry(
+                publisher,
+                project,
+                version,
+                jarFile.relativeTo(qubFolder).toString(),
+                JarStore.getSize(jarFile),
+                jarHash));
+    }
+
+    public static Result<PackageIndexEntry> parse(String line)
+    {
+        PreCondition.assertNotNull(line, "line");
+
+        return Result.create(() ->
+        {
+            final String[] parts = line.split("\t");
+            if (parts.length != 4)
+            {
+                throw new IllegalArgumentException("Expected 4 tab-separated values in package index line " + Strings.escapeAndQuote(line) + ".");
+            }
+
+            final String[] signatureParts = parts[0].split("/");
+            if (signatureParts.length != 3)
+            {
+                throw new IllegalArgumentException("Expected a <publisher>/<project>/<version> key in package index line " + Strings.escapeAndQuote(line) + ".");
+            }
+
+            final long jarSize;
+            try
+            {
+                jarSize = java.lang.Long.parseLong(parts[2]);
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IllegalArgumentException("Expected a jar size in package index line " + Strings.escapeAndQuote(line) + ".");
+            }
+
+            return new PackageIndexEntry(signatureParts[0], signatureParts[1], signatureParts[2], parts[1], jarSize, parts[3]);
+        });
+    }
+
+    public static String getKey(String publisher, String project, String version)
+    {
+        return publisher + "/" + project + "/" + version;
+    }
+
+    public String getKey()
+    {
+        return getKey(publisher, project, version);
+    }
+
+    public String getPublisher()
+    {
+        return publisher;
+    }
+
+    public String getProject()
+    {
+        return project;
+    }
+
+    public String getVersion()
+    {
+        return version;
+    }
+
+    public String getJarPath()
+    {
+        return jarPath;
+    }
+
+    public long getJarSize()
+    {
+        return jarSize;
+    }
+
+    public String getJarHash()
+    {
+        return jarHash;
+    }
+
+    @Override
+    public String toString()
+    {
+        return getKey() + "\t" + jarPath + "\t" + jarSize + "\t" + jarHash;
+    }
+}
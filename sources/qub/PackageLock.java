@@ -0,0 +1,111 @@
+package qub;
+
+public class PackageLock implements java.lang.AutoCloseable
+{
+    public static final String fileExtension = ".lock";
+
+    private static final java.util.concurrent.ConcurrentHashMap<String,java.util.concurrent.locks.ReentrantLock> processLocks = new java.util.concurrent.ConcurrentHashMap<>();
+
+    private final java.util.concurrent.locks.ReentrantLock processLock;
+    private final java.nio.channels.FileChannel lockChannel;
+    private final java.nio.channels.FileLock fileLock;
+
+    private PackageLock(java.util.concurrent.locks.ReentrantLock processLock, java.nio.channels.FileChannel lockChannel, java.nio.channels.FileLock fileLock)
+    {
+        this.processLock = processLock;
+        this.lockChannel = lockChannel;
+        this.fileLock = fileLock;
+    }
+
+    public static File getLockFile(Folder versionFolder)
+    {
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+
+        final File result = versionFolder.getParentFolder().await()
+            .getFile(versionFolder.getName() + fileExtension).await();
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public static File getLockFile(File file)
+    {
+        PreCondition.assertNotNull(file, "file");
+
+        final File result = file.getParentFolder().await()
+            .getFile(file.getName() + fileExtension).await();
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public static Result<PackageLock> acquire(File lockFile)
+    {
+        PreCondition.assertNotNull(lockFile, "lockFile");
+
+        return Result.create(() ->
+        {
+            final java.util.concurrent.locks.ReentrantLock processLock = processLocks.computeIfAbsent(lockFile.toString(), (String lockFilePath) -> new java.util.concurrent.locks.ReentrantLock());
+            processLock.lock();
+
+            java.nio.channels.FileChannel lockChannel = null;
+            java.nio.channels.FileLock fileLock = null;
+            try
+            {
+                if (CountingFileSystem.getInnerFileSystem(lockFile.getFileSystem()) instanceof JavaFileSystem)
+                {
+                    final java.nio.file.Path lockFilePath = java.nio.file.Paths.get(lockFile.toString());
+                    java.nio.file.Files.createDirectories(lockFilePath.getParent());
+                    lockChannel = java.nio.channels.FileChannel.open(lockFilePath,
+                        java.nio.file.StandardOpenOption.CREATE,
+                        java.nio.file.StandardOpenOption.WRITE);
+                    fileLock = lockChannel.lock();
+                }
+            }
+            catch (java.io.IOException e)
+            {
+                closeQuietly(lockChannel);
+                processLock.unlock();
+                throw new RuntimeException(e);
+            }
+
+            return new PackageLock(processLock, lockChannel, fileLock);
+        });
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            if (fileLock != null)
+            {
+                fileLock.release();
+            }
+        }
+        catch (java.io.IOException ignored)
+        {
+        }
+        finally
+        {
+            closeQuietly(lockChannel);
+            processLock.unlock();
+        }
+    }
+
+    private static void closeQuietly(java.nio.channels.FileChannel channel)
+    {
+        if (channel != null)
+        {
+            try
+            {
+                channel.close();
+            }
+            catch (java.io.IOException ignored)
+            {
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package qub;
+
+public class PackageShortcut
+{
+    public static final String fileExtension = ".cmd";
+
+    private final PackageSignature signature;
+    private final File file;
+    private final String contents;
+
+    public PackageShortcut(PackageSignature signature, File file, String contents)
+    {
+        PreCondition.assertNotNull(signature, "signature");
+        PreCondition.assertNotNull(file, "file");
+        PreCondition.assertNotNullAndNotEmpty(contents, "contents");
+
+        this.signature = signature;
+        this.file = file;
+        this.contents = contents;
+    }
+
+    public static String getShortcutName(ProjectJSON projectJson)
+    {
+        PreCondition.assertNotNull(projectJson, "projectJson");
+
+        String result = null;
+        final ProjectJSONJava projectJsonJava = projectJson.getJava();
+        if (projectJsonJava != null && !Strings.isNullOrEmpty(projectJsonJava.getMainClass()))
+        {
+            result = projectJsonJava.getShortcutName();
+            if (Strings.isNullOrEmpty(result))
+            {
+                result = projectJson.getProject();
+            }
+        }
+        return result;
+    }
+
+    public static File getShortcutFile(Folder qubFolder, String shortcutName)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNullAndNotEmpty(shortcutName, "shortcutName");
+
+        final File result = qubFolder.getFile(shortcutName + fileExtension).await();
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public static String getContents(Folder qubFolder, File launcherJarFile, Iterable<String> jvmOptions, File cdsArchiveFile)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNull(launcherJarFile, "launcherJarFile");
+        PreCondition.assertNotNull(jvmOptions, "jvmOptions");
+
+        String javaOptions = "";
+        for (final String jvmOption : jvmOptions)
+        {
+            javaOptions += jvmOption + " ";
+        }
+        if (cdsArchiveFile != null)
+        {
+            javaOptions += "-XX:SharedArchiveFile=%~dp0" + cdsArchiveFile.relativeTo(qubFolder) + " -Xshare:auto ";
+        }
+
+        return
+            "@echo OFF\n" +
+            "java " + javaOptions + "-jar %~dp0" + launcherJarFile.relativeTo(qubFolder) + " %*\n";
+    }
+
+    // Creates the shortcut for a package that is already installed, from the project.json file in its
+    // version folder and the current launch settings. Returns null if the package has no main class.
+    public static Result<PackageShortcut> create(Folder qubFolder, PackageSignature signature)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNull(signature, "signature");
+
+        return Result.create(() ->
+        {
+            PackageShortcut result = null;
+            final Folder versionFolder = signature.getVersionFolder(qubFolder);
+            final File projectJsonFile = versionFolder.getFile("project.json").await();
+            final String shortcutName = getShortcutName(ProjectJSON.parse(projectJsonFile).await());
+            if (shortcutName != null)
+            {
+                final Iterable<String> jvmOptions = LaunchProfile.parse(projectJsonFile).await().getJvmOptions(qubFolder, shortcutName).await();
+                final File cdsArchiveFile = CdsArchive.getArchiveFile(versionFolder, shortcutName);
+                final String contents = getContents(
+                    qubFolder,
+                    LauncherJar.getLauncherJarFile(versionFolder, shortcutName),
+                    jvmOptions,
+                    cdsArchiveFile.exists().await() ? cdsArchiveFile : null);
+                result = new PackageShortcut(signature, getShortcutFile(qubFolder, shortcutName), contents);
+            }
+            return result;
+        });
+    }
+
+    public PackageSignature getSignature()
+    {
+        return signature;
+    }
+
+    public File getFile()
+    {
+        return file;
+    }
+
+    public String getContents()
+    {
+        return contents;
+    }
+}
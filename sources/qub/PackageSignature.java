@@ -0,0 +1,116 @@
+package qub;
+
+public class PackageSignature
+{
+    private final String publisher;
+    private final String project;
+    private final String version;
+
+    public PackageSignature(String publisher, String project, String version)
+    {
+        PreCondition.assertNotNullAndNotEmpty(publisher, "publisher");
+        PreCondition.assertNotNullAndNotEmpty(project, "project");
+        PreCondition.assertNotNullAndNotEmpty(version, "version");
+
+        this.publisher = publisher;
+        this.project = project;
+        this.version = version;
+    }
+
+    public static PackageSignature create(Dependency dependency)
+    {
+        PreCondition.assertNotNull(dependency, "dependency");
+
+        return new PackageSignature(dependency.getPublisher(), dependency.getProject(), dependency.getVersion());
+    }
+
+    public static Result<PackageSignature> parse(String text)
+    {
+        PreCondition.assertNotNull(text, "text");
+
+        return Result.create(() ->
+        {
+            final int slashIndex = text.indexOf('/');
+            final int colonIndex = text.lastIndexOf(':');
+            if (slashIndex <= 0 || colonIndex <= slashIndex + 1 || colonIndex == text.length() - 1)
+            {
+                throw new IllegalArgumentException("Expected a package signature in the format <publisher>/<project>:<version>, but found " + Strings.escapeAndQuote(text) + ".");
+            }
+            return new PackageSignature(
+                text.substring(0, slashIndex),
+                text.substring(slashIndex + 1, colonIndex),
+                text.substring(colonIndex + 1));
+        });
+    }
+
+    public String getPublisher()
+    {
+        return publisher;
+    }
+
+    public String getProject()
+    {
+        return project;
+    }
+
+    public String getVersion()
+    {
+        return version;
+    }
+
+    public String getProjectKey()
+    {
+        return publisher + "/" + project;
+    }
+
+    public Folder getVersionFolder(Folder qubFolder)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+
+        final Folder result = qubFolder
+            .getFolder(publisher).await()
+            .getFolder(project).await()
+            .getFolder(version).await();
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public File getJarFile(Folder qubFolder)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+
+        final File result = getVersionFolder(qubFolder).getFile(project + ".jar").await();
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object rhs)
+    {
+        return rhs instanceof PackageSignature && equals((PackageSignature)rhs);
+    }
+
+    public boolean equals(PackageSignature rhs)
+    {
+        return rhs != null &&
+            publisher.equals(rhs.publisher) &&
+            project.equals(rhs.project) &&
+            version.equals(rhs.version);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return toString().hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return publisher + "/" + project + ":" + version;
+    }
+}
@@ -0,0 +1,233 @@
+package qub;
+
+public class ProjectWatcher implements AutoCloseable
+{
+    public static final long defaultDebounceMilliseconds = 250;
+    public static final long pollMilliseconds = 1000;
+
+    private final Folder projectFolder;
+    private final Function0<Boolean> waitForEvent;
+    private final Action0 closeAction;
+    private final java.util.Set<String> eventPaths;
+    private InstallManifest snapshot;
+
+    public ProjectWatcher(Folder projectFolder, Function0<Boolean> waitForEvent, Action0 closeAction)
+    {
+        this(projectFolder, waitForEvent, closeAction, null);
+    }
+
+    // When eventPaths isn't null, waitForEvent adds the project-relative path of every file or folder
+    // that its events name, and only those paths are hashed again. Otherwise every project file is.
+    ProjectWatcher(Folder projectFolder, Function0<Boolean> waitForEvent, Action0 closeAction, java.util.Set<String> eventPaths)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertNotNull(waitForEvent, "waitForEvent");
+        PreCondition.assertNotNull(closeAction, "closeAction");
+
+        this.projectFolder = projectFolder;
+        this.waitForEvent = waitForEvent;
+        this.closeAction = closeAction;
+        this.eventPaths = eventPaths;
+        this.snapshot = InstallManifest.create(projectFolder);
+    }
+
+    public static Result<ProjectWatcher> create(Folder projectFolder)
+    {
+        return create(projectFolder, defaultDebounceMilliseconds);
+    }
+
+    public static Result<ProjectWatcher> create(Folder projectFolder, long debounceMilliseconds)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertGreaterThanOrEqualTo(debounceMilliseconds, 0, "debounceMilliseconds");
+
+        return Result.create(() ->
+        {
+            ProjectWatcher result;
+            if (!(CountingFileSystem.getInnerFileSystem(projectFolder.getFileSystem()) instanceof JavaFileSystem))
+            {
+                result = new ProjectWatcher(projectFolder,
+                    () ->
+                    {
+                        try
+                        {
+                            Thread.sleep(pollMilliseconds);
+                            return true;
+                        }
+                        catch (InterruptedException e)
+                        {
+                            return false;
+                        }
+                    },
+                    () -> {});
+            }
+            else
+            {
+                final java.nio.file.Path projectPath = java.nio.file.Paths.get(projectFolder.toString());
+                java.nio.file.WatchService watchService = null;
+                try
+                {
+                    watchService = projectPath.getFileSystem().newWatchService();
+                    register(watchService, projectPath);
+                    for (final String folderName : Iterable.create("sources", "tests"))
+                    {
+                        final java.nio.file.Path folderPath = projectPath.resolve(folderName);
+                        if (java.nio.file.Files.isDirectory(folderPath))
+                        {
+                            registerRecursively(watchService, folderPath);
+                        }
+                    }
+                }
+                catch (java.io.IOException e)
+                {
+                    close(watchService);
+                    throw new RuntimeException(e);
+                }
+
+                final java.nio.file.WatchService projectWatchService = watchService;
+                final java.util.Set<String> eventPaths = new java.util.TreeSet<>();
+                result = new ProjectWatcher(projectFolder,
+                    () -> waitForWatchEvents(projectWatchService, projectPath, debounceMilliseconds, eventPaths),
+                    () -> close(projectWatchService),
+                    eventPaths);
+            }
+            return result;
+        });
+    }
+
+    public Folder getProjectFolder()
+    {
+        return projectFolder;
+    }
+
+    public Result<Iterable<String>> waitForChanges()
+    {
+        return Result.create(() ->
+        {
+            Iterable<String> result = null;
+            while (result == null && waitForEvent.run())
+            {
+                final Iterable<String> changedFilePaths;
+                if (eventPaths == null)
+                {
+                    final InstallManifest currentSnapshot = InstallManifest.create(projectFolder);
+                    changedFilePaths = currentSnapshot.getChangedFilePaths(snapshot);
+                    snapshot = currentSnapshot;
+                }
+                else
+                {
+                    // Events under outputs, such as the install's own jar writes, don't name a project
+                    // path, so they're dropped here without hashing anything.
+                    changedFilePaths = snapshot.update(projectFolder, Iterable.create(eventPaths.toArray(new String[0])));
+                    eventPaths.clear();
+                }
+                if (changedFilePaths.any())
+                {
+                    result = changedFilePaths;
+                }
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public void close()
+    {
+        closeAction.run();
+    }
+
+    private static void close(java.nio.file.WatchService watchService)
+    {
+        if (watchService != null)
+        {
+            try
+            {
+                watchService.close();
+            }
+            catch (java.io.IOException ignored)
+            {
+            }
+        }
+    }
+
+    private static boolean waitForWatchEvents(java.nio.file.WatchService watchService, java.nio.file.Path projectPath, long debounceMilliseconds, java.util.Set<String> eventPaths)
+    {
+        boolean result;
+        try
+        {
+            java.nio.file.WatchKey key = watchService.take();
+            while (key != null)
+            {
+                handleWatchEvents(watchService, projectPath, key, eventPaths);
+                key = watchService.poll(debounceMilliseconds, java.util.concurrent.TimeUnit.MILLISECONDS);
+            }
+            result = true;
+        }
+        catch (InterruptedException | java.nio.file.ClosedWatchServiceException e)
+        {
+            result = false;
+        }
+        return result;
+    }
+
+    private static void handleWatchEvents(java.nio.file.WatchService watchService, java.nio.file.Path projectPath, java.nio.file.WatchKey key, java.util.Set<String> eventPaths)
+    {
+        final java.nio.file.Path folderPath = (java.nio.file.Path)key.watchable();
+        for (final java.nio.file.WatchEvent<?> event : key.pollEvents())
+        {
+            if (event.kind() == java.nio.file.StandardWatchEventKinds.OVERFLOW)
+            {
+                // Some events were lost, so every project path is hashed again.
+                eventPaths.add("project.json");
+                eventPaths.add("sources");
+                eventPaths.add("tests");
+            }
+            else
+            {
+                final java.nio.file.Path eventPath = folderPath.resolve((java.nio.file.Path)event.context());
+                eventPaths.add(projectPath.relativize(eventPath).toString().replace('\\', '/'));
+            }
+
+            if (event.kind() == java.nio.file.StandardWatchEventKinds.ENTRY_CREATE)
+            {
+                final java.nio.file.Path createdPath = folderPath.resolve((java.nio.file.Path)event.context());
+                final boolean isWatchedFolder = !folderPath.equals(projectPath) ||
+                    createdPath.getFileName().toString().equals("sources") ||
+                    createdPath.getFileName().toString().equals("tests");
+                if (isWatchedFolder && java.nio.file.Files.isDirectory(createdPath))
+                {
+                    try
+                    {
+                        registerRecursively(watchService, createdPath);
+                    }
+                    catch (java.io.IOException ignored)
+                    {
+                        // The folder was removed again before it could be watched.
+                    }
+                }
+            }
+        }
+        key.reset();
+    }
+
+    private static void registerRecursively(java.nio.file.WatchService watchService, java.nio.file.Path folderPath) throws java.io.IOException
+    {
+        java.nio.file.Files.walkFileTree(folderPath, new java.nio.file.SimpleFileVisitor<java.nio.file.Path>()
+        {
+            @Override
+            public java.nio.file.FileVisitResult preVisitDirectory(java.nio.file.Path directory, java.nio.file.attribute.BasicFileAttributes attributes) throws java.io.IOException
+            {
+                register(watchService, directory);
+                return java.nio.file.FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void register(java.nio.file.WatchService watchService, java.nio.file.Path folderPath) throws java.io.IOException
+    {
+        folderPath.register(watchService,
+            java.nio.file.StandardWatchEventKinds.ENTRY_CREATE,
+            java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY,
+            java.nio.file.StandardWatchEventKinds.ENTRY_DELETE);
+    }
+}
@@ -0,0 +1,8 @@
+package qub;
+
+public enum PublishMode
+{
+    Copy,
+    HardLink,
+    Move
+}
@@ -0,0 +1,79 @@
+package qub;
+
+public class ShortcutRelink
+{
+    private final List<File> shortcutFiles;
+    private final List<File> rewrittenShortcutFiles;
+    private final List<File> rewrittenLauncherJarFiles;
+    private final List<File> removedCdsArchiveFiles;
+    private final List<String> errors;
+
+    public ShortcutRelink()
+    {
+        this.shortcutFiles = List.create();
+        this.rewrittenShortcutFiles = List.create();
+        this.rewrittenLauncherJarFiles = List.create();
+        this.removedCdsArchiveFiles = List.create();
+        this.errors = List.create();
+    }
+
+    public Iterable<File> getShortcutFiles()
+    {
+        return shortcutFiles;
+    }
+
+    public void addShortcutFile(File shortcutFile)
+    {
+        PreCondition.assertNotNull(shortcutFile, "shortcutFile");
+
+        shortcutFiles.add(shortcutFile);
+    }
+
+    public Iterable<File> getRewrittenShortcutFiles()
+    {
+        return rewrittenShortcutFiles;
+    }
+
+    public void addRewrittenShortcutFile(File shortcutFile)
+    {
+        PreCondition.assertNotNull(shortcutFile, "shortcutFile");
+
+        rewrittenShortcutFiles.add(shortcutFile);
+    }
+
+    public Iterable<File> getRewrittenLauncherJarFiles()
+    {
+        return rewrittenLauncherJarFiles;
+    }
+
+    public void addRewrittenLauncherJarFile(File launcherJarFile)
+    {
+        PreCondition.assertNotNull(launcherJarFile, "launcherJarFile");
+
+        rewrittenLauncherJarFiles.add(launcherJarFile);
+    }
+
+    public Iterable<File> getRemovedCdsArchiveFiles()
+    {
+        return removedCdsArchiveFiles;
+    }
+
+    public void addRemovedCdsArchiveFile(File cdsArchiveFile)
+    {
+        PreCondition.assertNotNull(cdsArchiveFile, "cdsArchiveFile");
+
+        removedCdsArchiveFiles.add(cdsArchiveFile);
+    }
+
+    public Iterable<String> getErrors()
+    {
+        return errors;
+    }
+
+    public void addError(String error)
+    {
+        PreCondition.assertNotNullAndNotEmpty(error, "error");
+
+        errors.add(error);
+    }
+}
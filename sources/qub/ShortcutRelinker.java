@@ -0,0 +1,245 @@
+package qub;
+
+public class ShortcutRelinker
+{
+    ShortcutRelinker()
+    {
+    }
+
+    // Regenerates the launcher jar and shortcut of every installed package with a main class, using
+    // parallelism threads that share the resolver's cached dependency closures. Files are only
+    // rewritten when their contents would change, and stale class data sharing archives are removed.
+    public static Result<ShortcutRelink> relink(DependencyClosureResolver resolver, int parallelism)
+    {
+        PreCondition.assertNotNull(resolver, "resolver");
+        PreCondition.assertGreaterThanOrEqualTo(parallelism, 1, "parallelism");
+
+        return Result.create(() ->
+        {
+            final ShortcutRelink result = new ShortcutRelink();
+            final Folder qubFolder = resolver.getQubFolder();
+            final Iterable<PackageSignature> packages = InstalledPackages.getAll(qubFolder).await();
+            final PackageIndex packageIndex = PackageIndex.load(qubFolder).await();
+            final java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(parallelism);
+            try
+            {
+                final java.util.LinkedHashMap<PackageSignature,java.util.concurrent.Future<PackageShortcut>> creates = new java.util.LinkedHashMap<>();
+                for (final PackageSignature signature : packages)
+                {
+                    creates.put(signature, executor.submit(() ->
+                    {
+                        final File cdsArchiveFile = removeStaleCdsArchive(resolver, packageIndex, signature).await();
+                        if (cdsArchiveFile != null)
+                        {
+                            synchronized (result)
+                            {
+                                result.addRemovedCdsArchiveFile(cdsArchiveFile);
+                            }
+                        }
+
+                        final PackageShortcut shortcut = PackageShortcut.create(qubFolder, signature).await();
+                        if (shortcut != null)
+                        {
+                            final File launcherJarFile = relinkLauncherJar(resolver, packageIndex, signature).await();
+                            if (launcherJarFile != null)
+                            {
+                                synchronized (result)
+                                {
+                                    result.addRewrittenLauncherJarFile(launcherJarFile);
+                                }
+                            }
+                        }
+                        return shortcut;
+                    }));
+                }
+
+                // Several installed versions of a project share one shortcut, so only one of them can own it.
+                final java.util.TreeMap<String,java.util.List<PackageShortcut>> shortcuts = new java.util.TreeMap<>();
+                for (final java.util.Map.Entry<PackageSignature,java.util.concurrent.Future<PackageShortcut>> create : creates.entrySet())
+                {
+                    final PackageShortcut shortcut = await(result, create.getKey(), create.getValue());
+                    if (shortcut != null)
+                    {
+                        shortcuts.computeIfAbsent(shortcut.getFile().toString(), (String shortcutPath) -> new java.util.ArrayList<>()).add(shortcut);
+                    }
+                }
+
+                final java.util.LinkedHashMap<PackageShortcut,java.util.concurrent.Future<Boolean>> writes = new java.util.LinkedHashMap<>();
+                for (final java.util.List<PackageShortcut> candidates : shortcuts.values())
+                {
+                    final PackageShortcut shortcut = getOwner(qubFolder, candidates).await();
+                    writes.put(shortcut, executor.submit(() ->
+                    {
+                        final File shortcutFile = shortcut.getFile();
+                        final boolean changed = !shortcutFile.exists().await() ||
+                            !shortcut.getContents().equals(shortcutFile.getContentsAsString().await());
+                        if (changed)
+                        {
+                            AtomicFiles.setContentsAsString(shortcutFile, shortcut.getContents()).await();
+                        }
+                        return changed;
+                    }));
+                }
+                for (final java.util.Map.Entry<PackageShortcut,java.util.concurrent.Future<Boolean>> write : writes.entrySet())
+                {
+                    final PackageShortcut shortcut = write.getKey();
+                    final Boolean changed = await(result, shortcut.getSignature(), write.getValue());
+                    if (changed != null)
+                    {
+                        result.addShortcutFile(shortcut.getFile());
+                        if (changed)
+                        {
+                            result.addRewrittenShortcutFile(shortcut.getFile());
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+            return result;
+        });
+    }
+
+    private static <T> T await(ShortcutRelink relink, PackageSignature signature, java.util.concurrent.Future<T> future)
+    {
+        T result = null;
+        try
+        {
+            result = future.get();
+        }
+        catch (java.util.concurrent.ExecutionException e)
+        {
+            relink.addError("Couldn't relink " + signature.toString() + ": " + e.getCause().getMessage());
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    public static Result<Iterable<File>> getClasspathFiles(DependencyClosureResolver resolver, PackageIndex packageIndex, PackageSignature signature)
+    {
+        PreCondition.assertNotNull(resolver, "resolver");
+        PreCondition.assertNotNull(packageIndex, "packageIndex");
+        PreCondition.assertNotNull(signature, "signature");
+
+        return Result.create(() ->
+        {
+            final Folder qubFolder = resolver.getQubFolder();
+            final List<File> result = List.create();
+            result.add(signature.getJarFile(qubFolder));
+            for (final PackageSignature dependency : resolver.getClosure(signature).await())
+            {
+                final PackageIndexEntry entry = packageIndex.get(dependency.getPublisher(), dependency.getProject(), dependency.getVersion());
+                final File indexedJarFile = entry == null ? null : qubFolder.getFile(entry.getJarPath()).await();
+                final File dependencyJarFile = indexedJarFile != null && indexedJarFile.exists().await()
+                    ? indexedJarFile
+                    : dependency.getJarFile(qubFolder);
+                if (!dependencyJarFile.exists().await())
+                {
+                    throw new IllegalStateException("The dependency " + dependency.toString() + " isn't installed. Couldn't find " + dependencyJarFile.toString() + ".");
+                }
+                result.add(dependencyJarFile);
+            }
+            return result;
+        });
+    }
+
+    // A class data sharing archive that was trained with different jars than the package now runs
+    // with is deleted, so that the shortcut stops using it. Returns the archive file if it was deleted.
+    private static Result<File> removeStaleCdsArchive(DependencyClosureResolver resolver, PackageIndex packageIndex, PackageSignature signature)
+    {
+        return Result.create(() ->
+        {
+            File result = null;
+            final Folder versionFolder = signature.getVersionFolder(resolver.getQubFolder());
+            final String shortcutName = PackageShortcut.getShortcutName(ProjectJSON.parse(versionFolder.getFile("project.json").await()).await());
+            if (shortcutName != null)
+            {
+                final File cdsArchiveFile = CdsArchive.getArchiveFile(versionFolder, shortcutName);
+                if (cdsArchiveFile.exists().await() &&
+                    !CdsArchive.isUpToDate(cdsArchiveFile, getClasspathFiles(resolver, packageIndex, signature).await()).await())
+                {
+                    cdsArchiveFile.delete().await();
+                    final File fingerprintFile = CdsArchive.getFingerprintFile(cdsArchiveFile);
+                    if (fingerprintFile.exists().await())
+                    {
+                        fingerprintFile.delete().await();
+                    }
+                    result = cdsArchiveFile;
+                }
+            }
+            return result;
+        });
+    }
+
+    // Returns the launcher jar file if it had to be rewritten, or null if it was already current. The
+    // version's lock is held so an install of the same version can't replace the folder meanwhile, and
+    // the jar is replaced in one rename so a shortcut that starts meanwhile never reads half of it.
+    private static Result<File> relinkLauncherJar(DependencyClosureResolver resolver, PackageIndex packageIndex, PackageSignature signature)
+    {
+        return Result.create(() ->
+        {
+            final Folder versionFolder = signature.getVersionFolder(resolver.getQubFolder());
+            final Iterable<File> classpathFiles = getClasspathFiles(resolver, packageIndex, signature).await();
+            File result = null;
+            try (final PackageLock lock = PackageLock.acquire(PackageLock.getLockFile(versionFolder)).await())
+            {
+                final File projectJsonFile = versionFolder.getFile("project.json").await();
+                if (projectJsonFile.exists().await())
+                {
+                    final ProjectJSON projectJson = ProjectJSON.parse(projectJsonFile).await();
+                    final String mainClass = projectJson.getJava().getMainClass();
+                    final File launcherJarFile = LauncherJar.getLauncherJarFile(versionFolder, PackageShortcut.getShortcutName(projectJson));
+                    if (!LauncherJar.isCurrent(launcherJarFile, mainClass, classpathFiles).await())
+                    {
+                        AtomicFiles.setContents(launcherJarFile, LauncherJar.getContents(launcherJarFile, mainClass, classpathFiles).await()).await();
+                        result = launcherJarFile;
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    // The version that the existing shortcut already runs keeps it, so relinking never changes which
+    // version a shortcut runs. Otherwise the highest installed version gets it.
+    public static Result<PackageShortcut> getOwner(Folder qubFolder, java.util.List<PackageShortcut> candidates)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNull(candidates, "candidates");
+        PreCondition.assertFalse(candidates.isEmpty(), "candidates.isEmpty()");
+
+        return Result.create(() ->
+        {
+            PackageShortcut result = null;
+            final File shortcutFile = candidates.get(0).getFile();
+            if (candidates.size() > 1 && shortcutFile.exists().await())
+            {
+                final String existingContents = shortcutFile.getContentsAsString().await();
+                for (final PackageShortcut candidate : candidates)
+                {
+                    if (existingContents.contains("%~dp0" + candidate.getSignature().getVersionFolder(qubFolder).relativeTo(qubFolder).toString() + "/"))
+                    {
+                        result = candidate;
+                        break;
+                    }
+                }
+            }
+            if (result == null)
+            {
+                for (final PackageShortcut candidate : candidates)
+                {
+                    if (result == null || InstalledPackages.compareVersions(candidate.getSignature().getVersion(), result.getSignature().getVersion()) > 0)
+                    {
+                        result = candidate;
+                    }
+                }
+            }
+            return result;
+        });
+    }
+}
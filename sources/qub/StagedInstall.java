@@ -0,0 +1,63 @@
+package qub;
+
+public class StagedInstall
+{
+    private final Folder stagingFolder;
+    private final StoredJar storedJar;
+    private final String shortcutFileContents;
+    private final Iterable<PackageIndexEntry> dependencyEntries;
+    private final File deferredMoveFile;
+
+    public StagedInstall(Folder stagingFolder, StoredJar storedJar, String shortcutFileContents, Iterable<PackageIndexEntry> dependencyEntries)
+    {
+        this(stagingFolder, storedJar, shortcutFileContents, dependencyEntries, null);
+    }
+
+    // The deferredMoveFile is a build output that was copied instead of moved because the install was
+    // staged before its tests passed. Committing the install deletes it to finish the move.
+    public StagedInstall(Folder stagingFolder, StoredJar storedJar, String shortcutFileContents, Iterable<PackageIndexEntry> dependencyEntries, File deferredMoveFile)
+    {
+        PreCondition.assertNotNull(stagingFolder, "stagingFolder");
+        PreCondition.assertNotNull(storedJar, "storedJar");
+        PreCondition.assertNotNull(dependencyEntries, "dependencyEntries");
+
+        this.stagingFolder = stagingFolder;
+        this.storedJar = storedJar;
+        this.shortcutFileContents = shortcutFileContents;
+        this.dependencyEntries = dependencyEntries;
+        this.deferredMoveFile = deferredMoveFile;
+    }
+
+    public Folder getStagingFolder()
+    {
+        return stagingFolder;
+    }
+
+    public StoredJar getStoredJar()
+    {
+        return storedJar;
+    }
+
+    public String getShortcutFileContents()
+    {
+        return shortcutFileContents;
+    }
+
+    public Iterable<PackageIndexEntry> getDependencyEntries()
+    {
+        return dependencyEntries;
+    }
+
+    public File getDeferredMoveFile()
+    {
+        return deferredMoveFile;
+    }
+
+    // A jar that this install added to the jar store is left there, because a concurrent install of
+    // the same contents may have found it and linked it already. -gc removes it once no index entry
+    // refers to it.
+    public Result<Void> discard()
+    {
+        return AtomicFiles.deleteFolder(stagingFolder);
+    }
+}
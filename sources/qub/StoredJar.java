@@ -0,0 +1,41 @@
+package qub;
+
+public class StoredJar
+{
+    private final File file;
+    private final String hash;
+    private final long size;
+    private final boolean copied;
+
+    public StoredJar(File file, String hash, long size, boolean copied)
+    {
+        PreCondition.assertNotNull(file, "file");
+        PreCondition.assertNotNullAndNotEmpty(hash, "hash");
+        PreCondition.assertGreaterThanOrEqualTo(size, 0, "size");
+
+        this.file = file;
+        this.hash = hash;
+        this.size = size;
+        this.copied = copied;
+    }
+
+    public File getFile()
+    {
+        return file;
+    }
+
+    public String getHash()
+    {
+        return hash;
+    }
+
+    public long getSize()
+    {
+        return size;
+    }
+
+    public boolean wasCopied()
+    {
+        return copied;
+    }
+}
@@ -0,0 +1,245 @@
+package qub;
+
+public class TestClassLauncher
+{
+    public static final String testRunnerClassName = "qub.ConsoleTestRunner";
+
+    public static Iterable<String> getClasspath(Folder projectFolder, Iterable<File> dependencyJarFiles)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertNotNull(dependencyJarFiles, "dependencyJarFiles");
+
+        final List<String> result = List.create();
+        final Folder outputsFolder = projectFolder.getFolder("outputs").await();
+        result.add(outputsFolder.getFolder("sources").await().toString());
+        result.add(outputsFolder.getFolder("tests").await().toString());
+        result.add(outputsFolder.toString());
+        for (final File dependencyJarFile : dependencyJarFiles)
+        {
+            result.add(dependencyJarFile.toString());
+        }
+        // The tests see the project's declared dependency closure. Only the runner comes from this
+        // process, and it comes last, so a qub-test version that the project declares wins.
+        final String runnerClasspathEntry = getTestRunnerClasspathEntry();
+        if (!Strings.isNullOrEmpty(runnerClasspathEntry))
+        {
+            result.add(runnerClasspathEntry);
+        }
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    // The jar or folder that this process loaded the test runner class from, or null if it isn't loaded.
+    public static String getTestRunnerClasspathEntry()
+    {
+        String result = null;
+        try
+        {
+            final java.security.CodeSource codeSource = java.lang.Class.forName(testRunnerClassName).getProtectionDomain().getCodeSource();
+            if (codeSource != null && codeSource.getLocation() != null)
+            {
+                result = java.nio.file.Paths.get(codeSource.getLocation().toURI()).toString();
+            }
+        }
+        catch (java.lang.ClassNotFoundException | java.net.URISyntaxException e)
+        {
+            // The runner then has to come from the project's own dependencies.
+        }
+        return result;
+    }
+
+    public static Iterable<Iterable<String>> createShards(Iterable<String> testClassNames, int shardCount, TestTimingHistory history)
+    {
+        PreCondition.assertNotNull(testClassNames, "testClassNames");
+        PreCondition.assertGreaterThanOrEqualTo(shardCount, 1, "shardCount");
+        PreCondition.assertNotNull(history, "history");
+
+        // Longest test classes first, each into the shard with the least expected work so far.
+        final java.util.List<String> sortedTestClassNames = new java.util.ArrayList<>();
+        for (final String testClassName : testClassNames)
+        {
+            sortedTestClassNames.add(testClassName);
+        }
+        sortedTestClassNames.sort(java.util.Comparator
+            .comparingLong((String testClassName) -> -history.getEstimatedMilliseconds(testClassName))
+            .thenComparing(java.util.Comparator.naturalOrder()));
+
+        final int actualShardCount = Math.max(1, Math.min(shardCount, sortedTestClassNames.size()));
+        final java.util.List<java.util.TreeSet<String>> shards = new java.util.ArrayList<>();
+        final long[] shardMilliseconds = new long[actualShardCount];
+        for (int shardIndex = 0; shardIndex < actualShardCount; ++shardIndex)
+        {
+            shards.add(new java.util.TreeSet<>());
+        }
+        for (final String testClassName : sortedTestClassNames)
+        {
+            int leastLoadedShardIndex = 0;
+            for (int shardIndex = 1; shardIndex < actualShardCount; ++shardIndex)
+            {
+                if (shardMilliseconds[shardIndex] < shardMilliseconds[leastLoadedShardIndex])
+                {
+                    leastLoadedShardIndex = shardIndex;
+                }
+            }
+            shards.get(leastLoadedShardIndex).add(testClassName);
+            shardMilliseconds[leastLoadedShardIndex] += history.getEstimatedMilliseconds(testClassName);
+        }
+
+        final List<Iterable<String>> result = List.create();
+        for (final java.util.TreeSet<String> shard : shards)
+        {
+            if (!shard.isEmpty())
+            {
+                result.add(Iterable.create(shard.toArray(new String[0])));
+            }
+        }
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public Result<Integer> run(Console console, Iterable<String> classpath, Iterable<Iterable<String>> shards, TestTimingHistory history)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(classpath, "classpath");
+        PreCondition.assertNotNull(shards, "shards");
+        PreCondition.assertNotNull(history, "history");
+
+        return Result.create(() ->
+        {
+            final java.util.List<Iterable<String>> shardList = new java.util.ArrayList<>();
+            for (final Iterable<String> shard : shards)
+            {
+                shardList.add(shard);
+            }
+            final int shardCount = shardList.size();
+            final InMemoryCharacterStream[] shardOutputs = new InMemoryCharacterStream[shardCount];
+            final int[] shardExitCodes = new int[shardCount];
+            final long[] shardMilliseconds = new long[shardCount];
+            final Throwable[] shardErrors = new Throwable[shardCount];
+
+            final java.util.List<Thread> shardThreads = new java.util.ArrayList<>();
+            for (int shardIndex = 0; shardIndex < shardCount; ++shardIndex)
+            {
+                final int index = shardIndex;
+                shardOutputs[index] = new InMemoryCharacterStream();
+                final Thread shardThread = new Thread(() ->
+                {
+                    final long startNanoseconds = System.nanoTime();
+                    try (final Console shardConsole = new Console())
+                    {
+                        shardConsole.setLineSeparator(console.getLineSeparator());
+                        shardConsole.setOutput(shardOutputs[index]);
+                        shardConsole.setCurrentFolderPath(console.getCurrentFolderPath());
+                        shardExitCodes[index] = run(shardConsole, classpath, shardList.get(index)).await();
+                    }
+                    catch (Throwable e)
+                    {
+                        shardErrors[index] = e;
+                    }
+                    shardMilliseconds[index] = (System.nanoTime() - startNanoseconds) / 1000000;
+                }, "qub-install-test-shard-" + (index + 1));
+                shardThreads.add(shardThread);
+                shardThread.start();
+            }
+
+            int result = 0;
+            for (int shardIndex = 0; shardIndex < shardCount; ++shardIndex)
+            {
+                try
+                {
+                    shardThreads.get(shardIndex).join();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+
+                // Shard output is written in shard order once each shard is done, so runs are always reported the same way.
+                final Iterable<String> shardTestClassNames = shardList.get(shardIndex);
+                if (shardCount > 1)
+                {
+                    console.writeLine("Shard " + (shardIndex + 1) + " of " + shardCount + " (" + String.join(", ", shardTestClassNames) + "):").await();
+                }
+                console.write(shardOutputs[shardIndex].getText().await()).await();
+                if (shardErrors[shardIndex] != null)
+                {
+                    console.writeLine("ERROR: " + shardErrors[shardIndex].getMessage()).await();
+                    shardExitCodes[shardIndex] = 1;
+                }
+                if (shardExitCodes[shardIndex] != 0)
+                {
+                    ++result;
+                }
+
+                // A shard's duration is shared between its test classes in proportion to how long they were expected to take.
+                long expectedMilliseconds = 0;
+                for (final String testClassName : shardTestClassNames)
+                {
+                    expectedMilliseconds += Math.max(1, history.getEstimatedMilliseconds(testClassName));
+                }
+                final java.util.Map<String,Long> measuredMilliseconds = new java.util.HashMap<>();
+                for (final String testClassName : shardTestClassNames)
+                {
+                    measuredMilliseconds.put(testClassName, shardMilliseconds[shardIndex] * Math.max(1, history.getEstimatedMilliseconds(testClassName)) / expectedMilliseconds);
+                }
+                for (final java.util.Map.Entry<String,Long> entry : measuredMilliseconds.entrySet())
+                {
+                    history.setMilliseconds(entry.getKey(), entry.getValue());
+                }
+            }
+            return result;
+        });
+    }
+
+    public Result<Integer> run(Console console, Iterable<String> classpath, Iterable<String> testClassNames)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(classpath, "classpath");
+        PreCondition.assertNotNull(testClassNames, "testClassNames");
+
+        return Result.create(() ->
+        {
+            final java.util.List<String> command = new java.util.ArrayList<>();
+            command.add(java.nio.file.Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.add("-classpath");
+            command.add(String.join(java.io.File.pathSeparator, classpath));
+            command.add(testRunnerClassName);
+            for (final String testClassName : testClassNames)
+            {
+                command.add(testClassName);
+            }
+
+            final ProcessBuilder processBuilder = new ProcessBuilder(command)
+                .directory(new java.io.File(console.getCurrentFolderPath().toString()))
+                .redirectErrorStream(true);
+            try
+            {
+                final Process process = processBuilder.start();
+                try (final java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.InputStreamReader(process.getInputStream(), java.nio.charset.StandardCharsets.UTF_8)))
+                {
+                    String line = reader.readLine();
+                    while (line != null)
+                    {
+                        console.writeLine(line).await();
+                        line = reader.readLine();
+                    }
+                }
+                return process.waitFor();
+            }
+            catch (java.io.IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,121 @@
+package qub;
+
+public class TestTimingHistory
+{
+    public static final String fileExtension = ".testtimes";
+    public static final long defaultMilliseconds = 1000;
+
+    private final java.util.TreeMap<String,Long> testClassMilliseconds;
+
+    private TestTimingHistory()
+    {
+        this.testClassMilliseconds = new java.util.TreeMap<>();
+    }
+
+    public static TestTimingHistory create()
+    {
+        return new TestTimingHistory();
+    }
+
+    public static Result<TestTimingHistory> parse(File historyFile)
+    {
+        PreCondition.assertNotNull(historyFile, "historyFile");
+
+        return historyFile.getContentsAsString()
+            .then((String contents) ->
+            {
+                final TestTimingHistory result = new TestTimingHistory();
+                for (final String line : Strings.getLines(contents))
+                {
+                    if (!Strings.isNullOrEmpty(line))
+                    {
+                        final int tabIndex = line.indexOf('\t');
+                        if (tabIndex <= 0)
+                        {
+                            throw new IllegalArgumentException("Expected a test class name and a duration in test timing line " + Strings.escapeAndQuote(line) + ".");
+                        }
+                        result.setMilliseconds(line.substring(0, tabIndex), Long.parseLong(line.substring(tabIndex + 1)));
+                    }
+                }
+                return result;
+            });
+    }
+
+    public static File getHistoryFile(File projectJarFile)
+    {
+        PreCondition.assertNotNull(projectJarFile, "projectJarFile");
+
+        final File result = projectJarFile.getParentFolder().await()
+            .getFile(projectJarFile.getNameWithoutFileExtension() + fileExtension).await();
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    public Iterable<String> getTestClassNames()
+    {
+        return Iterable.create(testClassMilliseconds.keySet().toArray(new String[0]));
+    }
+
+    public Long getMilliseconds(String testClassName)
+    {
+        PreCondition.assertNotNullAndNotEmpty(testClassName, "testClassName");
+
+        return testClassMilliseconds.get(testClassName);
+    }
+
+    public long getEstimatedMilliseconds(String testClassName)
+    {
+        PreCondition.assertNotNullAndNotEmpty(testClassName, "testClassName");
+
+        Long result = testClassMilliseconds.get(testClassName);
+        if (result == null)
+        {
+            // A test class that hasn't run before is assumed to take as long as an average one.
+            if (testClassMilliseconds.isEmpty())
+            {
+                result = defaultMilliseconds;
+            }
+            else
+            {
+                long totalMilliseconds = 0;
+                for (final long milliseconds : testClassMilliseconds.values())
+                {
+                    totalMilliseconds += milliseconds;
+                }
+                result = totalMilliseconds / testClassMilliseconds.size();
+            }
+        }
+
+        PostCondition.assertGreaterThanOrEqualTo(result, 0L, "result");
+
+        return result;
+    }
+
+    public void setMilliseconds(String testClassName, long milliseconds)
+    {
+        PreCondition.assertNotNullAndNotEmpty(testClassName, "testClassName");
+        PreCondition.assertGreaterThanOrEqualTo(milliseconds, 0L, "milliseconds");
+
+        testClassMilliseconds.put(testClassName, milliseconds);
+    }
+
+    public Result<Void> save(File historyFile)
+    {
+        PreCondition.assertNotNull(historyFile, "historyFile");
+
+        return historyFile.setContentsAsString(toString());
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        for (final java.util.Map.Entry<String,Long> entry : testClassMilliseconds.entrySet())
+        {
+            builder.append(entry.getKey()).append('\t').append(entry.getValue()).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package qub;
+
+public class ApiSignatureTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(ApiSignature.class, () ->
+        {
+            runner.testGroup("getSignature(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> ApiSignature.getSignature(null),
+                        new PreConditionFailure("classFileContents cannot be null."));
+                });
+
+                runner.test("with bytes that aren't a class file", (Test test) ->
+                {
+                    final byte[] bytes = new byte[] { 1, 2, 3 };
+                    test.assertEqual("unparsed " + ContentHash.sha256(bytes), ApiSignature.getSignature(bytes));
+                });
+
+                runner.test("with class file", (Test test) ->
+                {
+                    final String signature = ApiSignature.getSignature(ClassDependencyGraphTests.getClassFileContents(CompilationState.class));
+                    test.assertTrue(signature.startsWith("class "));
+                    test.assertTrue(signature.contains(" qub/CompilationState extends java/lang/Object implements \n"));
+                    test.assertTrue(signature.contains("field 25 fileExtension Ljava/lang/String; value S.compilation\n"));
+                    test.assertTrue(signature.contains(" getStateFile (Lqub/File;)Lqub/File;\n"));
+                    test.assertFalse(signature.contains(" sourceHashes "));
+                    test.assertFalse(signature.contains(" getClassPath "));
+                });
+            });
+
+            runner.testGroup("getHash(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> ApiSignature.getHash(null),
+                        new PreConditionFailure("classFileContents cannot be null."));
+                });
+
+                runner.test("with same class file", (Test test) ->
+                {
+                    test.assertEqual(
+                        ApiSignature.getHash(ClassDependencyGraphTests.getClassFileContents(CompilationState.class)),
+                        ApiSignature.getHash(ClassDependencyGraphTests.getClassFileContents(CompilationState.class)));
+                });
+
+                runner.test("with different class files", (Test test) ->
+                {
+                    test.assertNotEqual(
+                        ApiSignature.getHash(ClassDependencyGraphTests.getClassFileContents(CompilationState.class)),
+                        ApiSignature.getHash(ClassDependencyGraphTests.getClassFileContents(ApiSignature.class)));
+                });
+            });
+
+            runner.testGroup("declaresConstants(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> ApiSignature.declaresConstants(null),
+                        new PreConditionFailure("classFileContents cannot be null."));
+                });
+
+                runner.test("with public constant", (Test test) ->
+                {
+                    test.assertTrue(ApiSignature.declaresConstants(ClassDependencyGraphTests.getClassFileContents(CompilationState.class)));
+                });
+
+                runner.test("with only private constants", (Test test) ->
+                {
+                    test.assertFalse(ApiSignature.declaresConstants(ClassDependencyGraphTests.getClassFileContents(ApiSignature.class)));
+                });
+            });
+        });
+    }
+}
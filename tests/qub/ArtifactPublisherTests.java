@@ -0,0 +1,147 @@
+package qub;
+
+public class ArtifactPublisherTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(ArtifactPublisher.class, () ->
+        {
+            runner.testGroup("constructor(PublishMode)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> new ArtifactPublisher(null), new PreConditionFailure("mode cannot be null."));
+                });
+
+                runner.test("with HardLink", (Test test) ->
+                {
+                    test.assertEqual(PublishMode.HardLink, new ArtifactPublisher(PublishMode.HardLink).getMode());
+                });
+            });
+
+            runner.testGroup("parseMode(String)", () ->
+            {
+                final Action2<String,PublishMode> parseModeTest = (String text, PublishMode expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(text), (Test test) ->
+                    {
+                        test.assertEqual(expected, ArtifactPublisher.parseMode(text).await());
+                    });
+                };
+
+                parseModeTest.run(null, PublishMode.Copy);
+                parseModeTest.run("", PublishMode.Copy);
+                parseModeTest.run("copy", PublishMode.Copy);
+                parseModeTest.run("link", PublishMode.Copy);
+                parseModeTest.run("LINK", PublishMode.Copy);
+                parseModeTest.run("move", PublishMode.Move);
+
+                runner.test("with \"teleport\"", (Test test) ->
+                {
+                    test.assertThrows(() -> ArtifactPublisher.parseMode("teleport").await(),
+                        new IllegalArgumentException("Unrecognized publish mode: \"teleport\". Expected copy or move."));
+                });
+            });
+
+            runner.testGroup("publish(File,File)", () ->
+            {
+                final Action1<PublishMode> publishTest = (PublishMode mode) ->
+                {
+                    runner.test("with " + mode + " in an in-memory file system", (Test test) ->
+                    {
+                        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+                        fileSystem.createRoot("/");
+                        final File source = fileSystem.getFile("/project/outputs/a.jar").await();
+                        source.setContentsAsString("a.jar contents").await();
+                        final File target = fileSystem.getFile("/qub/a/1/a.jar").await();
+
+                        final ArtifactPublisher publisher = new ArtifactPublisher(mode);
+                        test.assertEqual(PublishMode.Copy, publisher.publish(source, target).await());
+                        test.assertEqual("a.jar contents", source.getContentsAsString().await());
+                        test.assertEqual("a.jar contents", target.getContentsAsString().await());
+                    });
+                };
+
+                publishTest.run(PublishMode.Copy);
+                publishTest.run(PublishMode.HardLink);
+                publishTest.run(PublishMode.Move);
+
+                runner.test("with HardLink on disk", (Test test) ->
+                {
+                    try (final Console console = new Console(Iterable.create()))
+                    {
+                        final Folder folder = AtomicFilesTests.getTemporaryDiskFolder(console);
+                        try
+                        {
+                            final File source = folder.getFile("jars/ab/ab.jar").await();
+                            source.setContentsAsString("a.jar contents").await();
+                            final File target = folder.getFile("qub/a/1/a.jar").await();
+
+                            test.assertEqual(PublishMode.HardLink, new ArtifactPublisher(PublishMode.HardLink).publish(source, target).await());
+                            test.assertEqual("a.jar contents", target.getContentsAsString().await());
+                            test.assertTrue(java.nio.file.Files.isSameFile(java.nio.file.Paths.get(source.toString()), java.nio.file.Paths.get(target.toString())));
+                        }
+                        catch (java.io.IOException e)
+                        {
+                            throw new RuntimeException(e);
+                        }
+                        finally
+                        {
+                            AtomicFiles.deleteFolder(folder).await();
+                        }
+                    }
+                });
+
+                runner.test("with Move on disk", (Test test) ->
+                {
+                    try (final Console console = new Console(Iterable.create()))
+                    {
+                        final Folder folder = AtomicFilesTests.getTemporaryDiskFolder(console);
+                        try
+                        {
+                            final File source = folder.getFile("project/outputs/a.jar").await();
+                            source.setContentsAsString("a.jar contents").await();
+                            final File target = folder.getFile("qub/a/1/a.jar").await();
+
+                            test.assertEqual(PublishMode.Move, new ArtifactPublisher(PublishMode.Move).publish(source, target).await());
+                            test.assertFalse(source.exists().await());
+                            test.assertEqual("a.jar contents", target.getContentsAsString().await());
+                        }
+                        finally
+                        {
+                            AtomicFiles.deleteFolder(folder).await();
+                        }
+                    }
+                });
+
+                runner.test("with Copy on disk over an existing longer file", (Test test) ->
+                {
+                    try (final Console console = new Console(Iterable.create()))
+                    {
+                        final Folder folder = AtomicFilesTests.getTemporaryDiskFolder(console);
+                        try
+                        {
+                            final File source = folder.getFile("project/outputs/a.jar").await();
+                            source.setContentsAsString("a.jar contents").await();
+                            final File target = folder.getFile("qub/a/1/a.jar").await();
+                            target.setContentsAsString("previous and longer a.jar contents").await();
+
+                            test.assertEqual(PublishMode.Copy, new ArtifactPublisher(PublishMode.Copy).publish(source, target).await());
+                            test.assertEqual("a.jar contents", source.getContentsAsString().await());
+                            test.assertEqual("a.jar contents", target.getContentsAsString().await());
+                            test.assertFalse(java.nio.file.Files.isSameFile(java.nio.file.Paths.get(source.toString()), java.nio.file.Paths.get(target.toString())));
+                        }
+                        catch (java.io.IOException e)
+                        {
+                            throw new RuntimeException(e);
+                        }
+                        finally
+                        {
+                            AtomicFiles.deleteFolder(folder).await();
+                        }
+                    }
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,221 @@
+package qub;
+
+public class AtomicFilesTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(AtomicFiles.class, () ->
+        {
+            runner.testGroup("getStagingFolder(Folder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> AtomicFiles.getStagingFolder(null), new PreConditionFailure("targetFolder cannot be null."));
+                });
+
+                runner.test("with version folder", (Test test) ->
+                {
+                    final Folder versionFolder = getInMemoryQubFolder(test).getFolder("a/b/1").await();
+                    final Folder stagingFolder = AtomicFiles.getStagingFolder(versionFolder);
+                    test.assertEqual(versionFolder.getParentFolder().await(), stagingFolder.getParentFolder().await());
+                    test.assertTrue(stagingFolder.getName().startsWith(".1.staging-"));
+                    test.assertTrue(AtomicFiles.isStagingFolder(stagingFolder));
+                    test.assertFalse(AtomicFiles.isStagingFolder(versionFolder));
+                    test.assertNotEqual(stagingFolder, AtomicFiles.getStagingFolder(versionFolder));
+                });
+            });
+
+            runner.testGroup("setContentsAsString(File,String)", () ->
+            {
+                runner.test("with null file", (Test test) ->
+                {
+                    test.assertThrows(() -> AtomicFiles.setContentsAsString(null, "contents"), new PreConditionFailure("file cannot be null."));
+                });
+
+                runner.test("with existing file", (Test test) ->
+                {
+                    final File file = getInMemoryQubFolder(test).getFile("b.cmd").await();
+                    file.setContentsAsString("old contents").await();
+                    AtomicFiles.setContentsAsString(file, "new contents").await();
+                    test.assertEqual("new contents", file.getContentsAsString().await());
+                });
+            });
+
+            runner.testGroup("setContentsAsString(File,String,boolean)", () ->
+            {
+                runner.test("with owner-only file in memory", (Test test) ->
+                {
+                    final File file = getInMemoryQubFolder(test).getFile("install-server.port").await();
+                    AtomicFiles.setContentsAsString(file, "1234\ntoken\n", true).await();
+                    test.assertEqual("1234\ntoken\n", file.getContentsAsString().await());
+                });
+
+                runner.test("with owner-only file on disk", (Test test) ->
+                {
+                    try (final Console console = new Console(Iterable.create()))
+                    {
+                        final Folder folder = getTemporaryDiskFolder(console);
+                        try
+                        {
+                            final File file = folder.getFile("install-server.port").await();
+                            AtomicFiles.setContentsAsString(file, "1234\ntoken\n", true).await();
+                            test.assertEqual("1234\ntoken\n", file.getContentsAsString().await());
+                            final java.nio.file.Path path = java.nio.file.Paths.get(file.toString());
+                            if (java.nio.file.Files.getFileStore(path).supportsFileAttributeView(java.nio.file.attribute.PosixFileAttributeView.class))
+                            {
+                                test.assertEqual("rw-------", java.nio.file.attribute.PosixFilePermissions.toString(java.nio.file.Files.getPosixFilePermissions(path)));
+                            }
+                        }
+                        catch (java.io.IOException e)
+                        {
+                            throw new RuntimeException(e);
+                        }
+                        finally
+                        {
+                            AtomicFiles.deleteFolder(folder).await();
+                        }
+                    }
+                });
+            });
+
+            runner.testGroup("setContents(File,byte[])", () ->
+            {
+                runner.test("with null file", (Test test) ->
+                {
+                    test.assertThrows(() -> AtomicFiles.setContents(null, new byte[0]), new PreConditionFailure("file cannot be null."));
+                });
+
+                runner.test("with existing file in memory", (Test test) ->
+                {
+                    final File file = getInMemoryQubFolder(test).getFile("a/b/1/b.launcher.jar").await();
+                    file.setContents(new byte[] { 1, 2 }).await();
+                    AtomicFiles.setContents(file, new byte[] { 3, 4, 5 }).await();
+                    test.assertEqual(new byte[] { 3, 4, 5 }, file.getContents().await());
+                });
+
+                runner.test("with existing file on disk", (Test test) ->
+                {
+                    try (final Console console = new Console(Iterable.create()))
+                    {
+                        final Folder folder = getTemporaryDiskFolder(console);
+                        try
+                        {
+                            final File file = folder.getFile("b.launcher.jar").await();
+                            file.setContents(new byte[] { 1, 2 }).await();
+                            AtomicFiles.setContents(file, new byte[] { 3, 4, 5 }).await();
+                            test.assertEqual(new byte[] { 3, 4, 5 }, file.getContents().await());
+                            test.assertEqual(Iterable.create(file), folder.getFiles().await());
+                        }
+                        finally
+                        {
+                            AtomicFiles.deleteFolder(folder).await();
+                        }
+                    }
+                });
+            });
+
+            runner.testGroup("moveFolder(Folder,Folder)", () ->
+            {
+                runner.test("with target folder that doesn't exist", (Test test) ->
+                {
+                    final Folder versionFolder = getInMemoryQubFolder(test).getFolder("a/b/1").await();
+                    final Folder stagingFolder = AtomicFiles.getStagingFolder(versionFolder);
+                    stagingFolder.getFile("b.jar").await().setContentsAsString("b.jar contents").await();
+                    stagingFolder.getFile("META-INF/c.txt").await().setContentsAsString("c.txt contents").await();
+
+                    AtomicFiles.moveFolder(stagingFolder, versionFolder).await();
+
+                    test.assertFalse(stagingFolder.exists().await());
+                    test.assertEqual("b.jar contents", versionFolder.getFile("b.jar").await().getContentsAsString().await());
+                    test.assertEqual("c.txt contents", versionFolder.getFile("META-INF/c.txt").await().getContentsAsString().await());
+                });
+
+                runner.test("with target folder that already exists", (Test test) ->
+                {
+                    final Folder versionFolder = getInMemoryQubFolder(test).getFolder("a/b/1").await();
+                    versionFolder.getFile("b.jar").await().setContentsAsString("existing b.jar contents").await();
+                    final Folder stagingFolder = AtomicFiles.getStagingFolder(versionFolder);
+                    stagingFolder.getFile("b.jar").await().setContentsAsString("b.jar contents").await();
+
+                    test.assertThrows(() -> AtomicFiles.moveFolder(stagingFolder, versionFolder).await(),
+                        new IllegalStateException("The folder /qub/a/b/1 already exists."));
+                    test.assertEqual("existing b.jar contents", versionFolder.getFile("b.jar").await().getContentsAsString().await());
+                    test.assertTrue(stagingFolder.exists().await());
+                });
+            });
+
+            runner.testGroup("replaceFolder(Folder,Folder)", () ->
+            {
+                runner.test("with target folder that doesn't exist", (Test test) ->
+                {
+                    final Folder versionFolder = getInMemoryQubFolder(test).getFolder("a/b/1").await();
+                    final Folder stagingFolder = AtomicFiles.getStagingFolder(versionFolder);
+                    stagingFolder.getFile("b.jar").await().setContentsAsString("b.jar contents").await();
+
+                    AtomicFiles.replaceFolder(stagingFolder, versionFolder).await();
+
+                    test.assertFalse(stagingFolder.exists().await());
+                    test.assertEqual("b.jar contents", versionFolder.getFile("b.jar").await().getContentsAsString().await());
+                });
+
+                runner.test("with target folder that already exists", (Test test) ->
+                {
+                    final Folder versionFolder = getInMemoryQubFolder(test).getFolder("a/b/1").await();
+                    versionFolder.getFile("b.jar").await().setContentsAsString("existing b.jar contents").await();
+                    versionFolder.getFile("old.txt").await().setContentsAsString("old.txt contents").await();
+                    final Folder stagingFolder = AtomicFiles.getStagingFolder(versionFolder);
+                    stagingFolder.getFile("b.jar").await().setContentsAsString("b.jar contents").await();
+
+                    AtomicFiles.replaceFolder(stagingFolder, versionFolder).await();
+
+                    test.assertFalse(stagingFolder.exists().await());
+                    test.assertEqual("b.jar contents", versionFolder.getFile("b.jar").await().getContentsAsString().await());
+                    test.assertFalse(versionFolder.getFile("old.txt").await().exists().await());
+                    test.assertFalse(versionFolder.getParentFolder().await().getFolders().await().any(AtomicFiles::isStagingFolder));
+                });
+            });
+
+            runner.testGroup("deleteFolder(Folder)", () ->
+            {
+                runner.test("with folder that doesn't exist", (Test test) ->
+                {
+                    final Folder folder = getInMemoryQubFolder(test).getFolder("a/.1.staging-x").await();
+                    AtomicFiles.deleteFolder(folder).await();
+                    test.assertFalse(folder.exists().await());
+                });
+
+                runner.test("with folder that has files", (Test test) ->
+                {
+                    final Folder folder = getInMemoryQubFolder(test).getFolder("a/.1.staging-x").await();
+                    folder.getFile("b.jar").await().setContentsAsString("b.jar contents").await();
+                    AtomicFiles.deleteFolder(folder).await();
+                    test.assertFalse(folder.exists().await());
+                });
+            });
+        });
+    }
+
+    static Folder getTemporaryDiskFolder(Console console)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        try
+        {
+            return console.getFileSystem().getFolder(java.nio.file.Files.createTempDirectory("qub-install-tests").toString()).await();
+        }
+        catch (java.io.IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Folder getInMemoryQubFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/qub").await();
+    }
+}
@@ -0,0 +1,73 @@
+package qub;
+
+public class CdsArchiveTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(CdsArchive.class, () ->
+        {
+            runner.testGroup("getArchiveFile(Folder,String)", () ->
+            {
+                runner.test("with null versionFolder", (Test test) ->
+                {
+                    test.assertThrows(() -> CdsArchive.getArchiveFile(null, "a"), new PreConditionFailure("versionFolder cannot be null."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    final Folder versionFolder = getInMemoryVersionFolder(test);
+                    final File archiveFile = CdsArchive.getArchiveFile(versionFolder, "b");
+                    test.assertEqual("/qub/a/b/1/b.jsa", archiveFile.toString());
+                    test.assertEqual("/qub/a/b/1/b.jsa.classpath", CdsArchive.getFingerprintFile(archiveFile).toString());
+                });
+            });
+
+            runner.testGroup("isUpToDate(File,Iterable<File>)", () ->
+            {
+                runner.test("with no archive file", (Test test) ->
+                {
+                    final Folder versionFolder = getInMemoryVersionFolder(test);
+                    final File archiveFile = CdsArchive.getArchiveFile(versionFolder, "b");
+                    test.assertFalse(CdsArchive.isUpToDate(archiveFile, Iterable.create()).await());
+                });
+
+                runner.test("with matching fingerprint", (Test test) ->
+                {
+                    final Folder versionFolder = getInMemoryVersionFolder(test);
+                    final File jarFile = versionFolder.getFile("b.jar").await();
+                    jarFile.setContentsAsString("b.jar contents").await();
+                    final File archiveFile = CdsArchive.getArchiveFile(versionFolder, "b");
+                    archiveFile.setContentsAsString("archive").await();
+                    CdsArchive.getFingerprintFile(archiveFile)
+                        .setContentsAsString(CdsArchive.getFingerprint(Iterable.create(jarFile)).await()).await();
+
+                    test.assertTrue(CdsArchive.isUpToDate(archiveFile, Iterable.create(jarFile)).await());
+
+                    jarFile.setContentsAsString("changed b.jar contents").await();
+                    test.assertFalse(CdsArchive.isUpToDate(archiveFile, Iterable.create(jarFile)).await());
+                });
+            });
+
+            runner.testGroup("create(File,File,Iterable<File>,Iterable<String>,Iterable<String>)", () ->
+            {
+                runner.test("with in-memory file system", (Test test) ->
+                {
+                    final Folder versionFolder = getInMemoryVersionFolder(test);
+                    final File archiveFile = CdsArchive.getArchiveFile(versionFolder, "b");
+                    test.assertThrows(() -> CdsArchive.create(archiveFile, versionFolder.getFile("b.launcher.jar").await(), Iterable.create(), Iterable.create(), Iterable.create("-?")).await(),
+                        new UnsupportedOperationException("Class data sharing archives can only be created on a local file system."));
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryVersionFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/qub/a/b/1").await();
+    }
+}
@@ -0,0 +1,315 @@
+package qub;
+
+public class ClassDependencyGraphTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(ClassDependencyGraph.class, () ->
+        {
+            runner.testGroup("create(Folder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> ClassDependencyGraph.create((Folder)null),
+                        new PreConditionFailure("projectFolder cannot be null."));
+                });
+
+                runner.test("with no outputs folder", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final ClassDependencyGraph graph = ClassDependencyGraph.create(currentFolder).await();
+                    test.assertEqual(Iterable.create(), graph.getClassNames());
+                });
+
+                runner.test("with source and test class files", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    currentFolder.getFile("tests/qub/ATests.java").await().setContentsAsString("").await();
+                    currentFolder.getFile("outputs/qub/A.class").await().setContentsAsString("A").await();
+                    currentFolder.getFile("outputs/qub/ATests.class").await().setContentsAsString("ATests").await();
+                    currentFolder.getFile("outputs/qub/ATests$1.class").await().setContentsAsString("ATests$1").await();
+                    currentFolder.getFile("outputs/qub/a.jar").await().setContentsAsString("a.jar").await();
+                    final ClassDependencyGraph graph = ClassDependencyGraph.create(currentFolder).await();
+                    test.assertEqual(Iterable.create("qub.A", "qub.ATests", "qub.ATests$1"), graph.getClassNames());
+                    test.assertEqual(Iterable.create("qub.ATests", "qub.ATests$1"), graph.getTestClassNames());
+                    test.assertEqual(ContentHash.sha256(new byte[] { 'A' }), graph.getHash("qub.A"));
+                });
+
+                runner.test("with separate sources and tests output folders", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    currentFolder.getFile("outputs/sources/qub/A.class").await().setContentsAsString("A").await();
+                    currentFolder.getFile("outputs/tests/qub/ATests.class").await().setContentsAsString("ATests").await();
+                    final ClassDependencyGraph graph = ClassDependencyGraph.create(currentFolder).await();
+                    test.assertEqual(Iterable.create("qub.A", "qub.ATests"), graph.getClassNames());
+                    test.assertEqual(Iterable.create("qub.ATests"), graph.getTestClassNames());
+                });
+            });
+
+            runner.testGroup("getReferencedClassNames(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> ClassDependencyGraph.getReferencedClassNames(null),
+                        new PreConditionFailure("classFileContents cannot be null."));
+                });
+
+                runner.test("with bytes that aren't a class file", (Test test) ->
+                {
+                    test.assertEqual(Iterable.create(), ClassDependencyGraph.getReferencedClassNames(new byte[] { 1, 2, 3 }));
+                });
+
+                runner.test("with compiled class file", (Test test) ->
+                {
+                    final Iterable<String> referencedClassNames = ClassDependencyGraph.getReferencedClassNames(getClassFileContents(PackageSignature.class));
+                    test.assertTrue(referencedClassNames.contains("qub.PackageSignature"));
+                    test.assertTrue(referencedClassNames.contains("qub.PreCondition"));
+                    test.assertTrue(referencedClassNames.contains("java.lang.String"));
+                });
+            });
+
+            runner.testGroup("getGraphFile(File)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> ClassDependencyGraph.getGraphFile(null),
+                        new PreConditionFailure("projectJarFile cannot be null."));
+                });
+
+                runner.test("with jar file", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    test.assertEqual(
+                        currentFolder.getFile("outputs/a.classgraph").await(),
+                        ClassDependencyGraph.getGraphFile(currentFolder.getFile("outputs/a.jar").await()));
+                });
+            });
+
+            runner.testGroup("getReachableClassNames(String)", () ->
+            {
+                runner.test("with cycle", (Test test) ->
+                {
+                    final ClassDependencyGraph graph = ClassDependencyGraph.create();
+                    graph.addClass("A", "1", false, Iterable.create("B"));
+                    graph.addClass("B", "2", false, Iterable.create("A", "C"));
+                    graph.addClass("C", "3", false, Iterable.create());
+                    graph.addClass("D", "4", false, Iterable.create());
+                    test.assertEqual(Iterable.create("A", "B", "C"), graph.getReachableClassNames("A"));
+                });
+            });
+
+            runner.testGroup("getChangedClassNames(ClassDependencyGraph)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> ClassDependencyGraph.create().getChangedClassNames(null),
+                        new PreConditionFailure("previous cannot be null."));
+                });
+
+                runner.test("with changed, added, and removed classes", (Test test) ->
+                {
+                    final ClassDependencyGraph previous = ClassDependencyGraph.create();
+                    previous.addClass("A", "1", false, Iterable.create());
+                    previous.addClass("B", "2", false, Iterable.create());
+                    previous.addClass("C", "3", false, Iterable.create());
+                    final ClassDependencyGraph current = ClassDependencyGraph.create();
+                    current.addClass("A", "1", false, Iterable.create());
+                    current.addClass("B", "5", false, Iterable.create());
+                    current.addClass("D", "4", false, Iterable.create());
+                    test.assertEqual(Iterable.create("B", "C", "D"), current.getChangedClassNames(previous));
+                });
+            });
+
+            runner.testGroup("addInputFiles(Iterable<File>)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> ClassDependencyGraph.create().addInputFiles(null),
+                        new PreConditionFailure("inputFiles cannot be null."));
+                });
+
+                runner.test("with existing and missing files", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final File projectJsonFile = currentFolder.getFile("project.json").await();
+                    projectJsonFile.setContentsAsString("{}").await();
+                    final File missingFile = currentFolder.getFile("missing.jar").await();
+                    final ClassDependencyGraph graph = ClassDependencyGraph.create();
+                    graph.addInputFiles(Iterable.create(projectJsonFile, missingFile)).await();
+                    test.assertEqual(ContentHash.sha256(projectJsonFile).await(), graph.getInputHash(projectJsonFile.toString()));
+                    test.assertNull(graph.getInputHash(missingFile.toString()));
+                });
+            });
+
+            runner.testGroup("getChangedInputNames(ClassDependencyGraph)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> ClassDependencyGraph.create().getChangedInputNames(null),
+                        new PreConditionFailure("previous cannot be null."));
+                });
+
+                runner.test("with changed, added, and removed inputs", (Test test) ->
+                {
+                    final ClassDependencyGraph previous = ClassDependencyGraph.create();
+                    previous.setInputHash("/project/project.json", "1");
+                    previous.setInputHash("/qub/a/b/1/b.jar", "2");
+                    previous.setInputHash("/qub/c/d/1/d.jar", "3");
+                    final ClassDependencyGraph current = ClassDependencyGraph.create();
+                    current.setInputHash("/project/project.json", "4");
+                    current.setInputHash("/qub/a/b/2/b.jar", "2");
+                    current.setInputHash("/qub/c/d/1/d.jar", "3");
+                    test.assertEqual(
+                        Iterable.create("/project/project.json", "/qub/a/b/1/b.jar", "/qub/a/b/2/b.jar"),
+                        current.getChangedInputNames(previous));
+                });
+
+                runner.test("with previous graph that has no inputs", (Test test) ->
+                {
+                    final ClassDependencyGraph current = ClassDependencyGraph.create();
+                    current.setInputHash("/project/project.json", "1");
+                    test.assertEqual(Iterable.create("/project/project.json"), current.getChangedInputNames(ClassDependencyGraph.create()));
+                });
+            });
+
+            runner.testGroup("getImpactedTestClassNames(ClassDependencyGraph)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> ClassDependencyGraph.create().getImpactedTestClassNames(null),
+                        new PreConditionFailure("previous cannot be null."));
+                });
+
+                runner.test("with no changes", (Test test) ->
+                {
+                    final ClassDependencyGraph graph = ClassDependencyGraph.create();
+                    graph.addClass("A", "1", false, Iterable.create());
+                    graph.addClass("ATests", "2", true, Iterable.create("A"));
+                    test.assertEqual(Iterable.create(), graph.getImpactedTestClassNames(graph));
+                });
+
+                runner.test("with transitively changed class", (Test test) ->
+                {
+                    final ClassDependencyGraph previous = ClassDependencyGraph.create();
+                    previous.addClass("A", "1", false, Iterable.create("B"));
+                    previous.addClass("B", "2", false, Iterable.create());
+                    previous.addClass("C", "3", false, Iterable.create());
+                    previous.addClass("ATests", "4", true, Iterable.create("A"));
+                    previous.addClass("CTests", "5", true, Iterable.create("C"));
+                    final ClassDependencyGraph current = ClassDependencyGraph.parse(saveAndGetFile(test, previous)).await();
+                    current.addClass("B", "6", false, Iterable.create());
+                    test.assertEqual(Iterable.create("ATests"), current.getImpactedTestClassNames(previous));
+                });
+
+                runner.test("with changed test class", (Test test) ->
+                {
+                    final ClassDependencyGraph previous = ClassDependencyGraph.create();
+                    previous.addClass("ATests", "1", true, Iterable.create());
+                    previous.addClass("BTests", "2", true, Iterable.create());
+                    final ClassDependencyGraph current = ClassDependencyGraph.create();
+                    current.addClass("ATests", "1", true, Iterable.create());
+                    current.addClass("BTests", "3", true, Iterable.create());
+                    current.addClass("CTests", "4", true, Iterable.create());
+                    test.assertEqual(Iterable.create("BTests", "CTests"), current.getImpactedTestClassNames(previous));
+                });
+
+                runner.test("with dependency that was removed", (Test test) ->
+                {
+                    final ClassDependencyGraph previous = ClassDependencyGraph.create();
+                    previous.addClass("A", "1", false, Iterable.create());
+                    previous.addClass("ATests", "2", true, Iterable.create("A"));
+                    final ClassDependencyGraph current = ClassDependencyGraph.create();
+                    current.addClass("ATests", "2", true, Iterable.create());
+                    test.assertEqual(Iterable.create("ATests"), current.getImpactedTestClassNames(previous));
+                });
+            });
+
+            runner.testGroup("parse(File)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> ClassDependencyGraph.parse(null), new PreConditionFailure("graphFile cannot be null."));
+                });
+
+                runner.test("with saved graph", (Test test) ->
+                {
+                    final ClassDependencyGraph graph = ClassDependencyGraph.create();
+                    graph.addClass("qub.A", "1", false, Iterable.create());
+                    graph.addClass("qub.ATests", "2", true, Iterable.create("qub.A", "qub.B"));
+                    graph.addClass("qub.B", "3", false, Iterable.create());
+                    graph.setInputHash("/project/project.json", "4");
+                    final ClassDependencyGraph parsedGraph = ClassDependencyGraph.parse(saveAndGetFile(test, graph)).await();
+                    test.assertEqual(graph.toString(), parsedGraph.toString());
+                    test.assertEqual(Iterable.create("qub.ATests"), parsedGraph.getTestClassNames());
+                    test.assertEqual(Iterable.create("qub.A", "qub.B"), parsedGraph.getDependencies("qub.ATests"));
+                    test.assertEqual("4", parsedGraph.getInputHash("/project/project.json"));
+                });
+
+                runner.test("with malformed line", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final File graphFile = currentFolder.getFile("outputs/a.classgraph").await();
+                    graphFile.setContentsAsString("qub.A\t1\n").await();
+                    test.assertThrows(() -> ClassDependencyGraph.parse(graphFile).await(),
+                        new IllegalArgumentException("Expected 4 tab-separated values in class graph line \"qub.A\\t1\"."));
+                });
+            });
+
+            runner.testGroup("toString()", () ->
+            {
+                runner.test("with classes", (Test test) ->
+                {
+                    final ClassDependencyGraph graph = ClassDependencyGraph.create();
+                    graph.addClass("B", "2", true, Iterable.create("A"));
+                    graph.addClass("A", "1", false, Iterable.create());
+                    test.assertEqual("A\t1\tsource\t\nB\t2\ttest\tA\n", graph.toString());
+                });
+
+                runner.test("with classes and inputs", (Test test) ->
+                {
+                    final ClassDependencyGraph graph = ClassDependencyGraph.create();
+                    graph.addClass("A", "1", false, Iterable.create());
+                    graph.setInputHash("/project/project.json", "2");
+                    test.assertEqual("input\t/project/project.json\t2\nA\t1\tsource\t\n", graph.toString());
+                });
+            });
+        });
+    }
+
+    static byte[] getClassFileContents(java.lang.Class<?> type)
+    {
+        try (final java.io.InputStream stream = type.getResourceAsStream("/" + type.getName().replace('.', '/') + ".class"))
+        {
+            final java.io.ByteArrayOutputStream output = new java.io.ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int bytesRead = stream.read(buffer);
+            while (bytesRead != -1)
+            {
+                output.write(buffer, 0, bytesRead);
+                bytesRead = stream.read(buffer);
+            }
+            return output.toByteArray();
+        }
+        catch (java.io.IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static File saveAndGetFile(Test test, ClassDependencyGraph graph)
+    {
+        final File result = getInMemoryCurrentFolder(test).getFile("outputs/a.classgraph").await();
+        graph.save(result).await();
+        return result;
+    }
+
+    private static Folder getInMemoryCurrentFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/").await();
+    }
+}
@@ -0,0 +1,220 @@
+package qub;
+
+public class CompilationStateTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(CompilationState.class, () ->
+        {
+            runner.testGroup("create(Folder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> CompilationState.create((Folder)null),
+                        new PreConditionFailure("projectFolder cannot be null."));
+                });
+
+                runner.test("with no source files", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    test.assertEqual(Iterable.create(), CompilationState.create(currentFolder).await().getSourcePaths());
+                });
+
+                runner.test("with source and test files", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final File sourceFile = currentFolder.getFile("sources/qub/A.java").await();
+                    sourceFile.setContentsAsString("A.java source").await();
+                    currentFolder.getFile("sources/qub/notes.txt").await().setContentsAsString("notes").await();
+                    currentFolder.getFile("tests/qub/ATests.java").await().setContentsAsString("ATests.java source").await();
+                    currentFolder.getFile("outputs/qub/A.class").await().setContentsAsString("A").await();
+                    currentFolder.getFile("outputs/qub/A$1.class").await().setContentsAsString("A$1").await();
+                    currentFolder.getFile("outputs/qub/AB.class").await().setContentsAsString("AB").await();
+                    currentFolder.getFile("outputs/qub/ATests.class").await().setContentsAsString("ATests").await();
+
+                    final CompilationState state = CompilationState.create(currentFolder).await();
+                    test.assertEqual(Iterable.create("sources/qub/A.java", "tests/qub/ATests.java"), state.getSourcePaths());
+                    test.assertEqual(ContentHash.sha256(sourceFile).await(), state.getSourceHash("sources/qub/A.java"));
+                    test.assertEqual(Iterable.create("qub.A", "qub.A$1"), state.getClassNames("sources/qub/A.java"));
+                    test.assertEqual(Iterable.create("qub.ATests"), state.getClassNames("tests/qub/ATests.java"));
+                    test.assertEqual(ApiSignature.getHash(new byte[] { 'A' }), state.getApiHash("qub.A"));
+                    test.assertEqual("tests/qub/ATests.java", state.getSourcePath("qub.ATests"));
+                    test.assertNull(state.getSourcePath("qub.AB"));
+                });
+            });
+
+            runner.testGroup("parse(String)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> CompilationState.parse((String)null),
+                        new PreConditionFailure("contents cannot be null."));
+                });
+
+                runner.test("with empty", (Test test) ->
+                {
+                    test.assertEqual(Iterable.create(), CompilationState.parse("").getSourcePaths());
+                });
+
+                runner.test("with source that has no classes", (Test test) ->
+                {
+                    final CompilationState state = CompilationState.parse("sources/A.java\t1\t\n");
+                    test.assertEqual(Iterable.create("sources/A.java"), state.getSourcePaths());
+                    test.assertEqual(Iterable.create(), state.getClassNames("sources/A.java"));
+                });
+
+                runner.test("with too few values", (Test test) ->
+                {
+                    test.assertThrows(() -> CompilationState.parse("sources/A.java\t1\n"),
+                        new IllegalArgumentException("Expected 3 tab-separated values in compilation state line \"sources/A.java\\t1\"."));
+                });
+
+                runner.test("with toString() of state", (Test test) ->
+                {
+                    final CompilationState state = CompilationState.create();
+                    state.setSource("sources/A.java", "1", java.util.Collections.singletonMap("A", "2"));
+                    final java.util.TreeMap<String,String> classApiHashes = new java.util.TreeMap<>();
+                    classApiHashes.put("B", "4");
+                    classApiHashes.put("B$1", "5");
+                    state.setSource("sources/B.java", "3", classApiHashes);
+
+                    final CompilationState parsedState = CompilationState.parse(state.toString());
+                    test.assertEqual(state.toString(), parsedState.toString());
+                    test.assertEqual("3", parsedState.getSourceHash("sources/B.java"));
+                    test.assertEqual("5", parsedState.getApiHash("B$1"));
+                    test.assertEqual("sources/A.java", parsedState.getSourcePath("A"));
+                });
+
+                runner.test("with input line", (Test test) ->
+                {
+                    final CompilationState state = CompilationState.parse("input\t/project/project.json\tabc\nsources/A.java\t1\tA=2\n");
+                    test.assertEqual("abc", state.getInputHash("/project/project.json"));
+                    test.assertEqual(Iterable.create("sources/A.java"), state.getSourcePaths());
+                    test.assertEqual("input\t/project/project.json\tabc\nsources/A.java\t1\tA=2\n", state.toString());
+                });
+            });
+
+            runner.testGroup("getChangedInputNames(CompilationState)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> CompilationState.create().getChangedInputNames(null),
+                        new PreConditionFailure("previous cannot be null."));
+                });
+
+                runner.test("with changed, added, and removed inputs", (Test test) ->
+                {
+                    final CompilationState previous = CompilationState.create();
+                    previous.setInputHash("/project/project.json", "1");
+                    previous.setInputHash("/qub/a/b/1/b.jar", "2");
+                    previous.setInputHash("/qub/c/d/1/d.jar", "3");
+                    final CompilationState current = CompilationState.create();
+                    current.setInputHash("/project/project.json", "1");
+                    current.setInputHash("/qub/a/b/1/b.jar", "4");
+                    current.setInputHash("/qub/e/f/1/f.jar", "5");
+                    test.assertEqual(
+                        Iterable.create("/qub/a/b/1/b.jar", "/qub/c/d/1/d.jar", "/qub/e/f/1/f.jar"),
+                        current.getChangedInputNames(previous));
+                    test.assertEqual(Iterable.create(), current.getChangedInputNames(current));
+                });
+            });
+
+            runner.testGroup("addInputFiles(Iterable<File>)", () ->
+            {
+                runner.test("with existing and missing files", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final File projectJsonFile = currentFolder.getFile("project.json").await();
+                    projectJsonFile.setContentsAsString("abc").await();
+                    final CompilationState state = CompilationState.create();
+                    state.addInputFiles(Iterable.create(projectJsonFile, currentFolder.getFile("missing.jar").await())).await();
+                    test.assertEqual(ContentHash.sha256(projectJsonFile).await(), state.getInputHash(projectJsonFile.toString()));
+                    test.assertNull(state.getInputHash(currentFolder.getFile("missing.jar").await().toString()));
+                });
+            });
+
+            runner.testGroup("parse(File)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> CompilationState.parse((File)null),
+                        new PreConditionFailure("stateFile cannot be null."));
+                });
+
+                runner.test("with saved state", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final File stateFile = CompilationState.getStateFile(currentFolder.getFile("outputs/a.jar").await());
+                    final CompilationState state = CompilationState.create();
+                    state.setSource("sources/A.java", "1", java.util.Collections.singletonMap("A", "2"));
+                    state.save(stateFile).await();
+
+                    test.assertEqual("sources/A.java\t1\tA=2\n", stateFile.getContentsAsString().await());
+                    test.assertEqual(state.toString(), CompilationState.parse(stateFile).await().toString());
+                });
+            });
+
+            runner.testGroup("getStateFile(File)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> CompilationState.getStateFile(null),
+                        new PreConditionFailure("projectJarFile cannot be null."));
+                });
+
+                runner.test("with jar file", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    test.assertEqual(
+                        currentFolder.getFile("outputs/a.compilation").await(),
+                        CompilationState.getStateFile(currentFolder.getFile("outputs/a.jar").await()));
+                });
+            });
+
+            runner.testGroup("getClassFolder(Folder,String)", () ->
+            {
+                runner.test("with single outputs folder", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    test.assertEqual(
+                        currentFolder.getFolder("outputs").await(),
+                        CompilationState.getClassFolder(currentFolder, "tests/qub/ATests.java"));
+                });
+
+                runner.test("with separate sources and tests output folders", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    currentFolder.getFolder("outputs/sources").await().create().await();
+                    currentFolder.getFolder("outputs/tests").await().create().await();
+                    test.assertEqual(
+                        currentFolder.getFolder("outputs/sources").await(),
+                        CompilationState.getClassFolder(currentFolder, "sources/qub/A.java"));
+                    test.assertEqual(
+                        currentFolder.getFolder("outputs/tests").await(),
+                        CompilationState.getClassFolder(currentFolder, "tests/qub/ATests.java"));
+                });
+            });
+
+            runner.testGroup("removeSource(String)", () ->
+            {
+                runner.test("with existing source", (Test test) ->
+                {
+                    final CompilationState state = CompilationState.parse("sources/A.java\t1\tA=2\n");
+                    state.removeSource("sources/A.java");
+                    test.assertEqual(Iterable.create(), state.getSourcePaths());
+                    test.assertNull(state.getApiHash("A"));
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryCurrentFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/").await();
+    }
+}
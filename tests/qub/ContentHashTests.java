@@ -0,0 +1,91 @@
+package qub;
+
+public class ContentHashTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(ContentHash.class, () ->
+        {
+            runner.testGroup("sha256(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> ContentHash.sha256((byte[])null), new PreConditionFailure("bytes cannot be null."));
+                });
+
+                runner.test("with empty", (Test test) ->
+                {
+                    test.assertEqual("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", ContentHash.sha256(new byte[0]));
+                });
+
+                runner.test("with non-empty", (Test test) ->
+                {
+                    test.assertEqual("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", ContentHash.sha256(new byte[] { 97, 98, 99 }));
+                });
+            });
+
+            runner.testGroup("sha256(File)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> ContentHash.sha256((File)null), new PreConditionFailure("file cannot be null."));
+                });
+
+                runner.test("with existing file", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+                    fileSystem.createRoot("/");
+                    final File file = fileSystem.getFile("/a.txt").await();
+                    file.setContentsAsString("abc").await();
+                    test.assertEqual("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", ContentHash.sha256(file).await());
+                });
+
+                runner.test("with file on disk", (Test test) ->
+                {
+                    try (final Console console = new Console(Iterable.create()))
+                    {
+                        final Folder folder = AtomicFilesTests.getTemporaryDiskFolder(console);
+                        try
+                        {
+                            final File file = folder.getFile("a.txt").await();
+                            file.setContentsAsString("abc").await();
+                            test.assertEqual("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", ContentHash.sha256(file).await());
+                        }
+                        finally
+                        {
+                            AtomicFiles.deleteFolder(folder).await();
+                        }
+                    }
+                });
+            });
+
+            runner.testGroup("sha256(java.io.InputStream)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> ContentHash.sha256((java.io.InputStream)null), new PreConditionFailure("stream cannot be null."));
+                });
+
+                runner.test("with stream larger than the buffer", (Test test) ->
+                {
+                    final byte[] bytes = new byte[JarStore.streamBufferSize * 2 + 1];
+                    java.util.Arrays.fill(bytes, (byte)97);
+                    test.assertEqual(ContentHash.sha256(bytes), ContentHash.sha256(new java.io.ByteArrayInputStream(bytes)));
+                });
+            });
+
+            runner.testGroup("toHexString(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> ContentHash.toHexString(null), new PreConditionFailure("digest cannot be null."));
+                });
+
+                runner.test("with bytes", (Test test) ->
+                {
+                    test.assertEqual("00ff7f80", ContentHash.toHexString(new byte[] { 0, -1, 127, -128 }));
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,141 @@
+package qub;
+
+public class CountingFileSystemTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(CountingFileSystem.class, () ->
+        {
+            runner.testGroup("constructor(FileSystem)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> new CountingFileSystem(null), new PreConditionFailure("innerFileSystem cannot be null."));
+                });
+
+                runner.test("with file system", (Test test) ->
+                {
+                    final InMemoryFileSystem innerFileSystem = getInMemoryFileSystem(test);
+                    final CountingFileSystem countingFileSystem = new CountingFileSystem(innerFileSystem);
+                    test.assertSame(innerFileSystem, countingFileSystem.getInnerFileSystem());
+                    test.assertNotNull(countingFileSystem.getFileSystem());
+                    test.assertEqual(0L, countingFileSystem.getOperationCount());
+                    test.assertEqual(0L, countingFileSystem.getBytesWritten());
+                });
+            });
+
+            runner.testGroup("getInnerFileSystem(FileSystem)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> CountingFileSystem.getInnerFileSystem(null), new PreConditionFailure("fileSystem cannot be null."));
+                });
+
+                runner.test("with file system that isn't counted", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = getInMemoryFileSystem(test);
+                    test.assertSame(fileSystem, CountingFileSystem.getInnerFileSystem(fileSystem));
+                });
+
+                runner.test("with counted file system", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = getInMemoryFileSystem(test);
+                    final CountingFileSystem countingFileSystem = new CountingFileSystem(new CountingFileSystem(fileSystem).getFileSystem());
+                    test.assertSame(fileSystem, CountingFileSystem.getInnerFileSystem(countingFileSystem.getFileSystem()));
+                });
+            });
+
+            runner.testGroup("getFileSystem()", () ->
+            {
+                runner.test("with folder and file operations", (Test test) ->
+                {
+                    final InMemoryFileSystem innerFileSystem = getInMemoryFileSystem(test);
+                    final CountingFileSystem countingFileSystem = new CountingFileSystem(innerFileSystem);
+                    final Folder folder = countingFileSystem.getFileSystem().getFolder("/project").await();
+                    test.assertSame(countingFileSystem.getFileSystem(), folder.getFileSystem());
+
+                    final File file = folder.getFile("a.txt").await();
+                    test.assertSame(countingFileSystem.getFileSystem(), file.getFileSystem());
+                    test.assertFalse(file.exists().await());
+                    file.setContentsAsString("hello").await();
+                    file.copyTo(folder.getFile("b.txt").await()).await();
+                    test.assertEqual("hello", innerFileSystem.getFile("/project/b.txt").await().getContentsAsString().await());
+
+                    test.assertEqual(1L, countingFileSystem.getOperationCount(CountingFileSystem.getFolderOperation));
+                    test.assertEqual(2L, countingFileSystem.getOperationCount(CountingFileSystem.getFileOperation));
+                    test.assertEqual(1L, countingFileSystem.getOperationCount(CountingFileSystem.existsOperation));
+                    test.assertEqual(1L, countingFileSystem.getOperationCount(CountingFileSystem.setContentsAsStringOperation));
+                    test.assertEqual(1L, countingFileSystem.getOperationCount(CountingFileSystem.copyToOperation));
+                    test.assertEqual(10L, countingFileSystem.getBytesWritten());
+                });
+
+                runner.test("with file reads", (Test test) ->
+                {
+                    final InMemoryFileSystem innerFileSystem = getInMemoryFileSystem(test);
+                    innerFileSystem.setFileContentsAsString("/project/a.txt", "hello").await();
+                    final CountingFileSystem countingFileSystem = new CountingFileSystem(innerFileSystem);
+                    final File file = countingFileSystem.getFileSystem().getFile("/project/a.txt").await();
+                    test.assertEqual("hello", file.getContentsAsString().await());
+                    test.assertEqual(5, file.getContents().await().length);
+
+                    test.assertEqual(2L, countingFileSystem.getOperationCount(CountingFileSystem.readOperation));
+                    test.assertEqual(0L, countingFileSystem.getBytesWritten());
+                });
+
+                runner.test("with folders listed through it", (Test test) ->
+                {
+                    final InMemoryFileSystem innerFileSystem = getInMemoryFileSystem(test);
+                    innerFileSystem.getFolder("/project/sources").await().create().await();
+                    final CountingFileSystem countingFileSystem = new CountingFileSystem(innerFileSystem);
+                    final Iterable<Folder> folders = countingFileSystem.wrap(innerFileSystem.getFolder("/project").await()).getFolders().await();
+                    test.assertEqual(1, folders.getCount());
+                    test.assertSame(countingFileSystem.getFileSystem(), folders.first().getFileSystem());
+                });
+            });
+
+            runner.testGroup("wrap(Folder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final CountingFileSystem countingFileSystem = new CountingFileSystem(getInMemoryFileSystem(test));
+                    test.assertThrows(() -> countingFileSystem.wrap(null), new PreConditionFailure("folder cannot be null."));
+                });
+
+                runner.test("with folder", (Test test) ->
+                {
+                    final InMemoryFileSystem innerFileSystem = getInMemoryFileSystem(test);
+                    final CountingFileSystem countingFileSystem = new CountingFileSystem(innerFileSystem);
+                    final Folder folder = countingFileSystem.wrap(innerFileSystem.getFolder("/project").await());
+                    test.assertEqual("/project", folder.toString());
+                    test.assertSame(countingFileSystem.getFileSystem(), folder.getFileSystem());
+                    test.assertEqual(0L, countingFileSystem.getOperationCount());
+                });
+            });
+
+            runner.testGroup("reset()", () ->
+            {
+                runner.test("with counted operations", (Test test) ->
+                {
+                    final CountingFileSystem countingFileSystem = new CountingFileSystem(getInMemoryFileSystem(test));
+                    countingFileSystem.getFileSystem().getFile("/a.txt").await().setContentsAsString("a").await();
+                    test.assertEqual(2L, countingFileSystem.getOperationCount());
+                    test.assertEqual(1L, countingFileSystem.getBytesWritten());
+
+                    countingFileSystem.reset();
+                    test.assertEqual(0L, countingFileSystem.getOperationCount());
+                    test.assertEqual(0L, countingFileSystem.getBytesWritten());
+                });
+            });
+        });
+    }
+
+    private static InMemoryFileSystem getInMemoryFileSystem(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem;
+    }
+}
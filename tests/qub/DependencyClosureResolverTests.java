@@ -0,0 +1,170 @@
+package qub;
+
+public class DependencyClosureResolverTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(DependencyClosureResolver.class, () ->
+        {
+            runner.testGroup("constructor(Folder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> new DependencyClosureResolver(null), new PreConditionFailure("qubFolder cannot be null."));
+                });
+            });
+
+            runner.testGroup("resolve(Iterable<PackageSignature>)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final DependencyClosureResolver resolver = new DependencyClosureResolver(getInMemoryQubFolder(test));
+                    test.assertThrows(() -> resolver.resolve(null), new PreConditionFailure("directDependencies cannot be null."));
+                });
+
+                runner.test("with no dependencies", (Test test) ->
+                {
+                    final DependencyClosureResolver resolver = new DependencyClosureResolver(getInMemoryQubFolder(test));
+                    final DependencyClosure closure = resolver.resolve(Iterable.create()).await();
+                    test.assertEqual(Iterable.create(), closure.getDependencies());
+                    test.assertEqual(Iterable.create(), closure.getConflicts());
+                });
+
+                runner.test("with dependency that isn't installed", (Test test) ->
+                {
+                    final DependencyClosureResolver resolver = new DependencyClosureResolver(getInMemoryQubFolder(test));
+                    final DependencyClosure closure = resolver.resolve(Iterable.create(new PackageSignature("a", "b", "1"))).await();
+                    test.assertEqual(Iterable.create(new PackageSignature("a", "b", "1")), closure.getDependencies());
+                });
+
+                runner.test("with transitive dependencies", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    setProjectJson(qubFolder, "a", "b", "1", new PackageSignature("a", "c", "1"));
+                    setProjectJson(qubFolder, "a", "c", "1", new PackageSignature("a", "d", "1"), new PackageSignature("a", "e", "1"));
+                    setProjectJson(qubFolder, "a", "f", "1", new PackageSignature("a", "e", "1"));
+
+                    final DependencyClosureResolver resolver = new DependencyClosureResolver(qubFolder);
+                    final DependencyClosure closure = resolver.resolve(Iterable.create(
+                        new PackageSignature("a", "b", "1"),
+                        new PackageSignature("a", "f", "1"))).await();
+                    test.assertEqual(
+                        "a/b:1\na/f:1\na/c:1\na/d:1\na/e:1\n",
+                        closure.toString());
+                    test.assertEqual(Iterable.create(), closure.getConflicts());
+                });
+
+                runner.test("with conflicting versions", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    setProjectJson(qubFolder, "a", "b", "1", new PackageSignature("a", "c", "1"));
+
+                    final DependencyClosureResolver resolver = new DependencyClosureResolver(qubFolder);
+                    final DependencyClosure closure = resolver.resolve(Iterable.create(
+                        new PackageSignature("a", "b", "1"),
+                        new PackageSignature("a", "c", "2"))).await();
+                    test.assertEqual("a/b:1\na/c:2\n", closure.toString());
+                    test.assertEqual(
+                        Iterable.create("a/c:1 is required by a/b:1, but a/c:2 will be used."),
+                        closure.getConflicts());
+                });
+
+                runner.test("with cached closure file", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    setProjectJson(qubFolder, "a", "b", "1", new PackageSignature("a", "c", "1"));
+                    DependencyClosure.getClosureFile(new PackageSignature("a", "b", "1").getVersionFolder(qubFolder))
+                        .setContentsAsString("a/d:3\n").await();
+
+                    final DependencyClosureResolver resolver = new DependencyClosureResolver(qubFolder);
+                    final DependencyClosure closure = resolver.resolve(Iterable.create(new PackageSignature("a", "b", "1"))).await();
+                    test.assertEqual("a/b:1\na/d:3\n", closure.toString());
+                });
+
+                runner.test("with dependency that is installed after it was resolved", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final DependencyClosureResolver resolver = new DependencyClosureResolver(qubFolder);
+                    test.assertEqual("a/b:1\n", resolver.resolve(Iterable.create(new PackageSignature("a", "b", "1"))).await().toString());
+
+                    setProjectJson(qubFolder, "a", "b", "1", new PackageSignature("a", "c", "1"));
+                    test.assertEqual("a/b:1\na/c:1\n", resolver.resolve(Iterable.create(new PackageSignature("a", "b", "1"))).await().toString());
+                });
+
+                runner.test("with dependency that is installed again with different dependencies", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    setProjectJson(qubFolder, "a", "b", "1", new PackageSignature("a", "c", "1"));
+                    final DependencyClosureResolver resolver = new DependencyClosureResolver(qubFolder);
+                    test.assertEqual("a/b:1\na/c:1\n", resolver.resolve(Iterable.create(new PackageSignature("a", "b", "1"))).await().toString());
+
+                    setProjectJson(qubFolder, "a", "b", "1", new PackageSignature("a", "d", "2"));
+                    test.assertEqual("a/b:1\na/d:2\n", resolver.resolve(Iterable.create(new PackageSignature("a", "b", "1"))).await().toString());
+
+                    DependencyClosure.getClosureFile(new PackageSignature("a", "b", "1").getVersionFolder(qubFolder))
+                        .setContentsAsString("a/e:3\n").await();
+                    test.assertEqual("a/b:1\na/e:3\n", resolver.resolve(Iterable.create(new PackageSignature("a", "b", "1"))).await().toString());
+                });
+
+                runner.test("with dependency that is uninstalled after it was resolved", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    setProjectJson(qubFolder, "a", "b", "1", new PackageSignature("a", "c", "1"));
+                    final DependencyClosureResolver resolver = new DependencyClosureResolver(qubFolder);
+                    test.assertEqual("a/b:1\na/c:1\n", resolver.resolve(Iterable.create(new PackageSignature("a", "b", "1"))).await().toString());
+
+                    AtomicFiles.deleteFolder(new PackageSignature("a", "b", "1").getVersionFolder(qubFolder)).await();
+                    test.assertEqual("a/b:1\n", resolver.resolve(Iterable.create(new PackageSignature("a", "b", "1"))).await().toString());
+                });
+
+                runner.test("with dependency cycle", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    setProjectJson(qubFolder, "a", "b", "1", new PackageSignature("a", "c", "1"));
+                    setProjectJson(qubFolder, "a", "c", "1", new PackageSignature("a", "b", "1"));
+
+                    final DependencyClosureResolver resolver = new DependencyClosureResolver(qubFolder);
+                    final DependencyClosure closure = resolver.resolve(Iterable.create(new PackageSignature("a", "b", "1"))).await();
+                    test.assertEqual("a/b:1\na/c:1\n", closure.toString());
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryQubFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/qub").await();
+    }
+
+    private static void setProjectJson(Folder qubFolder, String publisher, String project, String version, PackageSignature... dependencies)
+    {
+        new PackageSignature(publisher, project, version).getVersionFolder(qubFolder).getFile("project.json").await()
+            .setContentsAsString(JSON.object(projectJson ->
+            {
+                projectJson.stringProperty("publisher", publisher);
+                projectJson.stringProperty("project", project);
+                projectJson.stringProperty("version", version);
+                projectJson.objectProperty("java", java ->
+                {
+                    java.arrayProperty("dependencies", dependenciesArray ->
+                    {
+                        for (final PackageSignature dependency : dependencies)
+                        {
+                            dependenciesArray.objectElement(dependencyJson ->
+                            {
+                                dependencyJson.stringProperty("publisher", dependency.getPublisher());
+                                dependencyJson.stringProperty("project", dependency.getProject());
+                                dependencyJson.stringProperty("version", dependency.getVersion());
+                            });
+                        }
+                    });
+                });
+            }).toString())
+            .await();
+    }
+}
@@ -0,0 +1,38 @@
+package qub;
+
+public class DependencyClosureTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(DependencyClosure.class, () ->
+        {
+            runner.testGroup("getClosureFile(Folder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> DependencyClosure.getClosureFile(null), new PreConditionFailure("versionFolder cannot be null."));
+                });
+            });
+
+            runner.testGroup("save(File)", () ->
+            {
+                runner.test("with dependencies", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+                    fileSystem.createRoot("/");
+                    final File closureFile = DependencyClosure.getClosureFile(fileSystem.getFolder("/qub/a/b/1").await());
+
+                    final List<PackageSignature> dependencies = List.create();
+                    dependencies.add(new PackageSignature("a", "c", "1"));
+                    dependencies.add(new PackageSignature("a", "d", "2"));
+                    final DependencyClosure closure = new DependencyClosure(dependencies, List.create());
+                    closure.save(closureFile).await();
+
+                    test.assertEqual("/qub/a/b/1/dependencies.closure", closureFile.toString());
+                    test.assertEqual("a/c:1\na/d:2\n", closureFile.getContentsAsString().await());
+                    test.assertEqual(dependencies, DependencyClosure.parse(closureFile).await());
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,254 @@
+package qub;
+
+public class GarbageCollectorTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(GarbageCollector.class, () ->
+        {
+            runner.testGroup("getShortcutPackage(String)", () ->
+            {
+                final Action2<String,PackageSignature> getShortcutPackageTest = (String shortcutContents, PackageSignature expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(shortcutContents), (Test test) ->
+                    {
+                        test.assertEqual(expected, GarbageCollector.getShortcutPackage(shortcutContents));
+                    });
+                };
+
+                getShortcutPackageTest.run("", null);
+                getShortcutPackageTest.run("@echo OFF\njava -jar %~dp0a/b/1/B.launcher.jar %*\n", new PackageSignature("a", "b", "1"));
+                getShortcutPackageTest.run("@echo OFF\njava -Xmx1g -XX:SharedArchiveFile=%~dp0a/b/1/B.jsa -Xshare:auto -jar %~dp0a/b/1/B.launcher.jar %*\n", new PackageSignature("a", "b", "1"));
+                getShortcutPackageTest.run("@echo OFF\njava -jar %~dp0a/b/1/b.jar %*\n", new PackageSignature("a", "b", "1"));
+                getShortcutPackageTest.run("@echo OFF\njava -jar C:/tools/b.launcher.jar %*\n", null);
+                getShortcutPackageTest.run("@echo OFF\njava -jar %~dp0a/b/B.launcher.jar %*\n", null);
+                getShortcutPackageTest.run("@echo OFF\njava -jar\n", null);
+                getShortcutPackageTest.run("@echo OFF\necho hello\n", null);
+                getShortcutPackageTest.run("@echo OFF\njava -cp %~dp0a/b/1/b.jar a.B %*\n", new PackageSignature("a", "b", "1"));
+                getShortcutPackageTest.run("@echo OFF\njava -cp %~dp0a/b/1/b.jar;%~dp0/qub/c/d/1/d a.B %*\n", new PackageSignature("a", "b", "1"));
+                getShortcutPackageTest.run("@echo OFF\njava -classpath %~dp0a\\b\\1\\b.jar;%~dp0c/d/1/d.jar a.B %*\n", new PackageSignature("a", "b", "1"));
+                getShortcutPackageTest.run("@echo OFF\njava -cp C:/tools/b.jar a.B %*\n", null);
+            });
+
+            runner.testGroup("getShortcutPackages(Folder)", () ->
+            {
+                runner.test("with shortcuts and other files", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    qubFolder.getFile("B.cmd").await().setContentsAsString("@echo OFF\njava -jar %~dp0a/b/1/B.launcher.jar %*\n").await();
+                    qubFolder.getFile("D.cmd").await().setContentsAsString("@echo OFF\necho hello\n").await();
+                    qubFolder.getFile("launch.config").await().setContentsAsString("-jar %~dp0c/d/1/D.launcher.jar").await();
+                    qubFolder.getFile("F.cmd").await().setContentsAsString("@echo OFF\njava -cp %~dp0e/f/1/f.jar e.F %*\n").await();
+                    final java.util.Map<String,PackageSignature> shortcutPackages = GarbageCollector.getShortcutPackages(qubFolder).await();
+                    test.assertEqual(3, shortcutPackages.size());
+                    test.assertEqual(new PackageSignature("a", "b", "1"), shortcutPackages.get("B"));
+                    test.assertTrue(shortcutPackages.containsKey("D"));
+                    test.assertNull(shortcutPackages.get("D"));
+                    test.assertEqual(new PackageSignature("e", "f", "1"), shortcutPackages.get("F"));
+                });
+            });
+
+            runner.testGroup("collect(DependencyClosureResolver,int,boolean)", () ->
+            {
+                runner.test("with null resolver", (Test test) ->
+                {
+                    test.assertThrows(() -> GarbageCollector.collect(null, 1, false), new PreConditionFailure("resolver cannot be null."));
+                });
+
+                runner.test("with negative keepCount", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    test.assertThrows(() -> GarbageCollector.collect(new DependencyClosureResolver(qubFolder), -1, false),
+                        new PreConditionFailure("keepCount (-1) must be greater than or equal to 0."));
+                });
+
+                runner.test("with no installed packages", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final GarbageCollection collection = GarbageCollector.collect(new DependencyClosureResolver(qubFolder), 0, false).await();
+                    test.assertEqual(Iterable.create(), collection.getReachable());
+                    test.assertEqual(Iterable.create(), collection.getUnreachable());
+                    test.assertEqual(0L, collection.getReclaimableBytes());
+                });
+
+                runner.test("with dry run", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    installPackages(qubFolder);
+
+                    final GarbageCollection collection = GarbageCollector.collect(new DependencyClosureResolver(qubFolder), 0, true).await();
+                    test.assertEqual(
+                        Iterable.create(new PackageSignature("a", "b", "1"), new PackageSignature("c", "d", "1")),
+                        collection.getReachable());
+                    test.assertEqual(
+                        Iterable.create(new PackageSignature("a", "b", "2"), new PackageSignature("c", "d", "2"), new PackageSignature("e", "f", "1")),
+                        collection.getUnreachable());
+                    final File unusedJarFile = getStoredJarFile(qubFolder, new PackageSignature("e", "f", "1"));
+                    test.assertEqual(Iterable.create(unusedJarFile), collection.getUnusedJarFiles());
+                    test.assertEqual(
+                        getSizeWithoutJar(qubFolder, new PackageSignature("a", "b", "2")) +
+                            getSizeWithoutJar(qubFolder, new PackageSignature("c", "d", "2")) +
+                            getSizeWithoutJar(qubFolder, new PackageSignature("e", "f", "1")) +
+                            JarStore.getSize(unusedJarFile),
+                        collection.getReclaimableBytes());
+                    test.assertEqual(Iterable.create(), collection.getErrors());
+
+                    test.assertTrue(qubFolder.getFolder("a/b/2").await().exists().await());
+                    test.assertTrue(qubFolder.getFolder("e/f/1").await().exists().await());
+                    test.assertTrue(unusedJarFile.exists().await());
+                    test.assertNotNull(PackageIndex.load(qubFolder).await().get("e", "f", "1"));
+                });
+
+                runner.test("with keepCount", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    installPackages(qubFolder);
+
+                    final GarbageCollection collection = GarbageCollector.collect(new DependencyClosureResolver(qubFolder), 1, false).await();
+                    test.assertEqual(Iterable.create(), collection.getUnreachable());
+                    test.assertEqual(0L, collection.getReclaimableBytes());
+                    test.assertTrue(qubFolder.getFolder("a/b/2").await().exists().await());
+                });
+
+                runner.test("with legacy classpath shortcut", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    installPackages(qubFolder);
+                    qubFolder.getFile("B.cmd").await().setContentsAsString("@echo OFF\njava -cp %~dp0a/b/2/b.jar;%~dp0/qub/c/d/1/d a.B %*\n").await();
+
+                    final GarbageCollection collection = GarbageCollector.collect(new DependencyClosureResolver(qubFolder), 0, true).await();
+                    test.assertEqual(
+                        Iterable.create(new PackageSignature("a", "b", "2")),
+                        collection.getReachable());
+                    test.assertEqual(
+                        Iterable.create(new PackageSignature("a", "b", "1"), new PackageSignature("c", "d", "1"), new PackageSignature("c", "d", "2"), new PackageSignature("e", "f", "1")),
+                        collection.getUnreachable());
+                });
+
+                runner.test("with shortcut that can't be parsed", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    installPackages(qubFolder);
+                    qubFolder.getFile("B.cmd").await().setContentsAsString("@echo OFF\nset JAVA_OPTS=-Xmx1g\n\"%JAVA_HOME%\\bin\\java\" %JAVA_OPTS% -cp \"%~dp0a/b/1/b.jar\" a.B %*\n").await();
+
+                    final GarbageCollection collection = GarbageCollector.collect(new DependencyClosureResolver(qubFolder), 0, false).await();
+                    test.assertEqual(
+                        Iterable.create(new PackageSignature("a", "b", "1"), new PackageSignature("a", "b", "2"), new PackageSignature("c", "d", "1")),
+                        collection.getReachable());
+                    test.assertEqual(
+                        Iterable.create(new PackageSignature("c", "d", "2"), new PackageSignature("e", "f", "1")),
+                        collection.getUnreachable());
+                    test.assertEqual(Iterable.create(), collection.getErrors());
+                    test.assertTrue(qubFolder.getFolder("a/b/1").await().exists().await());
+                    test.assertTrue(qubFolder.getFolder("a/b/2").await().exists().await());
+                    test.assertFalse(qubFolder.getFolder("c/d/2").await().exists().await());
+                });
+
+                runner.test("with unreachable packages", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    installPackages(qubFolder);
+
+                    final GarbageCollection collection = GarbageCollector.collect(new DependencyClosureResolver(qubFolder), 0, false).await();
+                    test.assertEqual(
+                        Iterable.create(new PackageSignature("a", "b", "2"), new PackageSignature("c", "d", "2"), new PackageSignature("e", "f", "1")),
+                        collection.getUnreachable());
+                    test.assertEqual(Iterable.create(), collection.getErrors());
+
+                    test.assertTrue(qubFolder.getFolder("a/b/1").await().exists().await());
+                    test.assertTrue(qubFolder.getFolder("c/d/1").await().exists().await());
+                    test.assertFalse(qubFolder.getFolder("a/b/2").await().exists().await());
+                    test.assertFalse(qubFolder.getFolder("c/d/2").await().exists().await());
+                    test.assertFalse(qubFolder.getFolder("e").await().exists().await());
+
+                    // The jars of a/b:2 and c/d:2 have the same contents as the jars of a/b:1 and c/d:1.
+                    test.assertTrue(getStoredJarFile(qubFolder, new PackageSignature("a", "b", "1")).exists().await());
+                    test.assertTrue(getStoredJarFile(qubFolder, new PackageSignature("c", "d", "1")).exists().await());
+                    test.assertFalse(getStoredJarFile(qubFolder, new PackageSignature("e", "f", "1")).exists().await());
+
+                    final PackageIndex packageIndex = PackageIndex.load(qubFolder).await();
+                    test.assertEqual(2, packageIndex.getEntries().getCount());
+                    test.assertNotNull(packageIndex.get("a", "b", "1"));
+                    test.assertNotNull(packageIndex.get("c", "d", "1"));
+                    test.assertEqual(Iterable.create(new PackageSignature("a", "b", "1"), new PackageSignature("c", "d", "1")), InstalledPackages.getAll(qubFolder).await());
+                });
+
+                runner.test("with lock files next to removed versions", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    installPackages(qubFolder);
+                    final File keptLockFile = PackageLock.getLockFile(qubFolder.getFolder("a/b/1").await());
+                    keptLockFile.setContentsAsString("").await();
+                    PackageLock.getLockFile(qubFolder.getFolder("a/b/2").await()).setContentsAsString("").await();
+                    PackageLock.getLockFile(qubFolder.getFolder("e/f/1").await()).setContentsAsString("").await();
+
+                    final GarbageCollection collection = GarbageCollector.collect(new DependencyClosureResolver(qubFolder), 0, false).await();
+                    test.assertEqual(Iterable.create(), collection.getErrors());
+                    test.assertTrue(keptLockFile.exists().await());
+                    test.assertFalse(qubFolder.getFile("a/b/2.lock").await().exists().await());
+                    test.assertFalse(qubFolder.getFolder("e").await().exists().await());
+                });
+
+                runner.test("with stored jar that no index entry refers to", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    installPackages(qubFolder);
+                    final File orphanedJarFile = new JarStore(qubFolder).getJarFile(ContentHash.sha256(new byte[] { 1, 2, 3 }));
+                    orphanedJarFile.setContents(new byte[] { 1, 2, 3 }).await();
+
+                    final GarbageCollection collection = GarbageCollector.collect(new DependencyClosureResolver(qubFolder), 1, false).await();
+                    test.assertEqual(Iterable.create(), collection.getUnreachable());
+                    test.assertEqual(Iterable.create(orphanedJarFile), collection.getUnusedJarFiles());
+                    test.assertEqual(3L, collection.getReclaimableBytes());
+                    test.assertEqual(Iterable.create(), collection.getErrors());
+                    test.assertFalse(orphanedJarFile.exists().await());
+                    test.assertTrue(getStoredJarFile(qubFolder, new PackageSignature("e", "f", "1")).exists().await());
+                });
+            });
+        });
+    }
+
+    // Installs a/b:1, which the B shortcut runs and which depends on c/d:1, and the unreachable
+    // packages a/b:2, c/d:2, and e/f:1. Every jar is also in the jar store.
+    private static void installPackages(Folder qubFolder)
+    {
+        PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("c", "d", "1"), null);
+        PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("c", "d", "2"), null);
+        PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "1"), "a.B", new PackageSignature("c", "d", "1"));
+        PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "2"), "a.B");
+        PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("e", "f", "1"), null);
+        for (final PackageSignature signature : InstalledPackages.getAll(qubFolder).await())
+        {
+            signature.getJarFile(qubFolder).copyTo(getStoredJarFile(qubFolder, signature)).await();
+        }
+        qubFolder.getFile("B.cmd").await().setContentsAsString(PackageShortcut.create(qubFolder, new PackageSignature("a", "b", "1")).await().getContents()).await();
+    }
+
+    private static File getStoredJarFile(Folder qubFolder, PackageSignature signature)
+    {
+        return new JarStore(qubFolder).getJarFile(ContentHash.sha256(signature.getJarFile(qubFolder)).await());
+    }
+
+    private static long getSizeWithoutJar(Folder qubFolder, PackageSignature signature)
+    {
+        long result = 0;
+        for (final File file : signature.getVersionFolder(qubFolder).getFilesRecursively().await())
+        {
+            if (!file.equals(signature.getJarFile(qubFolder)))
+            {
+                result += JarStore.getSize(file);
+            }
+        }
+        return result;
+    }
+
+    private static Folder getInMemoryQubFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/qub").await();
+    }
+}
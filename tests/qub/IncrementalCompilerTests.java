@@ -0,0 +1,132 @@
+package qub;
+
+public class IncrementalCompilerTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(IncrementalCompiler.class, () ->
+        {
+            runner.testGroup("isSupported(Folder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> new IncrementalCompiler().isSupported(null),
+                        new PreConditionFailure("projectFolder cannot be null."));
+                });
+
+                runner.test("with in-memory folder", (Test test) ->
+                {
+                    test.assertFalse(new IncrementalCompiler().isSupported(getInMemoryCurrentFolder(test)));
+                });
+            });
+
+            runner.testGroup("getChangedSourcePaths(Folder,CompilationState)", () ->
+            {
+                runner.test("with unchanged, changed, and new sources", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    currentFolder.getFile("sources/A.java").await().setContentsAsString("A").await();
+                    currentFolder.getFile("sources/B.java").await().setContentsAsString("B").await();
+                    final CompilationState previous = CompilationState.create(currentFolder).await();
+                    currentFolder.getFile("sources/B.java").await().setContentsAsString("B2").await();
+                    currentFolder.getFile("tests/C.java").await().setContentsAsString("C").await();
+
+                    test.assertEqual(
+                        Iterable.create("sources/B.java", "tests/C.java"),
+                        IncrementalCompiler.getChangedSourcePaths(currentFolder, previous));
+                });
+            });
+
+            runner.testGroup("getDeletedSourcePaths(Folder,CompilationState)", () ->
+            {
+                runner.test("with deleted source", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    currentFolder.getFile("sources/A.java").await().setContentsAsString("A").await();
+                    final CompilationState previous = CompilationState.parse("sources/A.java\t1\tA=2\nsources/B.java\t3\tB=4\n");
+
+                    test.assertEqual(
+                        Iterable.create("sources/B.java"),
+                        IncrementalCompiler.getDeletedSourcePaths(currentFolder, previous));
+                });
+            });
+
+            runner.testGroup("getDependentSourcePaths(ClassDependencyGraph,CompilationState,Iterable<String>)", () ->
+            {
+                runner.test("with no API changes", (Test test) ->
+                {
+                    final ClassDependencyGraph classGraph = ClassDependencyGraph.create();
+                    classGraph.addClass("A", "1", false, Iterable.create());
+                    classGraph.addClass("B", "2", false, Iterable.create("A"));
+                    final CompilationState state = CompilationState.parse("sources/A.java\t1\tA=2\nsources/B.java\t3\tB=4\n");
+
+                    test.assertEqual(Iterable.create(), IncrementalCompiler.getDependentSourcePaths(classGraph, state, Iterable.create()));
+                });
+
+                runner.test("with API change", (Test test) ->
+                {
+                    final ClassDependencyGraph classGraph = ClassDependencyGraph.create();
+                    classGraph.addClass("A", "1", false, Iterable.create());
+                    classGraph.addClass("B", "2", false, Iterable.create("A"));
+                    classGraph.addClass("B$1", "3", false, Iterable.create("A"));
+                    classGraph.addClass("C", "4", false, Iterable.create("B"));
+                    classGraph.addClass("ATests", "5", true, Iterable.create("A"));
+                    final CompilationState state = CompilationState.parse(
+                        "sources/A.java\t1\tA=2\n" +
+                        "sources/B.java\t3\tB=4,B$1=5\n" +
+                        "sources/C.java\t6\tC=7\n" +
+                        "tests/ATests.java\t8\tATests=9\n");
+
+                    test.assertEqual(
+                        Iterable.create("sources/B.java", "tests/ATests.java"),
+                        IncrementalCompiler.getDependentSourcePaths(classGraph, state, Iterable.create("A")));
+                });
+            });
+
+            runner.testGroup("getJavaVersion(Folder,String)", () ->
+            {
+                final Action3<String,String,String> getJavaVersionTest = (String projectJson, String sourcePath, String expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(projectJson) + " and " + Strings.escapeAndQuote(sourcePath), (Test test) ->
+                    {
+                        final Folder currentFolder = getInMemoryCurrentFolder(test);
+                        currentFolder.getFile("project.json").await().setContentsAsString(projectJson).await();
+                        test.assertEqual(expected, IncrementalCompiler.getJavaVersion(currentFolder, sourcePath).await());
+                    });
+                };
+
+                getJavaVersionTest.run("{}", "sources/A.java", null);
+                getJavaVersionTest.run("{\"java\":{}}", "sources/A.java", null);
+                getJavaVersionTest.run("{\"java\":{\"version\":\"1.8\"}}", "sources/A.java", "1.8");
+                getJavaVersionTest.run("{\"java\":{\"version\":\"1.8\",\"tests\":{\"version\":\"11\"}}}", "sources/A.java", "1.8");
+                getJavaVersionTest.run("{\"java\":{\"version\":\"1.8\",\"tests\":{\"version\":\"11\"}}}", "tests/ATests.java", "11");
+                getJavaVersionTest.run("{\"java\":{\"sources\":{\"version\":\"1.8\"}}}", "sources/a/B.java", "1.8");
+            });
+
+            runner.testGroup("getJavaVersionArguments(String,int)", () ->
+            {
+                final Action3<String,Integer,Iterable<String>> getJavaVersionArgumentsTest = (String javaVersion, Integer compilerVersion, Iterable<String> expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(javaVersion) + " and " + compilerVersion, (Test test) ->
+                    {
+                        test.assertEqual(expected, IncrementalCompiler.getJavaVersionArguments(javaVersion, compilerVersion));
+                    });
+                };
+
+                getJavaVersionArgumentsTest.run("1.8", 8, Iterable.create("-source", "1.8", "-target", "1.8"));
+                getJavaVersionArgumentsTest.run("1.8", 11, Iterable.create("--release", "8"));
+                getJavaVersionArgumentsTest.run("11", 17, Iterable.create("--release", "11"));
+            });
+        });
+    }
+
+    private static Folder getInMemoryCurrentFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/").await();
+    }
+}
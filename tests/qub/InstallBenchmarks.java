@@ -0,0 +1,367 @@
+package qub;
+
+public class InstallBenchmarks
+{
+    private static final String benchmarkFormat = "%-10s %-8s %-16s %12s %12s %12s";
+
+    public static void main(String[] args)
+    {
+        PreCondition.assertNotNull(args, "args");
+
+        try (final Console console = new Console(Iterable.create(args)))
+        {
+            main(console);
+        }
+    }
+
+    public static void main(Console console)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        final int warmupIterations = getIntegerArgument(console, "warmup", 3);
+        final int iterations = getIntegerArgument(console, "iterations", 10);
+        final Iterable<Long> jarSizes = getLongsArgument(console, "jarSizes", "1024,1048576,104857600,524288000");
+        final Iterable<Long> dependencyCounts = getLongsArgument(console, "dependencyCounts", "0,10,50,200");
+        final String fileSystems = getStringArgument(console, "fileSystems", "memory,disk");
+
+        console.writeLine(String.format(java.util.Locale.ROOT, benchmarkFormat, "Benchmark", "Storage", "Parameter", "Mean (ms)", "Min (ms)", "Max (ms)")).await();
+        for (final String fileSystemName : fileSystems.split(","))
+        {
+            final Folder rootFolder = createRootFolder(console, fileSystemName.trim());
+            try
+            {
+                for (final long jarSize : jarSizes)
+                {
+                    benchmarkPublish(console, rootFolder, (int)jarSize, warmupIterations, iterations);
+                    benchmarkInstall(console, rootFolder, (int)jarSize, warmupIterations, iterations);
+                }
+                for (final long dependencyCount : dependencyCounts)
+                {
+                    benchmarkResolve(console, rootFolder, (int)dependencyCount, warmupIterations, iterations);
+                    benchmarkShortcut(console, rootFolder, (int)dependencyCount, warmupIterations, iterations);
+                }
+            }
+            finally
+            {
+                AtomicFiles.deleteFolder(rootFolder).await();
+            }
+        }
+    }
+
+    private static void benchmarkPublish(Console console, Folder rootFolder, int jarSize, int warmupIterations, int iterations)
+    {
+        final Folder benchmarkFolder = rootFolder.getFolder("publish").await();
+        final File sourceJarFile = benchmarkFolder.getFile("project/outputs/b.jar").await();
+        sourceJarFile.setContents(createJarContents(jarSize)).await();
+        final File targetJarFile = benchmarkFolder.getFile("qub/a/b/1/b.jar").await();
+        final ArtifactPublisher publisher = new ArtifactPublisher(PublishMode.Copy);
+
+        measure(console, "publish", rootFolder, formatBytes(jarSize), warmupIterations, iterations, (Integer iteration) ->
+        {
+            AtomicFiles.deleteFolder(targetJarFile.getParentFolder().await()).await();
+            return () -> publisher.publish(sourceJarFile, targetJarFile).await();
+        });
+
+        AtomicFiles.deleteFolder(benchmarkFolder).await();
+    }
+
+    private static void benchmarkInstall(Console console, Folder rootFolder, int jarSize, int warmupIterations, int iterations)
+    {
+        final Folder benchmarkFolder = rootFolder.getFolder("install").await();
+        final Folder projectFolder = benchmarkFolder.getFolder("project").await();
+        final Folder qubFolder = benchmarkFolder.getFolder("qub").await();
+        setProjectJson(projectFolder, "b", Iterable.create());
+        final File projectJarFile = projectFolder.getFile("outputs/b.jar").await();
+        projectJarFile.setContents(createJarContents(jarSize)).await();
+        InstallManifest.create(projectFolder, projectJarFile)
+            .save(InstallManifest.getManifestFile(projectJarFile)).await();
+
+        measure(console, "install", rootFolder, formatBytes(jarSize), warmupIterations, iterations, (Integer iteration) ->
+        {
+            AtomicFiles.deleteFolder(qubFolder).await();
+            return () ->
+            {
+                try (final Console installConsole = createConsole(console, projectFolder, qubFolder, "-folder=" + projectFolder.toString()))
+                {
+                    final Install install = new Install();
+                    install.setShowTotalDuration(false);
+                    install.setQubTest(createQubTest());
+                    install.main(installConsole);
+                    if (installConsole.getExitCode() != 0)
+                    {
+                        throw new RuntimeException("The benchmark install failed with exit code " + installConsole.getExitCode() + ".");
+                    }
+                }
+            };
+        });
+
+        AtomicFiles.deleteFolder(benchmarkFolder).await();
+    }
+
+    private static void benchmarkResolve(Console console, Folder rootFolder, int dependencyCount, int warmupIterations, int iterations)
+    {
+        final Folder benchmarkFolder = rootFolder.getFolder("resolve").await();
+        final Folder projectFolder = benchmarkFolder.getFolder("project").await();
+        final Folder qubFolder = benchmarkFolder.getFolder("qub").await();
+        createDependencies(projectFolder, qubFolder, dependencyCount);
+
+        measure(console, "resolve", rootFolder, dependencyCount + " dependencies", warmupIterations, iterations, (Integer iteration) ->
+        {
+            return () ->
+            {
+                try (final Console planConsole = createConsole(console, projectFolder, qubFolder))
+                {
+                    if (createPlan(planConsole, projectFolder) == null)
+                    {
+                        throw new RuntimeException("The benchmark install plan couldn't be created.");
+                    }
+                }
+            };
+        });
+
+        AtomicFiles.deleteFolder(benchmarkFolder).await();
+    }
+
+    private static void benchmarkShortcut(Console console, Folder rootFolder, int dependencyCount, int warmupIterations, int iterations)
+    {
+        final Folder benchmarkFolder = rootFolder.getFolder("shortcut").await();
+        final Folder projectFolder = benchmarkFolder.getFolder("project").await();
+        final Folder qubFolder = benchmarkFolder.getFolder("qub").await();
+        createDependencies(projectFolder, qubFolder, dependencyCount);
+
+        final InstallPlan plan;
+        try (final Console planConsole = createConsole(console, projectFolder, qubFolder))
+        {
+            plan = createPlan(planConsole, projectFolder);
+        }
+        // The launcher jar's classpath includes the installed project jar, which an install would
+        // have published by the time the shortcut is written.
+        plan.getInstalledProjectJarFile().setContents(createJarContents(1024)).await();
+
+        measure(console, "shortcut", rootFolder, dependencyCount + " dependencies", warmupIterations, iterations, (Integer iteration) ->
+        {
+            return () ->
+            {
+                LauncherJar.create(plan.getLauncherJarFile(), plan.getMainClass(), plan.getClasspathFiles()).await();
+                AtomicFiles.setContentsAsString(plan.getShortcutFile(), plan.getShortcutFileContents()).await();
+            };
+        });
+
+        AtomicFiles.deleteFolder(benchmarkFolder).await();
+    }
+
+    private static void measure(Console console, String benchmarkName, Folder rootFolder, String parameter, int warmupIterations, int iterations, Function1<Integer,Action0> prepareIteration)
+    {
+        for (int i = 0; i < warmupIterations; ++i)
+        {
+            prepareIteration.run(i).run();
+        }
+
+        long totalNanoseconds = 0;
+        long minimumNanoseconds = Long.MAX_VALUE;
+        long maximumNanoseconds = 0;
+        for (int i = 0; i < iterations; ++i)
+        {
+            final Action0 iteration = prepareIteration.run(warmupIterations + i);
+            final long startNanoseconds = System.nanoTime();
+            iteration.run();
+            final long elapsedNanoseconds = System.nanoTime() - startNanoseconds;
+
+            totalNanoseconds += elapsedNanoseconds;
+            minimumNanoseconds = Math.min(minimumNanoseconds, elapsedNanoseconds);
+            maximumNanoseconds = Math.max(maximumNanoseconds, elapsedNanoseconds);
+        }
+
+        final String storage = rootFolder.getFileSystem() instanceof InMemoryFileSystem ? "memory" : "disk";
+        console.writeLine(String.format(java.util.Locale.ROOT, benchmarkFormat,
+            benchmarkName,
+            storage,
+            parameter,
+            formatMilliseconds(iterations == 0 ? 0 : totalNanoseconds / iterations),
+            formatMilliseconds(iterations == 0 ? 0 : minimumNanoseconds),
+            formatMilliseconds(maximumNanoseconds))).await();
+    }
+
+    private static void createDependencies(Folder projectFolder, Folder qubFolder, int dependencyCount)
+    {
+        final List<String> dependencyProjects = List.create();
+        for (int i = 0; i < dependencyCount; ++i)
+        {
+            final String dependencyProject = "dependency" + i;
+            final Folder dependencyVersionFolder = qubFolder.getFolder("fake-publisher/" + dependencyProject + "/1").await();
+            setProjectJson(dependencyVersionFolder, dependencyProject, i == 0 ? Iterable.create() : Iterable.create("dependency" + (i - 1)));
+            dependencyVersionFolder.getFile(dependencyProject + ".jar").await()
+                .setContents(createJarContents(1024)).await();
+            dependencyProjects.add(dependencyProject);
+        }
+        setProjectJson(projectFolder, "b", dependencyProjects);
+    }
+
+    // A real jar that is about jarSize bytes long: a class entry for the main class, and a stored
+    // entry of random bytes that makes up the rest of the size.
+    private static byte[] createJarContents(int jarSize)
+    {
+        final java.io.ByteArrayOutputStream jarBytes = new java.io.ByteArrayOutputStream(jarSize + 1024);
+        try (final java.util.zip.ZipOutputStream zipOutput = new java.util.zip.ZipOutputStream(jarBytes))
+        {
+            zipOutput.putNextEntry(new java.util.zip.ZipEntry("fake/MainClass.class"));
+            zipOutput.write(new byte[] { (byte)0xCA, (byte)0xFE, (byte)0xBA, (byte)0xBE, 0, 0, 0, 52 });
+            zipOutput.closeEntry();
+
+            final byte[] padding = new byte[Math.max(0, jarSize - 256)];
+            new java.util.Random(jarSize).nextBytes(padding);
+            final java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+            crc.update(padding);
+            final java.util.zip.ZipEntry paddingEntry = new java.util.zip.ZipEntry("fake/padding.bin");
+            paddingEntry.setMethod(java.util.zip.ZipEntry.STORED);
+            paddingEntry.setSize(padding.length);
+            paddingEntry.setCompressedSize(padding.length);
+            paddingEntry.setCrc(crc.getValue());
+            zipOutput.putNextEntry(paddingEntry);
+            zipOutput.write(padding);
+            zipOutput.closeEntry();
+        }
+        catch (java.io.IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return jarBytes.toByteArray();
+    }
+
+    private static void setProjectJson(Folder projectFolder, String project, Iterable<String> dependencyProjects)
+    {
+        projectFolder.getFile("project.json").await()
+            .setContentsAsString(JSON.object(projectJson ->
+            {
+                projectJson.stringProperty("project", project);
+                projectJson.stringProperty("publisher", "fake-publisher");
+                projectJson.stringProperty("version", "1");
+                projectJson.objectProperty("java", java ->
+                {
+                    java.stringProperty("mainClass", "fake.MainClass");
+                    java.arrayProperty("dependencies", dependencies ->
+                    {
+                        for (final String dependencyProject : dependencyProjects)
+                        {
+                            dependencies.objectElement(dependency ->
+                            {
+                                dependency.stringProperty("publisher", "fake-publisher");
+                                dependency.stringProperty("project", dependencyProject);
+                                dependency.stringProperty("version", "1");
+                            });
+                        }
+                    });
+                });
+            }).toString())
+            .await();
+    }
+
+    private static Folder createRootFolder(Console console, String fileSystemName)
+    {
+        Folder result;
+        if (fileSystemName.equals("memory"))
+        {
+            final InMemoryFileSystem fileSystem = new InMemoryFileSystem(console.getParallelAsyncRunner(), console.getClock());
+            fileSystem.createRoot("/");
+            result = fileSystem.getFolder("/benchmarks").await();
+        }
+        else if (fileSystemName.equals("disk"))
+        {
+            try
+            {
+                result = console.getFileSystem().getFolder(java.nio.file.Files.createTempDirectory("qub-install-benchmarks").toString()).await();
+            }
+            catch (java.io.IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unrecognized file system: " + Strings.escapeAndQuote(fileSystemName) + ". Expected memory or disk.");
+        }
+        return result;
+    }
+
+    private static Console createConsole(Console parentConsole, Folder currentFolder, Folder qubFolder, String... commandLineArguments)
+    {
+        final Console result = new Console(Iterable.create(commandLineArguments));
+        result.setLineSeparator("\n");
+        result.setOutput(new InMemoryCharacterStream(parentConsole.getParallelAsyncRunner()));
+        result.setFileSystem(currentFolder.getFileSystem());
+        result.setCurrentFolderPath(currentFolder.getPath());
+        final Map<String,String> environmentVariables = Map.create();
+        environmentVariables.set("QUB_HOME", qubFolder.toString());
+        result.setEnvironmentVariables(environmentVariables);
+        return result;
+    }
+
+    private static InstallPlan createPlan(Console console, Folder projectFolder)
+    {
+        try (final InstallLogger logger = InstallLogger.create(console))
+        {
+            return InstallPlan.create(logger, projectFolder, new InstallMetrics(), false, new InstallCache());
+        }
+    }
+
+    private static QubTest createQubTest()
+    {
+        final Build build = new Build();
+        build.setJavaCompiler(new FakeJavaCompiler());
+        build.setJarCreator(new FakeJarCreator());
+
+        final QubTest result = new QubTest();
+        result.setJavaRunner(new FakeJavaRunner());
+        result.setBuild(build);
+
+        return result;
+    }
+
+    private static int getIntegerArgument(Console console, String argumentName, int defaultValue)
+    {
+        final String value = getStringArgument(console, argumentName, null);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static Iterable<Long> getLongsArgument(Console console, String argumentName, String defaultValue)
+    {
+        final List<Long> result = List.create();
+        for (final String value : getStringArgument(console, argumentName, defaultValue).split(","))
+        {
+            if (!value.trim().isEmpty())
+            {
+                result.add(Long.parseLong(value.trim()));
+            }
+        }
+        return result;
+    }
+
+    private static String getStringArgument(Console console, String argumentName, String defaultValue)
+    {
+        final CommandLineArgument argument = console.getCommandLine().get(argumentName);
+        return argument == null || Strings.isNullOrEmpty(argument.getValue()) ? defaultValue : argument.getValue();
+    }
+
+    private static String formatBytes(long byteCount)
+    {
+        String result;
+        if (byteCount >= 1024 * 1024)
+        {
+            result = (byteCount / (1024 * 1024)) + " MB";
+        }
+        else if (byteCount >= 1024)
+        {
+            result = (byteCount / 1024) + " KB";
+        }
+        else
+        {
+            result = byteCount + " B";
+        }
+        return result;
+    }
+
+    private static String formatMilliseconds(long nanoseconds)
+    {
+        return String.format(java.util.Locale.ROOT, "%.3f", nanoseconds / 1000000.0);
+    }
+}
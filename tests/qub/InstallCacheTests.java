@@ -0,0 +1,67 @@
+package qub;
+
+public class InstallCacheTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(InstallCache.class, () ->
+        {
+            runner.testGroup("getProjectJson(File)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> new InstallCache().getProjectJson(null), new PreConditionFailure("projectJsonFile cannot be null."));
+                });
+
+                runner.test("with unchanged file", (Test test) ->
+                {
+                    final File projectJsonFile = getInMemoryRootFolder(test).getFile("project/project.json").await();
+                    projectJsonFile.setContentsAsString("{\"project\":\"a\"}").await();
+                    final InstallCache cache = new InstallCache();
+
+                    final ProjectJSON projectJson = cache.getProjectJson(projectJsonFile).await();
+                    test.assertEqual("a", projectJson.getProject());
+                    test.assertSame(projectJson, cache.getProjectJson(projectJsonFile).await());
+                });
+
+                runner.test("with changed file", (Test test) ->
+                {
+                    final File projectJsonFile = getInMemoryRootFolder(test).getFile("project/project.json").await();
+                    projectJsonFile.setContentsAsString("{\"project\":\"a\"}").await();
+                    final InstallCache cache = new InstallCache();
+                    test.assertEqual("a", cache.getProjectJson(projectJsonFile).await().getProject());
+
+                    projectJsonFile.setContentsAsString("{\"project\":\"b\"}").await();
+                    test.assertEqual("b", cache.getProjectJson(projectJsonFile).await().getProject());
+                });
+            });
+
+            runner.testGroup("getDependencyClosureResolver(Folder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> new InstallCache().getDependencyClosureResolver(null), new PreConditionFailure("qubFolder cannot be null."));
+                });
+
+                runner.test("with same and different Qub folders", (Test test) ->
+                {
+                    final Folder rootFolder = getInMemoryRootFolder(test);
+                    final InstallCache cache = new InstallCache();
+                    final DependencyClosureResolver resolver = cache.getDependencyClosureResolver(rootFolder.getFolder("qub").await());
+                    test.assertSame(resolver, cache.getDependencyClosureResolver(rootFolder.getFolder("qub").await()));
+                    test.assertNotSame(resolver, cache.getDependencyClosureResolver(rootFolder.getFolder("other-qub").await()));
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryRootFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/").await();
+    }
+}
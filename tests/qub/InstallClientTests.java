@@ -0,0 +1,137 @@
+package qub;
+
+public class InstallClientTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(InstallClient.class, () ->
+        {
+            runner.testGroup("main(Console)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> new InstallClient().main(null), new PreConditionFailure("console cannot be null."));
+                });
+
+                runner.test("with no running server", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final InMemoryCharacterStream output = new InMemoryCharacterStream();
+                    final int[] localInstallCount = new int[1];
+                    try (final Console console = InstallServerTests.createConsole(test, qubFolder, output, "-list"))
+                    {
+                        final InstallClient client = new InstallClient();
+                        client.setInstallCreator(() ->
+                        {
+                            ++localInstallCount[0];
+                            final Install install = new Install();
+                            install.setShowTotalDuration(false);
+                            return install;
+                        });
+                        client.main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(1, localInstallCount[0]);
+                });
+
+                runner.test("with stale port file", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    InstallServer.getPortFile(qubFolder).setContentsAsString(InstallServer.getPortFileContents(getUnusedPort(), "token")).await();
+                    final InMemoryCharacterStream output = new InMemoryCharacterStream();
+                    final int[] localInstallCount = new int[1];
+                    try (final Console console = InstallServerTests.createConsole(test, qubFolder, output, "-list"))
+                    {
+                        final InstallClient client = new InstallClient();
+                        client.setInstallCreator(() ->
+                        {
+                            ++localInstallCount[0];
+                            return new Install();
+                        });
+                        client.main(console);
+                    }
+                    test.assertEqual(1, localInstallCount[0]);
+                });
+
+                runner.test("with port file that has no token", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final InMemoryCharacterStream output = new InMemoryCharacterStream();
+                    final int[] localInstallCount = new int[1];
+                    // Something is listening on the port, but without a token the client doesn't send it anything.
+                    try (final java.net.ServerSocket serverSocket = new java.net.ServerSocket(0, 1, java.net.InetAddress.getLoopbackAddress());
+                         final Console console = InstallServerTests.createConsole(test, qubFolder, output, "-list"))
+                    {
+                        InstallServer.getPortFile(qubFolder).setContentsAsString(java.lang.Integer.toString(serverSocket.getLocalPort())).await();
+                        final InstallClient client = new InstallClient();
+                        client.setInstallCreator(() ->
+                        {
+                            ++localInstallCount[0];
+                            return new Install();
+                        });
+                        client.main(console);
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                    test.assertEqual(1, localInstallCount[0]);
+                });
+
+                runner.test("with running server", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final InMemoryCharacterStream output = new InMemoryCharacterStream();
+                    final int[] localInstallCount = new int[1];
+                    try (final Console serverConsole = InstallServerTests.createConsole(test, qubFolder, new InMemoryCharacterStream());
+                         final InstallServer server = InstallServer.start(serverConsole, qubFolder, 0, (Console requestConsole) ->
+                             {
+                                 requestConsole.writeLine("Installed remotely.").await();
+                                 requestConsole.setExitCode(2);
+                             }).await())
+                    {
+                        final Thread serverThread = new Thread(() -> server.run().await());
+                        serverThread.setDaemon(true);
+                        serverThread.start();
+
+                        try (final Console console = InstallServerTests.createConsole(test, qubFolder, output, "/project"))
+                        {
+                            final InstallClient client = new InstallClient();
+                            client.setInstallCreator(() ->
+                            {
+                                ++localInstallCount[0];
+                                return new Install();
+                            });
+                            client.main(console);
+                            test.assertEqual(2, console.getExitCode());
+                        }
+                    }
+                    test.assertEqual(0, localInstallCount[0]);
+                    test.assertEqual("Installed remotely.\n", output.getText().await());
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryQubFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/qub").await();
+    }
+
+    private static int getUnusedPort()
+    {
+        try (final java.net.ServerSocket serverSocket = new java.net.ServerSocket(0, 1, java.net.InetAddress.getLoopbackAddress()))
+        {
+            return serverSocket.getLocalPort();
+        }
+        catch (java.io.IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package qub;
+
+public class InstallGraphTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(InstallGraph.class, () ->
+        {
+            runner.testGroup("create(Iterable<Folder>)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> InstallGraph.create(null), new PreConditionFailure("projectFolders cannot be null."));
+                });
+
+                runner.test("with no folders", (Test test) ->
+                {
+                    final InstallGraph graph = InstallGraph.create(Iterable.create()).await();
+                    test.assertEqual(0, graph.getProjectCount());
+                });
+
+                runner.test("with folder without project.json", (Test test) ->
+                {
+                    final Folder projectsFolder = getInMemoryProjectsFolder(test);
+                    final Folder a = projectsFolder.getFolder("a").await();
+                    final InstallGraph graph = InstallGraph.create(Iterable.create(a)).await();
+                    test.assertEqual(1, graph.getProjectCount());
+                    test.assertEqual(Iterable.create(), graph.getDependencies(a));
+                });
+
+                runner.test("with dependent projects", (Test test) ->
+                {
+                    final Folder projectsFolder = getInMemoryProjectsFolder(test);
+                    final Folder a = setProjectJson(projectsFolder, "a");
+                    final Folder b = setProjectJson(projectsFolder, "b", "a");
+                    final Folder c = setProjectJson(projectsFolder, "c", "a", "b", "external");
+
+                    final InstallGraph graph = InstallGraph.create(Iterable.create(c, b, a)).await();
+                    test.assertEqual(3, graph.getProjectCount());
+                    test.assertEqual(Iterable.create(c, b, a), graph.getProjectFolders());
+                    test.assertEqual(Iterable.create(), graph.getDependencies(a));
+                    test.assertEqual(Iterable.create(a), graph.getDependencies(b));
+                    test.assertEqual(Iterable.create(a, b), graph.getDependencies(c));
+                    test.assertEqual(Iterable.create(c), graph.getDependents(b));
+                });
+
+                runner.test("with dependency cycle", (Test test) ->
+                {
+                    final Folder projectsFolder = getInMemoryProjectsFolder(test);
+                    final Folder a = setProjectJson(projectsFolder, "a", "b");
+                    final Folder b = setProjectJson(projectsFolder, "b", "a");
+
+                    test.assertThrows(() -> InstallGraph.create(Iterable.create(a, b)).await(),
+                        new IllegalArgumentException("The projects can't be installed because they have a dependency cycle: /projects/a -> /projects/b -> /projects/a"));
+                });
+            });
+        });
+    }
+
+    static Folder getInMemoryProjectsFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/projects").await();
+    }
+
+    static Folder setProjectJson(Folder projectsFolder, String project, String... dependencyProjects)
+    {
+        final Folder result = projectsFolder.getFolder(project).await();
+        result.getFile("project.json").await()
+            .setContentsAsString(JSON.object(projectJson ->
+            {
+                projectJson.stringProperty("publisher", "fake-publisher");
+                projectJson.stringProperty("project", project);
+                projectJson.stringProperty("version", "1");
+                projectJson.objectProperty("java", java ->
+                {
+                    java.arrayProperty("dependencies", dependencies ->
+                    {
+                        for (final String dependencyProject : dependencyProjects)
+                        {
+                            dependencies.objectElement(dependency ->
+                            {
+                                dependency.stringProperty("publisher", "fake-publisher");
+                                dependency.stringProperty("project", dependencyProject);
+                                dependency.stringProperty("version", "1");
+                            });
+                        }
+                    });
+                });
+            }).toString())
+            .await();
+        return result;
+    }
+}
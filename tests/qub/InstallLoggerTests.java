@@ -0,0 +1,154 @@
+package qub;
+
+public class InstallLoggerTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(InstallLogger.class, () ->
+        {
+            runner.testGroup("create(Console)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> InstallLogger.create(null), new PreConditionFailure("console cannot be null."));
+                });
+
+                runner.test("with no -verbose argument", (Test test) ->
+                {
+                    try (final Console console = createConsole(test, getInMemoryCharacterStream(test));
+                         final InstallLogger logger = InstallLogger.create(console))
+                    {
+                        test.assertEqual(LogLevel.Info, logger.getMinimumLevel());
+                        test.assertFalse(logger.isEnabled(LogLevel.Verbose));
+                        test.assertTrue(logger.isEnabled(LogLevel.Error));
+                    }
+                });
+
+                runner.test("with -verbose argument", (Test test) ->
+                {
+                    try (final Console console = createConsole(test, getInMemoryCharacterStream(test), "-verbose");
+                         final InstallLogger logger = InstallLogger.create(console))
+                    {
+                        test.assertEqual(LogLevel.Verbose, logger.getMinimumLevel());
+                        test.assertTrue(logger.isEnabled(LogLevel.Verbose));
+                    }
+                });
+
+                runner.test("with -verbose=false argument", (Test test) ->
+                {
+                    try (final Console console = createConsole(test, getInMemoryCharacterStream(test), "-verbose=false");
+                         final InstallLogger logger = InstallLogger.create(console))
+                    {
+                        test.assertEqual(LogLevel.Info, logger.getMinimumLevel());
+                    }
+                });
+            });
+
+            runner.testGroup("verbose(Function0<String>)", () ->
+            {
+                runner.test("when verbose is disabled", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final java.util.concurrent.atomic.AtomicInteger messageCount = new java.util.concurrent.atomic.AtomicInteger();
+                    try (final Console console = createConsole(test, output);
+                         final InstallLogger logger = new InstallLogger(console, LogLevel.Info))
+                    {
+                        logger.verbose(() -> "message " + messageCount.incrementAndGet());
+                    }
+                    test.assertEqual(0, messageCount.get());
+                    test.assertEqual("", output.getText().await());
+                });
+
+                runner.test("when verbose is enabled", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    try (final Console console = createConsole(test, output);
+                         final InstallLogger logger = new InstallLogger(console, LogLevel.Verbose))
+                    {
+                        logger.verbose(() -> "Copying a to b...");
+                    }
+                    test.assertEqual("VERBOSE: Copying a to b...\n", output.getText().await());
+                });
+            });
+
+            runner.testGroup("error(String)", () ->
+            {
+                runner.test("with message", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    try (final Console console = createConsole(test, output))
+                    {
+                        try (final InstallLogger logger = new InstallLogger(console, LogLevel.Info))
+                        {
+                            logger.error("Something broke.");
+                            test.assertEqual(1, console.getExitCode());
+                        }
+                    }
+                    test.assertEqual("ERROR: Something broke.\n", output.getText().await());
+                });
+            });
+
+            runner.testGroup("log(LogLevel,Function0<String>)", () ->
+            {
+                runner.test("with mixed levels", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    try (final Console console = createConsole(test, output);
+                         final InstallLogger logger = new InstallLogger(console, LogLevel.Info))
+                    {
+                        logger.info("Installing...");
+                        logger.verbose(() -> "hidden");
+                        logger.warning("Careful.");
+                    }
+                    test.assertEqual("Installing...\nWARNING: Careful.\n", output.getText().await());
+                });
+
+                runner.test("with timestamps", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final java.util.concurrent.atomic.AtomicLong nanoseconds = new java.util.concurrent.atomic.AtomicLong();
+                    try (final Console console = createConsole(test, output);
+                         final InstallLogger logger = new InstallLogger(console, LogLevel.Verbose, () -> nanoseconds.getAndAdd(2500000)))
+                    {
+                        logger.setShowTimestamps(true);
+                        logger.verbose(() -> "first");
+                        logger.verbose(() -> "second");
+                    }
+                    test.assertEqual("VERBOSE(2.500): first\nVERBOSE(5.000): second\n", output.getText().await());
+                });
+
+                runner.test("with more than the flush threshold", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final int lineCount = InstallLogger.flushThreshold;
+                    try (final Console console = createConsole(test, output);
+                         final InstallLogger logger = new InstallLogger(console, LogLevel.Info))
+                    {
+                        for (int i = 0; i < lineCount; ++i)
+                        {
+                            logger.info(Integer.toString(i));
+                        }
+                        logger.flush();
+                        test.assertEqual(lineCount, Strings.getLines(output.getText().await()).skipLast().getCount());
+                    }
+                });
+            });
+        });
+    }
+
+    private static InMemoryCharacterStream getInMemoryCharacterStream(Test test)
+    {
+        return new InMemoryCharacterStream(test.getParallelAsyncRunner());
+    }
+
+    private static Console createConsole(Test test, CharacterWriteStream output, String... commandLineArguments)
+    {
+        PreCondition.assertNotNull(test, "test");
+        PreCondition.assertNotNull(output, "output");
+
+        final Console result = new Console(Iterable.create(commandLineArguments));
+        result.setLineSeparator("\n");
+        result.setOutput(output);
+        return result;
+    }
+}
@@ -0,0 +1,209 @@
+package qub;
+
+public class InstallManifestTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(InstallManifest.class, () ->
+        {
+            runner.testGroup("create(Folder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> InstallManifest.create((Folder)null),
+                        new PreConditionFailure("projectFolder cannot be null."));
+                });
+
+                runner.test("with project files and jar file", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    currentFolder.getFile("project.json").await().setContentsAsString("{}").await();
+                    currentFolder.getFile("sources/A.java").await().setContentsAsString("abc").await();
+                    currentFolder.getFile("outputs/a.jar").await().setContentsAsString("a.jar").await();
+                    test.assertEqual(
+                        Iterable.create("project.json", "sources/A.java"),
+                        InstallManifest.create(currentFolder).getFilePaths());
+                });
+            });
+
+            runner.testGroup("create(Folder,File)", () ->
+            {
+                runner.test("with null projectFolder", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    test.assertThrows(() -> InstallManifest.create(null, currentFolder.getFile("outputs/a.jar").await()),
+                        new PreConditionFailure("projectFolder cannot be null."));
+                });
+
+                runner.test("with null projectJarFile", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    test.assertThrows(() -> InstallManifest.create(currentFolder, null),
+                        new PreConditionFailure("projectJarFile cannot be null."));
+                });
+
+                runner.test("with empty folder", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final InstallManifest manifest = InstallManifest.create(currentFolder, currentFolder.getFile("outputs/a.jar").await());
+                    test.assertEqual("", manifest.toString());
+                });
+
+                runner.test("with project files", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    currentFolder.getFile("project.json").await().setContentsAsString("{}").await();
+                    currentFolder.getFile("sources/A.java").await().setContentsAsString("abc").await();
+                    currentFolder.getFile("tests/ATests.java").await().setContentsAsString("").await();
+                    currentFolder.getFile("other/B.java").await().setContentsAsString("B").await();
+                    final InstallManifest manifest = InstallManifest.create(currentFolder, currentFolder.getFile("outputs/a.jar").await());
+                    test.assertEqual(
+                        Iterable.create("project.json", "sources/A.java", "tests/ATests.java"),
+                        manifest.getFilePaths());
+                    test.assertEqual("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", manifest.getFileHash("sources/A.java"));
+                });
+            });
+
+            runner.testGroup("parse(File)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> InstallManifest.parse(null), new PreConditionFailure("manifestFile cannot be null."));
+                });
+
+                runner.test("with saved manifest", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final File manifestFile = currentFolder.getFile("outputs/a.manifest").await();
+                    final InstallManifest manifest = InstallManifest.create();
+                    manifest.setFileHash("sources/A.java", "abc");
+                    manifest.setFileHash("project.json", "def");
+                    manifest.save(manifestFile).await();
+
+                    test.assertEqual("def project.json\nabc sources/A.java\n", manifestFile.getContentsAsString().await());
+
+                    final InstallManifest parsedManifest = InstallManifest.parse(manifestFile).await();
+                    test.assertEqual(manifest.toString(), parsedManifest.toString());
+                    test.assertNull(parsedManifest.getDifference(manifest));
+                });
+            });
+
+            runner.testGroup("getManifestFile(File)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> InstallManifest.getManifestFile(null), new PreConditionFailure("projectJarFile cannot be null."));
+                });
+
+                runner.test("with jar file", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    test.assertEqual(
+                        "/outputs/fake-project.manifest",
+                        InstallManifest.getManifestFile(currentFolder.getFile("outputs/fake-project.jar").await()).toString());
+                });
+            });
+
+            runner.testGroup("getDifference(InstallManifest)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> InstallManifest.create().getDifference(null), new PreConditionFailure("previous cannot be null."));
+                });
+
+                runner.test("with added file", (Test test) ->
+                {
+                    final InstallManifest previous = InstallManifest.create();
+                    final InstallManifest current = InstallManifest.create();
+                    current.setFileHash("sources/A.java", "abc");
+                    test.assertEqual("sources/A.java was added", current.getDifference(previous));
+                });
+
+                runner.test("with changed file", (Test test) ->
+                {
+                    final InstallManifest previous = InstallManifest.create();
+                    previous.setFileHash("sources/A.java", "abc");
+                    final InstallManifest current = InstallManifest.create();
+                    current.setFileHash("sources/A.java", "def");
+                    test.assertEqual("sources/A.java changed", current.getDifference(previous));
+                });
+
+                runner.test("with removed file", (Test test) ->
+                {
+                    final InstallManifest previous = InstallManifest.create();
+                    previous.setFileHash("sources/A.java", "abc");
+                    final InstallManifest current = InstallManifest.create();
+                    test.assertEqual("sources/A.java was removed", current.getDifference(previous));
+                });
+            });
+
+            runner.testGroup("update(Folder,Iterable<String>)", () ->
+            {
+                runner.test("with null projectFolder", (Test test) ->
+                {
+                    test.assertThrows(() -> InstallManifest.create().update(null, Iterable.create()),
+                        new PreConditionFailure("projectFolder cannot be null."));
+                });
+
+                runner.test("with changed file, removed folder, and outputs file", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    currentFolder.getFile("project.json").await().setContentsAsString("{}").await();
+                    currentFolder.getFile("sources/A.java").await().setContentsAsString("A").await();
+                    currentFolder.getFile("tests/a/ATests.java").await().setContentsAsString("ATests").await();
+                    final InstallManifest manifest = InstallManifest.create(currentFolder);
+
+                    currentFolder.getFile("sources/A.java").await().setContentsAsString("AA").await();
+                    currentFolder.getFolder("tests/a").await().delete().await();
+                    currentFolder.getFile("outputs/a.jar").await().setContentsAsString("a.jar").await();
+                    test.assertEqual(
+                        Iterable.create("sources/A.java", "tests/a/ATests.java"),
+                        manifest.update(currentFolder, Iterable.create("sources/A.java", "tests/a", "outputs/a.jar")));
+                    test.assertEqual(Iterable.create("project.json", "sources/A.java"), manifest.getFilePaths());
+                });
+            });
+
+            runner.testGroup("getChangedFilePaths(InstallManifest)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> InstallManifest.create().getChangedFilePaths(null), new PreConditionFailure("previous cannot be null."));
+                });
+
+                runner.test("with no changes", (Test test) ->
+                {
+                    final InstallManifest previous = InstallManifest.create();
+                    previous.setFileHash("sources/A.java", "abc");
+                    final InstallManifest current = InstallManifest.create();
+                    current.setFileHash("sources/A.java", "abc");
+                    test.assertEqual(Iterable.create(), current.getChangedFilePaths(previous));
+                });
+
+                runner.test("with added, changed, and removed files", (Test test) ->
+                {
+                    final InstallManifest previous = InstallManifest.create();
+                    previous.setFileHash("sources/A.java", "abc");
+                    previous.setFileHash("sources/B.java", "abc");
+                    previous.setFileHash("tests/ATests.java", "abc");
+                    final InstallManifest current = InstallManifest.create();
+                    current.setFileHash("project.json", "abc");
+                    current.setFileHash("sources/A.java", "abc");
+                    current.setFileHash("sources/B.java", "def");
+                    test.assertEqual(
+                        Iterable.create("project.json", "sources/B.java", "tests/ATests.java"),
+                        current.getChangedFilePaths(previous));
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryCurrentFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/").await();
+    }
+}
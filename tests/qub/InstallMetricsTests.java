@@ -0,0 +1,174 @@
+package qub;
+
+public class InstallMetricsTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(InstallMetrics.class, () ->
+        {
+            runner.testGroup("constructor(Function0<Long>)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> new InstallMetrics(null), new PreConditionFailure("nanoClock cannot be null."));
+                });
+
+                runner.test("with fake clock", (Test test) ->
+                {
+                    final InstallMetrics metrics = new InstallMetrics(createFakeClock(1000000));
+                    test.assertFalse(metrics.getPhaseNames().any());
+                    test.assertEqual(0L, metrics.getBytesCopied());
+                    test.assertEqual(0L, metrics.getFileSystemOperations());
+                });
+            });
+
+            runner.testGroup("getMetricsFile(File)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> InstallMetrics.getMetricsFile(null), new PreConditionFailure("projectJarFile cannot be null."));
+                });
+
+                runner.test("with project jar file", (Test test) ->
+                {
+                    final File projectJarFile = getInMemoryProjectFolder(test).getFile("outputs/fake-project.jar").await();
+                    test.assertEqual("/project/outputs/fake-project.metrics.json", InstallMetrics.getMetricsFile(projectJarFile).toString());
+                });
+            });
+
+            runner.testGroup("measure(String,Function0<T>)", () ->
+            {
+                runner.test("with empty phaseName", (Test test) ->
+                {
+                    final InstallMetrics metrics = new InstallMetrics(createFakeClock(1000000));
+                    test.assertThrows(() -> metrics.measure("", () -> 5), new PreConditionFailure("phaseName cannot be empty."));
+                });
+
+                runner.test("with repeated phase", (Test test) ->
+                {
+                    final InstallMetrics metrics = new InstallMetrics(createFakeClock(1000000));
+                    test.assertEqual(5, metrics.measure("Publish jar", () -> 5));
+                    metrics.measure("Write shortcut", () -> {});
+                    test.assertEqual(6, metrics.measure("Publish jar", () -> 6));
+                    test.assertEqual(Iterable.create("Publish jar", "Write shortcut"), metrics.getPhaseNames());
+                    test.assertEqual(2000000L, metrics.getPhaseNanoseconds("Publish jar"));
+                    test.assertEqual(1000000L, metrics.getPhaseNanoseconds("Write shortcut"));
+                    test.assertEqual(0L, metrics.getPhaseNanoseconds("Update package index"));
+                });
+
+                runner.test("with action that throws", (Test test) ->
+                {
+                    final InstallMetrics metrics = new InstallMetrics(createFakeClock(1000000));
+                    test.assertThrows(() -> metrics.measure("Publish jar", () -> { throw new NotFoundException("b.jar"); }),
+                        new NotFoundException("b.jar"));
+                    test.assertEqual(1000000L, metrics.getPhaseNanoseconds("Publish jar"));
+                });
+            });
+
+            runner.testGroup("measureConcurrently(String,Function0<T>)", () ->
+            {
+                runner.test("with empty phaseName", (Test test) ->
+                {
+                    final InstallMetrics metrics = new InstallMetrics(createFakeClock(1000000));
+                    test.assertThrows(() -> metrics.measureConcurrently("", () -> 5), new PreConditionFailure("phaseName cannot be empty."));
+                });
+
+                runner.test("with phase", (Test test) ->
+                {
+                    final InstallMetrics metrics = new InstallMetrics(createFakeClock(1000000));
+                    test.assertEqual(5, metrics.measureConcurrently("Stage install", () -> 5));
+                    metrics.measure("Run tests", () -> {});
+                    test.assertEqual(Iterable.create("Stage install", "Run tests"), metrics.getPhaseNames());
+                    test.assertEqual(1000000L, metrics.getPhaseNanoseconds("Stage install"));
+                    test.assertTrue(metrics.isConcurrentPhase("Stage install"));
+                    test.assertFalse(metrics.isConcurrentPhase("Run tests"));
+                });
+            });
+
+            runner.testGroup("writeTableTo(Console)", () ->
+            {
+                runner.test("with phases", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = new InMemoryCharacterStream(test.getParallelAsyncRunner());
+                    final InstallMetrics metrics = new InstallMetrics(createFakeClock(1500000));
+                    metrics.measure("Compile", () -> {});
+                    metrics.addBytesCopied(1024);
+                    metrics.addFileSystemOperations(3);
+                    try (final Console console = new Console())
+                    {
+                        console.setLineSeparator("\n");
+                        console.setOutput(output);
+                        metrics.writeTableTo(console).await();
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Phase                                Duration",
+                            "Compile                                1.5 ms",
+                            "Total                                  4.5 ms",
+                            "Bytes copied: 1024",
+                            "File system operations: 3"),
+                        Strings.getLines(output.getText().await()));
+                });
+
+                runner.test("with concurrent phase", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = new InMemoryCharacterStream(test.getParallelAsyncRunner());
+                    final InstallMetrics metrics = new InstallMetrics(createFakeClock(1500000));
+                    metrics.measureConcurrently("Stage install", () -> null);
+                    try (final Console console = new Console())
+                    {
+                        console.setLineSeparator("\n");
+                        console.setOutput(output);
+                        metrics.writeTableTo(console).await();
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Phase                                Duration",
+                            "* Stage install                        1.5 ms",
+                            "Total                                  4.5 ms",
+                            "* Ran at the same time as other phases, so its time overlaps the total.",
+                            "Bytes copied: 0",
+                            "File system operations: 0"),
+                        Strings.getLines(output.getText().await()));
+                });
+            });
+
+            runner.testGroup("save(File,String,boolean)", () ->
+            {
+                runner.test("with phases", (Test test) ->
+                {
+                    final File metricsFile = getInMemoryProjectFolder(test).getFile("outputs/fake-project.metrics.json").await();
+                    final InstallMetrics metrics = new InstallMetrics(createFakeClock(1000000));
+                    metrics.measure("Publish jar", () -> {});
+                    metrics.addBytesCopied(10);
+                    metrics.addFileSystemOperations(7);
+                    metrics.save(metricsFile, "a/b:1", true).await();
+
+                    final String metricsJson = metricsFile.getContentsAsString().await();
+                    test.assertTrue(metricsJson.contains("\"package\":\"a/b:1\""));
+                    test.assertTrue(metricsJson.contains("\"succeeded\":true"));
+                    test.assertTrue(metricsJson.contains("\"bytesCopied\":10"));
+                    test.assertTrue(metricsJson.contains("\"fileSystemOperations\":7"));
+                    test.assertTrue(metricsJson.contains("\"concurrent\":false"));
+                    test.assertTrue(metricsJson.contains("\"name\":\"Publish jar\""));
+                });
+            });
+        });
+    }
+
+    private static Function0<Long> createFakeClock(long tickNanoseconds)
+    {
+        final java.util.concurrent.atomic.AtomicLong nanoseconds = new java.util.concurrent.atomic.AtomicLong();
+        return () -> nanoseconds.getAndAdd(tickNanoseconds);
+    }
+
+    private static Folder getInMemoryProjectFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/project").await();
+    }
+}
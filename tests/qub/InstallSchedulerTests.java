@@ -0,0 +1,93 @@
+package qub;
+
+public class InstallSchedulerTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(InstallScheduler.class, () ->
+        {
+            runner.testGroup("constructor(int)", () ->
+            {
+                runner.test("with 0", (Test test) ->
+                {
+                    test.assertThrows(() -> new InstallScheduler(0), new PreConditionFailure("parallelism (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with 4", (Test test) ->
+                {
+                    test.assertEqual(4, new InstallScheduler(4).getParallelism());
+                });
+            });
+
+            runner.testGroup("run(InstallGraph,Function1<Folder,Boolean>,Action2<Folder,Boolean>)", () ->
+            {
+                runner.test("with dependent projects", (Test test) ->
+                {
+                    final Folder projectsFolder = InstallGraphTests.getInMemoryProjectsFolder(test);
+                    final Folder a = InstallGraphTests.setProjectJson(projectsFolder, "a");
+                    final Folder b = InstallGraphTests.setProjectJson(projectsFolder, "b", "a");
+                    final Folder c = InstallGraphTests.setProjectJson(projectsFolder, "c", "b");
+                    final InstallGraph graph = InstallGraph.create(Iterable.create(c, b, a)).await();
+
+                    final List<String> finished = List.create();
+                    new InstallScheduler(4).run(graph,
+                        (Folder projectFolder) -> true,
+                        (Folder projectFolder, Boolean installed) -> finished.add(projectFolder.getName() + ":" + installed))
+                        .await();
+                    test.assertEqual(Iterable.create("a:true", "b:true", "c:true"), finished);
+                });
+
+                runner.test("with failed dependency", (Test test) ->
+                {
+                    final Folder projectsFolder = InstallGraphTests.getInMemoryProjectsFolder(test);
+                    final Folder a = InstallGraphTests.setProjectJson(projectsFolder, "a");
+                    final Folder b = InstallGraphTests.setProjectJson(projectsFolder, "b", "a");
+                    final Folder c = InstallGraphTests.setProjectJson(projectsFolder, "c", "b");
+                    final InstallGraph graph = InstallGraph.create(Iterable.create(a, b, c)).await();
+
+                    final List<String> started = List.create();
+                    final List<String> finished = List.create();
+                    new InstallScheduler(2).run(graph,
+                        (Folder projectFolder) ->
+                        {
+                            started.add(projectFolder.getName());
+                            return false;
+                        },
+                        (Folder projectFolder, Boolean installed) -> finished.add(projectFolder.getName() + ":" + installed))
+                        .await();
+                    test.assertEqual(Iterable.create("a"), started);
+                    test.assertEqual(Iterable.create("a:false", "b:false", "c:false"), finished);
+                });
+
+                runner.test("with independent projects", (Test test) ->
+                {
+                    final Folder projectsFolder = InstallGraphTests.getInMemoryProjectsFolder(test);
+                    final Folder a = InstallGraphTests.setProjectJson(projectsFolder, "a");
+                    final Folder b = InstallGraphTests.setProjectJson(projectsFolder, "b");
+                    final InstallGraph graph = InstallGraph.create(Iterable.create(a, b)).await();
+
+                    final java.util.concurrent.CountDownLatch bothStarted = new java.util.concurrent.CountDownLatch(2);
+                    final List<String> finished = List.create();
+                    new InstallScheduler(2).run(graph,
+                        (Folder projectFolder) ->
+                        {
+                            bothStarted.countDown();
+                            try
+                            {
+                                return bothStarted.await(10, java.util.concurrent.TimeUnit.SECONDS);
+                            }
+                            catch (InterruptedException e)
+                            {
+                                return false;
+                            }
+                        },
+                        (Folder projectFolder, Boolean installed) -> finished.add(projectFolder.getName() + ":" + installed))
+                        .await();
+                    test.assertEqual(2, finished.getCount());
+                    test.assertTrue(finished.contains("a:true"));
+                    test.assertTrue(finished.contains("b:true"));
+                });
+            });
+        });
+    }
+}
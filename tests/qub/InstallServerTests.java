@@ -0,0 +1,233 @@
+package qub;
+
+public class InstallServerTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(InstallServer.class, () ->
+        {
+            runner.testGroup("getPortFile(Folder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> InstallServer.getPortFile(null), new PreConditionFailure("qubFolder cannot be null."));
+                });
+
+                runner.test("with folder", (Test test) ->
+                {
+                    test.assertEqual("/qub/install-server.port", InstallServer.getPortFile(getInMemoryQubFolder(test)).toString());
+                });
+            });
+
+            runner.testGroup("start(Console,Folder,int,Action1<Console>)", () ->
+            {
+                runner.test("with negative port", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    try (final Console console = createConsole(test, qubFolder))
+                    {
+                        test.assertThrows(() -> InstallServer.start(console, qubFolder, -1, (Console requestConsole) -> {}),
+                            new PreConditionFailure("port (-1) must be between 0 and 65535."));
+                    }
+                });
+
+                runner.test("with any free port", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    try (final Console console = createConsole(test, qubFolder);
+                         final InstallServer server = InstallServer.start(console, qubFolder, 0, (Console requestConsole) -> {}).await())
+                    {
+                        test.assertTrue(server.getPort() > 0);
+                        test.assertEqual(64, server.getToken().length());
+                        test.assertEqual(
+                            server.getPort() + "\n" + server.getToken() + "\n",
+                            InstallServer.getPortFile(qubFolder).getContentsAsString().await());
+                    }
+                    test.assertFalse(InstallServer.getPortFile(qubFolder).exists().await());
+                });
+            });
+
+            runner.testGroup("run()", () ->
+            {
+                runner.test("with concurrent requests", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final java.util.concurrent.ConcurrentLinkedQueue<String> requests = new java.util.concurrent.ConcurrentLinkedQueue<>();
+                    try (final Console console = createConsole(test, qubFolder);
+                         final InstallServer server = InstallServer.start(console, qubFolder, 0, (Console requestConsole) ->
+                             {
+                                 final String firstArgument = requestConsole.getCommandLine().getArguments().first().toString();
+                                 requests.add(firstArgument + " " + requestConsole.getCurrentFolderPath().toString() + " " + requestConsole.getEnvironmentVariable("QUB_HOME"));
+                                 requestConsole.writeLine("Installing " + firstArgument + "...").await();
+                                 requestConsole.setExitCode(firstArgument.length());
+                             }).await())
+                    {
+                        final Thread serverThread = new Thread(() -> server.run().await());
+                        serverThread.setDaemon(true);
+                        serverThread.start();
+
+                        final java.util.List<Thread> clientThreads = new java.util.ArrayList<>();
+                        final java.util.concurrent.ConcurrentHashMap<String,String> outputs = new java.util.concurrent.ConcurrentHashMap<>();
+                        final java.util.concurrent.ConcurrentHashMap<String,Integer> exitCodes = new java.util.concurrent.ConcurrentHashMap<>();
+                        for (final String argument : Iterable.create("a", "bb", "ccc"))
+                        {
+                            final Thread clientThread = new Thread(() ->
+                            {
+                                final InMemoryCharacterStream output = new InMemoryCharacterStream();
+                                try (final Console clientConsole = createConsole(test, qubFolder, output, argument))
+                                {
+                                    exitCodes.put(argument, InstallClient.send(clientConsole, InstallClient.connect(server.getPort()), server.getToken()).await());
+                                }
+                                outputs.put(argument, output.getText().await());
+                            });
+                            clientThreads.add(clientThread);
+                            clientThread.start();
+                        }
+                        for (final Thread clientThread : clientThreads)
+                        {
+                            clientThread.join();
+                        }
+
+                        for (final String argument : Iterable.create("a", "bb", "ccc"))
+                        {
+                            test.assertEqual("Installing " + argument + "...\n", outputs.get(argument));
+                            test.assertEqual(argument.length(), exitCodes.get(argument));
+                            test.assertTrue(requests.contains(argument + " /project /qub"));
+                        }
+                    }
+                    catch (InterruptedException e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                });
+
+                runner.test("with forwarded environment variables", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final java.util.concurrent.ConcurrentLinkedQueue<String> requests = new java.util.concurrent.ConcurrentLinkedQueue<>();
+                    try (final Console console = createConsole(test, qubFolder);
+                         final InstallServer server = InstallServer.start(console, qubFolder, 0, (Console requestConsole) ->
+                             {
+                                 for (final String name : Iterable.create("PATH", "JAVA_HOME", "QUB_HOME", "OTHER"))
+                                 {
+                                     requests.add(name + "=" + requestConsole.getEnvironmentVariable(name));
+                                 }
+                             }).await())
+                    {
+                        final Thread serverThread = new Thread(() -> server.run().await());
+                        serverThread.setDaemon(true);
+                        serverThread.start();
+
+                        try (final Console clientConsole = createConsole(test, qubFolder, new InMemoryCharacterStream(), "a"))
+                        {
+                            final Map<String,String> environmentVariables = Map.create();
+                            environmentVariables.set("QUB_HOME", qubFolder.toString());
+                            environmentVariables.set("PATH", "/jdk/bin:/usr/bin");
+                            environmentVariables.set("JAVA_HOME", "/jdk");
+                            environmentVariables.set("OTHER", "not forwarded");
+                            clientConsole.setEnvironmentVariables(environmentVariables);
+                            test.assertEqual(0, InstallClient.send(clientConsole, InstallClient.connect(server.getPort()), server.getToken()).await());
+                        }
+                        test.assertEqual(
+                            Iterable.create("PATH=/jdk/bin:/usr/bin", "JAVA_HOME=/jdk", "QUB_HOME=/qub", "OTHER=null"),
+                            Iterable.create(requests.toArray(new String[0])));
+                    }
+                });
+
+                final Action3<String,String,String> rejectedRequestTest = (String testName, String token, String qubHome) ->
+                {
+                    runner.test(testName, (Test test) ->
+                    {
+                        final Folder qubFolder = getInMemoryQubFolder(test);
+                        final int[] requestCount = new int[1];
+                        try (final Console console = createConsole(test, qubFolder);
+                             final InstallServer server = InstallServer.start(console, qubFolder, 0, (Console requestConsole) -> ++requestCount[0]).await())
+                        {
+                            final Thread serverThread = new Thread(() -> server.run().await());
+                            serverThread.setDaemon(true);
+                            serverThread.start();
+
+                            final InMemoryCharacterStream output = new InMemoryCharacterStream();
+                            try (final Console clientConsole = createConsole(test, qubFolder, output, "a"))
+                            {
+                                if (qubHome != null)
+                                {
+                                    final Map<String,String> environmentVariables = Map.create();
+                                    environmentVariables.set("QUB_HOME", qubHome);
+                                    clientConsole.setEnvironmentVariables(environmentVariables);
+                                }
+                                test.assertEqual(1, InstallClient.send(clientConsole, InstallClient.connect(server.getPort()), token == null ? server.getToken() : token).await());
+                            }
+                            test.assertEqual(
+                                qubHome == null
+                                    ? "ERROR: The request's token doesn't match this install server's port file.\n"
+                                    : "ERROR: This install server only installs to /qub, not to " + qubHome + ".\n",
+                                output.getText().await());
+                        }
+                        test.assertEqual(0, requestCount[0]);
+                    });
+                };
+
+                rejectedRequestTest.run("with wrong token", "not-the-token", null);
+                rejectedRequestTest.run("with different QUB_HOME", null, "/other-qub");
+
+                runner.test("with request that throws", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    try (final Console console = createConsole(test, qubFolder);
+                         final InstallServer server = InstallServer.start(console, qubFolder, 0, (Console requestConsole) ->
+                             {
+                                 throw new IllegalStateException("Oops");
+                             }).await())
+                    {
+                        final Thread serverThread = new Thread(() -> server.run().await());
+                        serverThread.setDaemon(true);
+                        serverThread.start();
+
+                        final InMemoryCharacterStream output = new InMemoryCharacterStream();
+                        try (final Console clientConsole = createConsole(test, qubFolder, output, "a"))
+                        {
+                            test.assertEqual(1, InstallClient.send(clientConsole, InstallClient.connect(server.getPort()), server.getToken()).await());
+                        }
+                        test.assertEqual("ERROR: Oops\n", output.getText().await());
+                    }
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryQubFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/qub").await();
+    }
+
+    private static Console createConsole(Test test, Folder qubFolder)
+    {
+        return createConsole(test, qubFolder, new InMemoryCharacterStream());
+    }
+
+    static Console createConsole(Test test, Folder qubFolder, CharacterWriteStream output, String... commandLineArguments)
+    {
+        PreCondition.assertNotNull(test, "test");
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNull(output, "output");
+
+        final Console result = new Console(Iterable.create(commandLineArguments));
+        result.setLineSeparator("\n");
+        result.setOutput(output);
+        result.setFileSystem(qubFolder.getFileSystem());
+        result.setCurrentFolderPath(Path.parse("/project"));
+        final Map<String,String> environmentVariables = Map.create();
+        environmentVariables.set("QUB_HOME", qubFolder.toString());
+        result.setEnvironmentVariables(environmentVariables);
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+}
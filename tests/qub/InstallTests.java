@@ -31,10 +31,66 @@ public class InstallTests
                     }
                     test.assertEqual(
                         Iterable.create(
-                            "Usage: qub-install [[-folder=]<folder-path-to-install>] [-verbose]",
+                            "Usage: qub-install [[-folder=]<folder-path-to-install>...] [-root=<folder>] [-parallelism=<count>] [-plan] [-publish=<copy|move>] [-cds] [-optimize[=<level>]] [-profile] [-fullBuild] [-fullTests] [-testShards[=<count>]] [-watch] [-server[=<port>]] [-list] [-export=<bundle-file> [-package=<publisher>/<project>:<version>...]] [-import=<bundle-file>] [-relink] [-gc [-keep=<count>] [-dryRun]] [-verbose]",
                             "  Installs source code projects into the Qub folder.",
+                            "  Packages go into QUB_HOME/<publisher>/<project>/<version>. Packages that older",
+                            "  versions installed into QUB_HOME/<publisher>/<version> can't be found as",
+                            "  dependencies, so install them again to move them and their shortcuts.",
                             "  -folder: The folder to install from. This can be specified either with the",
-                            "           -folder argument name or without it.",
+                            "           -folder argument name or without it. More than one folder can be",
+                            "           specified.",
+                            "  -root: Install every project under this folder that has a project.json file.",
+                            "  -parallelism: The maximum number of projects to install at the same time when",
+                            "                installing more than one project. Defaults to the processor count.",
+                            "  -plan: Show what would be built, copied, and written without doing it.",
+                            "  -publish: How to publish the compiled jar into the Qub folder: copy (the",
+                            "            default) or move. copy copies the jar into the jar store and hard",
+                            "            links the installed jar to it, so rebuilding the project never",
+                            "            changes an installed jar. move falls back to copy when the project",
+                            "            and Qub folders aren't on the same volume. link is another name for",
+                            "            copy.",
+                            "  -cds: Run the main class once with -? to create a class data sharing archive",
+                            "        in the version folder and use it from the shortcut. Requires JDK 13+.",
+                            "  -optimize: Rewrite the installed jar for faster class loading. Entries are",
+                            "             stored uncompressed (level 0, the default) or compressed at the given",
+                            "             level (1-9), ordered by the main class's class-load order, and",
+                            "             source files and Maven metadata are left out.",
+                            "  -profile: Show how long each install phase took, how many bytes were copied, and",
+                            "            how many file system operations were done. A JSON copy of these",
+                            "            metrics is always written next to the project's jar file.",
+                            "  -fullBuild: Compile every source file. By default only the source files that",
+                            "             changed since the last passing run, and the ones that depend on their",
+                            "             public API, are compiled and patched into the existing jar.",
+                            "  -fullTests: Run every test class. By default only the test classes that reach",
+                            "             a class that changed since the last passing run are run.",
+                            "  -testShards: Split the test classes between this many forked JVMs, balanced by",
+                            "               how long each test class took on previous runs. Defaults to the",
+                            "               processor count when no count is given.",
+                            "  -watch: Keep running after the install and reinstall the project whenever its",
+                            "          sources, tests, or project.json file change.",
+                            "  -server: Keep running and install projects for qub.InstallClient requests sent",
+                            "           to this port on the loopback interface. Parsed project.json files and",
+                            "           resolved dependencies are shared between requests. Defaults to any",
+                            "           free port, which is written to QUB_HOME/install-server.port. The",
+                            "           qub-install shortcut sends its request to the running server, or",
+                            "           installs by itself when no server is running. A request uses the",
+                            "           client's current folder, QUB_HOME, PATH, and JAVA_HOME. Every other",
+                            "           environment variable comes from the server's own environment.",
+                            "  -list: List the packages that are installed in the Qub folder.",
+                            "  -export: Write installed packages and every package they depend on into this",
+                            "           bundle file. Exports the packages named by -package arguments, or every",
+                            "           indexed package when there are none.",
+                            "  -import: Install the packages in this bundle file without building them.",
+                            "           Packages that are already installed are skipped.",
+                            "  -relink: Regenerate the launcher jar and shortcut of every installed package",
+                            "           from the current launch settings, and only rewrite the ones that changed.",
+                            "           A launcher jar's META-INF/INDEX.LIST tells the JVM which dependency jar",
+                            "           has each package. JDK 18 and later ignore it and search the classpath.",
+                            "  -gc: Remove the installed packages that no shortcut runs and no other kept",
+                            "       package depends on, and the stored jars that only they used.",
+                            "  -keep: The number of newest versions of each project that -gc always keeps.",
+                            "         Defaults to 1.",
+                            "  -dryRun: Make -gc report what it would remove without removing anything.",
                             "  -verbose: Whether or not to show verbose logs."),
                         Strings.getLines(output.getText().await()));
                 });
@@ -49,10 +105,66 @@ public class InstallTests
                     }
                     test.assertEqual(
                         Iterable.create(
-                            "Usage: qub-install [[-folder=]<folder-path-to-install>] [-verbose]",
+                            "Usage: qub-install [[-folder=]<folder-path-to-install>...] [-root=<folder>] [-parallelism=<count>] [-plan] [-publish=<copy|move>] [-cds] [-optimize[=<level>]] [-profile] [-fullBuild] [-fullTests] [-testShards[=<count>]] [-watch] [-server[=<port>]] [-list] [-export=<bundle-file> [-package=<publisher>/<project>:<version>...]] [-import=<bundle-file>] [-relink] [-gc [-keep=<count>] [-dryRun]] [-verbose]",
                             "  Installs source code projects into the Qub folder.",
+                            "  Packages go into QUB_HOME/<publisher>/<project>/<version>. Packages that older",
+                            "  versions installed into QUB_HOME/<publisher>/<version> can't be found as",
+                            "  dependencies, so install them again to move them and their shortcuts.",
                             "  -folder: The folder to install from. This can be specified either with the",
-                            "           -folder argument name or without it.",
+                            "           -folder argument name or without it. More than one folder can be",
+                            "           specified.",
+                            "  -root: Install every project under this folder that has a project.json file.",
+                            "  -parallelism: The maximum number of projects to install at the same time when",
+                            "                installing more than one project. Defaults to the processor count.",
+                            "  -plan: Show what would be built, copied, and written without doing it.",
+                            "  -publish: How to publish the compiled jar into the Qub folder: copy (the",
+                            "            default) or move. copy copies the jar into the jar store and hard",
+                            "            links the installed jar to it, so rebuilding the project never",
+                            "            changes an installed jar. move falls back to copy when the project",
+                            "            and Qub folders aren't on the same volume. link is another name for",
+                            "            copy.",
+                            "  -cds: Run the main class once with -? to create a class data sharing archive",
+                            "        in the version folder and use it from the shortcut. Requires JDK 13+.",
+                            "  -optimize: Rewrite the installed jar for faster class loading. Entries are",
+                            "             stored uncompressed (level 0, the default) or compressed at the given",
+                            "             level (1-9), ordered by the main class's class-load order, and",
+                            "             source files and Maven metadata are left out.",
+                            "  -profile: Show how long each install phase took, how many bytes were copied, and",
+                            "            how many file system operations were done. A JSON copy of these",
+                            "            metrics is always written next to the project's jar file.",
+                            "  -fullBuild: Compile every source file. By default only the source files that",
+                            "             changed since the last passing run, and the ones that depend on their",
+                            "             public API, are compiled and patched into the existing jar.",
+                            "  -fullTests: Run every test class. By default only the test classes that reach",
+                            "             a class that changed since the last passing run are run.",
+                            "  -testShards: Split the test classes between this many forked JVMs, balanced by",
+                            "               how long each test class took on previous runs. Defaults to the",
+                            "               processor count when no count is given.",
+                            "  -watch: Keep running after the install and reinstall the project whenever its",
+                            "          sources, tests, or project.json file change.",
+                            "  -server: Keep running and install projects for qub.InstallClient requests sent",
+                            "           to this port on the loopback interface. Parsed project.json files and",
+                            "           resolved dependencies are shared between requests. Defaults to any",
+                            "           free port, which is written to QUB_HOME/install-server.port. The",
+                            "           qub-install shortcut sends its request to the running server, or",
+                            "           installs by itself when no server is running. A request uses the",
+                            "           client's current folder, QUB_HOME, PATH, and JAVA_HOME. Every other",
+                            "           environment variable comes from the server's own environment.",
+                            "  -list: List the packages that are installed in the Qub folder.",
+                            "  -export: Write installed packages and every package they depend on into this",
+                            "           bundle file. Exports the packages named by -package arguments, or every",
+                            "           indexed package when there are none.",
+                            "  -import: Install the packages in this bundle file without building them.",
+                            "           Packages that are already installed are skipped.",
+                            "  -relink: Regenerate the launcher jar and shortcut of every installed package",
+                            "           from the current launch settings, and only rewrite the ones that changed.",
+                            "           A launcher jar's META-INF/INDEX.LIST tells the JVM which dependency jar",
+                            "           has each package. JDK 18 and later ignore it and search the classpath.",
+                            "  -gc: Remove the installed packages that no shortcut runs and no other kept",
+                            "       package depends on, and the stored jars that only they used.",
+                            "  -keep: The number of newest versions of each project that -gc always keeps.",
+                            "         Defaults to 1.",
+                            "  -dryRun: Make -gc report what it would remove without removing anything.",
                             "  -verbose: Whether or not to show verbose logs."),
                         Strings.getLines(output.getText().await()));
                 });
@@ -185,8 +297,7 @@ public class InstallTests
                     }
                     test.assertEqual(
                         Iterable.create(
-                            "Compiling...",
-                            "ERROR: No language specified in project.json. Nothing to compile."),
+                            "ERROR: A project property must be specified in the project.json file."),
                         Strings.getLines(output.getText().await()).skipLast());
                 });
 
@@ -207,8 +318,7 @@ public class InstallTests
                     }
                     test.assertEqual(
                         Iterable.create(
-                            "Compiling...",
-                            "ERROR: No java source files found in /."),
+                            "ERROR: A project property must be specified in the project.json file."),
                         Strings.getLines(output.getText().await()).skipLast());
                 });
 
@@ -231,11 +341,6 @@ public class InstallTests
                     }
                     test.assertEqual(
                         Iterable.create(
-                            "Compiling...",
-                            "Creating jar file...",
-                            "Running tests...",
-                            "",
-                            "Installing...",
                             "ERROR: A project property must be specified in the project.json file."),
                         Strings.getLines(output.getText().await()).skipLast());
                 });
@@ -243,17 +348,12 @@ public class InstallTests
                 runner.test("with no jar file", (Test test) ->
                 {
                     final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
-                    final Folder currentFolder = getInMemoryCurrentFolder(test);
-                    currentFolder.getFile("project.json").await()
-                        .setContentsAsString(JSON.object(projectJson ->
-                        {
-                            projectJson.stringProperty("project", "fake-project");
-                            projectJson.objectProperty("java");
-                        }).toString())
-                        .await();
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, null);
                     currentFolder.getFile("sources/A.java").await()
                         .setContentsAsString("A.java source").await();
-                    try (final Console console = createConsole(output, currentFolder, "-createjar=false"))
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-createjar=false"))
                     {
                         main(console);
                         test.assertEqual(1, console.getExitCode());
@@ -264,8 +364,9 @@ public class InstallTests
                             "Running tests...",
                             "",
                             "Installing...",
-                            "ERROR: Couldn't find a compiled project jar file at /outputs/fake-project.jar."),
+                            "ERROR: Couldn't find a compiled project jar file at /project/outputs/fake-project.jar."),
                         Strings.getLines(output.getText().await()).skipLast());
+                    test.assertFalse(qubFolder.getFolder("fake-publisher/fake-project/1").await().exists().await());
                 });
 
                 runner.test("with no publisher property", (Test test) ->
@@ -288,11 +389,6 @@ public class InstallTests
                     }
                     test.assertEqual(
                         Iterable.create(
-                            "Compiling...",
-                            "Creating jar file...",
-                            "Running tests...",
-                            "",
-                            "Installing...",
                             "ERROR: A publisher property must be specified in the project.json file."),
                         Strings.getLines(output.getText().await()).skipLast());
                 });
@@ -318,122 +414,2057 @@ public class InstallTests
                     }
                     test.assertEqual(
                         Iterable.create(
-                            "Compiling...",
-                            "Creating jar file...",
-                            "Running tests...",
-                            "",
-                            "Installing...",
                             "ERROR: A version property must be specified in the project.json file."),
                         Strings.getLines(output.getText().await()).skipLast());
                 });
 
-                runner.test("with version property", (Test test) ->
+                runner.test("with dependency that isn't installed", (Test test) ->
                 {
                     final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
-                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
                     currentFolder.getFile("project.json").await()
                         .setContentsAsString(JSON.object(projectJson ->
                         {
                             projectJson.stringProperty("project", "fake-project");
                             projectJson.stringProperty("publisher", "fake-publisher");
-                            projectJson.stringProperty("version", "fake-version");
-                            projectJson.objectProperty("java");
+                            projectJson.stringProperty("version", "1");
+                            projectJson.objectProperty("java", java ->
+                            {
+                                java.arrayProperty("dependencies", dependencies ->
+                                {
+                                    dependencies.objectElement(dependency ->
+                                    {
+                                        dependency.stringProperty("publisher", "fake-publisher");
+                                        dependency.stringProperty("project", "fake-dependency");
+                                        dependency.stringProperty("version", "2");
+                                    });
+                                });
+                            });
                         }).toString())
                         .await();
-                    currentFolder.getFile("sources/A.java").await()
-                        .setContentsAsString("A.java source").await();
-                    try (final Console console = createConsole(output, currentFolder))
+                    try (final Console console = createConsole(output, currentFolder, qubFolder))
                     {
                         main(console);
                         test.assertEqual(1, console.getExitCode());
                     }
                     test.assertEqual(
                         Iterable.create(
-                            "Compiling...",
-                            "Creating jar file...",
-                            "Running tests...",
-                            "",
-                            "Installing...",
-                            "ERROR: A version property must be specified in the project.json file."),
+                            "ERROR: The dependency fake-publisher/fake-dependency:2 isn't installed. Couldn't find /qub/fake-publisher/fake-dependency/2/fake-dependency.jar."),
                         Strings.getLines(output.getText().await()).skipLast());
                 });
-            });
-        });
-    }
 
-    private static InMemoryCharacterStream getInMemoryCharacterStream(Test test)
-    {
-        return new InMemoryCharacterStream(test.getParallelAsyncRunner());
-    }
+                runner.test("with version that is already installed", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, null);
+                    qubFolder.getFile("fake-publisher/fake-project/1/project.json").await()
+                        .setContentsAsString("{}").await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder))
+                    {
+                        main(console);
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "ERROR: This package (fake-publisher/fake-project:1) can't be installed because a package with that signature already exists."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
 
-    private static InMemoryFileSystem getInMemoryFileSystem(Test test)
-    {
-        PreCondition.assertNotNull(test, "test");
+                runner.test("with -plan", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, "fake.MainClass");
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-plan"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Install plan for fake-publisher/fake-project:1:",
+                            "  Build and test /project",
+                            "  Copy /project/project.json to /qub/fake-publisher/fake-project/1/project.json",
+                            "  Store /project/outputs/fake-project.jar in /qub/jars and link it to /qub/fake-publisher/fake-project/1/fake-project.jar",
+                            "  Write /qub/fake-publisher/fake-project/1/fake-project.launcher.jar",
+                            "  Write /qub/fake-project.cmd",
+                            "  Write /qub/fake-publisher/fake-project/1/dependencies.closure",
+                            "  Update /qub/packages.index"),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertFalse(qubFolder.exists().await());
+                });
 
-        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
-        fileSystem.createRoot("/");
+                runner.test("with -plan and -optimize", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, null);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-plan", "-optimize=6"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Install plan for fake-publisher/fake-project:1:",
+                            "  Build and test /project",
+                            "  Copy /project/project.json to /qub/fake-publisher/fake-project/1/project.json",
+                            "  Optimize /project/outputs/fake-project.jar into /project/outputs/fake-project.optimized.jar with compression level 6",
+                            "  Store /project/outputs/fake-project.optimized.jar in /qub/jars and link it to /qub/fake-publisher/fake-project/1/fake-project.jar",
+                            "  Write /qub/fake-publisher/fake-project/1/dependencies.closure",
+                            "  Update /qub/packages.index"),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertFalse(qubFolder.exists().await());
+                });
 
-        return fileSystem;
-    }
+                runner.test("with -plan and compilation state", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    final File projectJarFile = setFakeClassDependencyGraph(currentFolder);
+                    final CompilationState previousCompilationState = CompilationState.create(currentFolder).await();
+                    previousCompilationState.addInputFiles(Iterable.create(currentFolder.getFile("project.json").await())).await();
+                    previousCompilationState.save(CompilationState.getStateFile(projectJarFile)).await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-plan"))
+                    {
+                        main(console, new FakeTestClassLauncher(0), new FakeIncrementalCompiler(true));
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Install plan for fake-publisher/fake-project:1:",
+                            "  Compile the changed source files in /project and run the test classes that reach changed classes",
+                            "  Copy /project/project.json to /qub/fake-publisher/fake-project/1/project.json",
+                            "  Store /project/outputs/fake-project.jar in /qub/jars and link it to /qub/fake-publisher/fake-project/1/fake-project.jar",
+                            "  Write /qub/fake-publisher/fake-project/1/dependencies.closure",
+                            "  Update /qub/packages.index"),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertFalse(qubFolder.exists().await());
+                });
 
-    private static Folder getInMemoryCurrentFolder(Test test)
-    {
-        PreCondition.assertNotNull(test, "test");
+                runner.test("with -plan and -testShards", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, null);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-plan", "-testShards=2"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Install plan for fake-publisher/fake-project:1:",
+                            "  Build /project and run every test class in 2 test shards",
+                            "  Copy /project/project.json to /qub/fake-publisher/fake-project/1/project.json",
+                            "  Store /project/outputs/fake-project.jar in /qub/jars and link it to /qub/fake-publisher/fake-project/1/fake-project.jar",
+                            "  Write /qub/fake-publisher/fake-project/1/dependencies.closure",
+                            "  Update /qub/packages.index"),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertFalse(qubFolder.exists().await());
+                });
 
-        return getInMemoryFileSystem(test).getFolder("/").await();
-    }
+                runner.test("with -plan and nothing changed", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, null);
+                    final File projectJarFile = currentFolder.getFile("outputs/fake-project.jar").await();
+                    projectJarFile.setContentsAsString("fake-project.jar contents").await();
+                    InstallManifest.create(currentFolder, projectJarFile)
+                        .save(InstallManifest.getManifestFile(projectJarFile)).await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-plan"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Install plan for fake-publisher/fake-project:1:",
+                            "  Skip building and testing /project because nothing changed since the last successful build",
+                            "  Copy /project/project.json to /qub/fake-publisher/fake-project/1/project.json",
+                            "  Store /project/outputs/fake-project.jar in /qub/jars and link it to /qub/fake-publisher/fake-project/1/fake-project.jar",
+                            "  Write /qub/fake-publisher/fake-project/1/dependencies.closure",
+                            "  Update /qub/packages.index"),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertFalse(qubFolder.exists().await());
+                });
 
-    private static Console createConsole(CharacterWriteStream output, String... commandLineArguments)
-    {
-        PreCondition.assertNotNull(output, "output");
-        PreCondition.assertNotNull(commandLineArguments, "commandLineArguments");
+                runner.test("with -plan and package in the old layout", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, null);
+                    qubFolder.getFile("fake-publisher/1/fake-project.jar").await().setContentsAsString("old jar").await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-plan"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "WARNING: /qub/fake-publisher/1/fake-project.jar uses the old <publisher>/<version> layout, so it can't be found as a dependency. This install writes /qub/fake-publisher/fake-project/1 and points the shortcut there instead.",
+                            "Install plan for fake-publisher/fake-project:1:",
+                            "  Build and test /project",
+                            "  Copy /project/project.json to /qub/fake-publisher/fake-project/1/project.json",
+                            "  Store /project/outputs/fake-project.jar in /qub/jars and link it to /qub/fake-publisher/fake-project/1/fake-project.jar",
+                            "  Write /qub/fake-publisher/fake-project/1/dependencies.closure",
+                            "  Update /qub/packages.index"),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertFalse(qubFolder.getFolder("fake-publisher/fake-project").await().exists().await());
+                });
 
-        final Console result = new Console(Iterable.create(commandLineArguments));
-        result.setLineSeparator("\n");
-        result.setOutput(output);
+                runner.test("with -plan and -cds", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, "fake.MainClass");
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-plan", "-cds"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Install plan for fake-publisher/fake-project:1:",
+                            "  Build and test /project",
+                            "  Copy /project/project.json to /qub/fake-publisher/fake-project/1/project.json",
+                            "  Store /project/outputs/fake-project.jar in /qub/jars and link it to /qub/fake-publisher/fake-project/1/fake-project.jar",
+                            "  Write /qub/fake-publisher/fake-project/1/fake-project.launcher.jar",
+                            "  Train fake.MainClass to write /qub/fake-publisher/fake-project/1/fake-project.jsa",
+                            "  Write /qub/fake-project.cmd",
+                            "  Write /qub/fake-publisher/fake-project/1/dependencies.closure",
+                            "  Update /qub/packages.index"),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
 
-        return result;
-    }
+                runner.test("with -plan and launch profile", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    currentFolder.getFile("project.json").await()
+                        .setContentsAsString(JSON.object(projectJson ->
+                        {
+                            projectJson.stringProperty("project", "fake-project");
+                            projectJson.stringProperty("publisher", "fake-publisher");
+                            projectJson.stringProperty("version", "1");
+                            projectJson.objectProperty("java", java ->
+                            {
+                                java.stringProperty("mainClass", "fake.MainClass");
+                                java.stringProperty("launchProfile", "fast-startup");
+                                java.arrayProperty("jvmOptions", jvmOptions ->
+                                {
+                                    jvmOptions.stringElement("-Xss2m");
+                                });
+                            });
+                        }).toString())
+                        .await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-plan"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Install plan for fake-publisher/fake-project:1:",
+                            "  Build and test /project",
+                            "  Copy /project/project.json to /qub/fake-publisher/fake-project/1/project.json",
+                            "  Store /project/outputs/fake-project.jar in /qub/jars and link it to /qub/fake-publisher/fake-project/1/fake-project.jar",
+                            "  Write /qub/fake-publisher/fake-project/1/fake-project.launcher.jar",
+                            "  Launch with -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -Xms16m -Xmx256m -Xss2m",
+                            "  Write /qub/fake-project.cmd",
+                            "  Write /qub/fake-publisher/fake-project/1/dependencies.closure",
+                            "  Update /qub/packages.index"),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
 
-    private static Console createConsole(CharacterWriteStream output, Folder currentFolder, String... commandLineArguments)
-    {
-        PreCondition.assertNotNull(output, "output");
-        PreCondition.assertNotNull(currentFolder, "currentFolder");
-        PreCondition.assertNotNull(commandLineArguments, "commandLineArguments");
+                runner.test("with unrecognized launch profile in launch.config", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, "fake.MainClass");
+                    LaunchProfile.getConfigFile(qubFolder).setContentsAsString("fake-project.profile=warp-speed").await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-plan"))
+                    {
+                        main(console);
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "ERROR: Unrecognized launch profile: \"warp-speed\". Expected one of fast-startup, throughput."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
 
-        final Console result = createConsole(output, commandLineArguments);
-        result.setFileSystem(currentFolder.getFileSystem());
-        result.setCurrentFolderPath(currentFolder.getPath());
+                runner.test("with -plan and no project.json file", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-plan"))
+                    {
+                        main(console);
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "ERROR: Couldn't find a project.json file in /project."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
 
-        PostCondition.assertNotNull(result, "result");
+                runner.test("with unrecognized -publish value", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, null);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-publish=teleport"))
+                    {
+                        main(console);
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "ERROR: Unrecognized publish mode: \"teleport\". Expected copy or move."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
 
-        return result;
-    }
+                runner.test("with -list and no installed packages", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-list"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
 
-    private static void main(Console console)
-    {
-        main(console, null);
-    }
+                runner.test("with -list and installed packages", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    final PackageIndex packageIndex = PackageIndex.load(qubFolder).await();
+                    packageIndex.set(new PackageIndexEntry("a", "b", "1", "a/b/1/b.jar", 10, "abc"));
+                    packageIndex.save().await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-list"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "a/b:1 a/b/1/b.jar (10 bytes)"),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
 
-    private static void main(Console console, Boolean showTotalDuration)
-    {
-        PreCondition.assertNotNull(console, "console");
+                runner.test("with -list and a malformed index line", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    qubFolder.getFile(PackageIndex.fileName).await()
+                        .setContentsAsString("a/b\na/c/1\ta/c/1/c.jar\t5\tdef\n")
+                        .await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-list"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "WARNING: Skipped a line of /qub/packages.index that couldn't be parsed: Expected 4 tab-separated values in package index line \"a/b\".",
+                            "a/c:1 a/c/1/c.jar (5 bytes)"),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
 
-        final Build build = new Build();
-        build.setJavaCompiler(new FakeJavaCompiler());
-        build.setJarCreator(new FakeJarCreator());
+                runner.test("with -export and -import", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "1"), "a.B", new PackageSignature("a", "c", "1"));
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "c", "1"), null);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "d", "1"), null);
+                    long exportedBytes = 0;
+                    for (final PackageBundleEntry entry : PackageBundle.getEntries(qubFolder, Iterable.create(new PackageSignature("a", "b", "1"), new PackageSignature("a", "c", "1"))).await())
+                    {
+                        exportedBytes += entry.getSize();
+                    }
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-export=/a.qubbundle", "-package=a/b:1"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
 
-        final QubTest qubTest = new QubTest();
-        qubTest.setJavaRunner(new FakeJavaRunner());
-        qubTest.setBuild(build);
+                    test.assertEqual(
+                        Iterable.create(
+                            "Exporting 2 packages to /a.qubbundle...",
+                            "Exported 2 packages (" + exportedBytes + " bytes) to /a.qubbundle."),
+                        Strings.getLines(output.getText().await()).skipLast());
 
-        final Install install = new Install();
-        if (showTotalDuration != null)
-        {
-            install.setShowTotalDuration(showTotalDuration);
-        }
-        install.setQubTest(qubTest);
+                    final InMemoryCharacterStream importOutput = getInMemoryCharacterStream(test);
+                    final Folder otherQubFolder = currentFolder.getFileSystem().getFolder("/other-qub").await();
+                    try (final Console console = createConsole(importOutput, currentFolder, otherQubFolder, "-import=/a.qubbundle", "-parallelism=1"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Importing packages from /a.qubbundle...",
+                            "Imported 2 packages and wrote 1 shortcuts."),
+                        Strings.getLines(importOutput.getText().await()).skipLast());
+                    test.assertTrue(otherQubFolder.getFile("a/b/1/b.jar").await().exists().await());
+                    test.assertTrue(otherQubFolder.getFile("a/c/1/c.jar").await().exists().await());
+                    test.assertFalse(otherQubFolder.getFolder("a/d").await().exists().await());
+                    test.assertTrue(otherQubFolder.getFile("B.cmd").await().exists().await());
+                });
 
-        install.main(console);
+                runner.test("with -import of installed packages", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "1"), null);
+                    PackageBundle.export(qubFolder, Iterable.create(new PackageSignature("a", "b", "1")), currentFolder.getFileSystem().getFile("/a.qubbundle").await()).await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-import=/a.qubbundle"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Importing packages from /a.qubbundle...",
+                            "Skipped a/b:1 because it's already installed.",
+                            "Imported 0 packages and wrote 0 shortcuts."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
+
+                runner.test("with -import and missing bundle file", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-import=missing.qubbundle"))
+                    {
+                        main(console);
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "ERROR: The bundle file /project/missing.qubbundle doesn't exist."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
+
+                runner.test("with -relink", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "1"), "a.B");
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("c", "d", "1"), "c.D");
+                    qubFolder.getFile("D.cmd").await().setContentsAsString(PackageShortcut.create(qubFolder, new PackageSignature("c", "d", "1")).await().getContents()).await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-relink"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Relinking installed packages in /qub...",
+                            "Rewrote 1 of 2 shortcuts and 2 launcher jars."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertTrue(qubFolder.getFile("B.cmd").await().exists().await());
+                });
+
+                runner.test("with -gc and -dryRun", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "1"), "a.B");
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "2"), "a.B");
+                    qubFolder.getFile("B.cmd").await().setContentsAsString(PackageShortcut.create(qubFolder, new PackageSignature("a", "b", "1")).await().getContents()).await();
+                    long reclaimableBytes = 0;
+                    for (final File file : qubFolder.getFolder("a/b/2").await().getFilesRecursively().await())
+                    {
+                        reclaimableBytes += JarStore.getSize(file);
+                    }
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-gc", "-keep=0", "-dryRun"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Collecting unreachable packages in /qub...",
+                            "Would remove a/b:2.",
+                            "Found 1 unreachable of 2 installed packages and 0 unused stored jars (" + reclaimableBytes + " bytes reclaimable)."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertTrue(qubFolder.getFolder("a/b/2").await().exists().await());
+                });
+
+                runner.test("with -gc and invalid -keep value", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-gc", "-keep=-1"))
+                    {
+                        main(console);
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "ERROR: The -keep argument must be a non-negative integer, but was \"-1\"."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
+
+                runner.test("with -export and invalid -package value", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-export=/a.qubbundle", "-package=a/b"))
+                    {
+                        main(console);
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "ERROR: Expected a package signature in the format <publisher>/<project>:<version>, but found \"a/b\"."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertFalse(currentFolder.getFileSystem().getFile("/a.qubbundle").await().exists().await());
+                });
+
+                runner.test("with invalid -parallelism value", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "/a", "/b", "-parallelism=0"))
+                    {
+                        main(console);
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "ERROR: The -parallelism argument must be a positive integer, but was \"0\"."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
+
+                runner.test("with -root folder that doesn't exist", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-root=/projects"))
+                    {
+                        main(console);
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "ERROR: The root folder /projects doesn't exist."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
+
+                runner.test("with -root folder of installed and unchanged projects", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    final Folder projectsFolder = currentFolder.getFileSystem().getFolder("/projects").await();
+                    for (final String projectName : Iterable.create("a", "b"))
+                    {
+                        final Folder projectFolder = projectsFolder.getFolder(projectName).await();
+                        projectFolder.getFile("project.json").await()
+                            .setContentsAsString(JSON.object(projectJson ->
+                            {
+                                projectJson.stringProperty("project", projectName);
+                                projectJson.stringProperty("publisher", "fake-publisher");
+                                projectJson.stringProperty("version", "1");
+                                projectJson.objectProperty("java");
+                            }).toString())
+                            .await();
+                        final File projectJarFile = projectFolder.getFile("outputs/" + projectName + ".jar").await();
+                        projectJarFile.setContentsAsString(projectName + ".jar contents").await();
+                        InstallManifest.create(projectFolder, projectJarFile)
+                            .save(InstallManifest.getManifestFile(projectJarFile)).await();
+                        qubFolder.getFile("fake-publisher/" + projectName + "/1/" + projectName + ".jar").await()
+                            .setContentsAsString(projectName + ".jar contents").await();
+                    }
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-root=/projects", "-parallelism=1"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Installing 2 projects with a parallelism of 1...",
+                            "[a] Skipping because this version is already installed and nothing changed since the last successful build.",
+                            "[b] Skipping because this version is already installed and nothing changed since the last successful build."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
+
+                runner.test("with unchanged install manifest", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, null);
+                    currentFolder.getFile("sources/A.java").await()
+                        .setContentsAsString("A.java source").await();
+                    final File projectJarFile = currentFolder.getFile("outputs/fake-project.jar").await();
+                    projectJarFile.setContentsAsString("fake-project.jar contents").await();
+                    InstallManifest.create(currentFolder, projectJarFile)
+                        .save(InstallManifest.getManifestFile(projectJarFile)).await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Skipping build and tests because nothing changed since the last successful build.",
+                            "Installing..."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertEqual(
+                        "fake-project.jar contents",
+                        qubFolder.getFile("fake-publisher/fake-project/1/fake-project.jar").await().getContentsAsString().await());
+                    test.assertEqual(
+                        "fake-publisher/fake-project/1/fake-project.jar",
+                        PackageIndex.load(qubFolder).await().get("fake-publisher", "fake-project", "1").getJarPath());
+                });
+
+                runner.test("with unchanged install manifest and version that is already installed", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, null);
+                    currentFolder.getFile("sources/A.java").await()
+                        .setContentsAsString("A.java source").await();
+                    final File projectJarFile = currentFolder.getFile("outputs/fake-project.jar").await();
+                    projectJarFile.setContentsAsString("fake-project.jar contents").await();
+                    InstallManifest.create(currentFolder, projectJarFile)
+                        .save(InstallManifest.getManifestFile(projectJarFile)).await();
+                    final File installedJarFile = qubFolder.getFile("fake-publisher/fake-project/1/fake-project.jar").await();
+                    installedJarFile.setContentsAsString("installed fake-project.jar contents").await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Skipping because this version is already installed and nothing changed since the last successful build."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertEqual("installed fake-project.jar contents", installedJarFile.getContentsAsString().await());
+                });
+
+                runner.test("with -optimize", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, null);
+                    currentFolder.getFile("sources/A.java").await()
+                        .setContentsAsString("A.java source").await();
+                    final File projectJarFile = currentFolder.getFile("outputs/fake-project.jar").await();
+                    projectJarFile.setContents(createJarContents("fake/A.class", "fake/A.java", "fake/B.class")).await();
+                    InstallManifest.create(currentFolder, projectJarFile)
+                        .save(InstallManifest.getManifestFile(projectJarFile)).await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-optimize"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    final Iterable<String> outputLines = Strings.getLines(output.getText().await()).skipLast();
+                    test.assertEqual(3, outputLines.getCount());
+                    test.assertTrue(outputLines.last().startsWith("Optimized fake-project.jar from "));
+                    test.assertTrue(outputLines.last().endsWith(" bytes and stripped 1 unneeded entries."));
+                    test.assertEqual(
+                        Iterable.create("fake/A.class", "fake/B.class"),
+                        getJarEntryNames(qubFolder.getFile("fake-publisher/fake-project/1/fake-project.jar").await().getContents().await()));
+                    test.assertEqual(
+                        "fake-publisher/fake-project/1/fake-project.jar",
+                        PackageIndex.load(qubFolder).await().get("fake-publisher", "fake-project", "1").getJarPath());
+                });
+
+                runner.test("with -optimize and a jar file that can't be read", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, null);
+                    currentFolder.getFile("sources/A.java").await()
+                        .setContentsAsString("A.java source").await();
+                    final File projectJarFile = currentFolder.getFile("outputs/fake-project.jar").await();
+                    projectJarFile.setContentsAsString("fake-project.jar contents").await();
+                    InstallManifest.create(currentFolder, projectJarFile)
+                        .save(InstallManifest.getManifestFile(projectJarFile)).await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-optimize=6"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Skipping build and tests because nothing changed since the last successful build.",
+                            "Installing...",
+                            "WARNING: Couldn't optimize /project/outputs/fake-project.jar, so it will be installed as it is: /project/outputs/fake-project.jar isn't a jar file."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertEqual(
+                        "fake-project.jar contents",
+                        qubFolder.getFile("fake-publisher/fake-project/1/fake-project.jar").await().getContentsAsString().await());
+                });
+
+                runner.test("with invalid -optimize value", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, null);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-optimize=10"))
+                    {
+                        main(console);
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "ERROR: The -optimize argument must be a compression level between 0 and 9, but was \"10\"."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertFalse(qubFolder.exists().await());
+                });
+
+                runner.test("with -profile", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, "fake.MainClass");
+                    final File projectJarFile = currentFolder.getFile("outputs/fake-project.jar").await();
+                    projectJarFile.setContentsAsString("fake-project.jar contents").await();
+                    InstallManifest.create(currentFolder, projectJarFile)
+                        .save(InstallManifest.getManifestFile(projectJarFile)).await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-profile"))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    final Iterable<String> phaseNames = Strings.getLines(output.getText().await())
+                        .skip(2)
+                        .map((String line) -> line.contains(":") ? line.substring(0, line.indexOf(':')) : line.substring(0, 32).trim());
+                    test.assertEqual(
+                        Iterable.create(
+                            "Phase",
+                            "Parse project.json",
+                            "Load package index",
+                            "Resolve dependencies",
+                            "Hash project files",
+                            "Copy project.json",
+                            "Store jar",
+                            "Link jar",
+                            "Write launcher jar",
+                            "Write dependency closure",
+                            "Commit staged install",
+                            "Write shortcut",
+                            "Update package index",
+                            "Total",
+                            "Bytes copied",
+                            "File system operations"),
+                        phaseNames.skipLast());
+
+                    final String metricsJson = InstallMetrics.getMetricsFile(projectJarFile).getContentsAsString().await();
+                    test.assertTrue(metricsJson.contains("\"package\":\"fake-publisher/fake-project:1\""));
+                    test.assertTrue(metricsJson.contains("\"succeeded\":true"));
+                });
+
+                runner.test("with changed source file since install manifest", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, null);
+                    final File sourceFile = currentFolder.getFile("sources/A.java").await();
+                    sourceFile.setContentsAsString("A.java source").await();
+                    final File projectJarFile = currentFolder.getFile("outputs/fake-project.jar").await();
+                    projectJarFile.setContentsAsString("fake-project.jar contents").await();
+                    InstallManifest.create(currentFolder, projectJarFile)
+                        .save(InstallManifest.getManifestFile(projectJarFile)).await();
+                    sourceFile.setContentsAsString("A.java changed source").await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Running build and tests because sources/A.java changed since the last successful build.",
+                            "Compiling...",
+                            "Creating jar file...",
+                            "Running tests...",
+                            "",
+                            "Installing..."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
+
+                runner.test("with class dependency graph and changed source class", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    final File projectJarFile = setFakeClassDependencyGraph(currentFolder);
+                    final FakeTestClassLauncher testClassLauncher = new FakeTestClassLauncher(0);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder))
+                    {
+                        main(console, testClassLauncher);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Running build and tests because sources/A.java changed since the last successful build.",
+                            "Compiling...",
+                            "Creating jar file...",
+                            "Running 1 of 2 test classes that reach classes changed since the last passing run (A).",
+                            "Use -fullTests to run the other 1.",
+                            "Running ATests",
+                            "Installing..."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertEqual(Iterable.create("ATests"), testClassLauncher.getTestClassNames());
+                    test.assertEqual(
+                        ContentHash.sha256(new byte[] { 'A', '2' }),
+                        ClassDependencyGraph.parse(ClassDependencyGraph.getGraphFile(projectJarFile)).await().getHash("A"));
+                    final Folder projectQubFolder = qubFolder.getFolder("fake-publisher/fake-project").await();
+                    test.assertTrue(projectQubFolder.getFile("1/fake-project.jar").await().exists().await());
+                    test.assertFalse(projectQubFolder.getFolders().await().any(AtomicFiles::isStagingFolder));
+                    test.assertEqual(
+                        "fake-publisher/fake-project/1/fake-project.jar",
+                        PackageIndex.load(qubFolder).await().get("fake-publisher", "fake-project", "1").getJarPath());
+                });
+
+                runner.test("with class dependency graph and failing impacted tests", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    final File projectJarFile = setFakeClassDependencyGraph(currentFolder);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder))
+                    {
+                        main(console, new FakeTestClassLauncher(1));
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Running build and tests because sources/A.java changed since the last successful build.",
+                            "Compiling...",
+                            "Creating jar file...",
+                            "Running 1 of 2 test classes that reach classes changed since the last passing run (A).",
+                            "Use -fullTests to run the other 1.",
+                            "Running ATests"),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertEqual(
+                        ContentHash.sha256(new byte[] { 'A', '1' }),
+                        ClassDependencyGraph.parse(ClassDependencyGraph.getGraphFile(projectJarFile)).await().getHash("A"));
+                    // The install was staged while the tests ran, and then discarded.
+                    final Folder projectQubFolder = qubFolder.getFolder("fake-publisher/fake-project").await();
+                    test.assertFalse(projectQubFolder.getFolder("1").await().exists().await());
+                    test.assertFalse(projectQubFolder.exists().await() && projectQubFolder.getFolders().await().any(AtomicFiles::isStagingFolder));
+                });
+
+                runner.test("with class dependency graph, -publish=move, and failing impacted tests", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    final File projectJarFile = setFakeClassDependencyGraph(currentFolder);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-publish=move"))
+                    {
+                        main(console, new FakeTestClassLauncher(1));
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    // The install was staged while the tests ran, but the build output and the jar store are
+                    // left as they were before the install.
+                    test.assertEqual("fake-project.jar contents", projectJarFile.getContentsAsString().await());
+                    test.assertFalse(qubFolder.getFolder("fake-publisher/fake-project/1").await().exists().await());
+                    final Folder jarStoreFolder = qubFolder.getFolder(JarStore.folderName).await();
+                    test.assertFalse(jarStoreFolder.exists().await() && jarStoreFolder.getFilesRecursively().await().any());
+                });
+
+                runner.test("with class dependency graph, -publish=move, and passing impacted tests", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    final File projectJarFile = setFakeClassDependencyGraph(currentFolder);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-publish=move"))
+                    {
+                        main(console, new FakeTestClassLauncher(0));
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    // The class graph was written before the staged copy of the jar was committed and the
+                    // build output was deleted to finish the move.
+                    test.assertEqual(
+                        ContentHash.sha256(new byte[] { 'A', '2' }),
+                        ClassDependencyGraph.parse(ClassDependencyGraph.getGraphFile(projectJarFile)).await().getHash("A"));
+                    test.assertFalse(projectJarFile.exists().await());
+                    test.assertEqual("fake-project.jar contents", qubFolder.getFile("fake-publisher/fake-project/1/fake-project.jar").await().getContentsAsString().await());
+                });
+
+                runner.test("with class dependency graph and no impacted tests", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeClassDependencyGraph(currentFolder);
+                    currentFolder.getFile("outputs/A.class").await().setContentsAsString("A1").await();
+                    final FakeTestClassLauncher testClassLauncher = new FakeTestClassLauncher(0);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder))
+                    {
+                        main(console, testClassLauncher);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Running build and tests because sources/A.java changed since the last successful build.",
+                            "Compiling...",
+                            "Creating jar file...",
+                            "Skipping all 2 test classes because none of them reach a class that changed since the last passing run.",
+                            "Installing..."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertEqual(Iterable.create(), testClassLauncher.getTestClassNames());
+                });
+
+                runner.test("with class dependency graph and bumped dependency", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("fake-publisher", "fake-dependency", "1"), null);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("fake-publisher", "fake-dependency", "2"), null);
+                    final File projectJarFile = setFakeClassDependencyGraph(currentFolder);
+                    // A.class is unchanged, so only the bumped dependency can select the tests.
+                    currentFolder.getFile("outputs/A.class").await().setContentsAsString("A1").await();
+                    setFakeProjectJsonWithDependency(currentFolder, "1");
+                    final File classGraphFile = ClassDependencyGraph.getGraphFile(projectJarFile);
+                    final ClassDependencyGraph previousClassGraph = ClassDependencyGraph.parse(classGraphFile).await();
+                    previousClassGraph.addInputFiles(Iterable.create(
+                        currentFolder.getFile("project.json").await(),
+                        qubFolder.getFile("fake-publisher/fake-dependency/1/fake-dependency.jar").await())).await();
+                    previousClassGraph.save(classGraphFile).await();
+                    setFakeProjectJsonWithDependency(currentFolder, "2");
+
+                    final FakeTestClassLauncher testClassLauncher = new FakeTestClassLauncher(0);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder))
+                    {
+                        main(console, testClassLauncher);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertTrue(Strings.getLines(output.getText().await()).contains(
+                        "Running all 2 test classes because the project.json file or the dependencies changed since the last passing run."));
+                    test.assertEqual(Iterable.create("ATests", "BTests"), testClassLauncher.getTestClassNames());
+                    final ClassDependencyGraph classGraph = ClassDependencyGraph.parse(classGraphFile).await();
+                    test.assertEqual(
+                        ContentHash.sha256(qubFolder.getFile("fake-publisher/fake-dependency/2/fake-dependency.jar").await()).await(),
+                        classGraph.getInputHash("/qub/fake-publisher/fake-dependency/2/fake-dependency.jar"));
+                    test.assertNull(classGraph.getInputHash("/qub/fake-publisher/fake-dependency/1/fake-dependency.jar"));
+                });
+
+                runner.test("with class dependency graph and -fullTests", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeClassDependencyGraph(currentFolder);
+                    final FakeTestClassLauncher testClassLauncher = new FakeTestClassLauncher(0);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-fullTests"))
+                    {
+                        main(console, testClassLauncher);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Running build and tests because sources/A.java changed since the last successful build.",
+                            "Compiling...",
+                            "Creating jar file...",
+                            "Running tests...",
+                            "",
+                            "Installing..."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertEqual(Iterable.create(), testClassLauncher.getTestClassNames());
+                });
+
+                runner.test("with class dependency graph and -testShards", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    final File projectJarFile = setFakeClassDependencyGraph(currentFolder);
+                    final TestTimingHistory history = TestTimingHistory.create();
+                    history.setMilliseconds("ATests", 100);
+                    history.setMilliseconds("BTests", 50);
+                    history.save(TestTimingHistory.getHistoryFile(projectJarFile)).await();
+                    final FakeTestClassLauncher testClassLauncher = new FakeTestClassLauncher(0);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-fullTests", "-testShards=2"))
+                    {
+                        main(console, testClassLauncher);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Running build and tests because sources/A.java changed since the last successful build.",
+                            "Compiling...",
+                            "Creating jar file...",
+                            "Running 2 test classes in 2 JVMs...",
+                            "Shard 1 of 2 (ATests):",
+                            "Running ATests",
+                            "Shard 2 of 2 (BTests):",
+                            "Running BTests",
+                            "Installing..."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertEqual(
+                        Iterable.create("ATests", "BTests"),
+                        TestTimingHistory.parse(TestTimingHistory.getHistoryFile(projectJarFile)).await().getTestClassNames());
+                });
+
+                runner.test("with compilation state", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    final File projectJarFile = setFakeClassDependencyGraph(currentFolder);
+                    final CompilationState previousCompilationState = CompilationState.create(currentFolder).await();
+                    previousCompilationState.setSource("sources/A.java", "fake-hash", java.util.Collections.singletonMap("A", "fake-api-hash"));
+                    previousCompilationState.addInputFiles(Iterable.create(currentFolder.getFile("project.json").await())).await();
+                    previousCompilationState.save(CompilationState.getStateFile(projectJarFile)).await();
+                    final FakeIncrementalCompiler incrementalCompiler = new FakeIncrementalCompiler(true);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder))
+                    {
+                        main(console, new FakeTestClassLauncher(0), incrementalCompiler);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Running build and tests because sources/A.java changed since the last successful build.",
+                            "Compiling 1 changed source files...",
+                            "Running 1 of 2 test classes that reach classes changed since the last passing run (A).",
+                            "Use -fullTests to run the other 1.",
+                            "Running ATests",
+                            "Installing..."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertEqual(
+                        ContentHash.sha256(currentFolder.getFile("sources/A.java").await()).await(),
+                        CompilationState.parse(CompilationState.getStateFile(projectJarFile)).await().getSourceHash("sources/A.java"));
+                });
+
+                runner.test("with compilation state and jar that the jar store already has", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    final File projectJarFile = setFakeClassDependencyGraph(currentFolder);
+                    final CompilationState previousCompilationState = CompilationState.create(currentFolder).await();
+                    previousCompilationState.addInputFiles(Iterable.create(currentFolder.getFile("project.json").await())).await();
+                    previousCompilationState.save(CompilationState.getStateFile(projectJarFile)).await();
+                    final StoredJar storedJar = new JarStore(qubFolder).add(projectJarFile, null, PublishMode.Copy).await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder))
+                    {
+                        main(console, new FakeTestClassLauncher(0), new FakeIncrementalCompiler(true));
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertTrue(qubFolder.getFile("fake-publisher/fake-project/1/fake-project.jar").await().exists().await());
+                    // The staged install finds the stored jar by its hash, so the jar is only copied once, to
+                    // link it into the version folder (an in-memory file system can't hard link).
+                    final long projectJsonSize = currentFolder.getFile("project.json").await().getContents().await().length;
+                    final String metricsJson = InstallMetrics.getMetricsFile(projectJarFile).getContentsAsString().await();
+                    test.assertTrue(metricsJson.contains("\"bytesCopied\":" + (projectJsonSize + storedJar.getSize()) + ","));
+                });
+
+                runner.test("with compilation state and failing incremental compile", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    final File projectJarFile = setFakeClassDependencyGraph(currentFolder);
+                    final CompilationState previousCompilationState = CompilationState.create();
+                    previousCompilationState.addInputFiles(Iterable.create(currentFolder.getFile("project.json").await())).await();
+                    previousCompilationState.save(CompilationState.getStateFile(projectJarFile)).await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder))
+                    {
+                        main(console, new FakeTestClassLauncher(0), new FakeIncrementalCompiler(false));
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Running build and tests because sources/A.java changed since the last successful build.",
+                            "Compiling 3 changed source files...",
+                            "sources/A.java:1: error: fake compile error"),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertEqual(previousCompilationState.toString(), CompilationState.getStateFile(projectJarFile).getContentsAsString().await());
+                });
+
+                runner.test("with compilation state and changed project.json file", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    final File projectJarFile = setFakeClassDependencyGraph(currentFolder);
+                    final CompilationState previousCompilationState = CompilationState.create(currentFolder).await();
+                    previousCompilationState.setInputHash(currentFolder.getFile("project.json").await().toString(), "previous-project-json-hash");
+                    previousCompilationState.save(CompilationState.getStateFile(projectJarFile)).await();
+                    final FakeIncrementalCompiler incrementalCompiler = new FakeIncrementalCompiler(true);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder))
+                    {
+                        main(console, new FakeTestClassLauncher(0), incrementalCompiler);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Running build and tests because sources/A.java changed since the last successful build.",
+                            "Compiling every source file because the project.json file or the dependencies changed since the last passing build.",
+                            "Compiling...",
+                            "Creating jar file...",
+                            "Running 1 of 2 test classes that reach classes changed since the last passing run (A).",
+                            "Use -fullTests to run the other 1.",
+                            "Running ATests",
+                            "Installing..."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertEqual(
+                        ContentHash.sha256(currentFolder.getFile("project.json").await()).await(),
+                        CompilationState.parse(CompilationState.getStateFile(projectJarFile)).await().getInputHash(currentFolder.getFile("project.json").await().toString()));
+                });
+
+                runner.test("with compilation state and -fullBuild", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    final File projectJarFile = setFakeClassDependencyGraph(currentFolder);
+                    CompilationState.create().save(CompilationState.getStateFile(projectJarFile)).await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-fullBuild"))
+                    {
+                        main(console, new FakeTestClassLauncher(0), new FakeIncrementalCompiler(true));
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Running build and tests because sources/A.java changed since the last successful build.",
+                            "Compiling...",
+                            "Creating jar file...",
+                            "Running 1 of 2 test classes that reach classes changed since the last passing run (A).",
+                            "Use -fullTests to run the other 1.",
+                            "Running ATests",
+                            "Installing..."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
+
+                runner.test("with -testShards and failing shard", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeClassDependencyGraph(currentFolder);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-fullTests", "-testShards=2"))
+                    {
+                        main(console, new FakeTestClassLauncher(1));
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertFalse(Strings.getLines(output.getText().await()).contains("Installing..."));
+                });
+
+                runner.test("with invalid -testShards value", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeClassDependencyGraph(currentFolder);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-testShards=0"))
+                    {
+                        main(console);
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Running build and tests because sources/A.java changed since the last successful build.",
+                            "ERROR: The -testShards argument must be a positive integer, but was \"0\"."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
+
+                runner.test("with invalid -server port", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-server=70000"))
+                    {
+                        main(console);
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "ERROR: The -server argument must be a port number between 0 and 65535, but was \"70000\"."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertFalse(InstallServer.getPortFile(qubFolder).exists().await());
+                });
+
+                runner.test("with -watch and -root", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    currentFolder.getFileSystem().getFolder("/projects").await().create().await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-root=/projects", "-watch"))
+                    {
+                        main(console);
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "ERROR: The -watch argument can only be used when installing a single project folder."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
+
+                runner.test("with -watch and changed source file", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, null);
+                    final File sourceFile = currentFolder.getFile("sources/A.java").await();
+                    sourceFile.setContentsAsString("A.java source").await();
+                    final File projectJarFile = currentFolder.getFile("outputs/fake-project.jar").await();
+                    projectJarFile.setContentsAsString("fake-project.jar contents").await();
+                    InstallManifest.create(currentFolder, projectJarFile)
+                        .save(InstallManifest.getManifestFile(projectJarFile)).await();
+                    final int[] waitCount = new int[1];
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-watch"))
+                    {
+                        main(console, (Folder projectFolder) -> Result.success(new ProjectWatcher(projectFolder,
+                            () ->
+                            {
+                                ++waitCount[0];
+                                if (waitCount[0] == 1)
+                                {
+                                    sourceFile.setContentsAsString("A.java changed source").await();
+                                }
+                                return waitCount[0] == 1;
+                            },
+                            () -> {})));
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Skipping build and tests because nothing changed since the last successful build.",
+                            "Installing...",
+                            "Watching /project for changes...",
+                            "Detected changes to sources/A.java.",
+                            "Running build and tests because sources/A.java changed since the last successful build.",
+                            "Compiling...",
+                            "Creating jar file...",
+                            "Running tests...",
+                            "",
+                            "Installing...",
+                            "Watching /project for changes..."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertTrue(qubFolder.getFile("fake-publisher/fake-project/1/fake-project.jar").await().exists().await());
+                    test.assertFalse(qubFolder.getFolder("fake-publisher/fake-project").await().getFolders().await().any(AtomicFiles::isStagingFolder));
+                });
+
+                runner.test("with -watch and changed version that was installed before watching", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, null);
+                    currentFolder.getFile("sources/A.java").await().setContentsAsString("A.java source").await();
+                    final File installedJarFile = qubFolder.getFile("fake-publisher/fake-project/1/fake-project.jar").await();
+                    installedJarFile.setContentsAsString("installed fake-project.jar contents").await();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-watch"))
+                    {
+                        main(console, (Folder projectFolder) -> Result.success(new ProjectWatcher(projectFolder, () -> false, () -> {})));
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "ERROR: This package (fake-publisher/fake-project:1) can't be installed because a package with that signature already exists.",
+                            "Watching /project for changes..."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    test.assertEqual("installed fake-project.jar contents", installedJarFile.getContentsAsString().await());
+                });
+
+                runner.test("with -watch and changed test file", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryProjectFolder(test);
+                    final Folder qubFolder = getInMemoryQubFolder(currentFolder);
+                    setFakeProjectJson(currentFolder, null);
+                    currentFolder.getFile("sources/A.java").await().setContentsAsString("A.java source").await();
+                    final File testFile = currentFolder.getFile("tests/ATests.java").await();
+                    testFile.setContentsAsString("ATests.java source").await();
+                    final File projectJarFile = currentFolder.getFile("outputs/fake-project.jar").await();
+                    projectJarFile.setContentsAsString("fake-project.jar contents").await();
+                    InstallManifest.create(currentFolder, projectJarFile)
+                        .save(InstallManifest.getManifestFile(projectJarFile)).await();
+                    qubFolder.getFile("fake-publisher/fake-project/1/fake-project.jar").await()
+                        .setContentsAsString("fake-project.jar contents").await();
+                    final int[] waitCount = new int[1];
+                    try (final Console console = createConsole(output, currentFolder, qubFolder, "-watch"))
+                    {
+                        main(console, (Folder projectFolder) -> Result.success(new ProjectWatcher(projectFolder,
+                            () ->
+                            {
+                                ++waitCount[0];
+                                if (waitCount[0] == 1)
+                                {
+                                    testFile.setContentsAsString("ATests.java changed source").await();
+                                }
+                                return waitCount[0] == 1;
+                            },
+                            () -> {})));
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "Skipping because this version is already installed and nothing changed since the last successful build.",
+                            "Watching /project for changes...",
+                            "Detected changes to tests/ATests.java.",
+                            "Running build and tests because tests/ATests.java changed since the last successful build.",
+                            "Compiling...",
+                            "Creating jar file...",
+                            "Running tests...",
+                            "",
+                            "Skipping install because only tests changed.",
+                            "Watching /project for changes..."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
+
+                runner.test("with many parallel installs into a shared Qub folder", (Test test) ->
+                {
+                    assertParallelInstalls(test, getInMemoryFileSystem(test).getFolder("/").await());
+                });
+
+                runner.test("with many parallel installs into a shared Qub folder on disk", (Test test) ->
+                {
+                    // Real file locks, renames, and hard links only happen on disk, so this is where
+                    // the installs really race each other on the locks, index, and staging folders.
+                    try (final Console console = new Console(Iterable.create()))
+                    {
+                        final Folder folder = AtomicFilesTests.getTemporaryDiskFolder(console);
+                        try
+                        {
+                            assertParallelInstalls(test, folder);
+                        }
+                        finally
+                        {
+                            AtomicFiles.deleteFolder(folder).await();
+                        }
+                    }
+                });
+
+                runner.test("with operation budget for missing version property", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final CountingFileSystem fileSystem = getCountingFileSystem(test);
+                    final Folder currentFolder = fileSystem.getFileSystem().getFolder("/project").await();
+                    final Folder qubFolder = fileSystem.getFileSystem().getFolder("/qub").await();
+                    currentFolder.getFile("project.json").await()
+                        .setContentsAsString(JSON.object(projectJson ->
+                        {
+                            projectJson.stringProperty("project", "fake-project");
+                            projectJson.stringProperty("publisher", "fake-publisher");
+                            projectJson.objectProperty("java");
+                        }).toString())
+                        .await();
+                    fileSystem.reset();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder))
+                    {
+                        main(console);
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "ERROR: A version property must be specified in the project.json file."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    // project.json is found, checked, and read once to see whether this version is already
+                    // installed, and once more to plan the install.
+                    assertOperationCounts(test, fileSystem, 1, 2, 2, 2, 0, 0, 0);
+                });
+
+                runner.test("with operation budget for version property", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final CountingFileSystem fileSystem = getCountingFileSystem(test);
+                    final Folder currentFolder = fileSystem.getFileSystem().getFolder("/").await();
+                    currentFolder.getFile("project.json").await()
+                        .setContentsAsString(JSON.object(projectJson ->
+                        {
+                            projectJson.stringProperty("project", "fake-project");
+                            projectJson.stringProperty("publisher", "fake-publisher");
+                            projectJson.stringProperty("version", "fake-version");
+                            projectJson.objectProperty("java");
+                        }).toString())
+                        .await();
+                    currentFolder.getFile("sources/A.java").await()
+                        .setContentsAsString("A.java source").await();
+                    fileSystem.reset();
+                    try (final Console console = createConsole(output, currentFolder))
+                    {
+                        main(console);
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "ERROR: A version property must be specified in the project.json file."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                    // Without QUB_HOME there is no installed version to check, so project.json is only
+                    // found, checked, and read to plan the install. The sources are never looked at.
+                    assertOperationCounts(test, fileSystem, 1, 2, 1, 1, 0, 0, 0);
+                });
+
+                runner.test("with operation budget for installing an unchanged project", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final CountingFileSystem fileSystem = getCountingFileSystem(test);
+                    final Folder currentFolder = fileSystem.getFileSystem().getFolder("/project").await();
+                    final Folder qubFolder = fileSystem.getFileSystem().getFolder("/qub").await();
+                    setFakeProjectJson(currentFolder, null);
+                    final File projectJarFile = currentFolder.getFile("outputs/fake-project.jar").await();
+                    projectJarFile.setContentsAsString("fake-project.jar contents").await();
+                    InstallManifest.create(currentFolder, projectJarFile)
+                        .save(InstallManifest.getManifestFile(projectJarFile)).await();
+                    fileSystem.reset();
+                    try (final Console console = createConsole(output, currentFolder, qubFolder))
+                    {
+                        main(console);
+                        test.assertEqual(0, console.getExitCode());
+                    }
+                    // Link the stored jar, then move project.json, the jar, and the closure file out of staging.
+                    test.assertEqual(4L, fileSystem.getOperationCount(CountingFileSystem.copyToOperation));
+                    // The stored jar and the staged project.json.
+                    test.assertEqual(2L, fileSystem.getOperationCount(CountingFileSystem.setContentsOperation));
+                    // The closure file, packages.index, and the metrics file.
+                    test.assertEqual(3L, fileSystem.getOperationCount(CountingFileSystem.setContentsAsStringOperation));
+                    // project.json twice (installed check and plan), the project files for the install
+                    // manifest, the previous install manifest, project.json again to stage it, and the jar
+                    // to store it. Nothing is read more often than that.
+                    assertAtMost(test, 10, fileSystem.getOperationCount(CountingFileSystem.readOperation), fileSystem);
+                    assertAtMost(test, 24, fileSystem.getOperationCount(CountingFileSystem.existsOperation), fileSystem);
+                });
+
+                runner.test("with operation budget per dependency", (Test test) ->
+                {
+                    final CountingFileSystem withoutDependencies = installWithDependencies(test, 0);
+                    final CountingFileSystem withOneDependency = installWithDependencies(test, 1);
+                    final CountingFileSystem withThreeDependencies = installWithDependencies(test, 3);
+                    for (final String operation : Iterable.create(
+                        CountingFileSystem.getFolderOperation,
+                        CountingFileSystem.getFileOperation,
+                        CountingFileSystem.existsOperation,
+                        CountingFileSystem.readOperation,
+                        CountingFileSystem.copyToOperation,
+                        CountingFileSystem.setContentsOperation,
+                        CountingFileSystem.setContentsAsStringOperation))
+                    {
+                        final long perDependency = withOneDependency.getOperationCount(operation) - withoutDependencies.getOperationCount(operation);
+                        // Every dependency costs the same, however many other dependencies there are.
+                        test.assertEqual(3 * perDependency,
+                            withThreeDependencies.getOperationCount(operation) - withoutDependencies.getOperationCount(operation),
+                            operation);
+                    }
+
+                    // Planning looks up two version folders (closure and jar), the closure, project.json, and
+                    // jar files, and checks whether each of those files exists.
+                    test.assertEqual(6L, getOperationCountPerDependency(withoutDependencies, withOneDependency, CountingFileSystem.getFolderOperation));
+                    test.assertEqual(3L, getOperationCountPerDependency(withoutDependencies, withOneDependency, CountingFileSystem.getFileOperation));
+                    assertAtMost(test, 4, getOperationCountPerDependency(withoutDependencies, withOneDependency, CountingFileSystem.existsOperation), withOneDependency);
+                    // project.json to resolve the dependency's own dependencies, and the jar for the launcher
+                    // jar's index and for the dependency's package index entry.
+                    assertAtMost(test, 4, getOperationCountPerDependency(withoutDependencies, withOneDependency, CountingFileSystem.readOperation), withOneDependency);
+                    // A dependency is never copied or written. The closure, index, and launcher jar are
+                    // written once however many dependencies there are.
+                    test.assertEqual(0L, getOperationCountPerDependency(withoutDependencies, withOneDependency, CountingFileSystem.copyToOperation));
+                    test.assertEqual(0L, getOperationCountPerDependency(withoutDependencies, withOneDependency, CountingFileSystem.setContentsOperation));
+                    test.assertEqual(0L, getOperationCountPerDependency(withoutDependencies, withOneDependency, CountingFileSystem.setContentsAsStringOperation));
+                });
+
+                runner.test("with version property", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    currentFolder.getFile("project.json").await()
+                        .setContentsAsString(JSON.object(projectJson ->
+                        {
+                            projectJson.stringProperty("project", "fake-project");
+                            projectJson.stringProperty("publisher", "fake-publisher");
+                            projectJson.stringProperty("version", "fake-version");
+                            projectJson.objectProperty("java");
+                        }).toString())
+                        .await();
+                    currentFolder.getFile("sources/A.java").await()
+                        .setContentsAsString("A.java source").await();
+                    try (final Console console = createConsole(output, currentFolder))
+                    {
+                        main(console);
+                        test.assertEqual(1, console.getExitCode());
+                    }
+                    test.assertEqual(
+                        Iterable.create(
+                            "ERROR: A version property must be specified in the project.json file."),
+                        Strings.getLines(output.getText().await()).skipLast());
+                });
+            });
+        });
+    }
+
+    private static InMemoryCharacterStream getInMemoryCharacterStream(Test test)
+    {
+        return new InMemoryCharacterStream(test.getParallelAsyncRunner());
+    }
+
+    private static InMemoryFileSystem getInMemoryFileSystem(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem;
+    }
+
+    private static CountingFileSystem getCountingFileSystem(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        return new CountingFileSystem(getInMemoryFileSystem(test));
+    }
+
+    private static void assertOperationCounts(Test test, CountingFileSystem fileSystem, long getFolderCount, long getFileCount, long existsCount, long readCount, long copyToCount, long setContentsCount, long setContentsAsStringCount)
+    {
+        PreCondition.assertNotNull(test, "test");
+        PreCondition.assertNotNull(fileSystem, "fileSystem");
+
+        test.assertEqual(
+            Iterable.create(getFolderCount, getFileCount, existsCount, readCount, copyToCount, setContentsCount, setContentsAsStringCount),
+            Iterable.create(
+                fileSystem.getOperationCount(CountingFileSystem.getFolderOperation),
+                fileSystem.getOperationCount(CountingFileSystem.getFileOperation),
+                fileSystem.getOperationCount(CountingFileSystem.existsOperation),
+                fileSystem.getOperationCount(CountingFileSystem.readOperation),
+                fileSystem.getOperationCount(CountingFileSystem.copyToOperation),
+                fileSystem.getOperationCount(CountingFileSystem.setContentsOperation),
+                fileSystem.getOperationCount(CountingFileSystem.setContentsAsStringOperation)),
+            fileSystem.toString());
+    }
+
+    // Install 16 projects at the same time into one Qub folder, with four projects for each version,
+    // and check that each version was installed exactly once.
+    private static void assertParallelInstalls(Test test, Folder rootFolder)
+    {
+        PreCondition.assertNotNull(test, "test");
+        PreCondition.assertNotNull(rootFolder, "rootFolder");
+
+        final Folder qubFolder = rootFolder.getFolder("qub").await();
+        final int installCount = 16;
+        final int versionCount = 4;
+        final java.util.List<Folder> projectFolders = new java.util.ArrayList<>();
+        for (int i = 0; i < installCount; ++i)
+        {
+            final String version = Integer.toString(i % versionCount + 1);
+            final Folder projectFolder = rootFolder.getFolder("projects/" + i).await();
+            projectFolder.getFile("project.json").await()
+                .setContentsAsString(JSON.object(projectJson ->
+                {
+                    projectJson.stringProperty("project", "fake-project");
+                    projectJson.stringProperty("publisher", "fake-publisher");
+                    projectJson.stringProperty("version", version);
+                    projectJson.objectProperty("java", java ->
+                    {
+                        java.stringProperty("mainClass", "fake.MainClass");
+                    });
+                }).toString())
+                .await();
+            final File projectJarFile = projectFolder.getFile("outputs/fake-project.jar").await();
+            projectJarFile.setContentsAsString("fake-project.jar contents " + i).await();
+            InstallManifest.create(projectFolder, projectJarFile)
+                .save(InstallManifest.getManifestFile(projectJarFile)).await();
+            projectFolders.add(projectFolder);
+        }
+
+        final java.util.concurrent.atomic.AtomicInteger successCount = new java.util.concurrent.atomic.AtomicInteger();
+        final java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(installCount);
+        try
+        {
+            final java.util.List<java.util.concurrent.Future<?>> futures = new java.util.ArrayList<>();
+            for (final Folder projectFolder : projectFolders)
+            {
+                futures.add(executor.submit(() ->
+                {
+                    try (final Console console = createConsole(getInMemoryCharacterStream(test), projectFolder, qubFolder))
+                    {
+                        main(console);
+                        if (console.getExitCode() == 0)
+                        {
+                            successCount.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (final java.util.concurrent.Future<?> future : futures)
+            {
+                future.get();
+            }
+        }
+        catch (InterruptedException | java.util.concurrent.ExecutionException e)
+        {
+            throw new RuntimeException(e);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        test.assertEqual(versionCount, successCount.get());
+        final PackageIndex packageIndex = PackageIndex.load(qubFolder).await();
+        test.assertEqual(versionCount, packageIndex.getEntries().getCount());
+        final Folder projectQubFolder = qubFolder.getFolder("fake-publisher/fake-project").await();
+        for (int version = 1; version <= versionCount; ++version)
+        {
+            final Folder versionFolder = projectQubFolder.getFolder(Integer.toString(version)).await();
+            test.assertTrue(versionFolder.getFile("project.json").await().exists().await());
+            test.assertTrue(versionFolder.getFile("fake-project.jar").await().exists().await());
+            test.assertTrue(versionFolder.getFile("fake-project.launcher.jar").await().exists().await());
+            test.assertTrue(versionFolder.getFile(DependencyClosure.fileName).await().exists().await());
+            test.assertNotNull(packageIndex.get("fake-publisher", "fake-project", Integer.toString(version)));
+        }
+        test.assertFalse(projectQubFolder.getFolders().await().any(AtomicFiles::isStagingFolder));
+        test.assertTrue(qubFolder.getFile("fake-project.cmd").await().exists().await());
+    }
+
+    private static void assertAtMost(Test test, long maximum, long actual, CountingFileSystem fileSystem)
+    {
+        PreCondition.assertNotNull(test, "test");
+        PreCondition.assertNotNull(fileSystem, "fileSystem");
+
+        test.assertTrue(actual <= maximum, "Expected at most " + maximum + " operations, but there were " + actual + ": " + fileSystem.toString());
+    }
+
+    private static long getOperationCountPerDependency(CountingFileSystem withoutDependencies, CountingFileSystem withOneDependency, String operation)
+    {
+        return withOneDependency.getOperationCount(operation) - withoutDependencies.getOperationCount(operation);
+    }
+
+    // Installs a project that was already built and depends on dependencyCount installed packages,
+    // and returns the file system with the operations that the install did.
+    private static CountingFileSystem installWithDependencies(Test test, int dependencyCount)
+    {
+        PreCondition.assertNotNull(test, "test");
+        PreCondition.assertGreaterThanOrEqualTo(dependencyCount, 0, "dependencyCount");
+
+        final InMemoryCharacterStream output = getInMemoryCharacterStream(test);
+        final CountingFileSystem result = getCountingFileSystem(test);
+        final Folder currentFolder = result.getFileSystem().getFolder("/project").await();
+        final Folder qubFolder = result.getFileSystem().getFolder("/qub").await();
+        for (int i = 0; i < dependencyCount; ++i)
+        {
+            final Folder dependencyFolder = qubFolder.getFolder("fake-publisher/fake-dependency" + i + "/1").await();
+            dependencyFolder.getFile("project.json").await().setContentsAsString("{}").await();
+            dependencyFolder.getFile("fake-dependency" + i + ".jar").await().setContents(createJarContents("fake/Dependency" + i + ".class")).await();
+        }
+        currentFolder.getFile("project.json").await()
+            .setContentsAsString(JSON.object(projectJson ->
+            {
+                projectJson.stringProperty("project", "fake-project");
+                projectJson.stringProperty("publisher", "fake-publisher");
+                projectJson.stringProperty("version", "1");
+                projectJson.objectProperty("java", java ->
+                {
+                    java.stringProperty("mainClass", "fake.MainClass");
+                    java.arrayProperty("dependencies", dependencies ->
+                    {
+                        for (int i = 0; i < dependencyCount; ++i)
+                        {
+                            final String dependencyProject = "fake-dependency" + i;
+                            dependencies.objectElement(dependency ->
+                            {
+                                dependency.stringProperty("publisher", "fake-publisher");
+                                dependency.stringProperty("project", dependencyProject);
+                                dependency.stringProperty("version", "1");
+                            });
+                        }
+                    });
+                });
+            }).toString())
+            .await();
+        final File projectJarFile = currentFolder.getFile("outputs/fake-project.jar").await();
+        projectJarFile.setContents(createJarContents("fake/MainClass.class")).await();
+        InstallManifest.create(currentFolder, projectJarFile)
+            .save(InstallManifest.getManifestFile(projectJarFile)).await();
+        result.reset();
+        try (final Console console = createConsole(output, currentFolder, qubFolder))
+        {
+            main(console);
+            test.assertEqual(0, console.getExitCode(), output.getText().await());
+        }
+        test.assertTrue(qubFolder.getFile("fake-publisher/fake-project/1/fake-project.launcher.jar").await().exists().await());
+
+        return result;
+    }
+
+    private static Folder getInMemoryCurrentFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        return getInMemoryFileSystem(test).getFolder("/").await();
+    }
+
+    private static Folder getInMemoryProjectFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        return getInMemoryFileSystem(test).getFolder("/project").await();
+    }
+
+    private static Folder getInMemoryQubFolder(Folder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        return projectFolder.getFileSystem().getFolder("/qub").await();
+    }
+
+    private static void setFakeProjectJson(Folder projectFolder, String mainClass)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        projectFolder.getFile("project.json").await()
+            .setContentsAsString(JSON.object(projectJson ->
+            {
+                projectJson.stringProperty("project", "fake-project");
+                projectJson.stringProperty("publisher", "fake-publisher");
+                projectJson.stringProperty("version", "1");
+                projectJson.objectProperty("java", java ->
+                {
+                    if (mainClass != null)
+                    {
+                        java.stringProperty("mainClass", mainClass);
+                    }
+                });
+            }).toString())
+            .await();
+    }
+
+    private static void setFakeProjectJsonWithDependency(Folder projectFolder, String dependencyVersion)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertNotNullAndNotEmpty(dependencyVersion, "dependencyVersion");
+
+        projectFolder.getFile("project.json").await()
+            .setContentsAsString(JSON.object(projectJson ->
+            {
+                projectJson.stringProperty("project", "fake-project");
+                projectJson.stringProperty("publisher", "fake-publisher");
+                projectJson.stringProperty("version", "1");
+                projectJson.objectProperty("java", java ->
+                {
+                    java.arrayProperty("dependencies", dependencies ->
+                    {
+                        dependencies.objectElement(dependency ->
+                        {
+                            dependency.stringProperty("publisher", "fake-publisher");
+                            dependency.stringProperty("project", "fake-dependency");
+                            dependency.stringProperty("version", dependencyVersion);
+                        });
+                    });
+                });
+            }).toString())
+            .await();
+    }
+
+    private static Console createConsole(CharacterWriteStream output, String... commandLineArguments)
+    {
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertNotNull(commandLineArguments, "commandLineArguments");
+
+        final Console result = new Console(Iterable.create(commandLineArguments));
+        result.setLineSeparator("\n");
+        result.setOutput(output);
+
+        return result;
+    }
+
+    private static Console createConsole(CharacterWriteStream output, Folder currentFolder, String... commandLineArguments)
+    {
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertNotNull(currentFolder, "currentFolder");
+        PreCondition.assertNotNull(commandLineArguments, "commandLineArguments");
+
+        final Console result = createConsole(output, commandLineArguments);
+        result.setFileSystem(currentFolder.getFileSystem());
+        result.setCurrentFolderPath(currentFolder.getPath());
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    private static Console createConsole(CharacterWriteStream output, Folder currentFolder, Folder qubFolder, String... commandLineArguments)
+    {
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertNotNull(currentFolder, "currentFolder");
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNull(commandLineArguments, "commandLineArguments");
+
+        final Console result = createConsole(output, currentFolder, commandLineArguments);
+        final Map<String,String> environmentVariables = Map.create();
+        environmentVariables.set("QUB_HOME", qubFolder.toString());
+        result.setEnvironmentVariables(environmentVariables);
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    private static void main(Console console)
+    {
+        main(console, null, null);
+    }
+
+    private static void main(Console console, Boolean showTotalDuration)
+    {
+        main(console, showTotalDuration, null);
+    }
+
+    private static void main(Console console, Function1<Folder,Result<ProjectWatcher>> projectWatcherCreator)
+    {
+        main(console, null, projectWatcherCreator);
+    }
+
+    private static void main(Console console, TestClassLauncher testClassLauncher)
+    {
+        main(console, null, null, testClassLauncher);
+    }
+
+    private static void main(Console console, TestClassLauncher testClassLauncher, IncrementalCompiler incrementalCompiler)
+    {
+        main(console, null, null, testClassLauncher, incrementalCompiler);
+    }
+
+    private static void main(Console console, Boolean showTotalDuration, Function1<Folder,Result<ProjectWatcher>> projectWatcherCreator)
+    {
+        main(console, showTotalDuration, projectWatcherCreator, new FakeTestClassLauncher(0));
+    }
+
+    private static void main(Console console, Boolean showTotalDuration, Function1<Folder,Result<ProjectWatcher>> projectWatcherCreator, TestClassLauncher testClassLauncher)
+    {
+        main(console, showTotalDuration, projectWatcherCreator, testClassLauncher, null);
+    }
+
+    private static void main(Console console, Boolean showTotalDuration, Function1<Folder,Result<ProjectWatcher>> projectWatcherCreator, TestClassLauncher testClassLauncher, IncrementalCompiler incrementalCompiler)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(testClassLauncher, "testClassLauncher");
+
+        final Install install = new Install();
+        install.setTestClassLauncher(testClassLauncher);
+        if (incrementalCompiler != null)
+        {
+            install.setIncrementalCompiler(incrementalCompiler);
+        }
+        if (showTotalDuration != null)
+        {
+            install.setShowTotalDuration(showTotalDuration);
+        }
+        if (projectWatcherCreator != null)
+        {
+            install.setProjectWatcherCreator(projectWatcherCreator);
+        }
+        install.setQubTest(createQubTest());
+        install.setQubTestCreator(InstallTests::createQubTest);
+
+        install.main(console);
+    }
+
+    private static File setFakeClassDependencyGraph(Folder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        setFakeProjectJson(projectFolder, null);
+        final File sourceFile = projectFolder.getFile("sources/A.java").await();
+        sourceFile.setContentsAsString("A.java source").await();
+        projectFolder.getFile("tests/ATests.java").await().setContentsAsString("ATests.java source").await();
+        projectFolder.getFile("tests/BTests.java").await().setContentsAsString("BTests.java source").await();
+        final File projectJarFile = projectFolder.getFile("outputs/fake-project.jar").await();
+        projectJarFile.setContentsAsString("fake-project.jar contents").await();
+        projectFolder.getFile("outputs/A.class").await().setContentsAsString("A2").await();
+        projectFolder.getFile("outputs/ATests.class").await().setContentsAsString("ATests").await();
+        projectFolder.getFile("outputs/BTests.class").await().setContentsAsString("BTests").await();
+        InstallManifest.create(projectFolder, projectJarFile)
+            .save(InstallManifest.getManifestFile(projectJarFile)).await();
+        sourceFile.setContentsAsString("A.java changed source").await();
+
+        final ClassDependencyGraph previousClassGraph = ClassDependencyGraph.create();
+        previousClassGraph.addClass("ATests", ContentHash.sha256(new byte[] { 'A', 'T', 'e', 's', 't', 's' }), true, Iterable.create("A"));
+        previousClassGraph.addClass("BTests", ContentHash.sha256(new byte[] { 'B', 'T', 'e', 's', 't', 's' }), true, Iterable.create());
+        // The last passing run saw A.class as "A1", so only a change from "A1" impacts ATests.
+        previousClassGraph.addClass("A", ContentHash.sha256(new byte[] { 'A', '1' }), false, Iterable.create());
+        previousClassGraph.addInputFiles(Iterable.create(projectFolder.getFile("project.json").await())).await();
+        previousClassGraph.save(ClassDependencyGraph.getGraphFile(projectJarFile)).await();
+
+        return projectJarFile;
+    }
+
+    static byte[] createJarContents(String... entryNames)
+    {
+        PreCondition.assertNotNull(entryNames, "entryNames");
+
+        final java.io.ByteArrayOutputStream result = new java.io.ByteArrayOutputStream();
+        try (final java.util.zip.ZipOutputStream zipOutput = new java.util.zip.ZipOutputStream(result))
+        {
+            for (final String entryName : entryNames)
+            {
+                zipOutput.putNextEntry(new java.util.zip.ZipEntry(entryName));
+                zipOutput.write((entryName + " contents").getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                zipOutput.closeEntry();
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return result.toByteArray();
+    }
+
+    static Iterable<String> getJarEntryNames(byte[] jarContents)
+    {
+        PreCondition.assertNotNull(jarContents, "jarContents");
+
+        final List<String> result = List.create();
+        try (final java.util.zip.ZipInputStream zipInput = new java.util.zip.ZipInputStream(new java.io.ByteArrayInputStream(jarContents)))
+        {
+            java.util.zip.ZipEntry entry = zipInput.getNextEntry();
+            while (entry != null)
+            {
+                result.add(entry.getName());
+                entry = zipInput.getNextEntry();
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    private static QubTest createQubTest()
+    {
+        final Build build = new Build();
+        build.setJavaCompiler(new FakeJavaCompiler());
+        build.setJarCreator(new FakeJarCreator());
+
+        final QubTest result = new QubTest();
+        result.setJavaRunner(new FakeJavaRunner());
+        result.setBuild(build);
+
+        return result;
+    }
+
+    private static class FakeIncrementalCompiler extends IncrementalCompiler
+    {
+        private final boolean succeeds;
+
+        public FakeIncrementalCompiler(boolean succeeds)
+        {
+            this.succeeds = succeeds;
+        }
+
+        @Override
+        public boolean isSupported(Folder projectFolder)
+        {
+            PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+            return true;
+        }
+
+        @Override
+        public Result<CompilationState> compile(Console console, Folder projectFolder, File projectJarFile, Iterable<File> dependencyJarFiles, CompilationState previous)
+        {
+            PreCondition.assertNotNull(console, "console");
+            PreCondition.assertNotNull(projectFolder, "projectFolder");
+            PreCondition.assertNotNull(projectJarFile, "projectJarFile");
+            PreCondition.assertNotNull(dependencyJarFiles, "dependencyJarFiles");
+            PreCondition.assertNotNull(previous, "previous");
+
+            return Result.create(() ->
+            {
+                final Iterable<String> changedSourcePaths = IncrementalCompiler.getChangedSourcePaths(projectFolder, previous);
+                console.writeLine("Compiling " + changedSourcePaths.getCount() + " changed source files...").await();
+                CompilationState result = null;
+                if (succeeds)
+                {
+                    result = CompilationState.create(projectFolder).await();
+                }
+                else
+                {
+                    console.writeLine(changedSourcePaths.first() + ":1: error: fake compile error").await();
+                    console.incrementExitCode();
+                }
+                return result;
+            });
+        }
+    }
+
+    private static class FakeTestClassLauncher extends TestClassLauncher
+    {
+        private final int exitCode;
+        private final List<String> testClassNames;
+
+        public FakeTestClassLauncher(int exitCode)
+        {
+            this.exitCode = exitCode;
+            this.testClassNames = List.create();
+        }
+
+        public Iterable<String> getTestClassNames()
+        {
+            return testClassNames;
+        }
+
+        @Override
+        public Result<Integer> run(Console console, Iterable<String> classpath, Iterable<String> testClassNames)
+        {
+            PreCondition.assertNotNull(console, "console");
+            PreCondition.assertNotNull(classpath, "classpath");
+            PreCondition.assertNotNull(testClassNames, "testClassNames");
+
+            return Result.create(() ->
+            {
+                for (final String testClassName : testClassNames)
+                {
+                    synchronized (this.testClassNames)
+                    {
+                        this.testClassNames.add(testClassName);
+                    }
+                    console.writeLine("Running " + testClassName).await();
+                }
+                return exitCode;
+            });
+        }
     }
 }
@@ -0,0 +1,68 @@
+package qub;
+
+public class InstalledPackagesTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(InstalledPackages.class, () ->
+        {
+            runner.testGroup("getAll(Folder)", () ->
+            {
+                runner.test("with null qubFolder", (Test test) ->
+                {
+                    test.assertThrows(() -> InstalledPackages.getAll(null), new PreConditionFailure("qubFolder cannot be null."));
+                });
+
+                runner.test("with Qub folder that doesn't exist", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    test.assertEqual(Iterable.create(), InstalledPackages.getAll(qubFolder).await());
+                });
+
+                runner.test("with installed packages, staging folders, and the jar store", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "1"), "a.B");
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "2"), "a.B");
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("c", "d", "1"), null);
+                    AtomicFiles.getStagingFolder(qubFolder.getFolder("a/b/3").await()).getFile("project.json").await().setContentsAsString("{}").await();
+                    qubFolder.getFile("jars/ab/ab.jar").await().setContentsAsString("stored jar").await();
+                    qubFolder.getFile("e/f/1/f.jar").await().setContentsAsString("jar without project.json").await();
+                    qubFolder.getFile("a/b/1.lock").await().setContentsAsString("").await();
+
+                    test.assertEqual(
+                        Iterable.create(new PackageSignature("a", "b", "1"), new PackageSignature("a", "b", "2"), new PackageSignature("c", "d", "1")),
+                        InstalledPackages.getAll(qubFolder).await());
+                });
+            });
+
+            runner.testGroup("compareVersions(String,String)", () ->
+            {
+                final Action3<String,String,Integer> compareVersionsTest = (String lhs, String rhs, Integer expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(lhs) + " and " + Strings.escapeAndQuote(rhs), (Test test) ->
+                    {
+                        test.assertEqual(expected, Integer.signum(InstalledPackages.compareVersions(lhs, rhs)));
+                    });
+                };
+
+                compareVersionsTest.run("1", "1", 0);
+                compareVersionsTest.run("1", "2", -1);
+                compareVersionsTest.run("10", "9", 1);
+                compareVersionsTest.run("1.10.0", "1.9.5", 1);
+                compareVersionsTest.run("1.0", "1.0.1", -1);
+                compareVersionsTest.run("1.0-beta", "1.0-alpha", 1);
+            });
+        });
+    }
+
+    private static Folder getInMemoryQubFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/qub").await();
+    }
+}
@@ -0,0 +1,136 @@
+package qub;
+
+public class JarOptimizerTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(JarOptimizer.class, () ->
+        {
+            runner.testGroup("getOptimizedJarFile(File)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> JarOptimizer.getOptimizedJarFile(null),
+                        new PreConditionFailure("projectJarFile cannot be null."));
+                });
+
+                runner.test("with jar file", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    test.assertEqual(
+                        currentFolder.getFile("outputs/a.optimized.jar").await(),
+                        JarOptimizer.getOptimizedJarFile(currentFolder.getFile("outputs/a.jar").await()));
+                });
+            });
+
+            runner.testGroup("isStripped(String)", () ->
+            {
+                final Action2<String,Boolean> isStrippedTest = (String entryName, Boolean expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(entryName), (Test test) ->
+                    {
+                        test.assertEqual(expected, JarOptimizer.isStripped(entryName));
+                    });
+                };
+
+                isStrippedTest.run("qub/A.class", false);
+                isStrippedTest.run("META-INF/MANIFEST.MF", false);
+                isStrippedTest.run("qub/A.java", true);
+                isStrippedTest.run("META-INF/maven/qub/a/pom.xml", true);
+                isStrippedTest.run("qub/resource.txt", false);
+            });
+
+            runner.testGroup("optimize(File,File,Iterable<String>,int)", () ->
+            {
+                runner.test("with null sourceJarFile", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    test.assertThrows(() -> JarOptimizer.optimize(null, currentFolder.getFile("b.jar").await(), Iterable.create(), 0),
+                        new PreConditionFailure("sourceJarFile cannot be null."));
+                });
+
+                runner.test("with compression level above 9", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    test.assertThrows(() -> JarOptimizer.optimize(currentFolder.getFile("a.jar").await(), currentFolder.getFile("b.jar").await(), Iterable.create(), 10),
+                        new PreConditionFailure("compressionLevel (10) must be between 0 and 9."));
+                });
+
+                runner.test("with file that isn't a jar", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final File sourceJarFile = currentFolder.getFile("a.jar").await();
+                    sourceJarFile.setContentsAsString("not a jar").await();
+                    test.assertThrows(() -> JarOptimizer.optimize(sourceJarFile, currentFolder.getFile("b.jar").await(), Iterable.create(), 0).await(),
+                        new IllegalArgumentException("/a.jar isn't a jar file."));
+                });
+
+                runner.test("with class-load order and stored entries", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final File sourceJarFile = currentFolder.getFile("a.jar").await();
+                    sourceJarFile.setContents(InstallTests.createJarContents("META-INF/MANIFEST.MF", "qub/A.class", "qub/A.java", "qub/B.class", "qub/C.class", "META-INF/maven/qub/a/pom.xml")).await();
+                    final File targetJarFile = currentFolder.getFile("b.jar").await();
+
+                    final OptimizedJar optimizedJar = JarOptimizer.optimize(sourceJarFile, targetJarFile, Iterable.create("java.lang.Object", "qub.C", "qub.A"), 0).await();
+                    test.assertSame(targetJarFile, optimizedJar.getFile());
+                    test.assertEqual(sourceJarFile.getContents().await().length, (int)optimizedJar.getOriginalSize());
+                    test.assertEqual(targetJarFile.getContents().await().length, (int)optimizedJar.getSize());
+                    test.assertEqual(Iterable.create("qub/A.java", "META-INF/maven/qub/a/pom.xml"), optimizedJar.getStrippedEntryNames());
+
+                    final byte[] targetContents = targetJarFile.getContents().await();
+                    test.assertEqual(Iterable.create("META-INF/MANIFEST.MF", "qub/C.class", "qub/A.class", "qub/B.class"), InstallTests.getJarEntryNames(targetContents));
+                    for (final Integer method : getJarEntryMethods(targetContents))
+                    {
+                        test.assertEqual(java.util.zip.ZipEntry.STORED, method.intValue());
+                    }
+                });
+
+                runner.test("with compression level", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final File sourceJarFile = currentFolder.getFile("a.jar").await();
+                    sourceJarFile.setContents(InstallTests.createJarContents("qub/A.class", "qub/B.class")).await();
+                    final File targetJarFile = currentFolder.getFile("b.jar").await();
+
+                    JarOptimizer.optimize(sourceJarFile, targetJarFile, Iterable.create(), 9).await();
+                    final byte[] targetContents = targetJarFile.getContents().await();
+                    test.assertEqual(Iterable.create("qub/A.class", "qub/B.class"), InstallTests.getJarEntryNames(targetContents));
+                    for (final Integer method : getJarEntryMethods(targetContents))
+                    {
+                        test.assertEqual(java.util.zip.ZipEntry.DEFLATED, method.intValue());
+                    }
+                });
+            });
+        });
+    }
+
+    private static List<Integer> getJarEntryMethods(byte[] jarContents)
+    {
+        final List<Integer> result = List.create();
+        try (final java.util.zip.ZipInputStream zipInput = new java.util.zip.ZipInputStream(new java.io.ByteArrayInputStream(jarContents)))
+        {
+            java.util.zip.ZipEntry entry = zipInput.getNextEntry();
+            while (entry != null)
+            {
+                result.add(entry.getMethod());
+                entry = zipInput.getNextEntry();
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    private static Folder getInMemoryCurrentFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/").await();
+    }
+}
@@ -0,0 +1,68 @@
+package qub;
+
+public class JarPatcherTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(JarPatcher.class, () ->
+        {
+            runner.testGroup("patch(File,Map<String,byte[]>,Iterable<String>)", () ->
+            {
+                runner.test("with null jarFile", (Test test) ->
+                {
+                    test.assertThrows(() -> JarPatcher.patch(null, new java.util.HashMap<>(), Iterable.create()),
+                        new PreConditionFailure("jarFile cannot be null."));
+                });
+
+                runner.test("with null updatedEntries", (Test test) ->
+                {
+                    final File jarFile = getInMemoryCurrentFolder(test).getFile("a.jar").await();
+                    test.assertThrows(() -> JarPatcher.patch(jarFile, null, Iterable.create()),
+                        new PreConditionFailure("updatedEntries cannot be null."));
+                });
+
+                runner.test("with null removedEntryNames", (Test test) ->
+                {
+                    final File jarFile = getInMemoryCurrentFolder(test).getFile("a.jar").await();
+                    test.assertThrows(() -> JarPatcher.patch(jarFile, new java.util.HashMap<>(), null),
+                        new PreConditionFailure("removedEntryNames cannot be null."));
+                });
+
+                runner.test("with updated, added, and removed entries", (Test test) ->
+                {
+                    final File jarFile = getInMemoryCurrentFolder(test).getFile("a.jar").await();
+                    jarFile.setContents(InstallTests.createJarContents("META-INF/MANIFEST.MF", "qub/A.class", "qub/B.class", "qub/C.class")).await();
+                    final java.util.HashMap<String,byte[]> updatedEntries = new java.util.HashMap<>();
+                    updatedEntries.put("qub/B.class", new byte[] { 1 });
+                    updatedEntries.put("qub/D.class", new byte[] { 2 });
+
+                    JarPatcher.patch(jarFile, updatedEntries, Iterable.create("qub/C.class")).await();
+
+                    test.assertEqual(
+                        Iterable.create("META-INF/MANIFEST.MF", "qub/A.class", "qub/B.class", "qub/D.class"),
+                        InstallTests.getJarEntryNames(jarFile.getContents().await()));
+                });
+
+                runner.test("with no changes", (Test test) ->
+                {
+                    final File jarFile = getInMemoryCurrentFolder(test).getFile("a.jar").await();
+                    jarFile.setContents(InstallTests.createJarContents("qub/A.class")).await();
+
+                    JarPatcher.patch(jarFile, new java.util.HashMap<>(), Iterable.create()).await();
+
+                    test.assertEqual(Iterable.create("qub/A.class"), InstallTests.getJarEntryNames(jarFile.getContents().await()));
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryCurrentFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/").await();
+    }
+}
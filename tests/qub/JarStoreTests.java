@@ -0,0 +1,171 @@
+package qub;
+
+public class JarStoreTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(JarStore.class, () ->
+        {
+            runner.testGroup("constructor(Folder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> new JarStore(null), new PreConditionFailure("qubFolder cannot be null."));
+                });
+
+                runner.test("with folder", (Test test) ->
+                {
+                    final Folder qubFolder = getQubFolder(test);
+                    test.assertEqual("/qub/jars", new JarStore(qubFolder).getStoreFolder().toString());
+                });
+            });
+
+            runner.testGroup("getJarFile(String)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final JarStore jarStore = new JarStore(getQubFolder(test));
+                    test.assertThrows(() -> jarStore.getJarFile(null), new PreConditionFailure("hash cannot be null."));
+                });
+
+                runner.test("with hash", (Test test) ->
+                {
+                    final JarStore jarStore = new JarStore(getQubFolder(test));
+                    test.assertEqual("/qub/jars/ab/abcdef.jar", jarStore.getJarFile("abcdef").toString());
+                });
+            });
+
+            runner.testGroup("add(File,String,PublishMode)", () ->
+            {
+                runner.test("with null source file", (Test test) ->
+                {
+                    final JarStore jarStore = new JarStore(getQubFolder(test));
+                    test.assertThrows(() -> jarStore.add(null, null, PublishMode.Copy), new PreConditionFailure("sourceFile cannot be null."));
+                });
+
+                runner.test("with new jar", (Test test) ->
+                {
+                    final Folder qubFolder = getQubFolder(test);
+                    final File sourceFile = createJar(qubFolder, "/project/outputs/a.jar", "a.jar contents");
+                    final JarStore jarStore = new JarStore(qubFolder);
+
+                    final StoredJar storedJar = jarStore.add(sourceFile, null, PublishMode.Copy).await();
+                    final String hash = ContentHash.sha256(sourceFile).await();
+                    test.assertEqual(hash, storedJar.getHash());
+                    test.assertEqual(14L, storedJar.getSize());
+                    test.assertTrue(storedJar.wasCopied());
+                    test.assertEqual(jarStore.getJarFile(hash), storedJar.getFile());
+                    test.assertEqual("a.jar contents", storedJar.getFile().getContentsAsString().await());
+                });
+
+                runner.test("with jar that has the same contents as a stored jar", (Test test) ->
+                {
+                    final Folder qubFolder = getQubFolder(test);
+                    final JarStore jarStore = new JarStore(qubFolder);
+                    final StoredJar firstJar = jarStore.add(createJar(qubFolder, "/a/outputs/a.jar", "shared contents"), null, PublishMode.Copy).await();
+
+                    final StoredJar secondJar = jarStore.add(createJar(qubFolder, "/b/outputs/b.jar", "shared contents"), null, PublishMode.Copy).await();
+                    test.assertEqual(firstJar.getHash(), secondJar.getHash());
+                    test.assertEqual(firstJar.getFile(), secondJar.getFile());
+                    test.assertFalse(secondJar.wasCopied());
+                });
+
+                runner.test("with known hash of a stored jar", (Test test) ->
+                {
+                    final Folder qubFolder = getQubFolder(test);
+                    final JarStore jarStore = new JarStore(qubFolder);
+                    final File sourceFile = createJar(qubFolder, "/project/outputs/a.jar", "a.jar contents");
+                    final StoredJar firstJar = jarStore.add(sourceFile, null, PublishMode.Copy).await();
+                    sourceFile.delete().await();
+
+                    final StoredJar secondJar = jarStore.add(sourceFile, firstJar.getHash(), PublishMode.Copy).await();
+                    test.assertEqual(firstJar.getFile(), secondJar.getFile());
+                    test.assertEqual(14L, secondJar.getSize());
+                    test.assertFalse(secondJar.wasCopied());
+                });
+
+                runner.test("with known hash that isn't stored", (Test test) ->
+                {
+                    final Folder qubFolder = getQubFolder(test);
+                    final JarStore jarStore = new JarStore(qubFolder);
+                    final File sourceFile = createJar(qubFolder, "/project/outputs/a.jar", "a.jar contents");
+
+                    final StoredJar storedJar = jarStore.add(sourceFile, "0123", PublishMode.Copy).await();
+                    test.assertEqual(ContentHash.sha256(sourceFile).await(), storedJar.getHash());
+                    test.assertTrue(storedJar.wasCopied());
+                });
+            });
+
+            runner.testGroup("add(File,String,PublishMode) and link(StoredJar,File) on disk", () ->
+            {
+                runner.test("with HardLink and a rebuilt source jar", (Test test) ->
+                {
+                    try (final Console console = new Console(Iterable.create()))
+                    {
+                        final Folder folder = AtomicFilesTests.getTemporaryDiskFolder(console);
+                        try
+                        {
+                            final Folder qubFolder = folder.getFolder("qub").await();
+                            final File sourceFile = folder.getFile("project/outputs/a.jar").await();
+                            sourceFile.setContentsAsString("a.jar contents").await();
+                            final JarStore jarStore = new JarStore(qubFolder);
+
+                            final StoredJar storedJar = jarStore.add(sourceFile, null, PublishMode.HardLink).await();
+                            final File targetFile = qubFolder.getFile("a/b/1/b.jar").await();
+                            test.assertEqual(PublishMode.HardLink, jarStore.link(storedJar, targetFile).await());
+
+                            // Rebuilding writes the outputs jar in place.
+                            java.nio.file.Files.write(java.nio.file.Paths.get(sourceFile.toString()), "rebuilt a.jar contents".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                            test.assertEqual("a.jar contents", storedJar.getFile().getContentsAsString().await());
+                            test.assertEqual("a.jar contents", targetFile.getContentsAsString().await());
+                        }
+                        catch (java.io.IOException e)
+                        {
+                            throw new RuntimeException(e);
+                        }
+                        finally
+                        {
+                            AtomicFiles.deleteFolder(folder).await();
+                        }
+                    }
+                });
+            });
+
+            runner.testGroup("link(StoredJar,File)", () ->
+            {
+                runner.test("with null stored jar", (Test test) ->
+                {
+                    final Folder qubFolder = getQubFolder(test);
+                    final JarStore jarStore = new JarStore(qubFolder);
+                    test.assertThrows(() -> jarStore.link(null, qubFolder.getFile("a/1/a.jar").await()), new PreConditionFailure("storedJar cannot be null."));
+                });
+
+                runner.test("with in-memory file system", (Test test) ->
+                {
+                    final Folder qubFolder = getQubFolder(test);
+                    final JarStore jarStore = new JarStore(qubFolder);
+                    final StoredJar storedJar = jarStore.add(createJar(qubFolder, "/project/outputs/a.jar", "a.jar contents"), null, PublishMode.Copy).await();
+                    final File targetFile = qubFolder.getFile("a/1/a.jar").await();
+
+                    test.assertEqual(PublishMode.Copy, jarStore.link(storedJar, targetFile).await());
+                    test.assertEqual("a.jar contents", targetFile.getContentsAsString().await());
+                    test.assertEqual("a.jar contents", storedJar.getFile().getContentsAsString().await());
+                });
+            });
+        });
+    }
+
+    private static Folder getQubFolder(Test test)
+    {
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+        return fileSystem.getFolder("/qub").await();
+    }
+
+    private static File createJar(Folder qubFolder, String path, String contents)
+    {
+        final File result = qubFolder.getFileSystem().getFile(path).await();
+        result.setContentsAsString(contents).await();
+        return result;
+    }
+}
@@ -0,0 +1,75 @@
+package qub;
+
+public class JarTrainingRunTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(JarTrainingRun.class, () ->
+        {
+            runner.testGroup("constructor(Iterable<String>,long)", () ->
+            {
+                runner.test("with null classLoadOrder", (Test test) ->
+                {
+                    test.assertThrows(() -> new JarTrainingRun(null, 0),
+                        new PreConditionFailure("classLoadOrder cannot be null."));
+                });
+
+                runner.test("with negative milliseconds", (Test test) ->
+                {
+                    test.assertThrows(() -> new JarTrainingRun(Iterable.create(), -1),
+                        new PreConditionFailure("milliseconds (-1) must be greater than or equal to 0."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    final JarTrainingRun trainingRun = new JarTrainingRun(Iterable.create("qub.A", "qub.B"), 25);
+                    test.assertEqual(Iterable.create("qub.A", "qub.B"), trainingRun.getClassLoadOrder());
+                    test.assertEqual(25L, trainingRun.getMilliseconds());
+                });
+            });
+
+            runner.testGroup("parseClassLoadOrder(String)", () ->
+            {
+                runner.test("with null trainingRunOutput", (Test test) ->
+                {
+                    test.assertThrows(() -> JarTrainingRun.parseClassLoadOrder(null),
+                        new PreConditionFailure("trainingRunOutput cannot be null."));
+                });
+
+                runner.test("with class load lines and other output", (Test test) ->
+                {
+                    test.assertEqual(
+                        Iterable.create("java.lang.Object", "qub.Main"),
+                        JarTrainingRun.parseClassLoadOrder(
+                            "[0.010s][info][class,load] java.lang.Object source: shared objects file\r\n" +
+                            "Usage: main\n" +
+                            "[0.050s][info][class,load] qub.Main source: file:/a.jar\n"));
+                });
+            });
+
+            runner.testGroup("run(Iterable<File>,String,Iterable<String>,Iterable<String>)", () ->
+            {
+                runner.test("with null classpathFiles", (Test test) ->
+                {
+                    test.assertThrows(() -> JarTrainingRun.run(null, "qub.Main", Iterable.create(), Iterable.create()),
+                        new PreConditionFailure("classpathFiles cannot be null."));
+                });
+
+                runner.test("with empty mainClass", (Test test) ->
+                {
+                    test.assertThrows(() -> JarTrainingRun.run(Iterable.create(), "", Iterable.create(), Iterable.create()),
+                        new PreConditionFailure("mainClass cannot be empty."));
+                });
+
+                runner.test("with in-memory classpath file", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+                    fileSystem.createRoot("/");
+                    final File jarFile = fileSystem.getFile("/a.jar").await();
+                    test.assertThrows(() -> JarTrainingRun.run(Iterable.create(jarFile), "qub.Main", Iterable.create(), Iterable.create("-?")).await(),
+                        new UnsupportedOperationException("Training runs can only be done on a local file system."));
+                });
+            });
+        });
+    }
+}
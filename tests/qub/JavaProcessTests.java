@@ -0,0 +1,59 @@
+package qub;
+
+public class JavaProcessTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(JavaProcess.class, () ->
+        {
+            runner.testGroup("constructor(int,String)", () ->
+            {
+                runner.test("with null output", (Test test) ->
+                {
+                    test.assertThrows(() -> new JavaProcess(0, null), new PreConditionFailure("output cannot be null."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    final JavaProcess process = new JavaProcess(1, "output");
+                    test.assertEqual(1, process.getExitCode());
+                    test.assertEqual("output", process.getOutput());
+                });
+            });
+
+            runner.test("getJavaExecutablePath()", (Test test) ->
+            {
+                test.assertEqual(
+                    java.nio.file.Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                    JavaProcess.getJavaExecutablePath());
+            });
+
+            runner.testGroup("run(Iterable<String>,long)", () ->
+            {
+                runner.test("with null arguments", (Test test) ->
+                {
+                    test.assertThrows(() -> JavaProcess.run(null, 1), new PreConditionFailure("arguments cannot be null."));
+                });
+
+                runner.test("with zero timeoutSeconds", (Test test) ->
+                {
+                    test.assertThrows(() -> JavaProcess.run(Iterable.create(), 0),
+                        new PreConditionFailure("timeoutSeconds (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with -version", (Test test) ->
+                {
+                    final JavaProcess process = JavaProcess.run(Iterable.create("-version"), JavaProcess.defaultTimeoutSeconds).await();
+                    test.assertEqual(0, process.getExitCode());
+                    test.assertTrue(process.getOutput().contains("version"));
+                });
+
+                runner.test("with unknown main class", (Test test) ->
+                {
+                    final JavaProcess process = JavaProcess.run(Iterable.create("qub.ClassThatDoesntExist"), JavaProcess.defaultTimeoutSeconds).await();
+                    test.assertTrue(process.getExitCode() != 0);
+                });
+            });
+        });
+    }
+}
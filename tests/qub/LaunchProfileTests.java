@@ -0,0 +1,166 @@
+package qub;
+
+public class LaunchProfileTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(LaunchProfile.class, () ->
+        {
+            runner.testGroup("getPresetOptions(String)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertNull(LaunchProfile.getPresetOptions(null));
+                });
+
+                runner.test("with \"fast-startup\"", (Test test) ->
+                {
+                    test.assertEqual(
+                        Iterable.create("-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC", "-Xms16m", "-Xmx256m"),
+                        LaunchProfile.getPresetOptions("fast-startup"));
+                });
+
+                runner.test("with \"throughput\"", (Test test) ->
+                {
+                    test.assertEqual(
+                        Iterable.create("-XX:+UseParallelGC", "-Xms256m"),
+                        LaunchProfile.getPresetOptions("throughput"));
+                });
+
+                runner.test("with unrecognized profile", (Test test) ->
+                {
+                    test.assertNull(LaunchProfile.getPresetOptions("warp-speed"));
+                });
+            });
+
+            runner.testGroup("parse(File)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> LaunchProfile.parse(null), new PreConditionFailure("projectJsonFile cannot be null."));
+                });
+
+                runner.test("with no java property", (Test test) ->
+                {
+                    final File projectJsonFile = getInMemoryQubFolder(test).getFile("project.json").await();
+                    projectJsonFile.setContentsAsString("{\"project\":\"b\"}").await();
+
+                    final LaunchProfile launchProfile = LaunchProfile.parse(projectJsonFile).await();
+                    test.assertNull(launchProfile.getProfileName());
+                    test.assertFalse(launchProfile.getProjectJvmOptions().any());
+                });
+
+                runner.test("with jvmOptions property that isn't safe in a shortcut", (Test test) ->
+                {
+                    final File projectJsonFile = getInMemoryQubFolder(test).getFile("project.json").await();
+                    projectJsonFile.setContentsAsString("{\"java\":{\"jvmOptions\":[\"-Xss2m\",\"-Da=b&calc\"]}}").await();
+
+                    test.assertThrows(() -> LaunchProfile.parse(projectJsonFile).await(),
+                        new IllegalArgumentException("The JVM option \"-Da=b&calc\" in /qub/project.json can't be used in a shortcut. JVM options can't be empty or contain whitespace or any of the characters &|<>^%!()\"."));
+                });
+
+                runner.test("with launchProfile and jvmOptions properties", (Test test) ->
+                {
+                    final File projectJsonFile = getInMemoryQubFolder(test).getFile("project.json").await();
+                    projectJsonFile.setContentsAsString("{\"java\":{\"launchProfile\":\"throughput\",\"jvmOptions\":[\"-Xss2m\",\"-ea\"]}}").await();
+
+                    final LaunchProfile launchProfile = LaunchProfile.parse(projectJsonFile).await();
+                    test.assertEqual("throughput", launchProfile.getProfileName());
+                    test.assertEqual(Iterable.create("-Xss2m", "-ea"), launchProfile.getProjectJvmOptions());
+                });
+            });
+
+            runner.testGroup("isSafeOption(String)", () ->
+            {
+                final Action2<String,Boolean> isSafeOptionTest = (String option, Boolean expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(option), (Test test) ->
+                    {
+                        test.assertEqual(expected, LaunchProfile.isSafeOption(option));
+                    });
+                };
+
+                isSafeOptionTest.run("", false);
+                isSafeOptionTest.run("-Xmx1g", true);
+                isSafeOptionTest.run("-Dfile.encoding=UTF-8", true);
+                isSafeOptionTest.run("-Dqub.path=C:\\qub;D:\\qub", true);
+                isSafeOptionTest.run("-Da=b c", false);
+                isSafeOptionTest.run("-Da=b\tc", false);
+                isSafeOptionTest.run("-Da=b&calc", false);
+                isSafeOptionTest.run("-Da=b|calc", false);
+                isSafeOptionTest.run("-Da=b>out.txt", false);
+                isSafeOptionTest.run("-Da=%PATH%", false);
+                isSafeOptionTest.run("-Da=^", false);
+                isSafeOptionTest.run("-Da=\"b\"", false);
+                isSafeOptionTest.run("-Da=!b!", false);
+            });
+
+            runner.testGroup("getJvmOptions(Folder,String)", () ->
+            {
+                runner.test("with null qubFolder", (Test test) ->
+                {
+                    test.assertThrows(() -> LaunchProfile.create().getJvmOptions(null, "b"), new PreConditionFailure("qubFolder cannot be null."));
+                });
+
+                runner.test("with empty shortcutName", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    test.assertThrows(() -> LaunchProfile.create().getJvmOptions(qubFolder, ""), new PreConditionFailure("shortcutName cannot be empty."));
+                });
+
+                runner.test("with no profile, options, or config file", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    test.assertFalse(LaunchProfile.create().getJvmOptions(qubFolder, "b").await().any());
+                });
+
+                runner.test("with profile and project options", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    test.assertEqual(
+                        Iterable.create("-XX:+UseParallelGC", "-Xms256m", "-ea"),
+                        LaunchProfile.create("throughput", Iterable.create("-ea")).getJvmOptions(qubFolder, "b").await());
+                });
+
+                runner.test("with user overrides in config file", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    LaunchProfile.getConfigFile(qubFolder).setContentsAsString(
+                        "# Applies to every shortcut.\n" +
+                        "*=-Dfile.encoding=UTF-8\n" +
+                        "b.profile=fast-startup\n" +
+                        "b=-Xmx1g -Xss4m\n" +
+                        "c=-Xmx8g\n").await();
+                    test.assertEqual(
+                        Iterable.create("-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC", "-Xms16m", "-Xmx256m", "-ea", "-Dfile.encoding=UTF-8", "-Xmx1g", "-Xss4m"),
+                        LaunchProfile.create("throughput", Iterable.create("-ea")).getJvmOptions(qubFolder, "b").await());
+                });
+
+                runner.test("with config file option that isn't safe in a shortcut", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    LaunchProfile.getConfigFile(qubFolder).setContentsAsString("b=-Xmx1g -Dpath=%PATH%\n").await();
+                    test.assertThrows(() -> LaunchProfile.create().getJvmOptions(qubFolder, "b").await(),
+                        new IllegalArgumentException("The JVM option \"-Dpath=%PATH%\" in /qub/launch.config can't be used in a shortcut. JVM options can't be empty or contain whitespace or any of the characters &|<>^%!()\"."));
+                });
+
+                runner.test("with unrecognized profile", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    test.assertThrows(() -> LaunchProfile.create("warp-speed", Iterable.create()).getJvmOptions(qubFolder, "b").await(),
+                        new IllegalArgumentException("Unrecognized launch profile: \"warp-speed\". Expected one of fast-startup, throughput."));
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryQubFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/qub").await();
+    }
+}
@@ -0,0 +1,188 @@
+package qub;
+
+public class LauncherJarTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(LauncherJar.class, () ->
+        {
+            runner.testGroup("getLauncherJarFile(Folder,String)", () ->
+            {
+                runner.test("with null versionFolder", (Test test) ->
+                {
+                    test.assertThrows(() -> LauncherJar.getLauncherJarFile(null, "b"), new PreConditionFailure("versionFolder cannot be null."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    test.assertEqual("/qub/a/b/1/b.launcher.jar", LauncherJar.getLauncherJarFile(qubFolder.getFolder("a/b/1").await(), "b").toString());
+                });
+            });
+
+            runner.testGroup("getRelativePath(Folder,File)", () ->
+            {
+                runner.test("with file in the same folder", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    test.assertEqual("b.jar", LauncherJar.getRelativePath(qubFolder.getFolder("a/b/1").await(), qubFolder.getFile("a/b/1/b.jar").await()));
+                });
+
+                runner.test("with file in a different package", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    test.assertEqual("../../../c/d/2/d.jar", LauncherJar.getRelativePath(qubFolder.getFolder("a/b/1").await(), qubFolder.getFile("c/d/2/d.jar").await()));
+                });
+
+                runner.test("with file in a different version of the same project", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    test.assertEqual("../2/b.jar", LauncherJar.getRelativePath(qubFolder.getFolder("a/b/1").await(), qubFolder.getFile("a/b/2/b.jar").await()));
+                });
+            });
+
+            runner.testGroup("getPackageFolders(File)", () ->
+            {
+                runner.test("with jar entries", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final File jarFile = createJarFile(qubFolder.getFile("a/b/1/b.jar").await(),
+                        "META-INF/MANIFEST.MF", "a/B.class", "a/B$1.class", "a/c/D.class", "root.txt");
+                    test.assertEqual(Iterable.create("a", "a/c", "root.txt"), LauncherJar.getPackageFolders(jarFile).await());
+                });
+            });
+
+            runner.testGroup("create(File,String,Iterable<File>)", () ->
+            {
+                runner.test("with null launcherJarFile", (Test test) ->
+                {
+                    test.assertThrows(() -> LauncherJar.create(null, "a.B", Iterable.create()), new PreConditionFailure("launcherJarFile cannot be null."));
+                });
+
+                runner.test("with classpath files", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final File projectJarFile = createJarFile(qubFolder.getFile("a/b/1/b.jar").await(), "a/B.class");
+                    final File dependencyJarFile = createJarFile(qubFolder.getFile("c/d/2/d.jar").await(), "c/D.class", "c/e/F.class");
+                    final File launcherJarFile = LauncherJar.getLauncherJarFile(qubFolder.getFolder("a/b/1").await(), "b");
+
+                    LauncherJar.create(launcherJarFile, "a.B", Iterable.create(projectJarFile, dependencyJarFile)).await();
+
+                    try (final java.util.jar.JarInputStream jarStream = new java.util.jar.JarInputStream(new java.io.ByteArrayInputStream(launcherJarFile.getContents().await())))
+                    {
+                        final java.util.jar.Attributes attributes = jarStream.getManifest().getMainAttributes();
+                        test.assertEqual("a.B", attributes.getValue(java.util.jar.Attributes.Name.MAIN_CLASS));
+                        test.assertEqual("b.jar ../../../c/d/2/d.jar", attributes.getValue(java.util.jar.Attributes.Name.CLASS_PATH));
+
+                        final java.util.jar.JarEntry indexEntry = jarStream.getNextJarEntry();
+                        test.assertEqual("META-INF/INDEX.LIST", indexEntry.getName());
+                        final java.io.ByteArrayOutputStream indexBytes = new java.io.ByteArrayOutputStream();
+                        final byte[] buffer = new byte[1024];
+                        int bytesRead;
+                        while ((bytesRead = jarStream.read(buffer)) != -1)
+                        {
+                            indexBytes.write(buffer, 0, bytesRead);
+                        }
+                        test.assertEqual(
+                            "JarIndex-Version: 1.0\n\nb.launcher.jar\n\nb.jar\na\n\n../../../c/d/2/d.jar\nc\nc/e\n\n",
+                            new String(indexBytes.toByteArray(), java.nio.charset.StandardCharsets.UTF_8));
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                });
+            });
+
+            runner.testGroup("isCurrent(File,String,Iterable<File>)", () ->
+            {
+                runner.test("with launcher jar that doesn't exist", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final File projectJarFile = createJarFile(qubFolder.getFile("a/b/1/b.jar").await(), "a/B.class");
+                    final File launcherJarFile = LauncherJar.getLauncherJarFile(qubFolder.getFolder("a/b/1").await(), "b");
+                    test.assertFalse(LauncherJar.isCurrent(launcherJarFile, "a.B", Iterable.create(projectJarFile)).await());
+                });
+
+                runner.test("with launcher jar that isn't a jar", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final File projectJarFile = createJarFile(qubFolder.getFile("a/b/1/b.jar").await(), "a/B.class");
+                    final File launcherJarFile = LauncherJar.getLauncherJarFile(qubFolder.getFolder("a/b/1").await(), "b");
+                    launcherJarFile.setContentsAsString("launcher jar contents").await();
+                    test.assertFalse(LauncherJar.isCurrent(launcherJarFile, "a.B", Iterable.create(projectJarFile)).await());
+                });
+
+                runner.test("with the same main class and classpath", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final File projectJarFile = createJarFile(qubFolder.getFile("a/b/1/b.jar").await(), "a/B.class");
+                    final File dependencyJarFile = createJarFile(qubFolder.getFile("c/d/2/d.jar").await(), "c/D.class");
+                    final File launcherJarFile = LauncherJar.getLauncherJarFile(qubFolder.getFolder("a/b/1").await(), "b");
+                    LauncherJar.create(launcherJarFile, "a.B", Iterable.create(projectJarFile, dependencyJarFile)).await();
+                    test.assertTrue(LauncherJar.isCurrent(launcherJarFile, "a.B", Iterable.create(projectJarFile, dependencyJarFile)).await());
+                });
+
+                runner.test("with a different main class", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final File projectJarFile = createJarFile(qubFolder.getFile("a/b/1/b.jar").await(), "a/B.class");
+                    final File launcherJarFile = LauncherJar.getLauncherJarFile(qubFolder.getFolder("a/b/1").await(), "b");
+                    LauncherJar.create(launcherJarFile, "a.B", Iterable.create(projectJarFile)).await();
+                    test.assertFalse(LauncherJar.isCurrent(launcherJarFile, "a.C", Iterable.create(projectJarFile)).await());
+                });
+
+                runner.test("with a different classpath", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final File projectJarFile = createJarFile(qubFolder.getFile("a/b/1/b.jar").await(), "a/B.class");
+                    final File dependencyJarFile = createJarFile(qubFolder.getFile("c/d/2/d.jar").await(), "c/D.class");
+                    final File launcherJarFile = LauncherJar.getLauncherJarFile(qubFolder.getFolder("a/b/1").await(), "b");
+                    LauncherJar.create(launcherJarFile, "a.B", Iterable.create(projectJarFile)).await();
+                    test.assertFalse(LauncherJar.isCurrent(launcherJarFile, "a.B", Iterable.create(projectJarFile, dependencyJarFile)).await());
+                });
+
+                runner.test("with a dependency jar whose packages changed", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final File projectJarFile = createJarFile(qubFolder.getFile("a/b/1/b.jar").await(), "a/B.class");
+                    final File dependencyJarFile = createJarFile(qubFolder.getFile("c/d/2/d.jar").await(), "c/D.class");
+                    final File launcherJarFile = LauncherJar.getLauncherJarFile(qubFolder.getFolder("a/b/1").await(), "b");
+                    LauncherJar.create(launcherJarFile, "a.B", Iterable.create(projectJarFile, dependencyJarFile)).await();
+                    createJarFile(dependencyJarFile, "c/D.class", "c/e/E.class");
+                    test.assertFalse(LauncherJar.isCurrent(launcherJarFile, "a.B", Iterable.create(projectJarFile, dependencyJarFile)).await());
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryQubFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/qub").await();
+    }
+
+    static File createJarFile(File jarFile, String... entryNames)
+    {
+        final java.io.ByteArrayOutputStream jarBytes = new java.io.ByteArrayOutputStream();
+        try (final java.util.zip.ZipOutputStream zipStream = new java.util.zip.ZipOutputStream(jarBytes))
+        {
+            for (final String entryName : entryNames)
+            {
+                zipStream.putNextEntry(new java.util.zip.ZipEntry(entryName));
+                zipStream.write(entryName.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                zipStream.closeEntry();
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        jarFile.setContents(jarBytes.toByteArray()).await();
+        return jarFile;
+    }
+}
@@ -0,0 +1,349 @@
+package qub;
+
+public class PackageBundleTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(PackageBundle.class, () ->
+        {
+            runner.testGroup("getPackagesToExport(DependencyClosureResolver,Iterable<PackageSignature>)", () ->
+            {
+                runner.test("with null resolver", (Test test) ->
+                {
+                    test.assertThrows(() -> PackageBundle.getPackagesToExport(null, Iterable.create()),
+                        new PreConditionFailure("resolver cannot be null."));
+                });
+
+                runner.test("with transitive dependencies", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test, "/qub");
+                    installFakePackage(qubFolder, new PackageSignature("a", "b", "1"), null, new PackageSignature("a", "c", "1"));
+                    installFakePackage(qubFolder, new PackageSignature("a", "c", "1"), null, new PackageSignature("a", "d", "1"));
+                    installFakePackage(qubFolder, new PackageSignature("a", "d", "1"), null);
+
+                    test.assertEqual(
+                        Iterable.create(new PackageSignature("a", "b", "1"), new PackageSignature("a", "c", "1"), new PackageSignature("a", "d", "1")),
+                        PackageBundle.getPackagesToExport(new DependencyClosureResolver(qubFolder), Iterable.create(new PackageSignature("a", "b", "1"), new PackageSignature("a", "d", "1"))).await());
+                });
+            });
+
+            runner.testGroup("isExported(File)", () ->
+            {
+                final Action2<String,Boolean> isExportedTest = (String filePath, Boolean expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(filePath), (Test test) ->
+                    {
+                        final File file = getInMemoryQubFolder(test, "/qub").getFile(filePath).await();
+                        test.assertEqual(expected, PackageBundle.isExported(file));
+                    });
+                };
+
+                isExportedTest.run("a/b/1/b.jar", true);
+                isExportedTest.run("a/b/1/project.json", true);
+                isExportedTest.run("a/b/1/b.launcher.jar", true);
+                isExportedTest.run("a/b/1/b.jsa", false);
+                isExportedTest.run("a/b/1/b.jsa.classpath", false);
+            });
+
+            runner.testGroup("export(Folder,Iterable<PackageSignature>,File)", () ->
+            {
+                runner.test("with package that isn't installed", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test, "/qub");
+                    final File bundleFile = qubFolder.getFileSystem().getFile("/a.qubbundle").await();
+                    test.assertThrows(() -> PackageBundle.export(qubFolder, Iterable.create(new PackageSignature("a", "b", "1")), bundleFile).await(),
+                        new IllegalArgumentException("The package a/b:1 isn't installed."));
+                    test.assertFalse(bundleFile.exists().await());
+                });
+
+                runner.test("with installed packages", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test, "/qub");
+                    installFakePackage(qubFolder, new PackageSignature("a", "b", "1"), "a.B");
+                    final File bundleFile = qubFolder.getFileSystem().getFile("/a.qubbundle").await();
+
+                    final long exportedBytes = PackageBundle.export(qubFolder, Iterable.create(new PackageSignature("a", "b", "1")), bundleFile).await();
+
+                    final Iterable<String> entryNames = InstallTests.getJarEntryNames(bundleFile.getContents().await());
+                    test.assertEqual(PackageBundle.manifestEntryName, entryNames.first());
+                    final java.util.TreeSet<String> packageEntryNames = new java.util.TreeSet<>();
+                    for (final String entryName : entryNames)
+                    {
+                        if (!entryName.equals(PackageBundle.manifestEntryName))
+                        {
+                            packageEntryNames.add(entryName);
+                        }
+                    }
+                    test.assertEqual(
+                        Iterable.create("a/b/1/B.launcher.jar", "a/b/1/b.jar", "a/b/1/dependencies.closure", "a/b/1/project.json"),
+                        Iterable.create(packageEntryNames.toArray(new String[0])));
+                    long expectedBytes = 0;
+                    for (final PackageBundleEntry entry : PackageBundle.getEntries(qubFolder, Iterable.create(new PackageSignature("a", "b", "1"))).await())
+                    {
+                        expectedBytes += entry.getSize();
+                    }
+                    test.assertEqual(expectedBytes, exportedBytes);
+                });
+            });
+
+            runner.testGroup("extract(Folder,File,int)", () ->
+            {
+                runner.test("with file that isn't a bundle", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test, "/qub");
+                    final File bundleFile = qubFolder.getFileSystem().getFile("/a.qubbundle").await();
+                    bundleFile.setContents(InstallTests.createJarContents("a/b/1/b.jar")).await();
+                    test.assertThrows(() -> PackageBundle.extract(qubFolder, bundleFile, 1).await(),
+                        new IllegalArgumentException("/a.qubbundle isn't a package bundle."));
+                });
+
+                runner.test("with exported packages", (Test test) ->
+                {
+                    final Folder sourceQubFolder = getInMemoryQubFolder(test, "/source-qub");
+                    installFakePackage(sourceQubFolder, new PackageSignature("a", "b", "1"), "a.B", new PackageSignature("a", "c", "1"));
+                    installFakePackage(sourceQubFolder, new PackageSignature("a", "c", "1"), null);
+                    final File bundleFile = sourceQubFolder.getFileSystem().getFile("/a.qubbundle").await();
+                    PackageBundle.export(sourceQubFolder, Iterable.create(new PackageSignature("a", "b", "1"), new PackageSignature("a", "c", "1")), bundleFile).await();
+
+                    final Folder qubFolder = sourceQubFolder.getFileSystem().getFolder("/qub").await();
+                    final PackageBundleImport bundleImport = PackageBundle.extract(qubFolder, bundleFile, 2).await();
+
+                    test.assertEqual(Iterable.create(new PackageSignature("a", "b", "1"), new PackageSignature("a", "c", "1")), bundleImport.getImported());
+                    test.assertEqual(Iterable.create(), bundleImport.getSkipped());
+                    test.assertEqual(Iterable.create(), bundleImport.getErrors());
+                    test.assertEqual(Iterable.create(qubFolder.getFile("B.cmd").await()), bundleImport.getShortcutFiles());
+                    test.assertEqual("b.jar contents", qubFolder.getFile("a/b/1/b.jar").await().getContentsAsString().await());
+                    test.assertEqual("a/c:1\n", qubFolder.getFile("a/b/1/dependencies.closure").await().getContentsAsString().await());
+                    test.assertFalse(qubFolder.getFile("a/b/1/B.jsa").await().exists().await());
+                    test.assertEqual(
+                        "@echo OFF\njava -jar %~dp0a/b/1/B.launcher.jar %*\n",
+                        qubFolder.getFile("B.cmd").await().getContentsAsString().await());
+                    final PackageIndexEntry indexEntry = PackageIndex.load(qubFolder).await().get("a", "c", "1");
+                    test.assertEqual("a/c/1/c.jar", indexEntry.getJarPath());
+                    test.assertEqual(ContentHash.sha256("c.jar contents".getBytes(java.nio.charset.StandardCharsets.UTF_8)), indexEntry.getJarHash());
+                    test.assertTrue(new JarStore(qubFolder).getJarFile(indexEntry.getJarHash()).exists().await());
+                    test.assertFalse(qubFolder.getFolder("a/b").await().getFolders().await().any(AtomicFiles::isStagingFolder));
+                });
+
+                runner.test("with older version of a package whose newer version owns the shortcut", (Test test) ->
+                {
+                    final Folder sourceQubFolder = getInMemoryQubFolder(test, "/source-qub");
+                    installFakePackage(sourceQubFolder, new PackageSignature("a", "b", "1"), "a.B", new PackageSignature("a", "c", "1"));
+                    installFakePackage(sourceQubFolder, new PackageSignature("a", "c", "1"), "a.C");
+                    final File bundleFile = sourceQubFolder.getFileSystem().getFile("/a.qubbundle").await();
+                    PackageBundle.export(sourceQubFolder, Iterable.create(new PackageSignature("a", "b", "1"), new PackageSignature("a", "c", "1")), bundleFile).await();
+
+                    final Folder qubFolder = sourceQubFolder.getFileSystem().getFolder("/qub").await();
+                    installFakePackage(qubFolder, new PackageSignature("a", "c", "2"), "a.C");
+                    final File shortcutFile = qubFolder.getFile("C.cmd").await();
+                    final String shortcutContents = PackageShortcut.create(qubFolder, new PackageSignature("a", "c", "2")).await().getContents();
+                    shortcutFile.setContentsAsString(shortcutContents).await();
+
+                    final PackageBundleImport bundleImport = PackageBundle.extract(qubFolder, bundleFile, 2).await();
+
+                    test.assertEqual(Iterable.create(new PackageSignature("a", "b", "1"), new PackageSignature("a", "c", "1")), bundleImport.getImported());
+                    test.assertEqual(Iterable.create(), bundleImport.getErrors());
+                    test.assertEqual(Iterable.create(qubFolder.getFile("B.cmd").await()), bundleImport.getShortcutFiles());
+                    test.assertEqual(shortcutContents, shortcutFile.getContentsAsString().await());
+                });
+
+                runner.test("with entry larger than the buffered entry size on disk", (Test test) ->
+                {
+                    try (final Console console = new Console(Iterable.create()))
+                    {
+                        final Folder folder = AtomicFilesTests.getTemporaryDiskFolder(console);
+                        try
+                        {
+                            final Folder sourceQubFolder = folder.getFolder("source-qub").await();
+                            installFakePackage(sourceQubFolder, new PackageSignature("a", "b", "1"), null);
+                            final byte[] largeContents = new byte[(int)PackageBundle.maximumBufferedEntrySize * 2 + 1];
+                            new java.util.Random(0).nextBytes(largeContents);
+                            sourceQubFolder.getFile("a/b/1/large.bin").await().setContents(largeContents).await();
+                            final File bundleFile = folder.getFile("a.qubbundle").await();
+                            PackageBundle.export(sourceQubFolder, Iterable.create(new PackageSignature("a", "b", "1")), bundleFile).await();
+
+                            final Folder qubFolder = folder.getFolder("qub").await();
+                            final PackageBundleImport bundleImport = PackageBundle.extract(qubFolder, bundleFile, 2).await();
+
+                            test.assertEqual(Iterable.create(new PackageSignature("a", "b", "1")), bundleImport.getImported());
+                            test.assertEqual(Iterable.create(), bundleImport.getErrors());
+                            test.assertEqual(ContentHash.sha256(largeContents), ContentHash.sha256(qubFolder.getFile("a/b/1/large.bin").await()).await());
+                        }
+                        finally
+                        {
+                            AtomicFiles.deleteFolder(folder).await();
+                        }
+                    }
+                });
+
+                runner.test("with package that is already installed", (Test test) ->
+                {
+                    final Folder sourceQubFolder = getInMemoryQubFolder(test, "/source-qub");
+                    installFakePackage(sourceQubFolder, new PackageSignature("a", "b", "1"), null);
+                    final File bundleFile = sourceQubFolder.getFileSystem().getFile("/a.qubbundle").await();
+                    PackageBundle.export(sourceQubFolder, Iterable.create(new PackageSignature("a", "b", "1")), bundleFile).await();
+                    final Folder qubFolder = sourceQubFolder.getFileSystem().getFolder("/qub").await();
+                    qubFolder.getFile("a/b/1/b.jar").await().setContentsAsString("existing contents").await();
+
+                    final PackageBundleImport bundleImport = PackageBundle.extract(qubFolder, bundleFile, 1).await();
+
+                    test.assertEqual(Iterable.create(), bundleImport.getImported());
+                    test.assertEqual(Iterable.create(new PackageSignature("a", "b", "1")), bundleImport.getSkipped());
+                    test.assertEqual("existing contents", qubFolder.getFile("a/b/1/b.jar").await().getContentsAsString().await());
+                });
+
+                runner.test("with file that doesn't match its hash", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test, "/qub");
+                    final PackageBundleEntry entry = new PackageBundleEntry(new PackageSignature("a", "b", "1"), "b.jar", 3, ContentHash.sha256(new byte[] { 1, 2, 3 }));
+                    final File bundleFile = qubFolder.getFileSystem().getFile("/a.qubbundle").await();
+                    final java.io.ByteArrayOutputStream bundleBytes = new java.io.ByteArrayOutputStream();
+                    try (final java.util.zip.ZipOutputStream zipOutput = new java.util.zip.ZipOutputStream(bundleBytes))
+                    {
+                        zipOutput.putNextEntry(new java.util.zip.ZipEntry(PackageBundle.manifestEntryName));
+                        zipOutput.write((entry.toString() + "\n").getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                        zipOutput.closeEntry();
+                        zipOutput.putNextEntry(new java.util.zip.ZipEntry(entry.getEntryName()));
+                        zipOutput.write(new byte[] { 4, 5, 6 });
+                        zipOutput.closeEntry();
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                    bundleFile.setContents(bundleBytes.toByteArray()).await();
+
+                    final PackageBundleImport bundleImport = PackageBundle.extract(qubFolder, bundleFile, 1).await();
+
+                    test.assertEqual(Iterable.create(), bundleImport.getImported());
+                    test.assertEqual(
+                        Iterable.create("Couldn't import a/b:1: The contents of a/b/1/b.jar don't match the bundle manifest."),
+                        bundleImport.getErrors());
+                    test.assertFalse(qubFolder.getFolder("a/b").await().exists().await());
+                });
+
+                final Action2<String,String> maliciousEntryTest = (String manifestLine, String expectedMessage) ->
+                {
+                    runner.test("with manifest line " + Strings.escapeAndQuote(manifestLine), (Test test) ->
+                    {
+                        final Folder qubFolder = getInMemoryQubFolder(test, "/qub");
+                        final File bundleFile = qubFolder.getFileSystem().getFile("/a.qubbundle").await();
+                        final java.io.ByteArrayOutputStream bundleBytes = new java.io.ByteArrayOutputStream();
+                        try (final java.util.zip.ZipOutputStream zipOutput = new java.util.zip.ZipOutputStream(bundleBytes))
+                        {
+                            zipOutput.putNextEntry(new java.util.zip.ZipEntry(PackageBundle.manifestEntryName));
+                            zipOutput.write((manifestLine + "\n").getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                            zipOutput.closeEntry();
+                            zipOutput.putNextEntry(new java.util.zip.ZipEntry("a/b/1/../../../../evil.txt"));
+                            zipOutput.write(new byte[] { 1, 2, 3 });
+                            zipOutput.closeEntry();
+                        }
+                        catch (java.io.IOException e)
+                        {
+                            throw new RuntimeException(e);
+                        }
+                        bundleFile.setContents(bundleBytes.toByteArray()).await();
+
+                        test.assertThrows(() -> PackageBundle.extract(qubFolder, bundleFile, 1).await(),
+                            new IllegalArgumentException(expectedMessage));
+                        test.assertFalse(qubFolder.getFileSystem().getFile("/evil.txt").await().exists().await());
+                        test.assertFalse(qubFolder.getFolder("a").await().exists().await());
+                    });
+                };
+
+                final String hash = ContentHash.sha256(new byte[] { 1, 2, 3 });
+                maliciousEntryTest.run(
+                    "a/b:1\t../../../evil.txt\t3\t" + hash,
+                    "The path \"../../../evil.txt\" in bundle manifest line \"a/b:1\\t../../../evil.txt\\t3\\t" + hash + "\" isn't allowed.");
+                maliciousEntryTest.run(
+                    "a/b:1\t/evil.txt\t3\t" + hash,
+                    "The path \"/evil.txt\" in bundle manifest line \"a/b:1\\t/evil.txt\\t3\\t" + hash + "\" isn't allowed.");
+                maliciousEntryTest.run(
+                    "a/b:..\tevil.txt\t3\t" + hash,
+                    "The package signature \"a/b:..\" in bundle manifest line \"a/b:..\\tevil.txt\\t3\\t" + hash + "\" isn't allowed.");
+                maliciousEntryTest.run(
+                    "a/b:1\\..\\..\tevil.txt\t3\t" + hash,
+                    "The package signature \"a/b:1\\\\..\\\\..\" in bundle manifest line \"a/b:1\\\\..\\\\..\\tevil.txt\\t3\\t" + hash + "\" isn't allowed.");
+            });
+        });
+    }
+
+    private static Folder getInMemoryQubFolder(Test test, String qubFolderPath)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder(qubFolderPath).await();
+    }
+
+    static void installFakePackage(Folder qubFolder, PackageSignature signature, String mainClass, PackageSignature... dependencies)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNull(signature, "signature");
+        PreCondition.assertNotNull(dependencies, "dependencies");
+
+        final Folder versionFolder = signature.getVersionFolder(qubFolder);
+        final String shortcutName = mainClass == null ? null : mainClass.substring(mainClass.lastIndexOf('.') + 1);
+        versionFolder.getFile("project.json").await()
+            .setContentsAsString(JSON.object(projectJson ->
+            {
+                projectJson.stringProperty("publisher", signature.getPublisher());
+                projectJson.stringProperty("project", signature.getProject());
+                projectJson.stringProperty("version", signature.getVersion());
+                projectJson.objectProperty("java", java ->
+                {
+                    if (mainClass != null)
+                    {
+                        java.stringProperty("mainClass", mainClass);
+                        java.stringProperty("shortcutName", shortcutName);
+                    }
+                    java.arrayProperty("dependencies", dependenciesArray ->
+                    {
+                        for (final PackageSignature dependency : dependencies)
+                        {
+                            dependenciesArray.objectElement(dependencyJson ->
+                            {
+                                dependencyJson.stringProperty("publisher", dependency.getPublisher());
+                                dependencyJson.stringProperty("project", dependency.getProject());
+                                dependencyJson.stringProperty("version", dependency.getVersion());
+                            });
+                        }
+                    });
+                });
+            }).toString())
+            .await();
+
+        final File jarFile = signature.getJarFile(qubFolder);
+        jarFile.setContentsAsString(signature.getProject() + ".jar contents").await();
+        final StringBuilder closure = new StringBuilder();
+        for (final PackageSignature dependency : dependencies)
+        {
+            closure.append(dependency.toString()).append('\n');
+        }
+        DependencyClosure.getClosureFile(versionFolder).setContentsAsString(closure.toString()).await();
+        if (shortcutName != null)
+        {
+            LauncherJar.getLauncherJarFile(versionFolder, shortcutName).setContentsAsString("launcher jar contents").await();
+            final File cdsArchiveFile = CdsArchive.getArchiveFile(versionFolder, shortcutName);
+            cdsArchiveFile.setContentsAsString("archive contents").await();
+
+            // The archive is only current when it was trained with the jars of every dependency.
+            final List<File> classpathFiles = List.create();
+            classpathFiles.add(jarFile);
+            for (final PackageSignature dependency : dependencies)
+            {
+                classpathFiles.add(dependency.getJarFile(qubFolder));
+            }
+            if (!classpathFiles.any((File classpathFile) -> !classpathFile.exists().await()))
+            {
+                CdsArchive.getFingerprintFile(cdsArchiveFile).setContentsAsString(CdsArchive.getFingerprint(classpathFiles).await()).await();
+            }
+        }
+
+        PackageIndex.update(qubFolder, (PackageIndex packageIndex) ->
+            packageIndex.set(PackageIndexEntry.create(qubFolder, signature.getPublisher(), signature.getProject(), signature.getVersion(), jarFile).await()))
+            .await();
+    }
+}
@@ -0,0 +1,75 @@
+package qub;
+
+public class PackageIndexEntryTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(PackageIndexEntry.class, () ->
+        {
+            runner.testGroup("constructor()", () ->
+            {
+                runner.test("with null publisher", (Test test) ->
+                {
+                    test.assertThrows(() -> new PackageIndexEntry(null, "b", "1", "a/b/1/b.jar", 0, "abc"),
+                        new PreConditionFailure("publisher cannot be null."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    final PackageIndexEntry entry = new PackageIndexEntry("a", "b", "1", "a/b/1/b.jar", 10, "abc");
+                    test.assertEqual("a", entry.getPublisher());
+                    test.assertEqual("b", entry.getProject());
+                    test.assertEqual("1", entry.getVersion());
+                    test.assertEqual("a/b/1/b.jar", entry.getJarPath());
+                    test.assertEqual(10L, entry.getJarSize());
+                    test.assertEqual("abc", entry.getJarHash());
+                    test.assertEqual("a/b/1", entry.getKey());
+                    test.assertEqual("a/b/1\ta/b/1/b.jar\t10\tabc", entry.toString());
+                });
+            });
+
+            runner.testGroup("create(Folder,String,String,String,File)", () ->
+            {
+                runner.test("with existing jar file", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+                    fileSystem.createRoot("/");
+                    final Folder qubFolder = fileSystem.getFolder("/qub").await();
+                    final File jarFile = qubFolder.getFile("a/b/1/b.jar").await();
+                    jarFile.setContentsAsString("abc").await();
+
+                    final PackageIndexEntry entry = PackageIndexEntry.create(qubFolder, "a", "b", "1", jarFile).await();
+                    test.assertEqual("a/b/1/b.jar", entry.getJarPath());
+                    test.assertEqual(3L, entry.getJarSize());
+                    test.assertEqual("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", entry.getJarHash());
+                });
+            });
+
+            runner.testGroup("parse(String)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> PackageIndexEntry.parse(null), new PreConditionFailure("line cannot be null."));
+                });
+
+                runner.test("with too few values", (Test test) ->
+                {
+                    test.assertThrows(() -> PackageIndexEntry.parse("a/b/1\ta/b/1/b.jar").await(),
+                        new IllegalArgumentException("Expected 4 tab-separated values in package index line \"a/b/1\\ta/b/1/b.jar\"."));
+                });
+
+                runner.test("with non-numeric jar size", (Test test) ->
+                {
+                    test.assertThrows(() -> PackageIndexEntry.parse("a/b/1\ta/b/1/b.jar\tten\tabc").await(),
+                        new IllegalArgumentException("Expected a jar size in package index line \"a/b/1\\ta/b/1/b.jar\\tten\\tabc\"."));
+                });
+
+                runner.test("with valid line", (Test test) ->
+                {
+                    final PackageIndexEntry entry = PackageIndexEntry.parse("a/b/1\ta/b/1/b.jar\t10\tabc").await();
+                    test.assertEqual("a/b/1\ta/b/1/b.jar\t10\tabc", entry.toString());
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,117 @@
+package qub;
+
+public class PackageIndexTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(PackageIndex.class, () ->
+        {
+            runner.testGroup("load(Folder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> PackageIndex.load(null), new PreConditionFailure("qubFolder cannot be null."));
+                });
+
+                runner.test("with no index file", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final PackageIndex index = PackageIndex.load(qubFolder).await();
+                    test.assertEqual("/qub/packages.index", index.getIndexFile().toString());
+                    test.assertFalse(index.getEntries().any());
+                    test.assertNull(index.get("a", "b", "1"));
+                });
+
+                runner.test("with saved index file", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final PackageIndex index = PackageIndex.load(qubFolder).await();
+                    index.set(new PackageIndexEntry("a", "c", "2", "a/c/2/c.jar", 5, "def"));
+                    index.set(new PackageIndexEntry("a", "b", "1", "a/b/1/b.jar", 10, "abc"));
+                    index.save().await();
+
+                    test.assertEqual(
+                        "a/b/1\ta/b/1/b.jar\t10\tabc\na/c/2\ta/c/2/c.jar\t5\tdef\n",
+                        index.getIndexFile().getContentsAsString().await());
+
+                    final PackageIndex loadedIndex = PackageIndex.load(qubFolder).await();
+                    test.assertEqual("a/c/2/c.jar", loadedIndex.get("a", "c", "2").getJarPath());
+                    test.assertEqual(10L, loadedIndex.get("a", "b", "1").getJarSize());
+                    test.assertNull(loadedIndex.get("a", "b", "2"));
+                });
+
+                runner.test("with malformed lines", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final File indexFile = qubFolder.getFile("packages.index").await();
+                    indexFile.setContentsAsString("a/b/1\ta/b/1/b.jar\t10\tabc\na/c\n\na/d/1\ta/d/1/d.jar\tten\tdef\na/e/3\ta/e/3/e.jar\t7\tghi\n").await();
+
+                    final PackageIndex index = PackageIndex.load(qubFolder).await();
+                    test.assertEqual(
+                        Iterable.create(
+                            "Skipped a line of /qub/packages.index that couldn't be parsed: Expected 4 tab-separated values in package index line \"a/c\".",
+                            "Skipped a line of /qub/packages.index that couldn't be parsed: Expected a jar size in package index line \"a/d/1\\ta/d/1/d.jar\\tten\\tdef\"."),
+                        index.getSkippedLines());
+                    test.assertEqual("a/b/1/b.jar", index.get("a", "b", "1").getJarPath());
+                    test.assertNull(index.get("a", "d", "1"));
+                    test.assertEqual(7L, index.get("a", "e", "3").getJarSize());
+
+                    index.save().await();
+                    test.assertEqual(
+                        "a/b/1\ta/b/1/b.jar\t10\tabc\na/e/3\ta/e/3/e.jar\t7\tghi\n",
+                        indexFile.getContentsAsString().await());
+                });
+            });
+
+            runner.testGroup("set(PackageIndexEntry)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final PackageIndex index = PackageIndex.load(getInMemoryQubFolder(test)).await();
+                    test.assertThrows(() -> index.set(null), new PreConditionFailure("entry cannot be null."));
+                });
+
+                runner.test("with existing key", (Test test) ->
+                {
+                    final PackageIndex index = PackageIndex.load(getInMemoryQubFolder(test)).await();
+                    index.set(new PackageIndexEntry("a", "b", "1", "a/b/1/b.jar", 10, "abc"));
+                    index.set(new PackageIndexEntry("a", "b", "1", "a/b/1/b.jar", 20, "def"));
+                    test.assertEqual(1, index.getEntries().getCount());
+                    test.assertEqual("def", index.get("a", "b", "1").getJarHash());
+                });
+            });
+
+            runner.testGroup("remove(String,String,String)", () ->
+            {
+                runner.test("with existing key", (Test test) ->
+                {
+                    final PackageIndex index = PackageIndex.load(getInMemoryQubFolder(test)).await();
+                    index.set(new PackageIndexEntry("a", "b", "1", "a/b/1/b.jar", 10, "abc"));
+                    index.set(new PackageIndexEntry("a", "b", "2", "a/b/2/b.jar", 20, "def"));
+                    index.remove("a", "b", "1");
+                    test.assertEqual(1, index.getEntries().getCount());
+                    test.assertNull(index.get("a", "b", "1"));
+                    test.assertEqual("def", index.get("a", "b", "2").getJarHash());
+                });
+
+                runner.test("with missing key", (Test test) ->
+                {
+                    final PackageIndex index = PackageIndex.load(getInMemoryQubFolder(test)).await();
+                    index.set(new PackageIndexEntry("a", "b", "1", "a/b/1/b.jar", 10, "abc"));
+                    index.remove("a", "b", "2");
+                    test.assertEqual(1, index.getEntries().getCount());
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryQubFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/qub").await();
+    }
+}
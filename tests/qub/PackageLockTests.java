@@ -0,0 +1,84 @@
+package qub;
+
+public class PackageLockTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(PackageLock.class, () ->
+        {
+            runner.testGroup("getLockFile(Folder)", () ->
+            {
+                runner.test("with version folder", (Test test) ->
+                {
+                    final Folder versionFolder = getInMemoryQubFolder(test).getFolder("a/b/1").await();
+                    test.assertEqual("/qub/a/b/1.lock", PackageLock.getLockFile(versionFolder).toString());
+                });
+            });
+
+            runner.testGroup("getLockFile(File)", () ->
+            {
+                runner.test("with index file", (Test test) ->
+                {
+                    final File indexFile = getInMemoryQubFolder(test).getFile(PackageIndex.fileName).await();
+                    test.assertEqual("/qub/packages.index.lock", PackageLock.getLockFile(indexFile).toString());
+                });
+            });
+
+            runner.testGroup("acquire(File)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> PackageLock.acquire(null), new PreConditionFailure("lockFile cannot be null."));
+                });
+
+                runner.test("with contended lock", (Test test) ->
+                {
+                    final File lockFile = PackageLock.getLockFile(getInMemoryQubFolder(test).getFolder("a/b/1").await());
+                    final java.util.concurrent.atomic.AtomicInteger holders = new java.util.concurrent.atomic.AtomicInteger();
+                    final java.util.concurrent.atomic.AtomicInteger maximumHolders = new java.util.concurrent.atomic.AtomicInteger();
+                    final java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(8);
+                    try
+                    {
+                        final java.util.List<java.util.concurrent.Future<?>> futures = new java.util.ArrayList<>();
+                        for (int i = 0; i < 32; ++i)
+                        {
+                            futures.add(executor.submit(() ->
+                            {
+                                try (final PackageLock lock = PackageLock.acquire(lockFile).await())
+                                {
+                                    maximumHolders.accumulateAndGet(holders.incrementAndGet(), Math::max);
+                                    Thread.yield();
+                                    holders.decrementAndGet();
+                                }
+                            }));
+                        }
+                        for (final java.util.concurrent.Future<?> future : futures)
+                        {
+                            future.get();
+                        }
+                    }
+                    catch (InterruptedException | java.util.concurrent.ExecutionException e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                    finally
+                    {
+                        executor.shutdown();
+                    }
+                    test.assertEqual(1, maximumHolders.get());
+                    test.assertEqual(0, holders.get());
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryQubFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/qub").await();
+    }
+}
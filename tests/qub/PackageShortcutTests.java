@@ -0,0 +1,67 @@
+package qub;
+
+public class PackageShortcutTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(PackageShortcut.class, () ->
+        {
+            runner.testGroup("getContents(Folder,File,Iterable<String>,File)", () ->
+            {
+                runner.test("with no JVM options", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    test.assertEqual(
+                        "@echo OFF\njava -jar %~dp0a/b/1/b.launcher.jar %*\n",
+                        PackageShortcut.getContents(qubFolder, qubFolder.getFile("a/b/1/b.launcher.jar").await(), Iterable.create(), null));
+                });
+
+                runner.test("with JVM options and class data sharing archive", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    test.assertEqual(
+                        "@echo OFF\njava -Xmx256m -XX:SharedArchiveFile=%~dp0a/b/1/b.jsa -Xshare:auto -jar %~dp0a/b/1/b.launcher.jar %*\n",
+                        PackageShortcut.getContents(qubFolder, qubFolder.getFile("a/b/1/b.launcher.jar").await(), Iterable.create("-Xmx256m"), qubFolder.getFile("a/b/1/b.jsa").await()));
+                });
+            });
+
+            runner.testGroup("create(Folder,PackageSignature)", () ->
+            {
+                runner.test("with null signature", (Test test) ->
+                {
+                    test.assertThrows(() -> PackageShortcut.create(getInMemoryQubFolder(test), null),
+                        new PreConditionFailure("signature cannot be null."));
+                });
+
+                runner.test("with package that has no main class", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "1"), null);
+                    test.assertNull(PackageShortcut.create(qubFolder, new PackageSignature("a", "b", "1")).await());
+                });
+
+                runner.test("with package that has a main class", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "1"), "a.B");
+                    final PackageShortcut shortcut = PackageShortcut.create(qubFolder, new PackageSignature("a", "b", "1")).await();
+                    test.assertEqual(new PackageSignature("a", "b", "1"), shortcut.getSignature());
+                    test.assertEqual(qubFolder.getFile("B.cmd").await(), shortcut.getFile());
+                    test.assertEqual(
+                        "@echo OFF\njava -XX:SharedArchiveFile=%~dp0a/b/1/B.jsa -Xshare:auto -jar %~dp0a/b/1/B.launcher.jar %*\n",
+                        shortcut.getContents());
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryQubFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/qub").await();
+    }
+}
@@ -0,0 +1,92 @@
+package qub;
+
+public class PackageSignatureTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(PackageSignature.class, () ->
+        {
+            runner.testGroup("constructor(String,String,String)", () ->
+            {
+                runner.test("with null publisher", (Test test) ->
+                {
+                    test.assertThrows(() -> new PackageSignature(null, "b", "1"), new PreConditionFailure("publisher cannot be null."));
+                });
+
+                runner.test("with empty project", (Test test) ->
+                {
+                    test.assertThrows(() -> new PackageSignature("a", "", "1"), new PreConditionFailure("project cannot be empty."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    final PackageSignature signature = new PackageSignature("a", "b", "1");
+                    test.assertEqual("a", signature.getPublisher());
+                    test.assertEqual("b", signature.getProject());
+                    test.assertEqual("1", signature.getVersion());
+                    test.assertEqual("a/b", signature.getProjectKey());
+                    test.assertEqual("a/b:1", signature.toString());
+                });
+            });
+
+            runner.testGroup("parse(String)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> PackageSignature.parse(null), new PreConditionFailure("text cannot be null."));
+                });
+
+                final Action1<String> parseErrorTest = (String text) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(text), (Test test) ->
+                    {
+                        test.assertThrows(() -> PackageSignature.parse(text).await(),
+                            new IllegalArgumentException("Expected a package signature in the format <publisher>/<project>:<version>, but found " + Strings.escapeAndQuote(text) + "."));
+                    });
+                };
+
+                parseErrorTest.run("");
+                parseErrorTest.run("a");
+                parseErrorTest.run("a/b");
+                parseErrorTest.run("a/b:");
+                parseErrorTest.run("/b:1");
+                parseErrorTest.run("a/:1");
+
+                runner.test("with \"a/b:1\"", (Test test) ->
+                {
+                    test.assertEqual(new PackageSignature("a", "b", "1"), PackageSignature.parse("a/b:1").await());
+                });
+            });
+
+            runner.testGroup("getJarFile(Folder)", () ->
+            {
+                runner.test("with qub folder", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+                    fileSystem.createRoot("/");
+                    final Folder qubFolder = fileSystem.getFolder("/qub").await();
+                    test.assertEqual("/qub/a/b/1/b.jar", new PackageSignature("a", "b", "1").getJarFile(qubFolder).toString());
+                });
+            });
+
+            runner.testGroup("equals(Object)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertFalse(new PackageSignature("a", "b", "1").equals((Object)null));
+                });
+
+                runner.test("with different version", (Test test) ->
+                {
+                    test.assertFalse(new PackageSignature("a", "b", "1").equals((Object)new PackageSignature("a", "b", "2")));
+                });
+
+                runner.test("with equal signature", (Test test) ->
+                {
+                    test.assertTrue(new PackageSignature("a", "b", "1").equals((Object)new PackageSignature("a", "b", "1")));
+                    test.assertEqual(new PackageSignature("a", "b", "1").hashCode(), new PackageSignature("a", "b", "1").hashCode());
+                });
+            });
+        });
+    }
+}
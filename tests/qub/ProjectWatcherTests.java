@@ -0,0 +1,184 @@
+package qub;
+
+public class ProjectWatcherTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(ProjectWatcher.class, () ->
+        {
+            runner.testGroup("constructor(Folder,Function0<Boolean>,Action0)", () ->
+            {
+                runner.test("with null projectFolder", (Test test) ->
+                {
+                    test.assertThrows(() -> new ProjectWatcher(null, () -> false, () -> {}),
+                        new PreConditionFailure("projectFolder cannot be null."));
+                });
+
+                runner.test("with null waitForEvent", (Test test) ->
+                {
+                    final Folder projectFolder = getInMemoryProjectFolder(test);
+                    test.assertThrows(() -> new ProjectWatcher(projectFolder, null, () -> {}),
+                        new PreConditionFailure("waitForEvent cannot be null."));
+                });
+
+                runner.test("with null closeAction", (Test test) ->
+                {
+                    final Folder projectFolder = getInMemoryProjectFolder(test);
+                    test.assertThrows(() -> new ProjectWatcher(projectFolder, () -> false, null),
+                        new PreConditionFailure("closeAction cannot be null."));
+                });
+            });
+
+            runner.testGroup("waitForChanges()", () ->
+            {
+                runner.test("when the watcher stops", (Test test) ->
+                {
+                    final Folder projectFolder = getInMemoryProjectFolder(test);
+                    final ProjectWatcher watcher = new ProjectWatcher(projectFolder, () -> false, () -> {});
+                    test.assertNull(watcher.waitForChanges().await());
+                });
+
+                runner.test("with events that don't change watched files", (Test test) ->
+                {
+                    final Folder projectFolder = getInMemoryProjectFolder(test);
+                    final File sourceFile = projectFolder.getFile("sources/A.java").await();
+                    sourceFile.setContentsAsString("A").await();
+                    final int[] eventCount = new int[1];
+                    final ProjectWatcher watcher = new ProjectWatcher(projectFolder,
+                        () ->
+                        {
+                            ++eventCount[0];
+                            if (eventCount[0] == 1)
+                            {
+                                projectFolder.getFile("outputs/a.jar").await().setContentsAsString("a.jar").await();
+                            }
+                            else if (eventCount[0] == 2)
+                            {
+                                sourceFile.setContentsAsString("A").await();
+                            }
+                            return eventCount[0] <= 2;
+                        },
+                        () -> {});
+                    test.assertNull(watcher.waitForChanges().await());
+                    test.assertEqual(3, eventCount[0]);
+                });
+
+                runner.test("with a burst of changes", (Test test) ->
+                {
+                    final Folder projectFolder = getInMemoryProjectFolder(test);
+                    projectFolder.getFile("project.json").await().setContentsAsString("{}").await();
+                    final File sourceFile = projectFolder.getFile("sources/A.java").await();
+                    sourceFile.setContentsAsString("A").await();
+                    final ProjectWatcher watcher = new ProjectWatcher(projectFolder,
+                        () ->
+                        {
+                            sourceFile.delete().await();
+                            projectFolder.getFile("sources/B.java").await().setContentsAsString("B").await();
+                            projectFolder.getFile("project.json").await().setContentsAsString("{\"version\":\"2\"}").await();
+                            return true;
+                        },
+                        () -> {});
+                    test.assertEqual(
+                        Iterable.create("project.json", "sources/A.java", "sources/B.java"),
+                        watcher.waitForChanges().await());
+                });
+            });
+
+            runner.testGroup("waitForChanges() with event paths", () ->
+            {
+                runner.test("with events under outputs", (Test test) ->
+                {
+                    final Folder projectFolder = getInMemoryProjectFolder(test);
+                    final File sourceFile = projectFolder.getFile("sources/A.java").await();
+                    sourceFile.setContentsAsString("A").await();
+                    final java.util.Set<String> eventPaths = new java.util.TreeSet<>();
+                    final int[] eventCount = new int[1];
+                    final ProjectWatcher watcher = new ProjectWatcher(projectFolder,
+                        () ->
+                        {
+                            ++eventCount[0];
+                            if (eventCount[0] == 1)
+                            {
+                                projectFolder.getFile("outputs/a.jar").await().setContentsAsString("a.jar").await();
+                                eventPaths.add("outputs");
+                                eventPaths.add("outputs/a.jar");
+                            }
+                            return eventCount[0] == 1;
+                        },
+                        () -> {},
+                        eventPaths);
+                    test.assertNull(watcher.waitForChanges().await());
+                    test.assertEqual(2, eventCount[0]);
+                    test.assertEqual(0, eventPaths.size());
+                });
+
+                runner.test("with changes that no event names", (Test test) ->
+                {
+                    final Folder projectFolder = getInMemoryProjectFolder(test);
+                    final File sourceFile = projectFolder.getFile("sources/A.java").await();
+                    sourceFile.setContentsAsString("A").await();
+                    final java.util.Set<String> eventPaths = new java.util.TreeSet<>();
+                    final int[] eventCount = new int[1];
+                    final ProjectWatcher watcher = new ProjectWatcher(projectFolder,
+                        () ->
+                        {
+                            ++eventCount[0];
+                            if (eventCount[0] == 1)
+                            {
+                                sourceFile.setContentsAsString("B").await();
+                                projectFolder.getFile("tests/ATests.java").await().setContentsAsString("ATests").await();
+                                eventPaths.add("tests/ATests.java");
+                            }
+                            return eventCount[0] == 1;
+                        },
+                        () -> {},
+                        eventPaths);
+                    test.assertEqual(Iterable.create("tests/ATests.java"), watcher.waitForChanges().await());
+                });
+
+                runner.test("with a removed folder", (Test test) ->
+                {
+                    final Folder projectFolder = getInMemoryProjectFolder(test);
+                    projectFolder.getFile("sources/a/A.java").await().setContentsAsString("A").await();
+                    projectFolder.getFile("sources/a/B.java").await().setContentsAsString("B").await();
+                    projectFolder.getFile("sources/C.java").await().setContentsAsString("C").await();
+                    final java.util.Set<String> eventPaths = new java.util.TreeSet<>();
+                    final ProjectWatcher watcher = new ProjectWatcher(projectFolder,
+                        () ->
+                        {
+                            projectFolder.getFolder("sources/a").await().delete().await();
+                            eventPaths.add("sources/a");
+                            return true;
+                        },
+                        () -> {},
+                        eventPaths);
+                    test.assertEqual(
+                        Iterable.create("sources/a/A.java", "sources/a/B.java"),
+                        watcher.waitForChanges().await());
+                });
+            });
+
+            runner.testGroup("close()", () ->
+            {
+                runner.test("runs the close action", (Test test) ->
+                {
+                    final Folder projectFolder = getInMemoryProjectFolder(test);
+                    final int[] closeCount = new int[1];
+                    final ProjectWatcher watcher = new ProjectWatcher(projectFolder, () -> false, () -> ++closeCount[0]);
+                    watcher.close();
+                    test.assertEqual(1, closeCount[0]);
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryProjectFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/project").await();
+    }
+}
@@ -0,0 +1,150 @@
+package qub;
+
+public class ShortcutRelinkerTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(ShortcutRelinker.class, () ->
+        {
+            runner.testGroup("relink(DependencyClosureResolver,int)", () ->
+            {
+                runner.test("with null resolver", (Test test) ->
+                {
+                    test.assertThrows(() -> ShortcutRelinker.relink(null, 1), new PreConditionFailure("resolver cannot be null."));
+                });
+
+                runner.test("with no installed packages", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    final ShortcutRelink relink = ShortcutRelinker.relink(new DependencyClosureResolver(qubFolder), 2).await();
+                    test.assertEqual(Iterable.create(), relink.getShortcutFiles());
+                    test.assertEqual(Iterable.create(), relink.getRewrittenShortcutFiles());
+                    test.assertEqual(Iterable.create(), relink.getRewrittenLauncherJarFiles());
+                    test.assertEqual(Iterable.create(), relink.getRemovedCdsArchiveFiles());
+                    test.assertEqual(Iterable.create(), relink.getErrors());
+                });
+
+                runner.test("with stale launcher jar and missing shortcut", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("c", "d", "1"), null);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "1"), "a.B", new PackageSignature("c", "d", "1"));
+
+                    final DependencyClosureResolver resolver = new DependencyClosureResolver(qubFolder);
+                    final ShortcutRelink relink = ShortcutRelinker.relink(resolver, 2).await();
+                    final File shortcutFile = qubFolder.getFile("B.cmd").await();
+                    final File launcherJarFile = qubFolder.getFile("a/b/1/B.launcher.jar").await();
+                    test.assertEqual(Iterable.create(shortcutFile), relink.getShortcutFiles());
+                    test.assertEqual(Iterable.create(shortcutFile), relink.getRewrittenShortcutFiles());
+                    test.assertEqual(Iterable.create(launcherJarFile), relink.getRewrittenLauncherJarFiles());
+                    test.assertEqual(Iterable.create(), relink.getRemovedCdsArchiveFiles());
+                    test.assertEqual(Iterable.create(), relink.getErrors());
+                    test.assertEqual(
+                        "@echo OFF\njava -XX:SharedArchiveFile=%~dp0a/b/1/B.jsa -Xshare:auto -jar %~dp0a/b/1/B.launcher.jar %*\n",
+                        shortcutFile.getContentsAsString().await());
+                    test.assertTrue(LauncherJar.isCurrent(launcherJarFile, "a.B", Iterable.create(
+                        qubFolder.getFile("a/b/1/b.jar").await(),
+                        qubFolder.getFile("c/d/1/d.jar").await())).await());
+                });
+
+                runner.test("with index entry whose jar doesn't exist", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("c", "d", "1"), null);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "1"), "a.B", new PackageSignature("c", "d", "1"));
+                    PackageIndex.update(qubFolder, (PackageIndex packageIndex) ->
+                    {
+                        packageIndex.set(new PackageIndexEntry("c", "d", "1", "jars/abc.jar", 10, "abc"));
+                    }).await();
+
+                    final ShortcutRelink relink = ShortcutRelinker.relink(new DependencyClosureResolver(qubFolder), 2).await();
+                    test.assertEqual(Iterable.create(), relink.getErrors());
+                    test.assertTrue(LauncherJar.isCurrent(qubFolder.getFile("a/b/1/B.launcher.jar").await(), "a.B", Iterable.create(
+                        qubFolder.getFile("a/b/1/b.jar").await(),
+                        qubFolder.getFile("c/d/1/d.jar").await())).await());
+                });
+
+                runner.test("with everything already current", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "1"), "a.B");
+                    final DependencyClosureResolver resolver = new DependencyClosureResolver(qubFolder);
+                    ShortcutRelinker.relink(resolver, 2).await();
+
+                    final ShortcutRelink relink = ShortcutRelinker.relink(resolver, 2).await();
+                    test.assertEqual(Iterable.create(qubFolder.getFile("B.cmd").await()), relink.getShortcutFiles());
+                    test.assertEqual(Iterable.create(), relink.getRewrittenShortcutFiles());
+                    test.assertEqual(Iterable.create(), relink.getRewrittenLauncherJarFiles());
+                    test.assertEqual(Iterable.create(), relink.getErrors());
+                });
+
+                runner.test("with class data sharing archive trained with different jars", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "1"), "a.B");
+                    qubFolder.getFile("a/b/1/b.jar").await().setContentsAsString("changed b.jar contents").await();
+
+                    final ShortcutRelink relink = ShortcutRelinker.relink(new DependencyClosureResolver(qubFolder), 2).await();
+                    final File cdsArchiveFile = qubFolder.getFile("a/b/1/B.jsa").await();
+                    test.assertEqual(Iterable.create(cdsArchiveFile), relink.getRemovedCdsArchiveFiles());
+                    test.assertEqual(Iterable.create(), relink.getErrors());
+                    test.assertFalse(cdsArchiveFile.exists().await());
+                    test.assertFalse(CdsArchive.getFingerprintFile(cdsArchiveFile).exists().await());
+                    test.assertEqual(
+                        "@echo OFF\njava -jar %~dp0a/b/1/B.launcher.jar %*\n",
+                        qubFolder.getFile("B.cmd").await().getContentsAsString().await());
+                });
+
+                runner.test("with missing dependency", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "1"), "a.B", new PackageSignature("c", "d", "1"));
+
+                    final ShortcutRelink relink = ShortcutRelinker.relink(new DependencyClosureResolver(qubFolder), 1).await();
+                    test.assertEqual(Iterable.create(), relink.getShortcutFiles());
+                    test.assertEqual(
+                        Iterable.create("Couldn't relink a/b:1: The dependency c/d:1 isn't installed. Couldn't find /qub/c/d/1/d.jar."),
+                        relink.getErrors());
+                    test.assertFalse(qubFolder.getFile("B.cmd").await().exists().await());
+                });
+
+                runner.test("with several versions and no existing shortcut", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "9"), "a.B");
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "10"), "a.B");
+
+                    final ShortcutRelink relink = ShortcutRelinker.relink(new DependencyClosureResolver(qubFolder), 2).await();
+                    test.assertEqual(Iterable.create(qubFolder.getFile("B.cmd").await()), relink.getShortcutFiles());
+                    test.assertEqual(
+                        "@echo OFF\njava -XX:SharedArchiveFile=%~dp0a/b/10/B.jsa -Xshare:auto -jar %~dp0a/b/10/B.launcher.jar %*\n",
+                        qubFolder.getFile("B.cmd").await().getContentsAsString().await());
+                });
+
+                runner.test("with several versions and a shortcut to an older one", (Test test) ->
+                {
+                    final Folder qubFolder = getInMemoryQubFolder(test);
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "1"), "a.B");
+                    PackageBundleTests.installFakePackage(qubFolder, new PackageSignature("a", "b", "2"), "a.B");
+                    qubFolder.getFile("B.cmd").await().setContentsAsString("@echo OFF\njava -jar %~dp0a/b/1/B.launcher.jar %*\n").await();
+
+                    final ShortcutRelink relink = ShortcutRelinker.relink(new DependencyClosureResolver(qubFolder), 2).await();
+                    test.assertEqual(Iterable.create(qubFolder.getFile("B.cmd").await()), relink.getRewrittenShortcutFiles());
+                    test.assertEqual(
+                        "@echo OFF\njava -XX:SharedArchiveFile=%~dp0a/b/1/B.jsa -Xshare:auto -jar %~dp0a/b/1/B.launcher.jar %*\n",
+                        qubFolder.getFile("B.cmd").await().getContentsAsString().await());
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryQubFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/qub").await();
+    }
+}
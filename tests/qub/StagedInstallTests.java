@@ -0,0 +1,95 @@
+package qub;
+
+public class StagedInstallTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(StagedInstall.class, () ->
+        {
+            runner.testGroup("constructor(Folder,StoredJar,String,Iterable<PackageIndexEntry>)", () ->
+            {
+                runner.test("with null stagingFolder", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    test.assertThrows(() -> new StagedInstall(null, createStoredJar(currentFolder), null, Iterable.create()),
+                        new PreConditionFailure("stagingFolder cannot be null."));
+                });
+
+                runner.test("with null storedJar", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    test.assertThrows(() -> new StagedInstall(currentFolder.getFolder("staging").await(), null, null, Iterable.create()),
+                        new PreConditionFailure("storedJar cannot be null."));
+                });
+
+                runner.test("with null dependencyEntries", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    test.assertThrows(() -> new StagedInstall(currentFolder.getFolder("staging").await(), createStoredJar(currentFolder), null, null),
+                        new PreConditionFailure("dependencyEntries cannot be null."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final Folder stagingFolder = currentFolder.getFolder("staging").await();
+                    final StoredJar storedJar = createStoredJar(currentFolder);
+                    final StagedInstall stagedInstall = new StagedInstall(stagingFolder, storedJar, "@echo OFF\n", Iterable.create());
+                    test.assertSame(stagingFolder, stagedInstall.getStagingFolder());
+                    test.assertSame(storedJar, stagedInstall.getStoredJar());
+                    test.assertEqual("@echo OFF\n", stagedInstall.getShortcutFileContents());
+                    test.assertEqual(Iterable.create(), stagedInstall.getDependencyEntries());
+                    test.assertNull(stagedInstall.getDeferredMoveFile());
+                });
+            });
+
+            runner.testGroup("discard()", () ->
+            {
+                runner.test("with staged files", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final Folder stagingFolder = currentFolder.getFolder("staging").await();
+                    stagingFolder.getFile("project.json").await().setContentsAsString("{}").await();
+                    final StagedInstall stagedInstall = new StagedInstall(stagingFolder, createStoredJar(currentFolder), null, Iterable.create());
+                    stagedInstall.discard().await();
+                    test.assertFalse(stagingFolder.exists().await());
+                });
+
+                runner.test("with jar that this install stored", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final Folder stagingFolder = currentFolder.getFolder("staging").await();
+                    final StoredJar storedJar = createStoredJar(currentFolder);
+                    storedJar.getFile().setContentsAsString("abc").await();
+                    new StagedInstall(stagingFolder, storedJar, null, Iterable.create()).discard().await();
+                    test.assertTrue(storedJar.getFile().exists().await());
+                });
+
+                runner.test("with jar that was already stored", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final Folder stagingFolder = currentFolder.getFolder("staging").await();
+                    final StoredJar storedJar = new StoredJar(currentFolder.getFile("jars/ab/abc.jar").await(), "abc", 3, false);
+                    storedJar.getFile().setContentsAsString("abc").await();
+                    new StagedInstall(stagingFolder, storedJar, null, Iterable.create()).discard().await();
+                    test.assertTrue(storedJar.getFile().exists().await());
+                });
+            });
+        });
+    }
+
+    private static StoredJar createStoredJar(Folder currentFolder)
+    {
+        return new StoredJar(currentFolder.getFile("jars/ab/abc.jar").await(), "abc", 3, true);
+    }
+
+    private static Folder getInMemoryCurrentFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/").await();
+    }
+}
@@ -0,0 +1,192 @@
+package qub;
+
+public class TestClassLauncherTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(TestClassLauncher.class, () ->
+        {
+            runner.testGroup("getClasspath(Folder,Iterable<File>)", () ->
+            {
+                runner.test("with null projectFolder", (Test test) ->
+                {
+                    test.assertThrows(() -> TestClassLauncher.getClasspath(null, Iterable.create()),
+                        new PreConditionFailure("projectFolder cannot be null."));
+                });
+
+                runner.test("with null dependencyJarFiles", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    test.assertThrows(() -> TestClassLauncher.getClasspath(currentFolder, null),
+                        new PreConditionFailure("dependencyJarFiles cannot be null."));
+                });
+
+                runner.test("with dependency jar files", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final Iterable<String> classpath = TestClassLauncher.getClasspath(
+                        currentFolder.getFolder("project").await(),
+                        Iterable.create(currentFolder.getFile("qub/fake-publisher/fake-dependency/1/fake-dependency.jar").await()));
+                    test.assertEqual(
+                        Iterable.create(
+                            "/project/outputs/sources",
+                            "/project/outputs/tests",
+                            "/project/outputs",
+                            "/qub/fake-publisher/fake-dependency/1/fake-dependency.jar"),
+                        classpath.take(4));
+                    // Nothing else from this process's classpath leaks into the tests.
+                    final String runnerClasspathEntry = TestClassLauncher.getTestRunnerClasspathEntry();
+                    test.assertEqual(runnerClasspathEntry == null ? 4 : 5, classpath.getCount());
+                    if (runnerClasspathEntry != null)
+                    {
+                        test.assertEqual(runnerClasspathEntry, classpath.last());
+                        test.assertFalse(runnerClasspathEntry.contains(java.io.File.pathSeparator));
+                    }
+                });
+            });
+
+            runner.testGroup("createShards(Iterable<String>,int,TestTimingHistory)", () ->
+            {
+                runner.test("with null testClassNames", (Test test) ->
+                {
+                    test.assertThrows(() -> TestClassLauncher.createShards(null, 1, TestTimingHistory.create()),
+                        new PreConditionFailure("testClassNames cannot be null."));
+                });
+
+                runner.test("with zero shardCount", (Test test) ->
+                {
+                    test.assertThrows(() -> TestClassLauncher.createShards(Iterable.create("ATests"), 0, TestTimingHistory.create()),
+                        new PreConditionFailure("shardCount (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with null history", (Test test) ->
+                {
+                    test.assertThrows(() -> TestClassLauncher.createShards(Iterable.create("ATests"), 1, null),
+                        new PreConditionFailure("history cannot be null."));
+                });
+
+                runner.test("with no test classes", (Test test) ->
+                {
+                    test.assertEqual(0, TestClassLauncher.createShards(Iterable.create(), 4, TestTimingHistory.create()).getCount());
+                });
+
+                runner.test("with more shards than test classes", (Test test) ->
+                {
+                    final Iterable<Iterable<String>> shards = TestClassLauncher.createShards(Iterable.create("BTests", "ATests"), 4, TestTimingHistory.create());
+                    test.assertEqual(2, shards.getCount());
+                    test.assertEqual(Iterable.create("ATests"), shards.first());
+                    test.assertEqual(Iterable.create("BTests"), shards.last());
+                });
+
+                runner.test("with timing history", (Test test) ->
+                {
+                    final TestTimingHistory history = TestTimingHistory.create();
+                    history.setMilliseconds("ATests", 90);
+                    history.setMilliseconds("BTests", 50);
+                    history.setMilliseconds("CTests", 40);
+                    history.setMilliseconds("DTests", 10);
+                    final Iterable<Iterable<String>> shards = TestClassLauncher.createShards(Iterable.create("DTests", "CTests", "BTests", "ATests"), 2, history);
+                    test.assertEqual(2, shards.getCount());
+                    test.assertEqual(Iterable.create("ATests", "DTests"), shards.first());
+                    test.assertEqual(Iterable.create("BTests", "CTests"), shards.last());
+                });
+            });
+
+            runner.testGroup("run(Console,Iterable<String>,Iterable<Iterable<String>>,TestTimingHistory)", () ->
+            {
+                runner.test("with null shards", (Test test) ->
+                {
+                    try (final Console console = new Console())
+                    {
+                        test.assertThrows(() -> new TestClassLauncher().run(console, Iterable.create(), null, TestTimingHistory.create()),
+                            new PreConditionFailure("shards cannot be null."));
+                    }
+                });
+
+                runner.test("with null history", (Test test) ->
+                {
+                    try (final Console console = new Console())
+                    {
+                        test.assertThrows(() -> new TestClassLauncher().run(console, Iterable.create(), Iterable.create(), null),
+                            new PreConditionFailure("history cannot be null."));
+                    }
+                });
+
+                runner.test("with passing and failing shards", (Test test) ->
+                {
+                    final InMemoryCharacterStream output = new InMemoryCharacterStream();
+                    final TestTimingHistory history = TestTimingHistory.create();
+                    final TestClassLauncher launcher = new TestClassLauncher()
+                    {
+                        @Override
+                        public Result<Integer> run(Console console, Iterable<String> classpath, Iterable<String> testClassNames)
+                        {
+                            return Result.create(() ->
+                            {
+                                for (final String testClassName : testClassNames)
+                                {
+                                    console.writeLine(testClassName + " ran").await();
+                                }
+                                return testClassNames.contains("BTests") ? 1 : 0;
+                            });
+                        }
+                    };
+                    try (final Console console = new Console())
+                    {
+                        console.setLineSeparator("\n");
+                        console.setOutput(output);
+                        final Iterable<Iterable<String>> shards = Iterable.create(
+                            Iterable.create("ATests", "CTests"),
+                            Iterable.create("BTests"));
+                        test.assertEqual(1, launcher.run(console, Iterable.create(), shards, history).await());
+                    }
+                    test.assertEqual(
+                        "Shard 1 of 2 (ATests, CTests):\n" +
+                        "ATests ran\n" +
+                        "CTests ran\n" +
+                        "Shard 2 of 2 (BTests):\n" +
+                        "BTests ran\n",
+                        output.getText().await());
+                    test.assertEqual(Iterable.create("ATests", "BTests", "CTests"), history.getTestClassNames());
+                });
+            });
+
+            runner.testGroup("run(Console,Iterable<String>,Iterable<String>)", () ->
+            {
+                runner.test("with null console", (Test test) ->
+                {
+                    test.assertThrows(() -> new TestClassLauncher().run(null, Iterable.create(), Iterable.create()),
+                        new PreConditionFailure("console cannot be null."));
+                });
+
+                runner.test("with null classpath", (Test test) ->
+                {
+                    try (final Console console = new Console())
+                    {
+                        test.assertThrows(() -> new TestClassLauncher().run(console, null, Iterable.create()),
+                            new PreConditionFailure("classpath cannot be null."));
+                    }
+                });
+
+                runner.test("with null testClassNames", (Test test) ->
+                {
+                    try (final Console console = new Console())
+                    {
+                        test.assertThrows(() -> new TestClassLauncher().run(console, Iterable.create(), null),
+                            new PreConditionFailure("testClassNames cannot be null."));
+                    }
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryCurrentFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/").await();
+    }
+}
@@ -0,0 +1,109 @@
+package qub;
+
+public class TestTimingHistoryTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(TestTimingHistory.class, () ->
+        {
+            runner.test("create()", (Test test) ->
+            {
+                final TestTimingHistory history = TestTimingHistory.create();
+                test.assertEqual(Iterable.create(), history.getTestClassNames());
+                test.assertEqual("", history.toString());
+            });
+
+            runner.testGroup("getHistoryFile(File)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> TestTimingHistory.getHistoryFile(null),
+                        new PreConditionFailure("projectJarFile cannot be null."));
+                });
+
+                runner.test("with jar file", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    test.assertEqual(
+                        currentFolder.getFile("outputs/a.testtimes").await(),
+                        TestTimingHistory.getHistoryFile(currentFolder.getFile("outputs/a.jar").await()));
+                });
+            });
+
+            runner.testGroup("getEstimatedMilliseconds(String)", () ->
+            {
+                runner.test("with empty history", (Test test) ->
+                {
+                    test.assertEqual(TestTimingHistory.defaultMilliseconds, TestTimingHistory.create().getEstimatedMilliseconds("ATests"));
+                });
+
+                runner.test("with known test class", (Test test) ->
+                {
+                    final TestTimingHistory history = TestTimingHistory.create();
+                    history.setMilliseconds("ATests", 30);
+                    test.assertEqual(30L, history.getEstimatedMilliseconds("ATests"));
+                });
+
+                runner.test("with unknown test class", (Test test) ->
+                {
+                    final TestTimingHistory history = TestTimingHistory.create();
+                    history.setMilliseconds("ATests", 30);
+                    history.setMilliseconds("BTests", 50);
+                    test.assertNull(history.getMilliseconds("CTests"));
+                    test.assertEqual(40L, history.getEstimatedMilliseconds("CTests"));
+                });
+            });
+
+            runner.testGroup("setMilliseconds(String,long)", () ->
+            {
+                runner.test("with negative milliseconds", (Test test) ->
+                {
+                    test.assertThrows(() -> TestTimingHistory.create().setMilliseconds("ATests", -1),
+                        new PreConditionFailure("milliseconds (-1) must be greater than or equal to 0."));
+                });
+            });
+
+            runner.testGroup("parse(File)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> TestTimingHistory.parse(null), new PreConditionFailure("historyFile cannot be null."));
+                });
+
+                runner.test("with saved history", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final File historyFile = currentFolder.getFile("outputs/a.testtimes").await();
+                    final TestTimingHistory history = TestTimingHistory.create();
+                    history.setMilliseconds("qub.BTests", 20);
+                    history.setMilliseconds("qub.ATests", 10);
+                    history.save(historyFile).await();
+                    test.assertEqual("qub.ATests\t10\nqub.BTests\t20\n", historyFile.getContentsAsString().await());
+
+                    final TestTimingHistory parsedHistory = TestTimingHistory.parse(historyFile).await();
+                    test.assertEqual(Iterable.create("qub.ATests", "qub.BTests"), parsedHistory.getTestClassNames());
+                    test.assertEqual(20L, parsedHistory.getMilliseconds("qub.BTests"));
+                });
+
+                runner.test("with malformed line", (Test test) ->
+                {
+                    final Folder currentFolder = getInMemoryCurrentFolder(test);
+                    final File historyFile = currentFolder.getFile("outputs/a.testtimes").await();
+                    historyFile.setContentsAsString("qub.ATests\n").await();
+                    test.assertThrows(() -> TestTimingHistory.parse(historyFile).await(),
+                        new IllegalArgumentException("Expected a test class name and a duration in test timing line \"qub.ATests\"."));
+                });
+            });
+        });
+    }
+
+    private static Folder getInMemoryCurrentFolder(Test test)
+    {
+        PreCondition.assertNotNull(test, "test");
+
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getParallelAsyncRunner(), test.getClock());
+        fileSystem.createRoot("/");
+
+        return fileSystem.getFolder("/").await();
+    }
+}